@@ -40,6 +40,26 @@ CREATE INDEX idx_giao_dich_ngay ON giao_dich(ngay_giao_dich);
 CREATE INDEX idx_giao_dich_loai ON giao_dich(loai_giao_dich);
 CREATE INDEX idx_giao_dich_don_gia ON giao_dich(don_gia);
 CREATE INDEX idx_giao_dich_composite ON giao_dich(loai_giao_dich, ngay_giao_dich);
+CREATE INDEX idx_giao_dich_updated_at ON giao_dich(updated_at);
+-- Thống kê theo loại vàng / loại tiền: chỉ mục phủ theo đúng thứ tự GROUP BY,
+-- một lần duyệt chỉ mục trả lời mọi nhóm
+CREATE INDEX idx_giao_dich_nhom ON giao_dich(loai_giao_dich, loai_vang, loai_tien, don_gia, so_luong, ti_gia);
+
+-- Tombstone log: giao dịch đã xóa, để export tăng dần báo cho bên nhận
+CREATE TABLE IF NOT EXISTS giao_dich_tombstone (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    ma_giao_dich VARCHAR(20) NOT NULL,
+    deleted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_tombstone_deleted_at ON giao_dich_tombstone(deleted_at);
+
+-- High-water mark (updated_at đã export) theo từng đích export
+CREATE TABLE IF NOT EXISTS export_watermark (
+    export_target VARCHAR(500) PRIMARY KEY,
+    high_water_mark TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
 
 -- Insert sample data
 INSERT INTO giao_dich (ma_giao_dich, ngay_giao_dich, don_gia, so_luong, loai_giao_dich, loai_vang) VALUES
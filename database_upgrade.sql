@@ -0,0 +1,47 @@
+-- Nâng cấp database đã cài từ bản trước: thêm bảng và chỉ mục mới của database_schema.sql.
+-- Chạy lại nhiều lần không sao (bảng/chỉ mục đã có thì bỏ qua).
+
+USE quanly_giaodich;
+
+-- Tombstone log: giao dịch đã xóa, để export tăng dần báo cho bên nhận
+-- (lệnh xóa giao dịch ghi vào bảng này, thiếu bảng thì mọi lần xóa đều lỗi)
+CREATE TABLE IF NOT EXISTS giao_dich_tombstone (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    ma_giao_dich VARCHAR(20) NOT NULL,
+    deleted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- High-water mark (updated_at đã export) theo từng đích export
+CREATE TABLE IF NOT EXISTS export_watermark (
+    export_target VARCHAR(500) PRIMARY KEY,
+    high_water_mark TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- MySQL không có CREATE INDEX IF NOT EXISTS: kiểm tra information_schema rồi mới tạo
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.STATISTICS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'giao_dich'
+                 AND INDEX_NAME = 'idx_giao_dich_updated_at') = 0,
+    'CREATE INDEX idx_giao_dich_updated_at ON giao_dich(updated_at)',
+    'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.STATISTICS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'giao_dich'
+                 AND INDEX_NAME = 'idx_giao_dich_nhom') = 0,
+    'CREATE INDEX idx_giao_dich_nhom ON giao_dich(loai_giao_dich, loai_vang, loai_tien, don_gia, so_luong, ti_gia)',
+    'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.STATISTICS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'giao_dich_tombstone'
+                 AND INDEX_NAME = 'idx_tombstone_deleted_at') = 0,
+    'CREATE INDEX idx_tombstone_deleted_at ON giao_dich_tombstone(deleted_at)',
+    'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
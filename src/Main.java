@@ -8,11 +8,32 @@ import javax.swing.UIManager;
 
 import ui.MainFrame;
 import utils.DatabaseUtil;
+import utils.StartupTimer;
 
 public class Main {
     private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
     
     public static void main(String[] args) {
+        // Kết nối database trên thread nền, song song với việc dựng giao diện;
+        // các truy vấn đầu tiên tự chờ pool sẵn sàng
+        DatabaseUtil.getInstance().whenReady().whenComplete((ignored, e) -> {
+            if (e == null) {
+                StartupTimer.mark("Pool kết nối sẵn sàng");
+                LOGGER.info("Database connection initialized successfully");
+                return;
+            }
+            LOGGER.log(Level.SEVERE, "Failed to initialize database connection", e);
+            SwingUtilities.invokeLater(() -> {
+                JOptionPane.showMessageDialog(
+                    null,
+                    "Không thể kết nối database!\nVui lòng kiểm tra cấu hình MySQL.",
+                    "Lỗi Database",
+                    JOptionPane.ERROR_MESSAGE
+                );
+                System.exit(1);
+            });
+        });
+        
         // Set system look and feel
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -20,25 +41,11 @@ public class Main {
             LOGGER.log(Level.WARNING, "Could not set system look and feel", e);
         }
         
-        // Initialize database connection
-        try {
-            DatabaseUtil.getInstance();
-            LOGGER.info("Database connection initialized successfully");
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Failed to initialize database connection", e);
-            JOptionPane.showMessageDialog(
-                null,
-                "Không thể kết nối database!\nVui lòng kiểm tra cấu hình MySQL.",
-                "Lỗi Database",
-                JOptionPane.ERROR_MESSAGE
-            );
-            System.exit(1);
-        }
-        
         // Start the application
         SwingUtilities.invokeLater(() -> {
             try {
                 new MainFrame();
+                StartupTimer.mark("Dựng xong cửa sổ chính");
                 LOGGER.info("Application started successfully");
             } catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Failed to start application", e);
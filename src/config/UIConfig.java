@@ -0,0 +1,28 @@
+// UI configuration constants
+package config;
+
+import java.nio.file.Paths;
+
+public class UIConfig {
+    // Gom các yêu cầu làm mới thống kê trong khoảng này thành một lần (ms),
+    // đổi bằng -Dstatistics.refreshDebounceMs=...
+    public static final int STATISTICS_REFRESH_DEBOUNCE_MS =
+        Integer.getInteger("statistics.refreshDebounceMs", 400);
+    
+    // Số nến của đường trung bình giá trong bảng giá, đổi bằng -Dstatistics.movingAverageDays=...
+    public static final int STATISTICS_MOVING_AVERAGE_DAYS =
+        Integer.getInteger("statistics.movingAverageDays", 7);
+    
+    // Chờ trước khi tải lại dữ liệu thống kê đang được dựng nền (ms)
+    public static final int STATISTICS_NOT_READY_RETRY_MS = 1000;
+    
+    // Mục tiêu thời gian từ lúc mở ứng dụng đến khi cửa sổ chính được vẽ (ms),
+    // vượt quá thì ghi cảnh báo; đổi bằng -Dstartup.firstPaintTargetMs=...
+    public static final int STARTUP_FIRST_PAINT_TARGET_MS =
+        Integer.getInteger("startup.firstPaintTargetMs", 1000);
+    
+    // Bản lưu cục bộ dữ liệu đã tải (khởi động nhanh); đổi bằng -Dsnapshot.file=...,
+    // để trống (-Dsnapshot.file=) thì không dùng bản lưu
+    public static final String SNAPSHOT_FILE = System.getProperty("snapshot.file",
+        Paths.get(System.getProperty("user.home"), ".quanly_giaodich", "snapshot.bin").toString());
+}
@@ -0,0 +1,12 @@
+// DAO interface for export high-water marks (incremental export)
+package dao;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import exception.DataAccessException;
+
+public interface ExportWatermarkDAO {
+    Optional<LocalDateTime> findHighWaterMark(String exportTarget) throws DataAccessException;
+    void saveHighWaterMark(String exportTarget, LocalDateTime highWaterMark) throws DataAccessException;
+}
@@ -0,0 +1,61 @@
+// Con trỏ đọc tuần tự kết quả truy vấn giao dịch, từng dòng một
+package dao;
+
+import java.util.Iterator;
+import java.util.List;
+
+import exception.DataAccessException;
+import model.GiaoDich;
+
+/**
+ * Kết quả được đọc dần từ DB thay vì gom hết vào một List:
+ * dòng đầu tiên có ngay khi server bắt đầu trả về, bộ nhớ không phụ thuộc số dòng.
+ * Con trỏ giữ riêng một kết nối cho đến khi close, nên phải luôn được đóng
+ * (try-with-resources). next/close gọi từ cùng một thread; cancel gọi được từ thread khác.
+ */
+public interface GiaoDichCursor extends AutoCloseable {
+
+    /**
+     * Con trỏ trên danh sách đã có trong bộ nhớ, để cùng một đường xử lý nhận cả hai nguồn
+     */
+    static GiaoDichCursor of(List<? extends GiaoDich> giaoDichs) {
+        Iterator<? extends GiaoDich> iterator = giaoDichs.iterator();
+        return new GiaoDichCursor() {
+            private volatile boolean cancelled;
+
+            @Override
+            public GiaoDich next() throws DataAccessException {
+                if (cancelled) {
+                    throw new DataAccessException("Đã hủy đọc danh sách giao dịch");
+                }
+                return iterator.hasNext() ? iterator.next() : null;
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Giao dịch kế tiếp, null khi đã hết dữ liệu
+     */
+    GiaoDich next() throws DataAccessException;
+
+    /**
+     * Dừng truy vấn đang chạy (an toàn khi gọi từ thread khác):
+     * lời gọi next đang chờ hoặc kế tiếp sẽ ném DataAccessException
+     */
+    void cancel();
+
+    /**
+     * Giải phóng tài nguyên; gọi nhiều lần không sao
+     */
+    @Override
+    void close();
+}
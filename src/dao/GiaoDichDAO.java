@@ -3,23 +3,78 @@ package dao;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
+import dto.ThanhTienBucketDTO;
+import dto.ThongKeDonGiaLonDTO;
+import dto.ThongKeNgayDTO;
+import dto.ThongKeNhomDTO;
+import dto.ThongKeThangDTO;
+import dto.TombstoneDTO;
 import exception.DataAccessException;
 import model.GiaoDich;
 
 public interface GiaoDichDAO extends BaseDAO<GiaoDich, String> {
+    // Sửa/xóa và trả về bản ngay trước đó, đọc bằng SELECT ... FOR UPDATE trong cùng transaction
+    // với lệnh ghi: hai lần ghi cùng mã chạy cùng lúc không đọc được cùng một bản cũ
+    // (rỗng khi không có dòng, không ghi gì)
+    Optional<GiaoDich> updateReturningPrevious(GiaoDich entity) throws DataAccessException;
+    Optional<GiaoDich> deleteReturningPrevious(String id) throws DataAccessException;
+    
     List<GiaoDich> findByLoaiGiaoDich(String loaiGiaoDich) throws DataAccessException;
     List<GiaoDich> findByNgayGiaoDich(LocalDate tuNgay, LocalDate denNgay) throws DataAccessException;
     List<GiaoDich> findByDonGiaGreaterThan(BigDecimal donGia) throws DataAccessException;
+    // K giao dịch đơn giá cao nhất (LIMIT trên DB) và số lượng/tổng/trung bình của cả nhóm
+    List<GiaoDich> findTopByDonGiaGreaterThan(BigDecimal donGia, int limit) throws DataAccessException;
+    ThongKeDonGiaLonDTO summarizeByDonGiaGreaterThan(BigDecimal donGia) throws DataAccessException;
+    
+    // Đọc dần (streaming) cùng thứ tự với các truy vấn trên; người gọi phải đóng con trỏ
+    GiaoDichCursor openCursorAll() throws DataAccessException;
+    GiaoDichCursor openCursorByDonGiaGreaterThan(BigDecimal donGia) throws DataAccessException;
+    // Từ tuNgay, theo ngày rồi thời điểm tạo (cũ đến mới)
+    GiaoDichCursor openCursorFromDateChronological(LocalDate tuNgay) throws DataAccessException;
+    // [tuNgay, denNgay], cùng thứ tự
+    GiaoDichCursor openCursorByDateRangeChronological(LocalDate tuNgay, LocalDate denNgay) throws DataAccessException;
     
     // Thống kê tổng (tất cả thời gian)
     long countByLoaiGiaoDich(String loaiGiaoDich) throws DataAccessException;
     BigDecimal sumThanhTienByLoaiGiaoDich(String loaiGiaoDich) throws DataAccessException;
     BigDecimal getAverageThanhTienByLoaiGiaoDich(String loaiGiaoDich) throws DataAccessException;
+    long countByDonGiaGreaterThan(BigDecimal donGia) throws DataAccessException;
     
     // Thống kê theo thời gian
     long countByLoaiGiaoDichAndDateRange(String loaiGiaoDich, LocalDate tuNgay, LocalDate denNgay) throws DataAccessException;
     BigDecimal sumThanhTienByLoaiGiaoDichAndDateRange(String loaiGiaoDich, LocalDate tuNgay, LocalDate denNgay) throws DataAccessException;
     BigDecimal getAverageThanhTienByLoaiGiaoDichAndDateRange(String loaiGiaoDich, LocalDate tuNgay, LocalDate denNgay) throws DataAccessException;
+    long countByDonGiaGreaterThanAndDateRange(BigDecimal donGia, LocalDate tuNgay, LocalDate denNgay) throws DataAccessException;
+    // Số giao dịch, tổng thành tiền, số giao dịch đơn giá > donGia theo từng (ngày, loại)
+    List<ThongKeNgayDTO> aggregateByNgayAndLoai(BigDecimal donGia) throws DataAccessException;
+    // Như trên nhưng chỉ trong [tuNgay, denNgay] (theo chỉ mục ngày), để vá một khoảng ngày
+    List<ThongKeNgayDTO> aggregateByNgayAndLoai(BigDecimal donGia, LocalDate tuNgay, LocalDate denNgay) throws DataAccessException;
+    // Như aggregateByNgayAndLoai nhưng theo (năm, tháng, loại), trong [tuNgay, denNgay]
+    List<ThongKeThangDTO> aggregateByThangAndLoai(BigDecimal donGia, LocalDate tuNgay, LocalDate denNgay) throws DataAccessException;
+    // Số giao dịch, tổng số lượng, tổng/trung bình thành tiền, trung bình đơn giá theo từng
+    // loại vàng và loại tiền, một câu GROUP BY
+    List<ThongKeNhomDTO> aggregateByNhom() throws DataAccessException;
+    List<ThongKeNhomDTO> aggregateByNhomAndDateRange(LocalDate tuNgay, LocalDate denNgay) throws DataAccessException;
+    // Số giao dịch theo (ngày, loại, ô FLOOR(LN(thành tiền) / logBase)), ô null: thành tiền không dương
+    List<ThanhTienBucketDTO> histogramThanhTienByNgayAndLoai(double logBase) throws DataAccessException;
+    // Như trên nhưng chỉ trong [tuNgay, denNgay] (theo chỉ mục ngày), để vá một khoảng ngày
+    List<ThanhTienBucketDTO> histogramThanhTienByNgayAndLoai(double logBase, LocalDate tuNgay, LocalDate denNgay) throws DataAccessException;
+    
+    // Ước tính kích thước export (không tải dữ liệu); độ rộng dòng tính trên một mẫu giới hạn
+    long countAll() throws DataAccessException;
+    double getAverageRowWidth() throws DataAccessException;
+    
+    // Export tăng dần theo updated_at: khoảng (tuThoiDiem, denThoiDiem]
+    List<GiaoDich> findByUpdatedAtRange(LocalDateTime tuThoiDiem, LocalDateTime denThoiDiem) throws DataAccessException;
+    GiaoDichCursor openCursorByUpdatedAtRange(LocalDateTime tuThoiDiem, LocalDateTime denThoiDiem) throws DataAccessException;
+    long countByUpdatedAtRange(LocalDateTime tuThoiDiem, LocalDateTime denThoiDiem) throws DataAccessException;
+    List<TombstoneDTO> findDeletedInRange(LocalDateTime tuThoiDiem, LocalDateTime denThoiDiem) throws DataAccessException;
+    LocalDateTime getCurrentDatabaseTime() throws DataAccessException;
+    
+    // Nhập hàng loạt: bỏ qua mã giao dịch đã tồn tại, trả về số dòng thực sự được thêm
+    int saveAllIgnoreDuplicates(List<GiaoDich> entities) throws DataAccessException;
 }
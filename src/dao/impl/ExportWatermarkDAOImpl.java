@@ -0,0 +1,83 @@
+// Implementation of ExportWatermarkDAO with MySQL
+package dao.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import dao.ExportWatermarkDAO;
+import exception.DataAccessException;
+import utils.DatabaseUtil;
+
+public class ExportWatermarkDAOImpl implements ExportWatermarkDAO {
+    private static final Logger LOGGER = Logger.getLogger(ExportWatermarkDAOImpl.class.getName());
+    private final DatabaseUtil databaseUtil = DatabaseUtil.getInstance();
+    
+    private static final String SELECT_HIGH_WATER_MARK = 
+        "SELECT high_water_mark FROM export_watermark WHERE export_target = ?";
+    
+    private static final String UPSERT_HIGH_WATER_MARK = 
+        "INSERT INTO export_watermark (export_target, high_water_mark) VALUES (?, ?) " +
+        "ON DUPLICATE KEY UPDATE high_water_mark = VALUES(high_water_mark)";
+
+    @Override
+    public Optional<LocalDateTime> findHighWaterMark(String exportTarget) throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = conn.prepareStatement(SELECT_HIGH_WATER_MARK);
+            stmt.setString(1, exportTarget);
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return Optional.of(rs.getTimestamp(1).toLocalDateTime());
+            }
+            return Optional.empty();
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi đọc mốc export: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public void saveHighWaterMark(String exportTarget, LocalDateTime highWaterMark) throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = conn.prepareStatement(UPSERT_HIGH_WATER_MARK);
+            stmt.setString(1, exportTarget);
+            stmt.setTimestamp(2, Timestamp.valueOf(highWaterMark));
+            stmt.executeUpdate();
+            
+            LOGGER.info("Đã cập nhật mốc export " + exportTarget + ": " + highWaterMark);
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi lưu mốc export: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, null);
+        }
+    }
+    
+    private void closeResources(Connection conn, PreparedStatement stmt, ResultSet rs) {
+        try {
+            if (rs != null) rs.close();
+            if (stmt != null) stmt.close();
+            if (conn != null) databaseUtil.releaseConnection(conn);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error closing database resources", e);
+        }
+    }
+}
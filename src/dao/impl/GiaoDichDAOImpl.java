@@ -2,20 +2,33 @@
 package dao.impl;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import dao.GiaoDichCursor;
 import dao.GiaoDichDAO;
+import dto.ThanhTienBucketDTO;
+import dto.ThongKeDonGiaLonDTO;
+import dto.ThongKeNgayDTO;
+import dto.ThongKeNhomDTO;
+import dto.ThongKeThangDTO;
+import dto.TombstoneDTO;
 import exception.DataAccessException;
 import exception.ValidationException;
 import model.GiaoDich;
@@ -31,14 +44,25 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         "INSERT INTO giao_dich (ma_giao_dich, ngay_giao_dich, don_gia, so_luong, loai_giao_dich, loai_vang, loai_tien, ti_gia) " +
         "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
     
+    // Mã đã tồn tại trong một lô nhập; FOR UPDATE khóa cả khoảng của mã chưa có để không
+    // bị chèn chen vào trước INSERT (nối thêm ", ?" theo số mã)
+    private static final String SELECT_EXISTING_IDS_FOR_UPDATE_PREFIX = 
+        "SELECT ma_giao_dich FROM giao_dich WHERE ma_giao_dich IN (?";
+    
     private static final String UPDATE_GIAO_DICH = 
         "UPDATE giao_dich SET ngay_giao_dich = ?, don_gia = ?, so_luong = ?, loai_vang = ?, loai_tien = ?, ti_gia = ? " +
         "WHERE ma_giao_dich = ?";
     
     private static final String DELETE_GIAO_DICH = "DELETE FROM giao_dich WHERE ma_giao_dich = ?";
     
+    private static final String INSERT_TOMBSTONE = 
+        "INSERT INTO giao_dich_tombstone (ma_giao_dich) SELECT ma_giao_dich FROM giao_dich WHERE ma_giao_dich = ?";
+    
     private static final String SELECT_BY_ID = "SELECT * FROM giao_dich WHERE ma_giao_dich = ?";
     
+    // Khóa dòng tới hết transaction: lần sửa/xóa khác cùng mã phải chờ
+    private static final String SELECT_BY_ID_FOR_UPDATE = "SELECT * FROM giao_dich WHERE ma_giao_dich = ? FOR UPDATE";
+    
     private static final String SELECT_ALL = "SELECT * FROM giao_dich ORDER BY ngay_giao_dich DESC";
     
     private static final String SELECT_BY_LOAI = "SELECT * FROM giao_dich WHERE loai_giao_dich = ? ORDER BY ngay_giao_dich DESC";
@@ -46,14 +70,34 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
     private static final String SELECT_BY_DATE_RANGE = 
         "SELECT * FROM giao_dich WHERE ngay_giao_dich BETWEEN ? AND ? ORDER BY ngay_giao_dich DESC";
     
+    // Thứ tự giao dịch trong ngày theo thời điểm tạo (chuỗi giá: mở cửa/đóng cửa)
+    private static final String SELECT_FROM_DATE_CHRONOLOGICAL = 
+        "SELECT * FROM giao_dich WHERE ngay_giao_dich >= ? ORDER BY ngay_giao_dich, created_at, ma_giao_dich";
+    
+    private static final String SELECT_BY_DATE_RANGE_CHRONOLOGICAL = 
+        "SELECT * FROM giao_dich WHERE ngay_giao_dich BETWEEN ? AND ? ORDER BY ngay_giao_dich, created_at, ma_giao_dich";
+    
     private static final String SELECT_BY_DON_GIA_GREATER = 
         "SELECT * FROM giao_dich WHERE don_gia > ? ORDER BY don_gia DESC";
     
+    private static final String SELECT_TOP_BY_DON_GIA_GREATER = 
+        "SELECT * FROM giao_dich WHERE don_gia > ? ORDER BY don_gia DESC LIMIT ?";
+    
+    private static final String SUMMARY_BY_DON_GIA_GREATER = 
+        "SELECT COUNT(*), SUM(CASE WHEN loai_giao_dich = 'VANG' THEN don_gia * so_luong " +
+        "WHEN loai_giao_dich = 'TIEN_TE' THEN don_gia * so_luong * ti_gia END), AVG(don_gia) " +
+        "FROM giao_dich WHERE don_gia > ?";
+    
     private static final String COUNT_BY_LOAI = "SELECT COUNT(*) FROM giao_dich WHERE loai_giao_dich = ?";
     
     private static final String COUNT_BY_LOAI_AND_DATE = 
         "SELECT COUNT(*) FROM giao_dich WHERE loai_giao_dich = ? AND ngay_giao_dich BETWEEN ? AND ?";
     
+    private static final String COUNT_BY_DON_GIA_GREATER = "SELECT COUNT(*) FROM giao_dich WHERE don_gia > ?";
+    
+    private static final String COUNT_BY_DON_GIA_GREATER_AND_DATE = 
+        "SELECT COUNT(*) FROM giao_dich WHERE don_gia > ? AND ngay_giao_dich BETWEEN ? AND ?";
+    
     private static final String SUM_THANH_TIEN = 
         "SELECT SUM(CASE WHEN loai_giao_dich = 'VANG' THEN don_gia * so_luong " +
         "WHEN loai_giao_dich = 'TIEN_TE' THEN don_gia * so_luong * ti_gia END) " +
@@ -74,7 +118,77 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         "WHEN loai_giao_dich = 'TIEN_TE' THEN don_gia * so_luong * ti_gia END) " +
         "FROM giao_dich WHERE loai_giao_dich = ? AND ngay_giao_dich BETWEEN ? AND ?";
     
+    private static final String AGGREGATE_BY_NGAY_AND_LOAI = 
+        "SELECT loai_giao_dich, ngay_giao_dich, COUNT(*), " +
+        "SUM(CASE WHEN loai_giao_dich = 'VANG' THEN don_gia * so_luong " +
+        "WHEN loai_giao_dich = 'TIEN_TE' THEN don_gia * so_luong * ti_gia END), " +
+        "SUM(CASE WHEN don_gia > ? THEN 1 ELSE 0 END) " +
+        "FROM giao_dich GROUP BY loai_giao_dich, ngay_giao_dich";
+    
+    private static final String AGGREGATE_BY_NGAY_AND_LOAI_AND_DATE = 
+        "SELECT loai_giao_dich, ngay_giao_dich, COUNT(*), " +
+        "SUM(CASE WHEN loai_giao_dich = 'VANG' THEN don_gia * so_luong " +
+        "WHEN loai_giao_dich = 'TIEN_TE' THEN don_gia * so_luong * ti_gia END), " +
+        "SUM(CASE WHEN don_gia > ? THEN 1 ELSE 0 END) " +
+        "FROM giao_dich WHERE ngay_giao_dich BETWEEN ? AND ? GROUP BY loai_giao_dich, ngay_giao_dich";
+    
+    private static final String AGGREGATE_BY_THANG_AND_LOAI = 
+        "SELECT YEAR(ngay_giao_dich) AS nam, MONTH(ngay_giao_dich) AS thang, loai_giao_dich, COUNT(*), " +
+        "SUM(CASE WHEN loai_giao_dich = 'VANG' THEN don_gia * so_luong " +
+        "WHEN loai_giao_dich = 'TIEN_TE' THEN don_gia * so_luong * ti_gia END), " +
+        "SUM(CASE WHEN don_gia > ? THEN 1 ELSE 0 END) " +
+        "FROM giao_dich WHERE ngay_giao_dich BETWEEN ? AND ? GROUP BY nam, thang, loai_giao_dich";
+    
+    // Theo loại vàng / loại tiền: nhóm theo đúng thứ tự cột của idx_giao_dich_nhom (chỉ mục phủ),
+    // DB duyệt chỉ mục một lần, không đọc bảng, không cần bảng tạm
+    private static final String AGGREGATE_BY_NHOM = 
+        "SELECT loai_giao_dich, loai_vang, loai_tien, COUNT(*), SUM(so_luong), " +
+        "SUM(CASE WHEN loai_giao_dich = 'VANG' THEN don_gia * so_luong " +
+        "WHEN loai_giao_dich = 'TIEN_TE' THEN don_gia * so_luong * ti_gia END), SUM(don_gia) " +
+        "FROM giao_dich GROUP BY loai_giao_dich, loai_vang, loai_tien";
+    
+    private static final String AGGREGATE_BY_NHOM_AND_DATE = 
+        "SELECT loai_giao_dich, loai_vang, loai_tien, COUNT(*), SUM(so_luong), " +
+        "SUM(CASE WHEN loai_giao_dich = 'VANG' THEN don_gia * so_luong " +
+        "WHEN loai_giao_dich = 'TIEN_TE' THEN don_gia * so_luong * ti_gia END), SUM(don_gia) " +
+        "FROM giao_dich WHERE ngay_giao_dich BETWEEN ? AND ? GROUP BY loai_giao_dich, loai_vang, loai_tien";
+    
+    // Ô logarit của thành tiền: LN của giá trị không dương là NULL (ô riêng)
+    private static final String HISTOGRAM_THANH_TIEN_BY_NGAY_AND_LOAI = 
+        "SELECT loai_giao_dich, ngay_giao_dich, FLOOR(LN(CASE WHEN loai_giao_dich = 'VANG' THEN don_gia * so_luong " +
+        "WHEN loai_giao_dich = 'TIEN_TE' THEN don_gia * so_luong * ti_gia END) / ?) AS bucket, COUNT(*) " +
+        "FROM giao_dich GROUP BY loai_giao_dich, ngay_giao_dich, bucket";
+    
+    private static final String HISTOGRAM_THANH_TIEN_BY_NGAY_AND_LOAI_AND_DATE = 
+        "SELECT loai_giao_dich, ngay_giao_dich, FLOOR(LN(CASE WHEN loai_giao_dich = 'VANG' THEN don_gia * so_luong " +
+        "WHEN loai_giao_dich = 'TIEN_TE' THEN don_gia * so_luong * ti_gia END) / ?) AS bucket, COUNT(*) " +
+        "FROM giao_dich WHERE ngay_giao_dich BETWEEN ? AND ? GROUP BY loai_giao_dich, ngay_giao_dich, bucket";
+    
     private static final String EXISTS_BY_ID = "SELECT 1 FROM giao_dich WHERE ma_giao_dich = ?";
+    
+    private static final String COUNT_ALL = "SELECT COUNT(*) FROM giao_dich";
+    
+    private static final String SELECT_BY_UPDATED_AT_RANGE = 
+        "SELECT * FROM giao_dich WHERE updated_at > ? AND updated_at <= ? ORDER BY updated_at";
+    
+    private static final String COUNT_BY_UPDATED_AT_RANGE = 
+        "SELECT COUNT(*) FROM giao_dich WHERE updated_at > ? AND updated_at <= ?";
+    
+    private static final String SELECT_TOMBSTONES_IN_RANGE = 
+        "SELECT ma_giao_dich, deleted_at FROM giao_dich_tombstone " +
+        "WHERE deleted_at > ? AND deleted_at <= ? ORDER BY deleted_at, id";
+    
+    private static final String SELECT_CURRENT_TIMESTAMP = "SELECT CURRENT_TIMESTAMP";
+    
+    // Số dòng mẫu để ước tính độ rộng dòng export
+    private static final int ROW_WIDTH_SAMPLE_SIZE = 1000;
+    
+    // Độ rộng trung bình (ký tự) của các cột có độ dài thay đổi khi ghi ra file,
+    // tính trên tối đa ROW_WIDTH_SAMPLE_SIZE dòng thay vì duyệt cả bảng
+    private static final String AVG_ROW_WIDTH = 
+        "SELECT AVG(CHAR_LENGTH(ma_giao_dich) + CHAR_LENGTH(CAST(don_gia AS CHAR)) + CHAR_LENGTH(CAST(so_luong AS CHAR)) " +
+        "+ CHAR_LENGTH(COALESCE(loai_vang, loai_tien, '')) + COALESCE(CHAR_LENGTH(CAST(ti_gia AS CHAR)), 0)) " +
+        "FROM (SELECT ma_giao_dich, don_gia, so_luong, loai_vang, loai_tien, ti_gia FROM giao_dich LIMIT ?) mau";
 
     @Override
     public GiaoDich save(GiaoDich entity) throws DataAccessException {
@@ -83,7 +197,7 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         
         try {
             conn = databaseUtil.getConnection();
-            stmt = conn.prepareStatement(INSERT_GIAO_DICH);
+            stmt = prepare(conn, INSERT_GIAO_DICH);
             
             setCommonParameters(stmt, entity);
             setSpecificParameters(stmt, entity);
@@ -105,12 +219,31 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
 
     @Override
     public GiaoDich update(GiaoDich entity) throws DataAccessException {
+        if (!updateReturningPrevious(entity).isPresent()) {
+            throw new DataAccessException("Không tìm thấy giao dịch để cập nhật");
+        }
+        return entity;
+    }
+
+    @Override
+    public Optional<GiaoDich> updateReturningPrevious(GiaoDich entity) throws DataAccessException {
         Connection conn = null;
+        PreparedStatement selectStmt = null;
         PreparedStatement stmt = null;
         
         try {
             conn = databaseUtil.getConnection();
-            stmt = conn.prepareStatement(UPDATE_GIAO_DICH);
+            conn.setAutoCommit(false);
+            
+            // Đọc bản cũ và khóa dòng trong cùng transaction với lệnh cập nhật
+            selectStmt = prepare(conn, SELECT_BY_ID_FOR_UPDATE);
+            GiaoDich previous = findLocked(selectStmt, entity.getMaGiaoDich());
+            if (previous == null) {
+                rollback(conn);
+                return Optional.empty();
+            }
+            
+            stmt = prepare(conn, UPDATE_GIAO_DICH);
             
             stmt.setDate(1, Date.valueOf(entity.getNgayGiaoDich()));
             stmt.setBigDecimal(2, entity.getDonGia());
@@ -130,44 +263,78 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
             
             stmt.setString(7, entity.getMaGiaoDich());
             
-            int result = stmt.executeUpdate();
-            if (result == 0) {
-                throw new DataAccessException("Không tìm thấy giao dịch để cập nhật");
-            }
+            stmt.executeUpdate();
+            conn.commit();
             
             LOGGER.info("Đã cập nhật giao dịch: " + entity.getMaGiaoDich());
-            return entity;
+            return Optional.of(previous);
             
-        } catch (SQLException e) {
+        } catch (SQLException | ValidationException e) {
+            rollback(conn);
             throw new DataAccessException("Lỗi khi cập nhật giao dịch: " + e.getMessage(), e);
         } finally {
+            restoreAutoCommit(conn);
+            closeStatement(selectStmt);
             closeResources(conn, stmt, null);
         }
     }
 
     @Override
     public boolean delete(String id) throws DataAccessException {
+        return deleteReturningPrevious(id).isPresent();
+    }
+
+    @Override
+    public Optional<GiaoDich> deleteReturningPrevious(String id) throws DataAccessException {
         Connection conn = null;
+        PreparedStatement selectStmt = null;
+        PreparedStatement tombstoneStmt = null;
         PreparedStatement stmt = null;
         
         try {
             conn = databaseUtil.getConnection();
-            stmt = conn.prepareStatement(DELETE_GIAO_DICH);
-            stmt.setString(1, id);
+            conn.setAutoCommit(false);
             
-            int result = stmt.executeUpdate();
-            if (result > 0) {
-                LOGGER.info("Đã xóa giao dịch: " + id);
-                return true;
+            selectStmt = prepare(conn, SELECT_BY_ID_FOR_UPDATE);
+            GiaoDich previous = findLocked(selectStmt, id);
+            if (previous == null) {
+                rollback(conn);
+                return Optional.empty();
             }
-            return false;
             
-        } catch (SQLException e) {
+            // Ghi tombstone cùng transaction với lệnh xóa
+            tombstoneStmt = prepare(conn, INSERT_TOMBSTONE);
+            tombstoneStmt.setString(1, id);
+            tombstoneStmt.executeUpdate();
+            
+            stmt = prepare(conn, DELETE_GIAO_DICH);
+            stmt.setString(1, id);
+            stmt.executeUpdate();
+            conn.commit();
+            
+            LOGGER.info("Đã xóa giao dịch: " + id);
+            return Optional.of(previous);
+            
+        } catch (SQLException | ValidationException e) {
+            rollback(conn);
             throw new DataAccessException("Lỗi khi xóa giao dịch: " + e.getMessage(), e);
         } finally {
+            restoreAutoCommit(conn);
+            closeStatement(selectStmt);
+            closeStatement(tombstoneStmt);
             closeResources(conn, stmt, null);
         }
     }
+    
+    /**
+     * Dòng theo mã từ SELECT ... FOR UPDATE đã chuẩn bị, null nếu không có
+     */
+    private GiaoDich findLocked(PreparedStatement selectStmt, String id) throws SQLException, ValidationException {
+        selectStmt.setString(1, id);
+        try (ResultSet rs = selectStmt.executeQuery()) {
+            return rs.next() ? mapResultSetToGiaoDich(rs) : null;
+        }
+    }
 
     @Override
     public Optional<GiaoDich> findById(String id) throws DataAccessException {
@@ -177,7 +344,7 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         
         try {
             conn = databaseUtil.getConnection();
-            stmt = conn.prepareStatement(SELECT_BY_ID);
+            stmt = prepare(conn, SELECT_BY_ID);
             stmt.setString(1, id);
             
             rs = stmt.executeQuery();
@@ -201,7 +368,7 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         
         try {
             conn = databaseUtil.getConnection();
-            stmt = conn.prepareStatement(SELECT_ALL);
+            stmt = prepare(conn, SELECT_ALL);
             rs = stmt.executeQuery();
             
             List<GiaoDich> giaoDichs = new ArrayList<>();
@@ -225,7 +392,7 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         
         try {
             conn = databaseUtil.getConnection();
-            stmt = conn.prepareStatement(EXISTS_BY_ID);
+            stmt = prepare(conn, EXISTS_BY_ID);
             stmt.setString(1, id);
             
             rs = stmt.executeQuery();
@@ -246,7 +413,7 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         
         try {
             conn = databaseUtil.getConnection();
-            stmt = conn.prepareStatement(SELECT_BY_LOAI);
+            stmt = prepare(conn, SELECT_BY_LOAI);
             stmt.setString(1, loaiGiaoDich);
             rs = stmt.executeQuery();
             
@@ -271,7 +438,7 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         
         try {
             conn = databaseUtil.getConnection();
-            stmt = conn.prepareStatement(SELECT_BY_DATE_RANGE);
+            stmt = prepare(conn, SELECT_BY_DATE_RANGE);
             stmt.setDate(1, Date.valueOf(tuNgay));
             stmt.setDate(2, Date.valueOf(denNgay));
             rs = stmt.executeQuery();
@@ -297,7 +464,7 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         
         try {
             conn = databaseUtil.getConnection();
-            stmt = conn.prepareStatement(SELECT_BY_DON_GIA_GREATER);
+            stmt = prepare(conn, SELECT_BY_DON_GIA_GREATER);
             stmt.setBigDecimal(1, donGia);
             rs = stmt.executeQuery();
             
@@ -314,6 +481,200 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         }
     }
 
+    @Override
+    public List<GiaoDich> findTopByDonGiaGreaterThan(BigDecimal donGia, int limit) throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, SELECT_TOP_BY_DON_GIA_GREATER);
+            stmt.setBigDecimal(1, donGia);
+            stmt.setInt(2, limit);
+            rs = stmt.executeQuery();
+            
+            List<GiaoDich> giaoDichs = new ArrayList<>(limit);
+            while (rs.next()) {
+                giaoDichs.add(mapResultSetToGiaoDich(rs));
+            }
+            return giaoDichs;
+            
+        } catch (SQLException | ValidationException e) {
+            throw new DataAccessException("Lỗi khi tìm giao dịch đơn giá cao nhất: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+    
+    @Override
+    public ThongKeDonGiaLonDTO summarizeByDonGiaGreaterThan(BigDecimal donGia) throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, SUMMARY_BY_DON_GIA_GREATER);
+            stmt.setBigDecimal(1, donGia);
+            rs = stmt.executeQuery();
+            
+            if (rs.next() && rs.getLong(1) > 0) {
+                return new ThongKeDonGiaLonDTO(new ArrayList<>(), rs.getLong(1), rs.getBigDecimal(2),
+                    rs.getBigDecimal(3).setScale(2, RoundingMode.HALF_UP));
+            }
+            return new ThongKeDonGiaLonDTO(new ArrayList<>(), 0, BigDecimal.ZERO, BigDecimal.ZERO);
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi tổng hợp giao dịch theo đơn giá: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public GiaoDichCursor openCursorAll() throws DataAccessException {
+        return openCursor(SELECT_ALL, stmt -> { },
+            "Lỗi khi đọc danh sách giao dịch: ");
+    }
+
+    @Override
+    public GiaoDichCursor openCursorFromDateChronological(LocalDate tuNgay) throws DataAccessException {
+        return openCursor(SELECT_FROM_DATE_CHRONOLOGICAL, stmt -> stmt.setDate(1, Date.valueOf(tuNgay)),
+            "Lỗi khi đọc giao dịch theo thời gian: ");
+    }
+
+    @Override
+    public GiaoDichCursor openCursorByDateRangeChronological(LocalDate tuNgay, LocalDate denNgay) throws DataAccessException {
+        return openCursor(SELECT_BY_DATE_RANGE_CHRONOLOGICAL, stmt -> {
+            stmt.setDate(1, Date.valueOf(tuNgay));
+            stmt.setDate(2, Date.valueOf(denNgay));
+        }, "Lỗi khi đọc giao dịch theo thời gian: ");
+    }
+
+    @Override
+    public GiaoDichCursor openCursorByDonGiaGreaterThan(BigDecimal donGia) throws DataAccessException {
+        return openCursor(SELECT_BY_DON_GIA_GREATER, stmt -> stmt.setBigDecimal(1, donGia),
+            "Lỗi khi đọc giao dịch theo đơn giá: ");
+    }
+
+    @Override
+    public GiaoDichCursor openCursorByUpdatedAtRange(LocalDateTime tuThoiDiem, LocalDateTime denThoiDiem) throws DataAccessException {
+        return openCursor(SELECT_BY_UPDATED_AT_RANGE, stmt -> {
+            stmt.setTimestamp(1, Timestamp.valueOf(tuThoiDiem));
+            stmt.setTimestamp(2, Timestamp.valueOf(denThoiDiem));
+        }, "Lỗi khi đọc giao dịch thay đổi: ");
+    }
+
+    /**
+     * Gán tham số cho câu truy vấn của con trỏ
+     */
+    private interface ParameterBinder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    /**
+     * Mở truy vấn ở chế độ streaming của MySQL Connector/J (forward-only, read-only,
+     * fetch size Integer.MIN_VALUE): driver trả từng dòng ngay khi nhận được thay vì
+     * đọc hết kết quả vào bộ nhớ. Kết nối thuộc riêng con trỏ cho đến khi đóng.
+     */
+    private GiaoDichCursor openCursor(String sql, ParameterBinder binder, String errorPrefix) throws DataAccessException {
+        Connection conn = databaseUtil.getConnection();
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            DatabaseUtil.applyQueryDeadline(stmt);
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            binder.bind(stmt);
+            return new StreamingCursor(conn, stmt, stmt.executeQuery(), errorPrefix);
+        } catch (SQLException e) {
+            closeResources(conn, stmt, null);
+            throw new DataAccessException(errorPrefix + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Con trỏ trên một ResultSet streaming.
+     * Đọc hết thì kết nối trả về pool; đóng giữa chừng thì hủy truy vấn trên server
+     * (nếu không driver phải đọc bỏ toàn bộ phần còn lại) và đóng hẳn kết nối.
+     */
+    private final class StreamingCursor implements GiaoDichCursor {
+        private final Connection conn;
+        private final PreparedStatement stmt;
+        private final ResultSet rs;
+        private final String errorPrefix;
+        private volatile boolean cancelled;
+        private boolean exhausted;
+        private boolean closed;
+
+        StreamingCursor(Connection conn, PreparedStatement stmt, ResultSet rs, String errorPrefix) {
+            this.conn = conn;
+            this.stmt = stmt;
+            this.rs = rs;
+            this.errorPrefix = errorPrefix;
+        }
+
+        @Override
+        public GiaoDich next() throws DataAccessException {
+            if (exhausted || closed) {
+                return null;
+            }
+            if (cancelled) {
+                throw new DataAccessException(errorPrefix + "truy vấn đã bị hủy");
+            }
+            try {
+                if (!rs.next()) {
+                    exhausted = true;
+                    return null;
+                }
+                return mapResultSetToGiaoDich(rs);
+            } catch (SQLException | ValidationException e) {
+                if (cancelled) {
+                    throw new DataAccessException(errorPrefix + "truy vấn đã bị hủy", e);
+                }
+                throw new DataAccessException(errorPrefix + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            try {
+                stmt.cancel();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Không thể hủy truy vấn streaming", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (exhausted) {
+                closeResources(conn, stmt, rs);
+                return;
+            }
+            cancel();
+            try {
+                rs.close();
+                stmt.close();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Error closing cancelled cursor", e);
+            } finally {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    LOGGER.log(Level.WARNING, "Error closing database connection", e);
+                }
+            }
+        }
+    }
+
     @Override
     public long countByLoaiGiaoDich(String loaiGiaoDich) throws DataAccessException {
         Connection conn = null;
@@ -322,7 +683,7 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         
         try {
             conn = databaseUtil.getConnection();
-            stmt = conn.prepareStatement(COUNT_BY_LOAI);
+            stmt = prepare(conn, COUNT_BY_LOAI);
             stmt.setString(1, loaiGiaoDich);
             rs = stmt.executeQuery();
             
@@ -346,7 +707,7 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         
         try {
             conn = databaseUtil.getConnection();
-            stmt = conn.prepareStatement(SUM_THANH_TIEN);
+            stmt = prepare(conn, SUM_THANH_TIEN);
             stmt.setString(1, loaiGiaoDich);
             rs = stmt.executeQuery();
             
@@ -370,7 +731,7 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         
         try {
             conn = databaseUtil.getConnection();
-            stmt = conn.prepareStatement(AVG_THANH_TIEN);
+            stmt = prepare(conn, AVG_THANH_TIEN);
             stmt.setString(1, loaiGiaoDich);
             rs = stmt.executeQuery();
             
@@ -395,7 +756,7 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         
         try {
             conn = databaseUtil.getConnection();
-            stmt = conn.prepareStatement(COUNT_BY_LOAI_AND_DATE);
+            stmt = prepare(conn, COUNT_BY_LOAI_AND_DATE);
             stmt.setString(1, loaiGiaoDich);
             stmt.setDate(2, Date.valueOf(tuNgay));
             stmt.setDate(3, Date.valueOf(denNgay));
@@ -421,7 +782,7 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         
         try {
             conn = databaseUtil.getConnection();
-            stmt = conn.prepareStatement(SUM_THANH_TIEN_BY_DATE);
+            stmt = prepare(conn, SUM_THANH_TIEN_BY_DATE);
             stmt.setString(1, loaiGiaoDich);
             stmt.setDate(2, Date.valueOf(tuNgay));
             stmt.setDate(3, Date.valueOf(denNgay));
@@ -447,7 +808,7 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         
         try {
             conn = databaseUtil.getConnection();
-            stmt = conn.prepareStatement(AVG_THANH_TIEN_BY_DATE);
+            stmt = prepare(conn, AVG_THANH_TIEN_BY_DATE);
             stmt.setString(1, loaiGiaoDich);
             stmt.setDate(2, Date.valueOf(tuNgay));
             stmt.setDate(3, Date.valueOf(denNgay));
@@ -465,6 +826,482 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         }
     }
     
+    @Override
+    public long countByDonGiaGreaterThan(BigDecimal donGia) throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, COUNT_BY_DON_GIA_GREATER);
+            stmt.setBigDecimal(1, donGia);
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+            return 0;
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi đếm giao dịch theo đơn giá: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+    
+    @Override
+    public long countByDonGiaGreaterThanAndDateRange(BigDecimal donGia, LocalDate tuNgay, LocalDate denNgay) throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, COUNT_BY_DON_GIA_GREATER_AND_DATE);
+            stmt.setBigDecimal(1, donGia);
+            stmt.setDate(2, Date.valueOf(tuNgay));
+            stmt.setDate(3, Date.valueOf(denNgay));
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+            return 0;
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi đếm giao dịch theo đơn giá và thời gian: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+    
+    @Override
+    public List<ThongKeNgayDTO> aggregateByNgayAndLoai(BigDecimal donGia) throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, AGGREGATE_BY_NGAY_AND_LOAI);
+            stmt.setBigDecimal(1, donGia);
+            rs = stmt.executeQuery();
+            return mapThongKeNgay(rs);
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi tổng hợp giao dịch theo ngày: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+    
+    @Override
+    public List<ThongKeNgayDTO> aggregateByNgayAndLoai(BigDecimal donGia, LocalDate tuNgay, LocalDate denNgay) throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, AGGREGATE_BY_NGAY_AND_LOAI_AND_DATE);
+            stmt.setBigDecimal(1, donGia);
+            stmt.setDate(2, Date.valueOf(tuNgay));
+            stmt.setDate(3, Date.valueOf(denNgay));
+            rs = stmt.executeQuery();
+            return mapThongKeNgay(rs);
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi tổng hợp giao dịch theo ngày trong khoảng: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+    
+    private List<ThongKeNgayDTO> mapThongKeNgay(ResultSet rs) throws SQLException {
+        List<ThongKeNgayDTO> result = new ArrayList<>();
+        while (rs.next()) {
+            BigDecimal tongThanhTien = rs.getBigDecimal(4);
+            result.add(new ThongKeNgayDTO(
+                rs.getDate(2).toLocalDate(),
+                rs.getString(1),
+                rs.getLong(3),
+                tongThanhTien != null ? tongThanhTien : BigDecimal.ZERO,
+                rs.getLong(5)));
+        }
+        return result;
+    }
+    
+    @Override
+    public List<ThongKeThangDTO> aggregateByThangAndLoai(BigDecimal donGia, LocalDate tuNgay, LocalDate denNgay) throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, AGGREGATE_BY_THANG_AND_LOAI);
+            stmt.setBigDecimal(1, donGia);
+            stmt.setDate(2, Date.valueOf(tuNgay));
+            stmt.setDate(3, Date.valueOf(denNgay));
+            rs = stmt.executeQuery();
+            
+            List<ThongKeThangDTO> result = new ArrayList<>();
+            while (rs.next()) {
+                BigDecimal tongThanhTien = rs.getBigDecimal(5);
+                result.add(new ThongKeThangDTO(
+                    YearMonth.of(rs.getInt(1), rs.getInt(2)),
+                    rs.getString(3),
+                    rs.getLong(4),
+                    tongThanhTien != null ? tongThanhTien : BigDecimal.ZERO,
+                    rs.getLong(6)));
+            }
+            return result;
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi tổng hợp giao dịch theo tháng: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+    
+    @Override
+    public List<ThongKeNhomDTO> aggregateByNhom() throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, AGGREGATE_BY_NHOM);
+            rs = stmt.executeQuery();
+            return mapThongKeNhom(rs);
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi thống kê theo loại vàng/loại tiền: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+    
+    @Override
+    public List<ThongKeNhomDTO> aggregateByNhomAndDateRange(LocalDate tuNgay, LocalDate denNgay) throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, AGGREGATE_BY_NHOM_AND_DATE);
+            stmt.setDate(1, Date.valueOf(tuNgay));
+            stmt.setDate(2, Date.valueOf(denNgay));
+            rs = stmt.executeQuery();
+            return mapThongKeNhom(rs);
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi thống kê theo loại vàng/loại tiền theo thời gian: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+    
+    /**
+     * Trung bình tính từ tổng và số lượng, làm tròn 2 chữ số như các thống kê khác
+     */
+    private List<ThongKeNhomDTO> mapThongKeNhom(ResultSet rs) throws SQLException {
+        List<ThongKeNhomDTO> result = new ArrayList<>();
+        while (rs.next()) {
+            String loaiGiaoDich = rs.getString(1);
+            String nhom = "VANG".equals(loaiGiaoDich) ? rs.getString(2) : rs.getString(3);
+            long soGiaoDich = rs.getLong(4);
+            BigDecimal tongThanhTien = rs.getBigDecimal(6);
+            if (tongThanhTien == null) {
+                tongThanhTien = BigDecimal.ZERO;
+            }
+            BigDecimal soGiaoDichBD = BigDecimal.valueOf(soGiaoDich);
+            result.add(new ThongKeNhomDTO(loaiGiaoDich, nhom, soGiaoDich, rs.getLong(5), tongThanhTien,
+                tongThanhTien.divide(soGiaoDichBD, 2, RoundingMode.HALF_UP),
+                rs.getBigDecimal(7).divide(soGiaoDichBD, 2, RoundingMode.HALF_UP)));
+        }
+        return result;
+    }
+    
+    @Override
+    public List<ThanhTienBucketDTO> histogramThanhTienByNgayAndLoai(double logBase) throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, HISTOGRAM_THANH_TIEN_BY_NGAY_AND_LOAI);
+            stmt.setDouble(1, logBase);
+            rs = stmt.executeQuery();
+            return mapThanhTienBucket(rs);
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi tổng hợp phân phối thành tiền theo ngày: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+    
+    @Override
+    public List<ThanhTienBucketDTO> histogramThanhTienByNgayAndLoai(double logBase, LocalDate tuNgay, LocalDate denNgay) throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, HISTOGRAM_THANH_TIEN_BY_NGAY_AND_LOAI_AND_DATE);
+            stmt.setDouble(1, logBase);
+            stmt.setDate(2, Date.valueOf(tuNgay));
+            stmt.setDate(3, Date.valueOf(denNgay));
+            rs = stmt.executeQuery();
+            return mapThanhTienBucket(rs);
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi tổng hợp phân phối thành tiền theo ngày trong khoảng: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+    
+    private List<ThanhTienBucketDTO> mapThanhTienBucket(ResultSet rs) throws SQLException {
+        List<ThanhTienBucketDTO> result = new ArrayList<>();
+        while (rs.next()) {
+            long bucket = rs.getLong(3);
+            result.add(new ThanhTienBucketDTO(
+                rs.getDate(2).toLocalDate(),
+                rs.getString(1),
+                rs.wasNull() ? null : Integer.valueOf((int) bucket),
+                rs.getLong(4)));
+        }
+        return result;
+    }
+    
+    @Override
+    public long countAll() throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, COUNT_ALL);
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+            return 0;
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi đếm tổng số giao dịch: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public double getAverageRowWidth() throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, AVG_ROW_WIDTH);
+            stmt.setInt(1, ROW_WIDTH_SAMPLE_SIZE);
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return rs.getDouble(1);
+            }
+            return 0;
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi tính độ rộng dòng trung bình: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+    
+    @Override
+    public List<GiaoDich> findByUpdatedAtRange(LocalDateTime tuThoiDiem, LocalDateTime denThoiDiem) throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, SELECT_BY_UPDATED_AT_RANGE);
+            stmt.setTimestamp(1, Timestamp.valueOf(tuThoiDiem));
+            stmt.setTimestamp(2, Timestamp.valueOf(denThoiDiem));
+            rs = stmt.executeQuery();
+            
+            List<GiaoDich> giaoDichs = new ArrayList<>();
+            while (rs.next()) {
+                giaoDichs.add(mapResultSetToGiaoDich(rs));
+            }
+            return giaoDichs;
+            
+        } catch (SQLException | ValidationException e) {
+            throw new DataAccessException("Lỗi khi tìm giao dịch thay đổi: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public long countByUpdatedAtRange(LocalDateTime tuThoiDiem, LocalDateTime denThoiDiem) throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, COUNT_BY_UPDATED_AT_RANGE);
+            stmt.setTimestamp(1, Timestamp.valueOf(tuThoiDiem));
+            stmt.setTimestamp(2, Timestamp.valueOf(denThoiDiem));
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+            return 0;
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi đếm giao dịch thay đổi: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public List<TombstoneDTO> findDeletedInRange(LocalDateTime tuThoiDiem, LocalDateTime denThoiDiem) throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, SELECT_TOMBSTONES_IN_RANGE);
+            stmt.setTimestamp(1, Timestamp.valueOf(tuThoiDiem));
+            stmt.setTimestamp(2, Timestamp.valueOf(denThoiDiem));
+            rs = stmt.executeQuery();
+            
+            List<TombstoneDTO> tombstones = new ArrayList<>();
+            while (rs.next()) {
+                tombstones.add(new TombstoneDTO(
+                    rs.getString("ma_giao_dich"),
+                    rs.getTimestamp("deleted_at").toLocalDateTime()));
+            }
+            return tombstones;
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi tìm giao dịch đã xóa: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public LocalDateTime getCurrentDatabaseTime() throws DataAccessException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            stmt = prepare(conn, SELECT_CURRENT_TIMESTAMP);
+            rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return rs.getTimestamp(1).toLocalDateTime();
+            }
+            throw new DataAccessException("Không lấy được thời gian database");
+            
+        } catch (SQLException e) {
+            throw new DataAccessException("Lỗi khi lấy thời gian database: " + e.getMessage(), e);
+        } finally {
+            closeResources(conn, stmt, rs);
+        }
+    }
+    
+    @Override
+    public int saveAllIgnoreDuplicates(List<GiaoDich> entities) throws DataAccessException {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        
+        // Trong lô, mã lặp lại chỉ lấy lần đầu
+        Map<String, GiaoDich> theoMa = new LinkedHashMap<>();
+        for (GiaoDich entity : entities) {
+            theoMa.putIfAbsent(entity.getMaGiaoDich(), entity);
+        }
+        
+        Connection conn = null;
+        PreparedStatement selectStmt = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = databaseUtil.getConnection();
+            conn.setAutoCommit(false);
+            
+            // Chỉ bỏ qua mã đã tồn tại; không dùng INSERT IGNORE vì nó cũng nuốt lỗi giá trị
+            // ngoài miền và vi phạm CHECK: mọi lỗi khác của INSERT vẫn làm hỏng cả lô
+            StringBuilder sql = new StringBuilder(SELECT_EXISTING_IDS_FOR_UPDATE_PREFIX);
+            for (int i = 1; i < theoMa.size(); i++) {
+                sql.append(", ?");
+            }
+            sql.append(") FOR UPDATE");
+            selectStmt = prepare(conn, sql.toString());
+            int index = 1;
+            for (String ma : theoMa.keySet()) {
+                selectStmt.setString(index++, ma);
+            }
+            rs = selectStmt.executeQuery();
+            while (rs.next()) {
+                theoMa.remove(rs.getString(1));
+            }
+            
+            if (!theoMa.isEmpty()) {
+                stmt = prepare(conn, INSERT_GIAO_DICH);
+                for (GiaoDich entity : theoMa.values()) {
+                    setCommonParameters(stmt, entity);
+                    setSpecificParameters(stmt, entity);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            conn.commit();
+            
+            int inserted = theoMa.size();
+            LOGGER.info("Đã nhập " + inserted + "/" + entities.size() + " giao dịch");
+            return inserted;
+            
+        } catch (SQLException e) {
+            rollback(conn);
+            throw new DataAccessException("Lỗi khi nhập giao dịch hàng loạt: " + e.getMessage(), e);
+        } finally {
+            restoreAutoCommit(conn);
+            closeStatement(selectStmt);
+            closeResources(conn, stmt, rs);
+        }
+    }
+    
+    /**
+     * Chuẩn bị statement, kèm thời hạn truy vấn của thread hiện tại nếu có
+     */
+    private PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        DatabaseUtil.applyQueryDeadline(stmt);
+        return stmt;
+    }
+    
     private void setCommonParameters(PreparedStatement stmt, GiaoDich entity) throws SQLException {
         stmt.setString(1, entity.getMaGiaoDich());
         stmt.setDate(2, Date.valueOf(entity.getNgayGiaoDich()));
@@ -512,6 +1349,33 @@ public class GiaoDichDAOImpl implements GiaoDichDAO {
         throw new SQLException("Loại giao dịch không hợp lệ: " + loaiGiaoDich);
     }
     
+    private void rollback(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error rolling back transaction", e);
+        }
+    }
+    
+    private void restoreAutoCommit(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error restoring auto-commit", e);
+        }
+    }
+    
+    private void closeStatement(PreparedStatement stmt) {
+        if (stmt == null) return;
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error closing statement", e);
+        }
+    }
+    
     private void closeResources(Connection conn, PreparedStatement stmt, ResultSet rs) {
         try {
             if (rs != null) rs.close();
@@ -0,0 +1,40 @@
+// Data Transfer Object for the latest price and the position of one gold type or currency
+package dto;
+
+import java.math.BigDecimal;
+
+public class GiaCongCuDTO {
+    private final String maCongCu;          // VANG:<loại vàng> hoặc TIEN_TE:<loại tiền>
+    private final NenGiaDTO nenCuoi;        // nến của ngày có giao dịch gần nhất, null nếu ngoài cửa sổ
+    private final BigDecimal trungBinhDong; // trung bình giá đóng cửa, null khi chưa đủ nến
+    private final ViTheDTO viThe;
+
+    public GiaCongCuDTO(String maCongCu, NenGiaDTO nenCuoi, BigDecimal trungBinhDong, ViTheDTO viThe) {
+        this.maCongCu = maCongCu;
+        this.nenCuoi = nenCuoi;
+        this.trungBinhDong = trungBinhDong;
+        this.viThe = viThe;
+    }
+
+    public String getMaCongCu() {
+        return maCongCu;
+    }
+
+    public NenGiaDTO getNenCuoi() {
+        return nenCuoi;
+    }
+
+    public BigDecimal getTrungBinhDong() {
+        return trungBinhDong;
+    }
+
+    public ViTheDTO getViThe() {
+        return viThe;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GiaCongCuDTO{maCongCu='%s', nenCuoi=%s, trungBinhDong=%s, viThe=%s}",
+                maCongCu, nenCuoi, trungBinhDong, viThe);
+    }
+}
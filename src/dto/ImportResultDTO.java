@@ -0,0 +1,60 @@
+// Data Transfer Object for the result of a JSON Lines import
+package dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ImportResultDTO {
+    // Chỉ giữ vài lỗi đầu tiên để hiển thị
+    private static final int MAX_ERRORS = 20;
+
+    private long soDongDaDoc;
+    private long soDongDaThem;
+    private long soDongTrung;
+    private long soDongLoi;
+    private final List<String> loi = new ArrayList<>();
+
+    public void addRead(int count) {
+        soDongDaDoc += count;
+    }
+
+    public void addInserted(int inserted, int batchSize) {
+        soDongDaThem += inserted;
+        soDongTrung += batchSize - inserted;
+    }
+
+    public void addError(String message) {
+        soDongDaDoc++;
+        soDongLoi++;
+        if (loi.size() < MAX_ERRORS) {
+            loi.add(message);
+        }
+    }
+
+    public long getSoDongDaDoc() {
+        return soDongDaDoc;
+    }
+
+    public long getSoDongDaThem() {
+        return soDongDaThem;
+    }
+
+    public long getSoDongTrung() {
+        return soDongTrung;
+    }
+
+    public long getSoDongLoi() {
+        return soDongLoi;
+    }
+
+    public List<String> getLoi() {
+        return Collections.unmodifiableList(loi);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportResultDTO{daDoc=%d, daThem=%d, trung=%d, loi=%d}",
+                soDongDaDoc, soDongDaThem, soDongTrung, soDongLoi);
+    }
+}
@@ -0,0 +1,66 @@
+// Data Transfer Object for one daily OHLC candle of a gold type or currency
+package dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class NenGiaDTO {
+    private final String maCongCu;        // VANG:<loại vàng> hoặc TIEN_TE:<loại tiền>
+    private final LocalDate ngay;
+    private final BigDecimal giaMoCua;    // giá của giao dịch đầu tiên trong ngày
+    private final BigDecimal giaCaoNhat;
+    private final BigDecimal giaThapNhat;
+    private final BigDecimal giaDongCua;  // giá của giao dịch cuối cùng trong ngày
+    private final long soGiaoDich;
+    private final long tongSoLuong;
+
+    public NenGiaDTO(String maCongCu, LocalDate ngay, BigDecimal giaMoCua, BigDecimal giaCaoNhat,
+                     BigDecimal giaThapNhat, BigDecimal giaDongCua, long soGiaoDich, long tongSoLuong) {
+        this.maCongCu = maCongCu;
+        this.ngay = ngay;
+        this.giaMoCua = giaMoCua;
+        this.giaCaoNhat = giaCaoNhat;
+        this.giaThapNhat = giaThapNhat;
+        this.giaDongCua = giaDongCua;
+        this.soGiaoDich = soGiaoDich;
+        this.tongSoLuong = tongSoLuong;
+    }
+
+    public String getMaCongCu() {
+        return maCongCu;
+    }
+
+    public LocalDate getNgay() {
+        return ngay;
+    }
+
+    public BigDecimal getGiaMoCua() {
+        return giaMoCua;
+    }
+
+    public BigDecimal getGiaCaoNhat() {
+        return giaCaoNhat;
+    }
+
+    public BigDecimal getGiaThapNhat() {
+        return giaThapNhat;
+    }
+
+    public BigDecimal getGiaDongCua() {
+        return giaDongCua;
+    }
+
+    public long getSoGiaoDich() {
+        return soGiaoDich;
+    }
+
+    public long getTongSoLuong() {
+        return tongSoLuong;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NenGiaDTO{maCongCu='%s', ngay=%s, O=%s, H=%s, L=%s, C=%s, soGiaoDich=%d, tongSoLuong=%d}",
+                maCongCu, ngay, giaMoCua, giaCaoNhat, giaThapNhat, giaDongCua, soGiaoDich, tongSoLuong);
+    }
+}
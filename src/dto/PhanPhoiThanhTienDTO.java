@@ -0,0 +1,73 @@
+// Data Transfer Object for thanh tien percentiles per transaction type over a date range
+package dto;
+
+import java.math.BigDecimal;
+
+public class PhanPhoiThanhTienDTO {
+
+    /**
+     * Phân vị thành tiền của một loại giao dịch; phân vị null khi không có giao dịch
+     */
+    public static class PhanVi {
+        private final long soGiaoDich;
+        private final BigDecimal p50;
+        private final BigDecimal p95;
+        private final BigDecimal p99;
+
+        public PhanVi(long soGiaoDich, BigDecimal p50, BigDecimal p95, BigDecimal p99) {
+            this.soGiaoDich = soGiaoDich;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.p99 = p99;
+        }
+
+        public long getSoGiaoDich() {
+            return soGiaoDich;
+        }
+
+        public BigDecimal getP50() {
+            return p50;
+        }
+
+        public BigDecimal getP95() {
+            return p95;
+        }
+
+        public BigDecimal getP99() {
+            return p99;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{soGiaoDich=%d, p50=%s, p95=%s, p99=%s}", soGiaoDich, p50, p95, p99);
+        }
+    }
+
+    private final PhanVi vang;
+    private final PhanVi tienTe;
+    private final double saiSoTuongDoi;   // sai số tương đối tối đa của mỗi phân vị
+
+    public PhanPhoiThanhTienDTO(PhanVi vang, PhanVi tienTe, double saiSoTuongDoi) {
+        this.vang = vang;
+        this.tienTe = tienTe;
+        this.saiSoTuongDoi = saiSoTuongDoi;
+    }
+
+    public PhanVi getVang() {
+        return vang;
+    }
+
+    public PhanVi getTienTe() {
+        return tienTe;
+    }
+
+    public double getSaiSoTuongDoi() {
+        return saiSoTuongDoi;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PhanPhoiThanhTienDTO{vang=%s, tienTe=%s, saiSo=%.2f%%}",
+                vang, tienTe, saiSoTuongDoi * 100);
+    }
+}
@@ -0,0 +1,40 @@
+// Data Transfer Object for one log-scale thanh tien bucket of one day and transaction type
+package dto;
+
+import java.time.LocalDate;
+
+public class ThanhTienBucketDTO {
+    private final LocalDate ngay;
+    private final String loaiGiaoDich;
+    private final Integer bucket;     // null: thành tiền không dương
+    private final long soGiaoDich;
+
+    public ThanhTienBucketDTO(LocalDate ngay, String loaiGiaoDich, Integer bucket, long soGiaoDich) {
+        this.ngay = ngay;
+        this.loaiGiaoDich = loaiGiaoDich;
+        this.bucket = bucket;
+        this.soGiaoDich = soGiaoDich;
+    }
+
+    public LocalDate getNgay() {
+        return ngay;
+    }
+
+    public String getLoaiGiaoDich() {
+        return loaiGiaoDich;
+    }
+
+    public Integer getBucket() {
+        return bucket;
+    }
+
+    public long getSoGiaoDich() {
+        return soGiaoDich;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ThanhTienBucketDTO{ngay=%s, loai='%s', bucket=%s, soGiaoDich=%d}",
+                ngay, loaiGiaoDich, bucket, soGiaoDich);
+    }
+}
@@ -0,0 +1,56 @@
+// Data Transfer Object for high unit price transactions: top rows plus aggregates
+package dto;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import model.GiaoDich;
+
+public class ThongKeDonGiaLonDTO {
+    private final List<GiaoDich> topGiaoDich;       // đơn giá giảm dần, tối đa K dòng
+    private final long soGiaoDich;                 // trên toàn bộ giao dịch vượt ngưỡng
+    private final BigDecimal tongThanhTien;
+    private final BigDecimal trungBinhDonGia;
+
+    public ThongKeDonGiaLonDTO(List<GiaoDich> topGiaoDich, long soGiaoDich,
+                               BigDecimal tongThanhTien, BigDecimal trungBinhDonGia) {
+        this.topGiaoDich = Collections.unmodifiableList(topGiaoDich);
+        this.soGiaoDich = soGiaoDich;
+        this.tongThanhTien = tongThanhTien;
+        this.trungBinhDonGia = trungBinhDonGia;
+    }
+
+    /**
+     * Cùng số liệu tổng hợp, danh sách đầu bảng khác
+     */
+    public ThongKeDonGiaLonDTO withTopGiaoDich(List<GiaoDich> top) {
+        return new ThongKeDonGiaLonDTO(top, soGiaoDich, tongThanhTien, trungBinhDonGia);
+    }
+
+    public List<GiaoDich> getTopGiaoDich() {
+        return topGiaoDich;
+    }
+
+    public long getSoGiaoDich() {
+        return soGiaoDich;
+    }
+
+    public BigDecimal getTongThanhTien() {
+        return tongThanhTien;
+    }
+
+    public BigDecimal getTrungBinhDonGia() {
+        return trungBinhDonGia;
+    }
+
+    public boolean isEmpty() {
+        return soGiaoDich == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ThongKeDonGiaLonDTO{top=%d, soGiaoDich=%d, tongThanhTien=%s, trungBinhDonGia=%s}",
+                topGiaoDich.size(), soGiaoDich, tongThanhTien, trungBinhDonGia);
+    }
+}
@@ -0,0 +1,48 @@
+// Data Transfer Object for per-day aggregates of one transaction type
+package dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class ThongKeNgayDTO {
+    private final LocalDate ngay;
+    private final String loaiGiaoDich;
+    private final long soGiaoDich;
+    private final BigDecimal tongThanhTien;
+    private final long soGiaoDichDonGiaLonHon1Ty;
+
+    public ThongKeNgayDTO(LocalDate ngay, String loaiGiaoDich, long soGiaoDich,
+                          BigDecimal tongThanhTien, long soGiaoDichDonGiaLonHon1Ty) {
+        this.ngay = ngay;
+        this.loaiGiaoDich = loaiGiaoDich;
+        this.soGiaoDich = soGiaoDich;
+        this.tongThanhTien = tongThanhTien;
+        this.soGiaoDichDonGiaLonHon1Ty = soGiaoDichDonGiaLonHon1Ty;
+    }
+
+    public LocalDate getNgay() {
+        return ngay;
+    }
+
+    public String getLoaiGiaoDich() {
+        return loaiGiaoDich;
+    }
+
+    public long getSoGiaoDich() {
+        return soGiaoDich;
+    }
+
+    public BigDecimal getTongThanhTien() {
+        return tongThanhTien;
+    }
+
+    public long getSoGiaoDichDonGiaLonHon1Ty() {
+        return soGiaoDichDonGiaLonHon1Ty;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ThongKeNgayDTO{ngay=%s, loai='%s', soGiaoDich=%d, tongThanhTien=%s, soDonGiaLonHon1Ty=%d}",
+                ngay, loaiGiaoDich, soGiaoDich, tongThanhTien, soGiaoDichDonGiaLonHon1Ty);
+    }
+}
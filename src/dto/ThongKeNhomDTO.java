@@ -0,0 +1,60 @@
+// Data Transfer Object for statistics of one gold type (loaiVang) or currency (loaiTien)
+package dto;
+
+import java.math.BigDecimal;
+
+public class ThongKeNhomDTO {
+    private final String loaiGiaoDich;     // VANG hoặc TIEN_TE
+    private final String nhom;             // loại vàng (24K, 999.9, ...) hoặc loại tiền (USD, ...)
+    private final long soGiaoDich;
+    private final long tongSoLuong;
+    private final BigDecimal tongThanhTien;
+    private final BigDecimal trungBinhThanhTien;
+    private final BigDecimal trungBinhDonGia;
+
+    public ThongKeNhomDTO(String loaiGiaoDich, String nhom, long soGiaoDich, long tongSoLuong,
+                          BigDecimal tongThanhTien, BigDecimal trungBinhThanhTien, BigDecimal trungBinhDonGia) {
+        this.loaiGiaoDich = loaiGiaoDich;
+        this.nhom = nhom;
+        this.soGiaoDich = soGiaoDich;
+        this.tongSoLuong = tongSoLuong;
+        this.tongThanhTien = tongThanhTien;
+        this.trungBinhThanhTien = trungBinhThanhTien;
+        this.trungBinhDonGia = trungBinhDonGia;
+    }
+
+    public String getLoaiGiaoDich() {
+        return loaiGiaoDich;
+    }
+
+    public String getNhom() {
+        return nhom;
+    }
+
+    public long getSoGiaoDich() {
+        return soGiaoDich;
+    }
+
+    public long getTongSoLuong() {
+        return tongSoLuong;
+    }
+
+    public BigDecimal getTongThanhTien() {
+        return tongThanhTien;
+    }
+
+    public BigDecimal getTrungBinhThanhTien() {
+        return trungBinhThanhTien;
+    }
+
+    public BigDecimal getTrungBinhDonGia() {
+        return trungBinhDonGia;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ThongKeNhomDTO{loai='%s', nhom='%s', soGiaoDich=%d, tongSoLuong=%d, tongThanhTien=%s, " +
+                "trungBinhThanhTien=%s, trungBinhDonGia=%s}",
+                loaiGiaoDich, nhom, soGiaoDich, tongSoLuong, tongThanhTien, trungBinhThanhTien, trungBinhDonGia);
+    }
+}
@@ -0,0 +1,48 @@
+// Data Transfer Object for per-month aggregates of one transaction type
+package dto;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+public class ThongKeThangDTO {
+    private final YearMonth thang;
+    private final String loaiGiaoDich;
+    private final long soGiaoDich;
+    private final BigDecimal tongThanhTien;
+    private final long soGiaoDichDonGiaLonHon1Ty;
+
+    public ThongKeThangDTO(YearMonth thang, String loaiGiaoDich, long soGiaoDich,
+                           BigDecimal tongThanhTien, long soGiaoDichDonGiaLonHon1Ty) {
+        this.thang = thang;
+        this.loaiGiaoDich = loaiGiaoDich;
+        this.soGiaoDich = soGiaoDich;
+        this.tongThanhTien = tongThanhTien;
+        this.soGiaoDichDonGiaLonHon1Ty = soGiaoDichDonGiaLonHon1Ty;
+    }
+
+    public YearMonth getThang() {
+        return thang;
+    }
+
+    public String getLoaiGiaoDich() {
+        return loaiGiaoDich;
+    }
+
+    public long getSoGiaoDich() {
+        return soGiaoDich;
+    }
+
+    public BigDecimal getTongThanhTien() {
+        return tongThanhTien;
+    }
+
+    public long getSoGiaoDichDonGiaLonHon1Ty() {
+        return soGiaoDichDonGiaLonHon1Ty;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ThongKeThangDTO{thang=%s, loai='%s', soGiaoDich=%d, tongThanhTien=%s, soDonGiaLonHon1Ty=%d}",
+                thang, loaiGiaoDich, soGiaoDich, tongThanhTien, soGiaoDichDonGiaLonHon1Ty);
+    }
+}
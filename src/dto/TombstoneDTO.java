@@ -0,0 +1,27 @@
+// Data Transfer Object for a deleted transaction (tombstone log)
+package dto;
+
+import java.time.LocalDateTime;
+
+public class TombstoneDTO {
+    private final String maGiaoDich;
+    private final LocalDateTime deletedAt;
+
+    public TombstoneDTO(String maGiaoDich, LocalDateTime deletedAt) {
+        this.maGiaoDich = maGiaoDich;
+        this.deletedAt = deletedAt;
+    }
+
+    public String getMaGiaoDich() {
+        return maGiaoDich;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TombstoneDTO{maGiaoDich='%s', deletedAt=%s}", maGiaoDich, deletedAt);
+    }
+}
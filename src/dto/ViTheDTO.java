@@ -0,0 +1,51 @@
+// Data Transfer Object for the running position (holdings) of one gold type or currency
+package dto;
+
+import java.math.BigDecimal;
+
+public class ViTheDTO {
+    private final String maCongCu;          // VANG:<loại vàng> hoặc TIEN_TE:<loại tiền>
+    private final long soLuong;
+    private final BigDecimal tongGiaVon;    // tổng thành tiền của các giao dịch tạo nên vị thế
+    private final BigDecimal giaVonTrungBinh;
+    private final long soGiaoDich;
+
+    public ViTheDTO(String maCongCu, long soLuong, BigDecimal tongGiaVon,
+                    BigDecimal giaVonTrungBinh, long soGiaoDich) {
+        this.maCongCu = maCongCu;
+        this.soLuong = soLuong;
+        this.tongGiaVon = tongGiaVon;
+        this.giaVonTrungBinh = giaVonTrungBinh;
+        this.soGiaoDich = soGiaoDich;
+    }
+
+    public String getMaCongCu() {
+        return maCongCu;
+    }
+
+    public long getSoLuong() {
+        return soLuong;
+    }
+
+    public BigDecimal getTongGiaVon() {
+        return tongGiaVon;
+    }
+
+    public BigDecimal getGiaVonTrungBinh() {
+        return giaVonTrungBinh;
+    }
+
+    public long getSoGiaoDich() {
+        return soGiaoDich;
+    }
+
+    public boolean isEmpty() {
+        return soGiaoDich == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ViTheDTO{maCongCu='%s', soLuong=%d, tongGiaVon=%s, giaVonTrungBinh=%s, soGiaoDich=%d}",
+                maCongCu, soLuong, tongGiaVon, giaVonTrungBinh, soGiaoDich);
+    }
+}
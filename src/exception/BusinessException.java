@@ -19,6 +19,11 @@ public class BusinessException extends Exception {
         this.errorCode = "BUSINESS_ERROR";
     }
     
+    public BusinessException(String message, String errorCode, Throwable cause) {
+        super(message, cause);
+        this.errorCode = errorCode;
+    }
+    
     public String getErrorCode() {
         return errorCode;
     }
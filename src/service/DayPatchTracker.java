@@ -0,0 +1,96 @@
+// Ngày nào của một cấu trúc thống kê theo ngày trong bộ nhớ có thể đang lệch DB
+package service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import model.GiaoDich;
+
+/**
+ * Cấu trúc theo ngày (khối thống kê, sketch thành tiền) được dựng/vá bằng truy vấn DB chạy
+ * không khóa, còn các lần ghi cộng/trừ chênh lệch vào nó. Lần ghi chạy chồng lên một lần đọc
+ * DB thì không biết kết quả đọc đã gồm lần ghi đó chưa: ngày của nó bị đánh dấu lệch và phải
+ * được vá lại (GROUP BY theo khoảng ngày) trước khi trả lời một khoảng ngày chứa nó.
+ * Thứ tự là writeSequence của QuanLyGiaoDich. Không an toàn luồng: người gọi tự đồng bộ.
+ */
+final class DayPatchTracker {
+    private final TreeSet<LocalDate> staleDays = new TreeSet<>();
+    // writeSequence lúc áp lần đọc DB gần nhất: lần ghi bắt đầu trước mốc này mà kết thúc
+    // sau đó có thể đã hoặc chưa nằm trong kết quả đọc
+    private long lastReadSequence = Long.MIN_VALUE;
+    private long windowMarkedAt;   // System.nanoTime(), lần cuối khoảng mở được đánh dấu để vá
+
+    /**
+     * Vừa dựng lại toàn bộ ở readSequence: mọi ngày khớp DB, kể cả khoảng mở
+     */
+    void reset(long readSequence) {
+        staleDays.clear();
+        lastReadSequence = readSequence;
+        windowMarkedAt = System.nanoTime();
+    }
+
+    void markStale(Collection<LocalDate> ngays) {
+        staleDays.addAll(ngays);
+    }
+
+    /**
+     * Một lần ghi bắt đầu ở batDau vừa kết thúc và đã được cộng chênh lệch: nếu có lần đọc
+     * được áp trong lúc nó chạy thì ngày của nó có thể bị tính hai lần hoặc thiếu
+     */
+    void writeEnded(long batDau, GiaoDich truoc, GiaoDich sau) {
+        if (batDau >= lastReadSequence) {
+            return;
+        }
+        if (truoc != null) {
+            staleDays.add(truoc.getNgayGiaoDich());
+        }
+        if (sau != null) {
+            staleDays.add(sau.getNgayGiaoDich());
+        }
+    }
+
+    /**
+     * Khoảng mở (đầu tháng tới hôm nay) có thể nhận dữ liệu ghi từ nơi khác: đánh dấu lệch
+     * mỗi ttlMs một lần để được vá lại
+     */
+    void markWindowIfExpired(long ttlMs) {
+        if (System.nanoTime() - windowMarkedAt < TimeUnit.MILLISECONDS.toNanos(ttlMs)) {
+            return;
+        }
+        LocalDate homNay = LocalDate.now();
+        for (LocalDate ngay = homNay.withDayOfMonth(1); !ngay.isAfter(homNay); ngay = ngay.plusDays(1)) {
+            staleDays.add(ngay);
+        }
+        windowMarkedAt = System.nanoTime();
+    }
+
+    /**
+     * Các ngày lệch trong [tuNgay, denNgay] (null: không giới hạn phía đó), tăng dần
+     */
+    List<LocalDate> staleIn(LocalDate tuNgay, LocalDate denNgay) {
+        NavigableSet<LocalDate> days = staleDays;
+        if (tuNgay != null) {
+            days = days.tailSet(tuNgay, true);
+        }
+        if (denNgay != null) {
+            days = days.headSet(denNgay, true);
+        }
+        return new ArrayList<>(days);
+    }
+
+    /**
+     * Đã thay [tuNgay, denNgay] bằng kết quả đọc DB, áp ở readSequence: các ngày trong khoảng
+     * hết lệch, trừ ngày của các lần ghi đã kết thúc trong lúc đọc (ngayChongLen). Lần ghi
+     * còn đang chạy sẽ tự đánh dấu khi kết thúc (writeEnded).
+     */
+    void readApplied(LocalDate tuNgay, LocalDate denNgay, long readSequence, Collection<LocalDate> ngayChongLen) {
+        staleDays.subSet(tuNgay, true, denNgay, true).clear();
+        staleDays.addAll(ngayChongLen);
+        lastReadSequence = Math.max(lastReadSequence, readSequence);
+    }
+}
@@ -0,0 +1,102 @@
+// Phân phối thành tiền theo ngày trong bộ nhớ: một sketch cho mỗi (loại giao dịch, ngày)
+package service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import dto.PhanPhoiThanhTienDTO;
+import dto.ThanhTienBucketDTO;
+import model.GiaoDich;
+import model.GiaoDichVang;
+
+/**
+ * Phân vị thành tiền trên một khoảng ngày bất kỳ là phân vị của sketch gộp từ các ngày
+ * trong khoảng, O(số ngày có giao dịch × số ô mỗi ngày), không đọc lại giao dịch.
+ * Mỗi lần ghi chỉ cộng/trừ một ô của một ngày.
+ * Thành tiền theo ThanhTien.tinh (như SQL), ô tính như truy vấn SQL dựng sketch.
+ * Không an toàn luồng: người gọi tự đồng bộ.
+ */
+final class DayQuantileSketches {
+    private static final int VANG = 0;
+    private static final int TIEN_TE = 1;
+
+    // Chỉ số là VANG / TIEN_TE
+    private final List<TreeMap<Long, ThanhTienSketch>> theoNgay = List.of(new TreeMap<>(), new TreeMap<>());
+
+    private DayQuantileSketches() {
+    }
+
+    /**
+     * Dựng từ số giao dịch theo (ngày, loại, ô) của DB
+     */
+    static DayQuantileSketches build(List<ThanhTienBucketDTO> buckets) {
+        DayQuantileSketches sketches = new DayQuantileSketches();
+        for (ThanhTienBucketDTO dong : buckets) {
+            int loai = "VANG".equals(dong.getLoaiGiaoDich()) ? VANG : TIEN_TE;
+            sketches.theoNgay.get(loai).computeIfAbsent(dong.getNgay().toEpochDay(), k -> new ThanhTienSketch())
+                .addBucket(dong.getBucket(), dong.getSoGiaoDich());
+        }
+        return sketches;
+    }
+
+    /**
+     * Thay sketch của các ngày trong [tuNgay, denNgay] bằng số giao dịch theo (ngày, loại, ô)
+     * của DB trên đúng khoảng đó; các ngày khác giữ nguyên
+     */
+    void replaceDays(LocalDate tuNgay, LocalDate denNgay, List<ThanhTienBucketDTO> buckets) {
+        long tu = tuNgay.toEpochDay();
+        long den = denNgay.toEpochDay();
+        for (TreeMap<Long, ThanhTienSketch> sketches : theoNgay) {
+            sketches.subMap(tu, true, den, true).clear();
+        }
+        for (ThanhTienBucketDTO dong : buckets) {
+            long day = dong.getNgay().toEpochDay();
+            if (day < tu || day > den) {
+                continue;
+            }
+            int loai = "VANG".equals(dong.getLoaiGiaoDich()) ? VANG : TIEN_TE;
+            theoNgay.get(loai).computeIfAbsent(day, k -> new ThanhTienSketch())
+                .addBucket(dong.getBucket(), dong.getSoGiaoDich());
+        }
+    }
+
+    /**
+     * Cộng (sign = 1) hoặc trừ (sign = -1) một giao dịch;
+     * false nếu không trừ được (sketch của ngày đó không còn khớp DB, cần vá lại)
+     */
+    boolean apply(GiaoDich gd, int sign) {
+        int loai = gd instanceof GiaoDichVang ? VANG : TIEN_TE;
+        long day = gd.getNgayGiaoDich().toEpochDay();
+        ThanhTienSketch sketch = theoNgay.get(loai).computeIfAbsent(day, k -> new ThanhTienSketch());
+        BigDecimal thanhTien = ThanhTien.tinh(gd);
+        if (!sketch.add(thanhTien, sign)) {
+            return false;
+        }
+        if (sketch.isEmpty()) {
+            theoNgay.get(loai).remove(day);
+        }
+        return true;
+    }
+
+    /**
+     * Phân vị p50/p95/p99 trên [tuNgay, denNgay]; tuNgay null: toàn bộ dữ liệu
+     */
+    PhanPhoiThanhTienDTO query(LocalDate tuNgay, LocalDate denNgay) {
+        return new PhanPhoiThanhTienDTO(phanVi(VANG, tuNgay, denNgay), phanVi(TIEN_TE, tuNgay, denNgay),
+            ThanhTienSketch.SAI_SO);
+    }
+
+    private PhanPhoiThanhTienDTO.PhanVi phanVi(int loai, LocalDate tuNgay, LocalDate denNgay) {
+        NavigableMap<Long, ThanhTienSketch> khoang = tuNgay == null
+            ? theoNgay.get(loai)
+            : theoNgay.get(loai).subMap(tuNgay.toEpochDay(), true, denNgay.toEpochDay(), true);
+        Collection<ThanhTienSketch> ngay = khoang.values();
+        ThanhTienSketch gop = ThanhTienSketch.mergeAll(ngay);
+        return new PhanPhoiThanhTienDTO.PhanVi(gop.count(), gop.quantile(0.50), gop.quantile(0.95),
+            gop.quantile(0.99));
+    }
+}
@@ -0,0 +1,263 @@
+// Thống kê theo ngày trong bộ nhớ: cây Fenwick theo epoch day cho từng loại giao dịch
+package service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import dto.ThongKeDTO;
+import dto.ThongKeNgayDTO;
+import model.GiaoDich;
+import model.GiaoDichVang;
+
+/**
+ * Với mỗi loại (vàng, tiền tệ) giữ ba cây Fenwick theo ngày: số giao dịch, tổng thành tiền,
+ * số giao dịch đơn giá lớn hơn 1 tỷ. Thống kê một khoảng ngày bất kỳ là hiệu hai tổng
+ * tiền tố, O(log số ngày), không truy vấn DB; mỗi lần ghi cập nhật O(log số ngày).
+ * Ngày nằm ngoài phạm vi hiện tại thì mở rộng mảng (xây lại O(số ngày)).
+ * Thành tiền theo ThanhTien.tinh (như các truy vấn thống kê SQL) để khớp với lần dựng từ DB.
+ * Không an toàn luồng: người gọi tự đồng bộ.
+ */
+final class DayStatisticsCube {
+    private static final int VANG = 0;
+    private static final int TIEN_TE = 1;
+    private static final BigDecimal MOT_TY = new BigDecimal("1000000000");
+
+    private long baseDay;      // epoch day ứng với chỉ số 1 của cây
+    private int capacity;      // số ngày chứa được
+    private long[][] soGiaoDich;
+    private long[][] soDonGiaLon;
+    private BigDecimal[][] tongThanhTien;
+
+    private DayStatisticsCube(long baseDay, int capacity) {
+        allocate(baseDay, capacity);
+    }
+
+    /**
+     * Dựng từ kết quả tổng hợp theo (ngày, loại) của DB, O(số ngày)
+     */
+    static DayStatisticsCube build(List<ThongKeNgayDTO> theoNgay) {
+        long minDay = LocalDate.now().toEpochDay();
+        long maxDay = minDay;
+        for (ThongKeNgayDTO dong : theoNgay) {
+            minDay = Math.min(minDay, dong.getNgay().toEpochDay());
+            maxDay = Math.max(maxDay, dong.getNgay().toEpochDay());
+        }
+        DayStatisticsCube cube = new DayStatisticsCube(minDay, capacityFor(maxDay - minDay + 1));
+        // Ghi giá trị từng ngày vào mảng rồi dựng cây tại chỗ, không cộng từng dòng
+        for (ThongKeNgayDTO dong : theoNgay) {
+            int loai = "VANG".equals(dong.getLoaiGiaoDich()) ? VANG : TIEN_TE;
+            int i = cube.index(dong.getNgay().toEpochDay());
+            cube.soGiaoDich[loai][i] += dong.getSoGiaoDich();
+            cube.soDonGiaLon[loai][i] += dong.getSoGiaoDichDonGiaLonHon1Ty();
+            cube.tongThanhTien[loai][i] = cube.tongThanhTien[loai][i].add(dong.getTongThanhTien());
+        }
+        cube.buildTrees();
+        return cube;
+    }
+
+    /**
+     * Cộng (sign = 1) hoặc trừ (sign = -1) phần đóng góp của một giao dịch
+     */
+    void apply(GiaoDich gd, int sign) {
+        long day = gd.getNgayGiaoDich().toEpochDay();
+        ensureRange(day);
+        int loai = gd instanceof GiaoDichVang ? VANG : TIEN_TE;
+        BigDecimal thanhTien = ThanhTien.tinh(gd);
+        add(loai, index(day), sign, sign > 0 ? thanhTien : thanhTien.negate(),
+            gd.getDonGia().compareTo(MOT_TY) > 0 ? sign : 0);
+    }
+
+    /**
+     * Thay giá trị từng ngày trong [tuNgay, denNgay] bằng kết quả tổng hợp theo (ngày, loại)
+     * của DB trên đúng khoảng đó (ngày không có dòng là không có giao dịch).
+     * O(số ngày trong khoảng × log số ngày), không đụng tới các ngày khác.
+     */
+    void replaceDays(LocalDate tuNgay, LocalDate denNgay, List<ThongKeNgayDTO> theoNgay) {
+        ensureRange(tuNgay.toEpochDay());
+        ensureRange(denNgay.toEpochDay());
+        int from = index(tuNgay.toEpochDay());
+        int days = index(denNgay.toEpochDay()) - from + 1;
+        long[][] so = new long[2][days];
+        long[][] lon = new long[2][days];
+        BigDecimal[][] tong = new BigDecimal[2][days];
+        for (BigDecimal[] values : tong) {
+            Arrays.fill(values, BigDecimal.ZERO);
+        }
+        for (ThongKeNgayDTO dong : theoNgay) {
+            int d = index(dong.getNgay().toEpochDay()) - from;
+            if (d < 0 || d >= days) {
+                continue;
+            }
+            int loai = "VANG".equals(dong.getLoaiGiaoDich()) ? VANG : TIEN_TE;
+            so[loai][d] += dong.getSoGiaoDich();
+            lon[loai][d] += dong.getSoGiaoDichDonGiaLonHon1Ty();
+            tong[loai][d] = tong[loai][d].add(dong.getTongThanhTien());
+        }
+        for (int loai = VANG; loai <= TIEN_TE; loai++) {
+            for (int d = 0; d < days; d++) {
+                int i = from + d;
+                long soHienTai = rangeSum(soGiaoDich[loai], i, i);
+                long lonHienTai = rangeSum(soDonGiaLon[loai], i, i);
+                BigDecimal tongHienTai = rangeSum(tongThanhTien[loai], i, i);
+                if (soHienTai != so[loai][d] || lonHienTai != lon[loai][d] || tongHienTai.compareTo(tong[loai][d]) != 0) {
+                    add(loai, i, so[loai][d] - soHienTai, tong[loai][d].subtract(tongHienTai), lon[loai][d] - lonHienTai);
+                }
+            }
+        }
+    }
+
+    /**
+     * Thống kê trên [tuNgay, denNgay]; trung bình tiền tệ làm tròn 2 chữ số
+     */
+    ThongKeDTO query(LocalDate tuNgay, LocalDate denNgay) {
+        // Phần nằm ngoài phạm vi không có giao dịch
+        int from = (int) Math.max(1, Math.min(capacity + 1L, tuNgay.toEpochDay() - baseDay + 1));
+        int to = (int) Math.min(capacity, Math.max(0L, denNgay.toEpochDay() - baseDay + 1));
+        long soVang = 0, soTienTe = 0, soLon = 0;
+        BigDecimal tongVang = BigDecimal.ZERO, tongTienTe = BigDecimal.ZERO;
+        if (from <= to) {
+            soVang = rangeSum(soGiaoDich[VANG], from, to);
+            soTienTe = rangeSum(soGiaoDich[TIEN_TE], from, to);
+            soLon = rangeSum(soDonGiaLon[VANG], from, to) + rangeSum(soDonGiaLon[TIEN_TE], from, to);
+            tongVang = rangeSum(tongThanhTien[VANG], from, to);
+            tongTienTe = rangeSum(tongThanhTien[TIEN_TE], from, to);
+        }
+        BigDecimal trungBinhTienTe = soTienTe > 0
+            ? tongTienTe.divide(BigDecimal.valueOf(soTienTe), 2, RoundingMode.HALF_UP)
+            : BigDecimal.ZERO;
+        return new ThongKeDTO(soVang, soTienTe, trungBinhTienTe, soLon, tongVang, tongTienTe);
+    }
+
+    private int index(long day) {
+        return (int) (day - baseDay) + 1;
+    }
+
+    private void add(int loai, int i, long soLuong, BigDecimal thanhTien, long soLon) {
+        for (; i <= capacity; i += i & -i) {
+            soGiaoDich[loai][i] += soLuong;
+            soDonGiaLon[loai][i] += soLon;
+            tongThanhTien[loai][i] = tongThanhTien[loai][i].add(thanhTien);
+        }
+    }
+
+    private static long rangeSum(long[] tree, int from, int to) {
+        return prefix(tree, to) - prefix(tree, from - 1);
+    }
+
+    private static long prefix(long[] tree, int i) {
+        long sum = 0;
+        for (; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private static BigDecimal rangeSum(BigDecimal[] tree, int from, int to) {
+        return prefix(tree, to).subtract(prefix(tree, from - 1));
+    }
+
+    private static BigDecimal prefix(BigDecimal[] tree, int i) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (; i > 0; i -= i & -i) {
+            sum = sum.add(tree[i]);
+        }
+        return sum;
+    }
+
+    /**
+     * Mở rộng khi ngày nằm ngoài phạm vi (ngày cũ hơn mọi dữ liệu, hoặc đã sang ngày mới):
+     * tách giá trị từng ngày ra rồi dựng lại trên mảng lớn hơn
+     */
+    private void ensureRange(long day) {
+        long lastDay = baseDay + capacity - 1;
+        if (day >= baseDay && day <= lastDay) {
+            return;
+        }
+        long oldBase = baseDay;
+        int oldCapacity = capacity;
+        long[][] oldSo = toDaily(soGiaoDich);
+        long[][] oldLon = toDaily(soDonGiaLon);
+        BigDecimal[][] oldTong = toDaily(tongThanhTien);
+
+        long newBase = Math.min(day, oldBase);
+        long newLast = Math.max(day, lastDay);
+        allocate(newBase, capacityFor(newLast - newBase + 1));
+        int offset = (int) (oldBase - newBase);
+        for (int loai = VANG; loai <= TIEN_TE; loai++) {
+            for (int i = 1; i <= oldCapacity; i++) {
+                soGiaoDich[loai][i + offset] = oldSo[loai][i];
+                soDonGiaLon[loai][i + offset] = oldLon[loai][i];
+                tongThanhTien[loai][i + offset] = oldTong[loai][i];
+            }
+        }
+        buildTrees();
+    }
+
+    private void allocate(long base, int newCapacity) {
+        baseDay = base;
+        capacity = newCapacity;
+        soGiaoDich = new long[2][newCapacity + 1];
+        soDonGiaLon = new long[2][newCapacity + 1];
+        tongThanhTien = new BigDecimal[2][newCapacity + 1];
+        for (BigDecimal[] tree : tongThanhTien) {
+            Arrays.fill(tree, BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * Mảng đang chứa giá trị từng ngày: dựng cây Fenwick tại chỗ, O(n)
+     */
+    private void buildTrees() {
+        for (int loai = VANG; loai <= TIEN_TE; loai++) {
+            for (int i = 1; i <= capacity; i++) {
+                int parent = i + (i & -i);
+                if (parent <= capacity) {
+                    soGiaoDich[loai][parent] += soGiaoDich[loai][i];
+                    soDonGiaLon[loai][parent] += soDonGiaLon[loai][i];
+                    tongThanhTien[loai][parent] = tongThanhTien[loai][parent].add(tongThanhTien[loai][i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ngược lại của buildTrees: giá trị từng ngày từ cây, O(n)
+     */
+    private long[][] toDaily(long[][] trees) {
+        long[][] daily = new long[2][];
+        for (int loai = VANG; loai <= TIEN_TE; loai++) {
+            daily[loai] = trees[loai].clone();
+            for (int i = capacity; i >= 1; i--) {
+                int parent = i + (i & -i);
+                if (parent <= capacity) {
+                    daily[loai][parent] -= daily[loai][i];
+                }
+            }
+        }
+        return daily;
+    }
+
+    private BigDecimal[][] toDaily(BigDecimal[][] trees) {
+        BigDecimal[][] daily = new BigDecimal[2][];
+        for (int loai = VANG; loai <= TIEN_TE; loai++) {
+            daily[loai] = trees[loai].clone();
+            for (int i = capacity; i >= 1; i--) {
+                int parent = i + (i & -i);
+                if (parent <= capacity) {
+                    daily[loai][parent] = daily[loai][parent].subtract(daily[loai][i]);
+                }
+            }
+        }
+        return daily;
+    }
+
+    /**
+     * Chừa chỗ cho các ngày sắp tới (mỗi ngày mới không phải mở rộng lại)
+     */
+    private static int capacityFor(long days) {
+        return (int) Math.min(Integer.MAX_VALUE - 1, days + 366);
+    }
+}
@@ -0,0 +1,126 @@
+// Vị thế đang nắm giữ theo từng loại vàng và loại tiền trong bộ nhớ
+package service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dao.GiaoDichCursor;
+import dto.ThongKeNhomDTO;
+import dto.ViTheDTO;
+import exception.DataAccessException;
+import model.GiaoDich;
+
+/**
+ * Giao dịch chưa có chiều mua/bán nên mỗi giao dịch là một lần nhập: vị thế là tổng số lượng,
+ * giá vốn trung bình là tổng thành tiền (ThanhTien.tinh, như thống kê) chia tổng số lượng.
+ * Cả hai là tổng nên thêm/sửa/xóa chỉ cộng/trừ phần của giao dịch, không phụ thuộc thứ tự.
+ * Mỗi công cụ giữ một ViTheDTO bất biến trong ConcurrentHashMap: đọc O(1), không khóa, luôn
+ * thấy một vị thế trọn vẹn; một lần ghi thay mỗi công cụ bị ảnh hưởng đúng một lần (sửa trong
+ * cùng công cụ chỉ cộng phần chênh lệch), không lộ trạng thái giữa chừng.
+ * Vì là tổng nên không áp lại được một lần ghi mà lần đọc DB có thể đã gồm: khi đó các vị thế
+ * được tính lại bằng GROUP BY theo loại vàng/loại tiền (replaceAll).
+ * Chỉ một thread ghi tại một thời điểm (người gọi tự đồng bộ).
+ */
+final class HoldingsEngine {
+    // Ngày nhỏ nhất của kiểu DATE trong MySQL: con trỏ theo thời gian từ ngày này gồm mọi giao dịch
+    static final LocalDate TU_NGAY = LocalDate.of(1000, 1, 1);
+    
+    // Tính lại từ DB sau khoảng này (ms) để thấy dữ liệu ghi từ nơi khác,
+    // đổi bằng -Dstatistics.holdingsRefreshMs=...
+    static final long REFRESH_MS = Long.getLong("statistics.holdingsRefreshMs", 300_000L);
+    
+    private final ConcurrentHashMap<String, ViTheDTO> viThes = new ConcurrentHashMap<>();
+
+    private HoldingsEngine() {
+    }
+
+    /**
+     * Dựng bằng một lần duyệt con trỏ theo thời gian từ TU_NGAY
+     */
+    static HoldingsEngine build(GiaoDichCursor cursor) throws DataAccessException {
+        HoldingsEngine engine = new HoldingsEngine();
+        for (GiaoDich gd = cursor.next(); gd != null; gd = cursor.next()) {
+            engine.publish(PriceSeriesEngine.maCongCu(gd), gd.getSoLuong(), ThanhTien.tinh(gd), 1);
+        }
+        return engine;
+    }
+
+    /**
+     * Một lần ghi: bỏ phần của truoc (null khi thêm), cộng phần của sau (null khi xóa)
+     */
+    void apply(GiaoDich truoc, GiaoDich sau) {
+        String maTruoc = truoc != null ? PriceSeriesEngine.maCongCu(truoc) : null;
+        String maSau = sau != null ? PriceSeriesEngine.maCongCu(sau) : null;
+        if (maTruoc != null && maTruoc.equals(maSau)) {
+            publish(maSau, (long) sau.getSoLuong() - truoc.getSoLuong(),
+                ThanhTien.tinh(sau).subtract(ThanhTien.tinh(truoc)), 0);
+            return;
+        }
+        if (maTruoc != null) {
+            publish(maTruoc, -(long) truoc.getSoLuong(), ThanhTien.tinh(truoc).negate(), -1);
+        }
+        if (maSau != null) {
+            publish(maSau, sau.getSoLuong(), ThanhTien.tinh(sau), 1);
+        }
+    }
+
+    /**
+     * Thay mọi vị thế bằng kết quả GROUP BY theo loại vàng/loại tiền trên toàn bảng
+     * (cùng công thức thành tiền); công cụ không còn trong kết quả bị bỏ
+     */
+    void replaceAll(List<ThongKeNhomDTO> nhoms) {
+        Set<String> conLai = new HashSet<>();
+        for (ThongKeNhomDTO nhom : nhoms) {
+            String maCongCu = nhom.getLoaiGiaoDich() + ":" + nhom.getNhom();
+            conLai.add(maCongCu);
+            viThes.put(maCongCu, viThe(maCongCu, nhom.getTongSoLuong(), nhom.getTongThanhTien(), nhom.getSoGiaoDich()));
+        }
+        viThes.keySet().retainAll(conLai);
+    }
+    
+    /**
+     * Vị thế của công cụ, null nếu không nắm giữ
+     */
+    ViTheDTO get(String maCongCu) {
+        return viThes.get(maCongCu);
+    }
+
+    /**
+     * Mọi vị thế, theo tên công cụ
+     */
+    List<ViTheDTO> all() {
+        List<ViTheDTO> result = new ArrayList<>(viThes.values());
+        result.sort(Comparator.comparing(ViTheDTO::getMaCongCu));
+        return result;
+    }
+
+    /**
+     * Cộng phần chênh lệch vào vị thế của công cụ và thay bằng một ViTheDTO mới
+     * (bỏ khi không còn giao dịch nào)
+     */
+    private void publish(String maCongCu, long deltaSoLuong, BigDecimal deltaGiaVon, long deltaSoGiaoDich) {
+        ViTheDTO cu = viThes.get(maCongCu);
+        long soLuong = (cu != null ? cu.getSoLuong() : 0) + deltaSoLuong;
+        long soGiaoDich = (cu != null ? cu.getSoGiaoDich() : 0) + deltaSoGiaoDich;
+        BigDecimal tongGiaVon = (cu != null ? cu.getTongGiaVon() : BigDecimal.ZERO).add(deltaGiaVon);
+        if (soGiaoDich <= 0) {
+            viThes.remove(maCongCu);
+            return;
+        }
+        viThes.put(maCongCu, viThe(maCongCu, soLuong, tongGiaVon, soGiaoDich));
+    }
+    
+    private static ViTheDTO viThe(String maCongCu, long soLuong, BigDecimal tongGiaVon, long soGiaoDich) {
+        BigDecimal giaVonTrungBinh = soLuong > 0
+            ? tongGiaVon.divide(BigDecimal.valueOf(soLuong), 4, RoundingMode.HALF_UP)
+            : BigDecimal.ZERO;
+        return new ViTheDTO(maCongCu, soLuong, tongGiaVon, giaVonTrungBinh, soGiaoDich);
+    }
+}
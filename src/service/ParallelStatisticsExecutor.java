@@ -0,0 +1,148 @@
+// Chạy song song các truy vấn thống kê độc lập, mỗi truy vấn trên một kết nối riêng của pool
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import config.DatabaseConfig;
+import exception.BusinessException;
+import exception.DataAccessException;
+import utils.DatabaseUtil;
+
+/**
+ * Một lần tính thống kê gồm nhiều truy vấn gộp (COUNT/SUM/AVG) không phụ thuộc nhau:
+ * gửi tất cả cùng lúc rồi chờ, thời gian chờ xấp xỉ truy vấn chậm nhất thay vì tổng.
+ * - Số thread bằng số kết nối tối đa của pool, không mở thêm kết nối ngoài pool
+ * - Cả lần tính có chung một thời hạn QUERY_TIMEOUT_MS, áp vào từng truy vấn bằng
+ *   setQueryTimeout: quá hạn thì server hủy truy vấn đang chạy, thread và kết nối được trả lại.
+ *   Không ngắt thread đang chạy JDBC (ngắt không dừng được truy vấn trên server); truy vấn
+ *   chưa bắt đầu thì không chạy nữa
+ * - Truy vấn lỗi/quá hạn được liệt kê theo tên trong BusinessException (mã PARTIAL_STATISTICS),
+ *   không trả về thống kê thiếu một phần
+ */
+class ParallelStatisticsExecutor {
+    private static final Logger LOGGER = Logger.getLogger(ParallelStatisticsExecutor.class.getName());
+
+    // Thời hạn cho một lần tính thống kê (ms), đổi bằng -Dstatistics.queryTimeoutMs=...
+    static final long QUERY_TIMEOUT_MS = Long.getLong("statistics.queryTimeoutMs", 15_000L);
+
+    /**
+     * Một truy vấn DB (chạy trên thread của executor)
+     */
+    interface Query<T> {
+        T run() throws DataAccessException;
+    }
+
+    private final ExecutorService executor;
+
+    ParallelStatisticsExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.executor = Executors.newFixedThreadPool(DatabaseConfig.MAX_POOL_SIZE, r -> {
+            Thread t = new Thread(r, "statistics-query-" + threadNumber.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Bắt đầu một lần tính: submit các truy vấn rồi gọi await
+     */
+    Batch batch() {
+        return new Batch();
+    }
+
+    /**
+     * Kết quả của một truy vấn trong lần tính, đọc bằng get() sau khi await thành công
+     */
+    static final class Part<T> {
+        private final String name;
+        private final Future<T> future;
+
+        private Part(String name, Future<T> future) {
+            this.name = name;
+            this.future = future;
+        }
+
+        T get() {
+            // await đã bảo đảm future hoàn thành không lỗi
+            try {
+                return future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException("Chưa gọi await: " + name, e);
+            }
+        }
+    }
+
+    final class Batch {
+        private final List<Part<?>> parts = new ArrayList<>();
+        private final long startNanos = System.nanoTime();
+
+        /**
+         * Gửi truy vấn; name dùng để báo lỗi
+         */
+        <T> Part<T> submit(String name, Query<T> query) {
+            long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(QUERY_TIMEOUT_MS);
+            Part<T> part = new Part<>(name, executor.submit(() -> {
+                DatabaseUtil.setQueryDeadline(deadline);
+                try {
+                    return query.run();
+                } finally {
+                    DatabaseUtil.clearQueryDeadline();
+                }
+            }));
+            parts.add(part);
+            return part;
+        }
+
+        /**
+         * Chờ tất cả truy vấn (tối đa QUERY_TIMEOUT_MS kể từ lúc tạo batch)
+         * @throws BusinessException liệt kê các truy vấn lỗi hoặc quá hạn
+         */
+        void await() throws BusinessException {
+            long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(QUERY_TIMEOUT_MS);
+            List<String> failures = new ArrayList<>();
+            Throwable firstCause = null;
+            for (Part<?> part : parts) {
+                try {
+                    part.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    failures.add(part.name + " (" + e.getCause().getMessage() + ")");
+                    LOGGER.log(Level.WARNING, "Truy vấn thống kê thất bại: " + part.name, e.getCause());
+                    if (firstCause == null) {
+                        firstCause = e.getCause();
+                    }
+                } catch (TimeoutException e) {
+                    // Đang chạy thì setQueryTimeout của chính truy vấn sẽ dừng nó trên server
+                    part.future.cancel(false);
+                    failures.add(part.name + " (quá " + QUERY_TIMEOUT_MS + " ms)");
+                    LOGGER.warning("Truy vấn thống kê quá hạn: " + part.name);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancelAll();
+                    throw new BusinessException("Tính thống kê bị gián đoạn", e);
+                }
+            }
+            if (!failures.isEmpty()) {
+                throw new BusinessException("Không tính được " + failures.size() + "/" + parts.size()
+                    + " chỉ số thống kê: " + String.join(", ", failures), "PARTIAL_STATISTICS", firstCause);
+            }
+            LOGGER.fine(String.format("Tính %d chỉ số thống kê song song trong %d ms", parts.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+        }
+
+        private void cancelAll() {
+            for (Part<?> part : parts) {
+                part.future.cancel(false);
+            }
+        }
+    }
+}
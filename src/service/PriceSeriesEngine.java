@@ -0,0 +1,370 @@
+// Chuỗi giá theo ngày (nến OHLC) của từng loại vàng và loại tiền trong bộ nhớ
+package service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import dao.GiaoDichCursor;
+import dto.NenGiaDTO;
+import exception.DataAccessException;
+import model.GiaoDich;
+import model.GiaoDichTienTe;
+import model.GiaoDichVang;
+
+/**
+ * Mỗi công cụ (loại vàng: giá là đơn giá; loại tiền: giá là tỉ giá) có một vòng đệm
+ * SO_NGAY nến theo ngày, chỉ gồm các ngày có giao dịch, cũ đến mới.
+ * - Dựng bằng một lần duyệt con trỏ theo (ngày, thời điểm tạo) từ tuNgay
+ * - Mỗi lần ghi cập nhật đúng nến bị ảnh hưởng, không truy vấn DB: nến giữ các giao dịch
+ *   của nó theo thứ tự tạo, nên sửa/xóa tính lại được chính xác mở/cao/thấp/đóng
+ * - Lần ghi được áp theo mã giao dịch (xóa khỏi chỗ cũ, đặt vào chỗ mới) nên áp lại một lần
+ *   ghi mà kết quả đọc DB đã gồm không đổi gì: các lần ghi chồng lên lần dựng/vá được phát lại
+ * - Vá một khoảng ngày bằng các giao dịch đọc lại từ DB (replaceDays)
+ * - N nến cuối và trung bình động N ngày đọc trong O(N)
+ * Bộ nhớ tỉ lệ với số giao dịch trong cửa sổ. Không an toàn luồng: người gọi tự đồng bộ.
+ */
+final class PriceSeriesEngine {
+    // Số nến tối đa của mỗi công cụ, cũng là số ngày dựng lại từ DB,
+    // đổi bằng -Dstatistics.priceSeriesDays=...
+    static final int SO_NGAY = Integer.getInteger("statistics.priceSeriesDays", 366);
+
+    private final LocalDate tuNgay;
+    private final Map<String, Series> series = new TreeMap<>();
+
+    private PriceSeriesEngine(LocalDate tuNgay) {
+        this.tuNgay = tuNgay;
+    }
+
+    /**
+     * Dựng từ con trỏ đã sắp theo ngày rồi thời điểm tạo, gồm mọi giao dịch từ tuNgay
+     */
+    static PriceSeriesEngine backfill(GiaoDichCursor cursor, LocalDate tuNgay) throws DataAccessException {
+        PriceSeriesEngine engine = new PriceSeriesEngine(tuNgay);
+        for (GiaoDich gd = cursor.next(); gd != null; gd = cursor.next()) {
+            engine.add(gd);
+        }
+        return engine;
+    }
+
+    LocalDate getTuNgay() {
+        return tuNgay;
+    }
+    
+    static String maCongCu(GiaoDich gd) {
+        return gd instanceof GiaoDichVang
+            ? "VANG:" + ((GiaoDichVang) gd).getLoaiVang()
+            : "TIEN_TE:" + ((GiaoDichTienTe) gd).getLoaiTien();
+    }
+
+    private static BigDecimal gia(GiaoDich gd) {
+        return gd instanceof GiaoDichTienTe ? ((GiaoDichTienTe) gd).getTiGia() : gd.getDonGia();
+    }
+
+    /**
+     * Một lần ghi: truoc là bản cũ (null khi thêm), sau là bản mới (null khi xóa).
+     * Sửa không đổi công cụ và ngày thì giữ nguyên vị trí giao dịch trong nến; giao dịch đã có
+     * trong nến của sau thì được thay tại chỗ thay vì thêm lần nữa.
+     * false nếu không tìm thấy bản cũ trong cửa sổ: chuỗi có thể đã lệch DB ở ngày đó, hoặc
+     * lần ghi đã được áp (phát lại).
+     */
+    boolean apply(GiaoDich truoc, GiaoDich sau) {
+        if (truoc != null && sau != null && maCongCu(truoc).equals(maCongCu(sau))
+                && truoc.getNgayGiaoDich().equals(sau.getNgayGiaoDich())) {
+            Nen nen = findNen(truoc);
+            if (nen != null && nen.replace(sau.getMaGiaoDich(), gia(sau), sau.getSoLuong())) {
+                return true;
+            }
+        }
+        boolean khop = truoc == null || remove(truoc);
+        if (sau != null) {
+            add(sau);
+        }
+        return khop;
+    }
+    
+    /**
+     * Thay mọi nến trong [tuNgay, denNgay] bằng các giao dịch đọc lại từ DB trong khoảng đó,
+     * theo ngày rồi thời điểm tạo
+     */
+    void replaceDays(LocalDate tuNgay, LocalDate denNgay, List<GiaoDich> giaoDichs) {
+        for (Series s : series.values()) {
+            s.delete(tuNgay, denNgay);
+        }
+        for (GiaoDich gd : giaoDichs) {
+            add(gd);
+        }
+    }
+
+    /**
+     * soNen nến gần nhất (cũ đến mới), rỗng nếu không có công cụ
+     */
+    List<NenGiaDTO> lastCandles(String maCongCu, int soNen) {
+        Series s = series.get(maCongCu);
+        if (s == null) {
+            return Collections.emptyList();
+        }
+        int n = Math.min(soNen, s.size);
+        List<NenGiaDTO> result = new ArrayList<>(n);
+        for (int i = s.size - n; i < s.size; i++) {
+            result.add(s.get(i).toDTO(maCongCu));
+        }
+        return result;
+    }
+
+    /**
+     * Trung bình giá đóng cửa của soNgay nến, tại mỗi nến trong soDiem nến gần nhất
+     * (cũ đến mới); null ở nến chưa đủ soNgay nến trước nó. O(soNgay + soDiem).
+     */
+    List<BigDecimal> movingAverages(String maCongCu, int soNgay, int soDiem) {
+        Series s = series.get(maCongCu);
+        if (s == null) {
+            return Collections.emptyList();
+        }
+        int n = Math.min(soDiem, s.size);
+        int from = s.size - n;
+        int start = Math.max(0, from - soNgay + 1);
+        BigDecimal tong = BigDecimal.ZERO;
+        BigDecimal chia = BigDecimal.valueOf(soNgay);
+        List<BigDecimal> result = new ArrayList<>(n);
+        for (int i = start; i < s.size; i++) {
+            tong = tong.add(s.get(i).dongCua());
+            if (i - soNgay >= start) {
+                tong = tong.subtract(s.get(i - soNgay).dongCua());
+            }
+            if (i >= from) {
+                result.add(i - start + 1 >= soNgay ? tong.divide(chia, 4, RoundingMode.HALF_UP) : null);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Các công cụ đang có nến, theo tên
+     */
+    List<String> instruments() {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            if (entry.getValue().size > 0) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    private void add(GiaoDich gd) {
+        if (gd.getNgayGiaoDich().isBefore(tuNgay)) {
+            return;
+        }
+        Nen nen = series.computeIfAbsent(maCongCu(gd), k -> new Series()).getOrInsert(gd.getNgayGiaoDich());
+        if (nen != null && !nen.replace(gd.getMaGiaoDich(), gia(gd), gd.getSoLuong())) {
+            nen.append(gd.getMaGiaoDich(), gia(gd), gd.getSoLuong());
+        }
+    }
+
+    private boolean remove(GiaoDich gd) {
+        Nen nen = findNen(gd);
+        if (nen == null) {
+            return !inWindow(gd);
+        }
+        if (!nen.remove(gd.getMaGiaoDich())) {
+            return false;
+        }
+        if (nen.isEmpty()) {
+            // Giữ cả chuỗi rỗng: minNgay vẫn chặn nến thiếu cho các ngày đã bị đẩy ra
+            series.get(maCongCu(gd)).delete(nen.ngay, nen.ngay);
+        }
+        return true;
+    }
+
+    private Nen findNen(GiaoDich gd) {
+        Series s = series.get(maCongCu(gd));
+        if (s == null) {
+            return null;
+        }
+        int i = s.find(gd.getNgayGiaoDich());
+        return i >= 0 ? s.get(i) : null;
+    }
+
+    /**
+     * Ngày này có được giữ trong chuỗi không (không cũ hơn lúc dựng hoặc nến đã bị đẩy ra)
+     */
+    private boolean inWindow(GiaoDich gd) {
+        if (gd.getNgayGiaoDich().isBefore(tuNgay)) {
+            return false;
+        }
+        Series s = series.get(maCongCu(gd));
+        return s == null || s.minNgay == null || !gd.getNgayGiaoDich().isBefore(s.minNgay);
+    }
+
+    /**
+     * Vòng đệm nến của một công cụ, sắp theo ngày
+     */
+    private static final class Series {
+        private final Nen[] ring = new Nen[SO_NGAY];
+        private int head;
+        private int size;
+        private LocalDate minNgay; // ngày sau nến cũ nhất đã bị đẩy ra, null nếu chưa đẩy
+
+        Nen get(int i) {
+            return ring[(head + i) % ring.length];
+        }
+
+        private void set(int i, Nen nen) {
+            ring[(head + i) % ring.length] = nen;
+        }
+
+        /**
+         * Vị trí của ngày, hoặc -(vị trí chèn) - 1 nếu chưa có nến
+         */
+        int find(LocalDate ngay) {
+            int lo = 0;
+            int hi = size - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = get(mid).ngay.compareTo(ngay);
+                if (cmp < 0) {
+                    lo = mid + 1;
+                } else if (cmp > 0) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -lo - 1;
+        }
+
+        /**
+         * Nến của ngày, tạo mới nếu chưa có; ngày mới nhất (trường hợp thường gặp) chèn O(1).
+         * Đầy thì đẩy nến cũ nhất ra; null nếu ngày còn cũ hơn mọi nến khi đã đầy.
+         */
+        Nen getOrInsert(LocalDate ngay) {
+            if (minNgay != null && ngay.isBefore(minNgay)) {
+                return null;
+            }
+            int i = find(ngay);
+            if (i >= 0) {
+                return get(i);
+            }
+            int at = -i - 1;
+            if (size == ring.length) {
+                if (at == 0) {
+                    return null;
+                }
+                minNgay = get(0).ngay.plusDays(1);
+                head = (head + 1) % ring.length;
+                size--;
+                at--;
+            }
+            for (int j = size; j > at; j--) {
+                set(j, get(j - 1));
+            }
+            Nen nen = new Nen(ngay);
+            set(at, nen);
+            size++;
+            return nen;
+        }
+
+        /**
+         * Bỏ các nến trong [tuNgay, denNgay]
+         */
+        void delete(LocalDate tuNgay, LocalDate denNgay) {
+            int from = find(tuNgay);
+            from = from >= 0 ? from : -from - 1;
+            int to = find(denNgay);
+            to = to >= 0 ? to + 1 : -to - 1;
+            int n = to - from;
+            if (n <= 0) {
+                return;
+            }
+            for (int j = from; j + n < size; j++) {
+                set(j, get(j + n));
+            }
+            for (int j = size - n; j < size; j++) {
+                set(j, null);
+            }
+            size -= n;
+        }
+    }
+
+    /**
+     * Một nến: các giao dịch trong ngày theo thứ tự tạo và OHLC tính từ chúng
+     */
+    private static final class Nen {
+        private final LocalDate ngay;
+        private final List<String> maGiaoDichs = new ArrayList<>();
+        private final List<BigDecimal> gias = new ArrayList<>();
+        private final List<Integer> soLuongs = new ArrayList<>();
+        private BigDecimal cao;
+        private BigDecimal thap;
+        private long tongSoLuong;
+
+        Nen(LocalDate ngay) {
+            this.ngay = ngay;
+        }
+
+        /**
+         * Giao dịch mới nhất trong ngày: cập nhật O(1)
+         */
+        void append(String maGiaoDich, BigDecimal gia, int soLuong) {
+            maGiaoDichs.add(maGiaoDich);
+            gias.add(gia);
+            soLuongs.add(soLuong);
+            cao = cao == null || gia.compareTo(cao) > 0 ? gia : cao;
+            thap = thap == null || gia.compareTo(thap) < 0 ? gia : thap;
+            tongSoLuong += soLuong;
+        }
+
+        boolean replace(String maGiaoDich, BigDecimal gia, int soLuong) {
+            int i = maGiaoDichs.indexOf(maGiaoDich);
+            if (i < 0) {
+                return false;
+            }
+            gias.set(i, gia);
+            soLuongs.set(i, soLuong);
+            recompute();
+            return true;
+        }
+
+        boolean remove(String maGiaoDich) {
+            int i = maGiaoDichs.indexOf(maGiaoDich);
+            if (i < 0) {
+                return false;
+            }
+            maGiaoDichs.remove(i);
+            gias.remove(i);
+            soLuongs.remove(i);
+            recompute();
+            return true;
+        }
+
+        boolean isEmpty() {
+            return gias.isEmpty();
+        }
+
+        BigDecimal dongCua() {
+            return gias.get(gias.size() - 1);
+        }
+
+        NenGiaDTO toDTO(String maCongCu) {
+            return new NenGiaDTO(maCongCu, ngay, gias.get(0), cao, thap, dongCua(), gias.size(), tongSoLuong);
+        }
+
+        private void recompute() {
+            cao = null;
+            thap = null;
+            tongSoLuong = 0;
+            for (int i = 0; i < gias.size(); i++) {
+                BigDecimal gia = gias.get(i);
+                cao = cao == null || gia.compareTo(cao) > 0 ? gia : cao;
+                thap = thap == null || gia.compareTo(thap) < 0 ? gia : thap;
+                tongSoLuong += soLuongs.get(i);
+            }
+        }
+    }
+}
@@ -2,16 +2,44 @@
 package service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
 import java.util.Optional;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
+import dao.ExportWatermarkDAO;
+import dao.GiaoDichCursor;
 import dao.GiaoDichDAO;
+import dao.impl.ExportWatermarkDAOImpl;
 import dao.impl.GiaoDichDAOImpl;
 import dto.GiaoDichFormDTO;
+import dto.NenGiaDTO;
+import dto.PhanPhoiThanhTienDTO;
+import dto.ThanhTienBucketDTO;
 import dto.ThongKeDTO;
+import dto.ThongKeDonGiaLonDTO;
+import dto.ThongKeNgayDTO;
+import dto.ThongKeNhomDTO;
+import dto.ThongKeThangDTO;
+import dto.TombstoneDTO;
+import dto.ViTheDTO;
 import exception.BusinessException;
 import exception.DataAccessException;
 import exception.ValidationException;
@@ -22,70 +50,155 @@ import model.GiaoDichVang;
 
 public class QuanLyGiaoDich {
     private static final Logger LOGGER = Logger.getLogger(QuanLyGiaoDich.class.getName());
+    private static final BigDecimal MOT_TY = new BigDecimal("1000000000");
     private final GiaoDichDAO giaoDichDAO;
+    private final ExportWatermarkDAO exportWatermarkDAO;
+    // Thống kê chỉ được tính lại khi có ghi ảnh hưởng tới khoảng ngày của nó
+    private final StatisticsCache statisticsCache = new StatisticsCache();
+    // Các truy vấn gộp của một lần thống kê chạy song song
+    private final ParallelStatisticsExecutor statisticsExecutor = new ParallelStatisticsExecutor();
+    
+    // Thống kê theo ngày trong bộ nhớ, dựng từ DB lần đầu cần và cập nhật theo từng lần ghi.
+    // Các trường dưới chỉ dùng khi giữ khóa dayCubeLock.
+    private final Object dayCubeLock = new Object();
+    private DayStatisticsCube dayCube;
+    private final DayPatchTracker dayCubeStale = new DayPatchTracker();
+    private boolean dayCubeBuilding;
+    // Các lần dựng toàn bộ chạy nền, lần lượt trên một thread
+    private final ExecutorService statisticsBuilder = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "statistics-build");
+        t.setDaemon(true);
+        return t;
+    });
+    private DayQuantileSketches dayQuantiles;  // cùng cách dựng, vá và cập nhật với dayCube
+    private final DayPatchTracker dayQuantilesStale = new DayPatchTracker();
+    private boolean dayQuantilesBuilding;
+    // Nến giá theo ngày: dựng một lần trên statisticsBuilder, không bao giờ bỏ khi đã có
+    private PriceSeriesEngine priceSeries;
+    private final DayPatchTracker priceSeriesStale = new DayPatchTracker();
+    private boolean priceSeriesBuilding;
+    // Vị thế theo công cụ: ghi khi giữ khóa dayCubeLock, đọc không khóa (volatile).
+    // Dựng một lần và tính lại bằng GROUP BY trên statisticsBuilder, không bao giờ bỏ khi đã có.
+    private volatile HoldingsEngine holdings;
+    private volatile boolean holdingsStale;    // có thể lệch DB, cần tính lại
+    private volatile long holdingsReadAt;      // System.nanoTime() của lần đọc DB gần nhất được áp
+    private long holdingsReadSequence;         // writeSequence lúc áp lần đọc đó
+    private boolean holdingsBuilding;          // đang dựng hoặc đang tính lại
+    private long writeSequence;    // tăng khi một lần ghi bắt đầu và khi kết thúc
+    private int writesInFlight;
+    // Lần ghi kết thúc trong lúc có lần đọc DB để dựng/vá đang chạy (readsInProgress > 0):
+    // lần đọc đó không biết kết quả đã gồm các lần ghi này chưa
+    private final List<LanGhi> writeLog = new ArrayList<>();
+    private int readsInProgress;
     
     public QuanLyGiaoDich() {
-        this.giaoDichDAO = new GiaoDichDAOImpl();
+        this(new GiaoDichDAOImpl(), new ExportWatermarkDAOImpl());
     }
     
     public QuanLyGiaoDich(GiaoDichDAO giaoDichDAO) {
+        this(giaoDichDAO, new ExportWatermarkDAOImpl());
+    }
+    
+    public QuanLyGiaoDich(GiaoDichDAO giaoDichDAO, ExportWatermarkDAO exportWatermarkDAO) {
         this.giaoDichDAO = giaoDichDAO;
+        this.exportWatermarkDAO = exportWatermarkDAO;
     }
     
     // CRUD Operations
     public GiaoDich add(GiaoDichFormDTO formDTO) throws BusinessException {
+        long batDau = beginWrite();
+        GiaoDich giaoDich = null;
+        GiaoDich saved = null;
+        boolean khongRo = false;
         try {
             // Check if transaction already exists
             if (giaoDichDAO.exists(formDTO.getMaGiaoDich())) {
                 throw new BusinessException("Mã giao dịch đã tồn tại: " + formDTO.getMaGiaoDich(), "DUPLICATE_ID");
             }
             
-            GiaoDich giaoDich = createGiaoDichFromDTO(formDTO);
-            GiaoDich saved = giaoDichDAO.save(giaoDich);
+            giaoDich = createGiaoDichFromDTO(formDTO);
+            khongRo = true;
+            saved = giaoDichDAO.save(giaoDich);
+            khongRo = false;
+            statisticsCache.invalidate(Arrays.asList(saved.getNgayGiaoDich()));
             
             LOGGER.info("Đã thêm giao dịch mới: " + saved.getMaGiaoDich());
             return saved;
             
         } catch (DataAccessException | ValidationException e) {
             throw new BusinessException("Không thể thêm giao dịch: " + e.getMessage(), e);
+        } finally {
+            if (khongRo) {
+                // Có thể đã ghi: bỏ thống kê của ngày giao dịch như khi ghi thành công
+                statisticsCache.invalidate(Arrays.asList(giaoDich.getNgayGiaoDich()));
+            }
+            endWrite(batDau, null, saved, khongRo, khongRo ? Arrays.asList(giaoDich.getNgayGiaoDich()) : null);
         }
     }
     
     public GiaoDich edit(String maGiaoDich, GiaoDichFormDTO formDTO) throws BusinessException {
+        long batDau = beginWrite();
+        GiaoDich giaoDich = null;
+        GiaoDich cu = null;
+        GiaoDich updated = null;
+        boolean khongRo = false;
         try {
-            // Check if transaction exists
-            Optional<GiaoDich> existing = giaoDichDAO.findById(maGiaoDich);
-            if (!existing.isPresent()) {
+            giaoDich = createGiaoDichFromDTO(formDTO);
+            // UPDATE theo mã, không đổi được mã của dòng
+            if (!giaoDich.getMaGiaoDich().equals(maGiaoDich)) {
+                throw new BusinessException("Không thể đổi mã giao dịch " + maGiaoDich
+                    + " thành " + giaoDich.getMaGiaoDich(), "INVALID_ID");
+            }
+            // Bản cũ được DAO đọc (khóa dòng) trong cùng transaction với UPDATE, không đọc trước:
+            // hai lần sửa cùng mã không trừ cùng một bản cũ
+            khongRo = true;
+            Optional<GiaoDich> previous = giaoDichDAO.updateReturningPrevious(giaoDich);
+            khongRo = false;
+            if (!previous.isPresent()) {
                 throw new BusinessException("Không tìm thấy giao dịch: " + maGiaoDich, "NOT_FOUND");
             }
-            
-            // Create updated transaction
-            GiaoDich giaoDich = createGiaoDichFromDTO(formDTO);
-            GiaoDich updated = giaoDichDAO.update(giaoDich);
+            cu = previous.get();
+            updated = giaoDich;
+            statisticsCache.invalidate(Arrays.asList(cu.getNgayGiaoDich(), updated.getNgayGiaoDich()));
             
             LOGGER.info("Đã cập nhật giao dịch: " + updated.getMaGiaoDich());
             return updated;
             
         } catch (DataAccessException | ValidationException e) {
             throw new BusinessException("Không thể cập nhật giao dịch: " + e.getMessage(), e);
+        } finally {
+            if (khongRo) {
+                // Không biết ngày cũ: bỏ toàn bộ
+                statisticsCache.invalidateAll();
+            }
+            endWrite(batDau, cu, updated, khongRo, null);
         }
     }
     
     public boolean remove(String maGiaoDich) throws BusinessException {
+        long batDau = beginWrite();
+        GiaoDich cu = null;
+        boolean khongRo = false;
         try {
-            // Check if transaction exists
-            if (!giaoDichDAO.exists(maGiaoDich)) {
+            // Bản cũ được DAO đọc (khóa dòng) trong cùng transaction với DELETE, như edit
+            khongRo = true;
+            Optional<GiaoDich> deleted = giaoDichDAO.deleteReturningPrevious(maGiaoDich);
+            khongRo = false;
+            if (!deleted.isPresent()) {
                 throw new BusinessException("Không tìm thấy giao dịch: " + maGiaoDich, "NOT_FOUND");
             }
-            
-            boolean deleted = giaoDichDAO.delete(maGiaoDich);
-            if (deleted) {
-                LOGGER.info("Đã xóa giao dịch: " + maGiaoDich);
-            }
-            return deleted;
+            cu = deleted.get();
+            statisticsCache.invalidate(Arrays.asList(cu.getNgayGiaoDich()));
+            LOGGER.info("Đã xóa giao dịch: " + maGiaoDich);
+            return true;
             
         } catch (DataAccessException e) {
             throw new BusinessException("Không thể xóa giao dịch: " + e.getMessage(), e);
+        } finally {
+            if (khongRo) {
+                statisticsCache.invalidateAll();
+            }
+            endWrite(batDau, cu, null, khongRo, null);
         }
     }
     
@@ -97,6 +210,17 @@ public class QuanLyGiaoDich {
         }
     }
     
+    /**
+     * Đọc dần toàn bộ giao dịch (ngày giảm dần); người gọi phải đóng con trỏ
+     */
+    public GiaoDichCursor openCursorAll() throws BusinessException {
+        try {
+            return giaoDichDAO.openCursorAll();
+        } catch (DataAccessException e) {
+            throw new BusinessException("Không thể đọc danh sách giao dịch: " + e.getMessage(), e);
+        }
+    }
+    
     public Optional<GiaoDich> findById(String maGiaoDich) throws BusinessException {
         try {
             return giaoDichDAO.findById(maGiaoDich);
@@ -107,24 +231,32 @@ public class QuanLyGiaoDich {
     
     // Statistics and Filtering
     public ThongKeDTO getTongSoLuongTheoLoai() throws BusinessException {
+        return copyOf(statisticsCache.get(StatisticsCache.Kind.THONG_KE, this::queryTongSoLuongTheoLoai));
+    }
+    
+    private ThongKeDTO queryTongSoLuongTheoLoai() throws BusinessException {
+        ParallelStatisticsExecutor.Batch batch = statisticsExecutor.batch();
+        ParallelStatisticsExecutor.Part<Long> tongSoLuongVang =
+            batch.submit("số giao dịch vàng", () -> giaoDichDAO.countByLoaiGiaoDich("VANG"));
+        ParallelStatisticsExecutor.Part<Long> tongSoLuongTienTe =
+            batch.submit("số giao dịch tiền tệ", () -> giaoDichDAO.countByLoaiGiaoDich("TIEN_TE"));
+        ParallelStatisticsExecutor.Part<BigDecimal> trungBinhThanhTienTienTe =
+            batch.submit("trung bình thành tiền tiền tệ", () -> giaoDichDAO.getAverageThanhTienByLoaiGiaoDich("TIEN_TE"));
+        // Chỉ cần số lượng: đếm trên DB thay vì tải toàn bộ danh sách
+        ParallelStatisticsExecutor.Part<Long> soGiaoDichDonGiaLonHon1Ty =
+            batch.submit("số giao dịch đơn giá lớn hơn 1 tỷ", () -> giaoDichDAO.countByDonGiaGreaterThan(MOT_TY));
+        ParallelStatisticsExecutor.Part<BigDecimal> tongThanhTienVang =
+            batch.submit("tổng thành tiền vàng", () -> giaoDichDAO.sumThanhTienByLoaiGiaoDich("VANG"));
+        ParallelStatisticsExecutor.Part<BigDecimal> tongThanhTienTienTe =
+            batch.submit("tổng thành tiền tiền tệ", () -> giaoDichDAO.sumThanhTienByLoaiGiaoDich("TIEN_TE"));
+        
         try {
-            long tongSoLuongVang = giaoDichDAO.countByLoaiGiaoDich("VANG");
-            long tongSoLuongTienTe = giaoDichDAO.countByLoaiGiaoDich("TIEN_TE");
-            BigDecimal trungBinhThanhTienTienTe = giaoDichDAO.getAverageThanhTienByLoaiGiaoDich("TIEN_TE");
-            
-            // Count transactions with don gia > 1 billion
-            List<GiaoDich> giaoDichLon = getDonGiaLonHon1Ty();
-            long soGiaoDichDonGiaLonHon1Ty = giaoDichLon.size();
-            
-            BigDecimal tongThanhTienVang = giaoDichDAO.sumThanhTienByLoaiGiaoDich("VANG");
-            BigDecimal tongThanhTienTienTe = giaoDichDAO.sumThanhTienByLoaiGiaoDich("TIEN_TE");
-            
-            return new ThongKeDTO(tongSoLuongVang, tongSoLuongTienTe, trungBinhThanhTienTienTe,
-                                 soGiaoDichDonGiaLonHon1Ty, tongThanhTienVang, tongThanhTienTienTe);
-                                 
-        } catch (DataAccessException e) {
-            throw new BusinessException("Không thể tính thống kê: " + e.getMessage(), e);
+            batch.await();
+        } catch (BusinessException e) {
+            throw new BusinessException("Không thể tính thống kê: " + e.getMessage(), e.getErrorCode(), e);
         }
+        return new ThongKeDTO(tongSoLuongVang.get(), tongSoLuongTienTe.get(), trungBinhThanhTienTienTe.get(),
+                             soGiaoDichDonGiaLonHon1Ty.get(), tongThanhTienVang.get(), tongThanhTienTienTe.get());
     }
     
     // Thống kê theo thời gian
@@ -140,46 +272,654 @@ public class QuanLyGiaoDich {
         return getTongSoLuongTheoLoaiTheoKhoangNgay(homNay, homNay);
     }
     
+    /**
+     * Hôm nay, một tháng, một ngày hay khoảng ngày bất kỳ đều được trả lời từ khối thống kê
+     * theo ngày trong bộ nhớ (O(log số ngày)); chỉ truy vấn DB khi chưa dựng được khối
+     */
     public ThongKeDTO getTongSoLuongTheoLoaiTheoKhoangNgay(LocalDate tuNgay, LocalDate denNgay) throws BusinessException {
+        if (tuNgay.isAfter(denNgay)) {
+            throw new BusinessException("Ngày bắt đầu không được lớn hơn ngày kết thúc", "INVALID_DATE_RANGE");
+        }
+        ThongKeDTO thongKe = queryDayCube(tuNgay, denNgay, cube -> cube.query(tuNgay, denNgay));
+        if (thongKe != null) {
+            return thongKe;
+        }
+        return copyOf(statisticsCache.get(StatisticsCache.Kind.THONG_KE, tuNgay, denNgay,
+            () -> queryTongSoLuongTheoLoaiTheoKhoangNgay(tuNgay, denNgay)));
+    }
+    
+    /**
+     * Thống kê của nhiều tháng (ví dụ biểu đồ xu hướng 24 tháng) trong một lần gọi, theo thứ tự
+     * thangs: trả lời cùng lúc từ khối theo ngày, nếu không có khối thì một truy vấn
+     * GROUP BY năm, tháng, loại trên khoảng ngày bao các tháng thay vì mỗi tháng một lần tính
+     */
+    public Map<YearMonth, ThongKeDTO> getTongSoLuongTheoLoaiTheoCacThang(Collection<YearMonth> thangs) throws BusinessException {
+        Map<YearMonth, ThongKeDTO> result = new LinkedHashMap<>();
+        if (thangs.isEmpty()) {
+            return result;
+        }
+        Map<YearMonth, ThongKeDTO> tuKhoi = queryDayCube(Collections.min(thangs).atDay(1),
+                Collections.max(thangs).atEndOfMonth(), cube -> {
+            Map<YearMonth, ThongKeDTO> theoThang = new LinkedHashMap<>();
+            for (YearMonth thang : thangs) {
+                theoThang.put(thang, cube.query(thang.atDay(1), thang.atEndOfMonth()));
+            }
+            return theoThang;
+        });
+        if (tuKhoi != null) {
+            return tuKhoi;
+        }
+        
+        YearMonth dau = Collections.min(thangs);
+        YearMonth cuoi = Collections.max(thangs);
+        List<ThongKeThangDTO> dongs;
         try {
-            long tongSoLuongVang = giaoDichDAO.countByLoaiGiaoDichAndDateRange("VANG", tuNgay, denNgay);
-            long tongSoLuongTienTe = giaoDichDAO.countByLoaiGiaoDichAndDateRange("TIEN_TE", tuNgay, denNgay);
-            BigDecimal trungBinhThanhTienTienTe = giaoDichDAO.getAverageThanhTienByLoaiGiaoDichAndDateRange("TIEN_TE", tuNgay, denNgay);
-            
-            // Count transactions with don gia > 1 billion in date range
-            List<GiaoDich> giaoDichLon = findByDateRange(tuNgay, denNgay).stream()
-                    .filter(gd -> gd.getDonGia().compareTo(new BigDecimal("1000000000")) > 0)
-                    .collect(Collectors.toList());
-            long soGiaoDichDonGiaLonHon1Ty = giaoDichLon.size();
-            
-            BigDecimal tongThanhTienVang = giaoDichDAO.sumThanhTienByLoaiGiaoDichAndDateRange("VANG", tuNgay, denNgay);
-            BigDecimal tongThanhTienTienTe = giaoDichDAO.sumThanhTienByLoaiGiaoDichAndDateRange("TIEN_TE", tuNgay, denNgay);
-            
-            return new ThongKeDTO(tongSoLuongVang, tongSoLuongTienTe, trungBinhThanhTienTienTe,
-                                 soGiaoDichDonGiaLonHon1Ty, tongThanhTienVang, tongThanhTienTienTe);
-                                 
+            dongs = giaoDichDAO.aggregateByThangAndLoai(MOT_TY, dau.atDay(1), cuoi.atEndOfMonth());
         } catch (DataAccessException e) {
-            throw new BusinessException("Không thể tính thống kê theo thời gian: " + e.getMessage(), e);
+            throw new BusinessException("Không thể tính thống kê theo tháng: " + e.getMessage(), e);
         }
+        for (YearMonth thang : thangs) {
+            result.put(thang, new ThongKeDTO(0, 0, BigDecimal.ZERO, 0, BigDecimal.ZERO, BigDecimal.ZERO));
+        }
+        for (ThongKeThangDTO dong : dongs) {
+            ThongKeDTO thongKe = result.get(dong.getThang());
+            if (thongKe == null) {
+                continue; // tháng nằm giữa các tháng được hỏi
+            }
+            thongKe.setSoGiaoDichDonGiaLonHon1Ty(thongKe.getSoGiaoDichDonGiaLonHon1Ty() + dong.getSoGiaoDichDonGiaLonHon1Ty());
+            if ("VANG".equals(dong.getLoaiGiaoDich())) {
+                thongKe.setTongSoLuongVang(dong.getSoGiaoDich());
+                thongKe.setTongThanhTienVang(dong.getTongThanhTien());
+            } else {
+                thongKe.setTongSoLuongTienTe(dong.getSoGiaoDich());
+                thongKe.setTongThanhTienTienTe(dong.getTongThanhTien());
+                thongKe.setTrungBinhThanhTienTienTe(dong.getTongThanhTien().divide(
+                    BigDecimal.valueOf(dong.getSoGiaoDich()), 2, RoundingMode.HALF_UP));
+            }
+        }
+        return result;
     }
-
-    public BigDecimal getTrungBinhThanhTienTienTe() throws BusinessException {
+    
+    /**
+     * Đọc [tuNgay, denNgay] từ khối theo ngày. Khối được dựng một lần bằng GROUP BY toàn bảng
+     * trên statisticsBuilder, sau đó chỉ cập nhật theo từng lần ghi, không dựng lại định kỳ.
+     * Ngày lệch trong khoảng được hỏi (lần ghi chồng lên lần đọc DB, lần ghi không rõ kết quả,
+     * khoảng mở quá StatisticsCache.OPEN_RANGE_TTL_MS để thấy dữ liệu ghi từ nơi khác) được vá
+     * bằng GROUP BY trên đúng các ngày đó (theo chỉ mục ngày) trước khi trả lời.
+     * null nếu chưa có khối (đang dựng), không vá được, hoặc có lần ghi chồng lên lần vá:
+     * người gọi truy vấn trực tiếp.
+     */
+    private <T> T queryDayCube(LocalDate tuNgay, LocalDate denNgay, Function<DayStatisticsCube, T> query) {
+        DayStatisticsCube cube;
+        List<LocalDate> ngayLech;
+        long batDau;
+        synchronized (dayCubeLock) {
+            if (dayCube == null) {
+                startDayCubeBuild();
+                return null;
+            }
+            if (StatisticsCache.isOpenRange(denNgay)) {
+                dayCubeStale.markWindowIfExpired(StatisticsCache.OPEN_RANGE_TTL_MS);
+            }
+            ngayLech = dayCubeStale.staleIn(tuNgay, denNgay);
+            if (ngayLech.isEmpty()) {
+                return query.apply(dayCube);
+            }
+            cube = dayCube;
+            batDau = beginRead();
+        }
+        
+        // Truy vấn ngoài khóa, các lần ghi vẫn chạy; áp kết quả khi giữ khóa
+        LocalDate tu = ngayLech.get(0);
+        LocalDate den = ngayLech.get(ngayLech.size() - 1);
+        try {
+            List<ThongKeNgayDTO> theoNgay = giaoDichDAO.aggregateByNgayAndLoai(MOT_TY, tu, den);
+            synchronized (dayCubeLock) {
+                if (dayCube != cube) {
+                    return null; // khối bị bỏ (lần ghi không rõ ngày) trong lúc vá
+                }
+                // Lần ghi không rõ ngày đã bỏ khối ở trên nên mọi lần ghi chồng lên đều rõ ngày
+                cube.replaceDays(tu, den, theoNgay);
+                dayCubeStale.readApplied(tu, den, writeSequence, ngayCuaLanGhi(writesSince(batDau)));
+                return dayCubeStale.staleIn(tuNgay, denNgay).isEmpty() ? query.apply(cube) : null;
+            }
+        } catch (DataAccessException e) {
+            LOGGER.log(Level.WARNING, "Không vá được thống kê theo ngày, truy vấn trực tiếp", e);
+            return null;
+        } finally {
+            synchronized (dayCubeLock) {
+                endRead();
+            }
+        }
+    }
+    
+    /**
+     * Đưa lần dựng khối theo ngày lên statisticsBuilder, trừ khi đang có lần dựng.
+     * Gọi khi giữ khóa dayCubeLock.
+     */
+    private void startDayCubeBuild() {
+        if (dayCubeBuilding) {
+            return;
+        }
+        dayCubeBuilding = true;
+        long batDau = beginRead();
+        statisticsBuilder.execute(() -> buildDayCube(batDau));
+    }
+    
+    /**
+     * Dựng khối từ GROUP BY toàn bảng (không chặn ghi) rồi thay vào; ngày của các lần ghi
+     * chồng lên lần dựng bị đánh dấu lệch, được vá ở lần đọc sau thay vì bỏ cả kết quả.
+     * Chỉ bỏ khi có lần ghi không rõ ngày (lần đọc sau dựng lại).
+     */
+    private void buildDayCube(long batDau) {
+        try {
+            DayStatisticsCube built = DayStatisticsCube.build(giaoDichDAO.aggregateByNgayAndLoai(MOT_TY));
+            synchronized (dayCubeLock) {
+                List<LocalDate> ngayChongLen = ngayCuaLanGhi(writesSince(batDau));
+                if (ngayChongLen == null) {
+                    LOGGER.info("Có lần ghi không rõ ngày trong lúc dựng thống kê theo ngày, sẽ dựng lại");
+                    return;
+                }
+                dayCube = built;
+                dayCubeStale.reset(writeSequence);
+                dayCubeStale.markStale(ngayChongLen);
+            }
+        } catch (DataAccessException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Không dựng được thống kê theo ngày", e);
+        } finally {
+            synchronized (dayCubeLock) {
+                dayCubeBuilding = false;
+                endRead();
+            }
+        }
+    }
+    
+    /**
+     * Phân vị p50/p95/p99 của thành tiền theo loại trên toàn bộ dữ liệu
+     */
+    public PhanPhoiThanhTienDTO getPhanPhoiThanhTien() throws BusinessException {
+        return queryDayQuantiles(null, null);
+    }
+    
+    /**
+     * Phân vị p50/p95/p99 của thành tiền theo loại trên [tuNgay, denNgay], gộp từ sketch
+     * của từng ngày trong bộ nhớ (sai số tương đối tối đa ThanhTienSketch.SAI_SO)
+     */
+    public PhanPhoiThanhTienDTO getPhanPhoiThanhTien(LocalDate tuNgay, LocalDate denNgay) throws BusinessException {
+        if (tuNgay.isAfter(denNgay)) {
+            throw new BusinessException("Ngày bắt đầu không được lớn hơn ngày kết thúc", "INVALID_DATE_RANGE");
+        }
+        return queryDayQuantiles(tuNgay, denNgay);
+    }
+    
+    /**
+     * Như queryDayCube: sketch theo ngày dựng một lần trên statisticsBuilder rồi cập nhật theo
+     * từng lần ghi, ngày lệch trong khoảng được hỏi được vá bằng histogram theo khoảng ngày.
+     * Chưa dựng xong hoặc không vá sạch được thì tính từ histogram của đúng khoảng được hỏi.
+     */
+    private PhanPhoiThanhTienDTO queryDayQuantiles(LocalDate tuNgay, LocalDate denNgay) throws BusinessException {
+        DayQuantileSketches sketches;
+        List<LocalDate> ngayLech;
+        long batDau;
+        synchronized (dayCubeLock) {
+            if (dayQuantiles == null) {
+                startDayQuantilesBuild();
+                return queryDayQuantilesDirect(tuNgay, denNgay);
+            }
+            if (StatisticsCache.isOpenRange(denNgay)) {
+                dayQuantilesStale.markWindowIfExpired(StatisticsCache.OPEN_RANGE_TTL_MS);
+            }
+            ngayLech = dayQuantilesStale.staleIn(tuNgay, denNgay);
+            if (ngayLech.isEmpty()) {
+                return dayQuantiles.query(tuNgay, denNgay);
+            }
+            sketches = dayQuantiles;
+            batDau = beginRead();
+        }
+        
+        LocalDate tu = ngayLech.get(0);
+        LocalDate den = ngayLech.get(ngayLech.size() - 1);
         try {
-            return giaoDichDAO.getAverageThanhTienByLoaiGiaoDich("TIEN_TE");
+            List<ThanhTienBucketDTO> buckets = giaoDichDAO.histogramThanhTienByNgayAndLoai(ThanhTienSketch.LOG_GAMMA, tu, den);
+            synchronized (dayCubeLock) {
+                if (dayQuantiles == sketches) {
+                    sketches.replaceDays(tu, den, buckets);
+                    dayQuantilesStale.readApplied(tu, den, writeSequence, ngayCuaLanGhi(writesSince(batDau)));
+                    if (dayQuantilesStale.staleIn(tuNgay, denNgay).isEmpty()) {
+                        return sketches.query(tuNgay, denNgay);
+                    }
+                }
+            }
+        } catch (DataAccessException e) {
+            LOGGER.log(Level.WARNING, "Không vá được sketch thành tiền, tính trực tiếp", e);
+        } finally {
+            synchronized (dayCubeLock) {
+                endRead();
+            }
+        }
+        return queryDayQuantilesDirect(tuNgay, denNgay);
+    }
+    
+    // Sketch dựng tạm từ histogram của [tuNgay, denNgay] (tuNgay null: toàn bộ), không giữ lại
+    private PhanPhoiThanhTienDTO queryDayQuantilesDirect(LocalDate tuNgay, LocalDate denNgay) throws BusinessException {
+        try {
+            List<ThanhTienBucketDTO> buckets = tuNgay == null
+                ? giaoDichDAO.histogramThanhTienByNgayAndLoai(ThanhTienSketch.LOG_GAMMA)
+                : giaoDichDAO.histogramThanhTienByNgayAndLoai(ThanhTienSketch.LOG_GAMMA, tuNgay, denNgay);
+            return DayQuantileSketches.build(buckets).query(tuNgay, denNgay);
+        } catch (DataAccessException e) {
+            throw new BusinessException("Không thể tính phân phối thành tiền: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Như startDayCubeBuild. Gọi khi giữ khóa dayCubeLock.
+     */
+    private void startDayQuantilesBuild() {
+        if (dayQuantilesBuilding) {
+            return;
+        }
+        dayQuantilesBuilding = true;
+        long batDau = beginRead();
+        statisticsBuilder.execute(() -> buildDayQuantiles(batDau));
+    }
+    
+    /**
+     * Như buildDayCube: thay vào và đánh dấu lệch ngày của các lần ghi chồng lên lần dựng
+     */
+    private void buildDayQuantiles(long batDau) {
+        try {
+            DayQuantileSketches built = DayQuantileSketches.build(
+                giaoDichDAO.histogramThanhTienByNgayAndLoai(ThanhTienSketch.LOG_GAMMA));
+            synchronized (dayCubeLock) {
+                List<LocalDate> ngayChongLen = ngayCuaLanGhi(writesSince(batDau));
+                if (ngayChongLen == null) {
+                    LOGGER.info("Có lần ghi không rõ ngày trong lúc dựng sketch thành tiền, sẽ dựng lại");
+                    return;
+                }
+                dayQuantiles = built;
+                dayQuantilesStale.reset(writeSequence);
+                dayQuantilesStale.markStale(ngayChongLen);
+            }
+        } catch (DataAccessException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Không dựng được sketch thành tiền", e);
+        } finally {
+            synchronized (dayCubeLock) {
+                dayQuantilesBuilding = false;
+                endRead();
+            }
+        }
+    }
+    
+    /**
+     * Các loại vàng (VANG:<loại vàng>) và loại tiền (TIEN_TE:<loại tiền>) có nến giá
+     * trong PriceSeriesEngine.SO_NGAY ngày gần nhất
+     */
+    public List<String> getDanhSachCongCuGia() throws BusinessException {
+        return queryPriceSeries(PriceSeriesEngine::instruments);
+    }
+    
+    /**
+     * soNen nến giá theo ngày gần nhất của một công cụ (cũ đến mới): mở/cao/thấp/đóng của
+     * đơn giá (vàng) hoặc tỉ giá (tiền tệ); chỉ gồm các ngày có giao dịch
+     */
+    public List<NenGiaDTO> getNenGiaTheoNgay(String maCongCu, int soNen) throws BusinessException {
+        if (soNen <= 0) {
+            throw new BusinessException("Số nến phải lớn hơn 0", "INVALID_CANDLE_COUNT");
+        }
+        return queryPriceSeries(engine -> engine.lastCandles(maCongCu, soNen));
+    }
+    
+    /**
+     * Trung bình động soNgay nến của giá đóng cửa, tại từng nến trong soDiem nến gần nhất
+     * (cùng thứ tự với getNenGiaTheoNgay; null khi chưa đủ soNgay nến)
+     */
+    public List<BigDecimal> getDuongTrungBinhGia(String maCongCu, int soNgay, int soDiem) throws BusinessException {
+        if (soNgay <= 0 || soDiem <= 0) {
+            throw new BusinessException("Số ngày trung bình và số điểm phải lớn hơn 0", "INVALID_MOVING_AVERAGE");
+        }
+        return queryPriceSeries(engine -> engine.movingAverages(maCongCu, soNgay, soDiem));
+    }
+    
+    /**
+     * Đọc chuỗi giá trong bộ nhớ, không chờ dựng:
+     * - Chưa có (lần đầu): đưa lần dựng lên statisticsBuilder, báo NOT_READY để người gọi thử lại
+     * - Ngày lệch trong cửa sổ (lần ghi không rõ kết quả, khoảng mở quá
+     *   StatisticsCache.OPEN_RANGE_TTL_MS để thấy dữ liệu ghi từ nơi khác) được vá bằng con trỏ
+     *   theo khoảng ngày đó trước khi trả lời; vá không được thì trả lời bằng bản hiện có
+     */
+    private <T> T queryPriceSeries(Function<PriceSeriesEngine, T> query) throws BusinessException {
+        PriceSeriesEngine series;
+        List<LocalDate> ngayLech;
+        long batDau;
+        synchronized (dayCubeLock) {
+            if (priceSeries == null) {
+                startPriceSeriesBuild();
+                throw new BusinessException("Chuỗi giá đang được dựng, vui lòng thử lại sau", "NOT_READY");
+            }
+            priceSeriesStale.markWindowIfExpired(StatisticsCache.OPEN_RANGE_TTL_MS);
+            ngayLech = priceSeriesStale.staleIn(priceSeries.getTuNgay(), null);
+            if (ngayLech.isEmpty()) {
+                return query.apply(priceSeries);
+            }
+            series = priceSeries;
+            batDau = beginRead();
+        }
+        
+        // Đọc ngoài khóa, các lần ghi vẫn chạy; thay vào và phát lại các lần ghi đó khi giữ khóa
+        LocalDate tu = ngayLech.get(0);
+        LocalDate den = ngayLech.get(ngayLech.size() - 1);
+        try (GiaoDichCursor cursor = giaoDichDAO.openCursorByDateRangeChronological(tu, den)) {
+            List<GiaoDich> giaoDichs = new ArrayList<>();
+            for (GiaoDich gd = cursor.next(); gd != null; gd = cursor.next()) {
+                giaoDichs.add(gd);
+            }
+            synchronized (dayCubeLock) {
+                if (priceSeries == series) {
+                    series.replaceDays(tu, den, giaoDichs);
+                    priceSeriesStale.readApplied(tu, den, writeSequence, Collections.emptyList());
+                    replayPriceSeries(writesSince(batDau));
+                }
+                return query.apply(priceSeries);
+            }
         } catch (DataAccessException e) {
-            throw new BusinessException("Không thể tính trung bình thành tiền tiền tệ: " + e.getMessage(), e);
+            LOGGER.log(Level.WARNING, "Không vá được chuỗi giá, dùng bản hiện có", e);
+            synchronized (dayCubeLock) {
+                return query.apply(priceSeries);
+            }
+        } finally {
+            synchronized (dayCubeLock) {
+                endRead();
+            }
+        }
+    }
+    
+    /**
+     * Như startDayCubeBuild. Gọi khi giữ khóa dayCubeLock.
+     */
+    private void startPriceSeriesBuild() {
+        if (priceSeriesBuilding) {
+            return;
+        }
+        priceSeriesBuilding = true;
+        long batDau = beginRead();
+        statisticsBuilder.execute(() -> buildPriceSeries(batDau));
+    }
+    
+    /**
+     * Một lần duyệt con trỏ theo thời gian (không chặn ghi, không chặn đọc: bản cũ vẫn được dùng
+     * và nhận các lần ghi) rồi thay vào và phát lại mọi lần ghi kết thúc trong lúc dựng.
+     * Lần ghi đang chạy lúc thay vào sẽ tự áp khi kết thúc; áp theo mã nên không tính hai lần.
+     */
+    private void buildPriceSeries(long batDau) {
+        LocalDate tuNgay = LocalDate.now().minusDays(PriceSeriesEngine.SO_NGAY - 1);
+        try (GiaoDichCursor cursor = giaoDichDAO.openCursorFromDateChronological(tuNgay)) {
+            PriceSeriesEngine built = PriceSeriesEngine.backfill(cursor, tuNgay);
+            synchronized (dayCubeLock) {
+                priceSeriesBuilding = false;
+                priceSeries = built;
+                priceSeriesStale.reset(writeSequence);
+                replayPriceSeries(writesSince(batDau));
+            }
+        } catch (DataAccessException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Không dựng được chuỗi giá", e);
+        } finally {
+            synchronized (dayCubeLock) {
+                priceSeriesBuilding = false;
+                endRead();
+            }
+        }
+    }
+    
+    /**
+     * Áp lại các lần ghi chồng lên một lần đọc DB vừa được thay vào chuỗi giá: kết quả đọc có
+     * thể đã gồm chúng nên bản cũ không tìm thấy không phải là lệch. Gọi khi giữ khóa dayCubeLock.
+     */
+    private void replayPriceSeries(List<LanGhi> lanGhis) {
+        for (LanGhi lanGhi : lanGhis) {
+            if (lanGhi.khongRo) {
+                priceSeriesWriteUnknown(lanGhi.ngayKhongRo);
+            } else {
+                priceSeries.apply(lanGhi.truoc, lanGhi.sau);
+            }
+        }
+    }
+    
+    /**
+     * Lần ghi không rõ kết quả: vá lại các ngày của nó, không biết ngày thì dựng lại (vẫn dùng
+     * bản hiện tại cho tới khi dựng xong). Gọi khi giữ khóa dayCubeLock.
+     */
+    private void priceSeriesWriteUnknown(Collection<LocalDate> ngayKhongRo) {
+        if (ngayKhongRo != null) {
+            priceSeriesStale.markStale(ngayKhongRo);
+        } else {
+            startPriceSeriesBuild();
+        }
+    }
+    
+    /**
+     * Vị thế đang nắm giữ của một loại vàng (VANG:<loại vàng>) hoặc loại tiền
+     * (TIEN_TE:<loại tiền>): số lượng và giá vốn trung bình. O(1), không khóa khi đã dựng.
+     */
+    public ViTheDTO getViThe(String maCongCu) throws BusinessException {
+        ViTheDTO viThe = currentHoldings().get(maCongCu);
+        return viThe != null ? viThe : new ViTheDTO(maCongCu, 0, BigDecimal.ZERO, BigDecimal.ZERO, 0);
+    }
+    
+    /**
+     * Mọi vị thế đang nắm giữ, theo tên công cụ
+     */
+    public List<ViTheDTO> getTatCaViThe() throws BusinessException {
+        return currentHoldings().all();
+    }
+    
+    /**
+     * Đường đọc chỉ là các lần đọc volatile, không bao giờ chờ DB trên thread gọi:
+     * - Đã có vị thế: trả về ngay; nếu có thể đang lệch (lần ghi chồng lên lần đọc DB, lần ghi
+     *   không rõ kết quả) hoặc đã đọc DB quá HoldingsEngine.REFRESH_MS (để thấy dữ liệu ghi từ
+     *   nơi khác) thì yêu cầu tính lại trên statisticsBuilder, vẫn trả bản hiện tại
+     * - Chưa có (lần đầu): yêu cầu dựng, báo NOT_READY để người gọi thử lại
+     */
+    private HoldingsEngine currentHoldings() throws BusinessException {
+        HoldingsEngine current = holdings;
+        if (current == null || holdingsStale
+                || System.nanoTime() - holdingsReadAt >= TimeUnit.MILLISECONDS.toNanos(HoldingsEngine.REFRESH_MS)) {
+            synchronized (dayCubeLock) {
+                startHoldingsBuild();
+            }
+        }
+        if (current == null) {
+            throw new BusinessException("Vị thế nắm giữ đang được tính, vui lòng thử lại sau", "NOT_READY");
         }
+        return current;
+    }
+    
+    /**
+     * Đưa lần dựng (chưa có vị thế) hoặc lần tính lại lên statisticsBuilder, trừ khi đang có.
+     * Gọi khi giữ khóa dayCubeLock.
+     */
+    private void startHoldingsBuild() {
+        if (holdingsBuilding) {
+            return;
+        }
+        holdingsBuilding = true;
+        long batDau = beginRead();
+        HoldingsEngine current = holdings;
+        statisticsBuilder.execute(() -> {
+            if (current == null) {
+                buildHoldings(batDau);
+            } else {
+                refreshHoldings(current, batDau);
+            }
+        });
+    }
+    
+    /**
+     * Một lần duyệt con trỏ theo thời gian trên thread nền rồi thay vào. Vị thế là tổng nên
+     * không phát lại được các lần ghi kết thúc trong lúc dựng (con trỏ có thể đã gồm chúng):
+     * có lần ghi như vậy thì đánh dấu lệch để được tính lại.
+     */
+    private void buildHoldings(long batDau) {
+        try (GiaoDichCursor cursor = giaoDichDAO.openCursorFromDateChronological(HoldingsEngine.TU_NGAY)) {
+            HoldingsEngine built = HoldingsEngine.build(cursor);
+            synchronized (dayCubeLock) {
+                holdings = built;
+                holdingsReadApplied(batDau);
+            }
+        } catch (DataAccessException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Không dựng được vị thế nắm giữ", e);
+        } finally {
+            synchronized (dayCubeLock) {
+                holdingsBuilding = false;
+                endRead();
+            }
+        }
+    }
+    
+    /**
+     * Tính lại mọi vị thế bằng GROUP BY theo loại vàng/loại tiền (theo chỉ mục, không đọc
+     * từng giao dịch), không chặn ghi và đọc
+     */
+    private void refreshHoldings(HoldingsEngine current, long batDau) {
+        try {
+            List<ThongKeNhomDTO> nhoms = giaoDichDAO.aggregateByNhom();
+            synchronized (dayCubeLock) {
+                current.replaceAll(nhoms);
+                holdingsReadApplied(batDau);
+            }
+        } catch (DataAccessException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Không tính lại được vị thế nắm giữ", e);
+        } finally {
+            synchronized (dayCubeLock) {
+                holdingsBuilding = false;
+                endRead();
+            }
+        }
+    }
+    
+    /**
+     * Vừa thay vị thế bằng một lần đọc DB bắt đầu ở batDau: lần ghi kết thúc trong lúc đọc,
+     * hoặc còn đang chạy (endWrite), có thể đã nằm trong kết quả. Gọi khi giữ khóa dayCubeLock.
+     */
+    private void holdingsReadApplied(long batDau) {
+        holdingsStale = !writesSince(batDau).isEmpty();
+        holdingsReadSequence = writeSequence;
+        holdingsReadAt = System.nanoTime();
+    }
+    
+    private ThongKeDTO queryTongSoLuongTheoLoaiTheoKhoangNgay(LocalDate tuNgay, LocalDate denNgay) throws BusinessException {
+        ParallelStatisticsExecutor.Batch batch = statisticsExecutor.batch();
+        ParallelStatisticsExecutor.Part<Long> tongSoLuongVang = batch.submit("số giao dịch vàng",
+            () -> giaoDichDAO.countByLoaiGiaoDichAndDateRange("VANG", tuNgay, denNgay));
+        ParallelStatisticsExecutor.Part<Long> tongSoLuongTienTe = batch.submit("số giao dịch tiền tệ",
+            () -> giaoDichDAO.countByLoaiGiaoDichAndDateRange("TIEN_TE", tuNgay, denNgay));
+        ParallelStatisticsExecutor.Part<BigDecimal> trungBinhThanhTienTienTe = batch.submit("trung bình thành tiền tiền tệ",
+            () -> giaoDichDAO.getAverageThanhTienByLoaiGiaoDichAndDateRange("TIEN_TE", tuNgay, denNgay));
+        // Chỉ cần số lượng: đếm trên DB thay vì tải mọi giao dịch trong khoảng rồi lọc
+        ParallelStatisticsExecutor.Part<Long> soGiaoDichDonGiaLonHon1Ty = batch.submit("số giao dịch đơn giá lớn hơn 1 tỷ",
+            () -> giaoDichDAO.countByDonGiaGreaterThanAndDateRange(MOT_TY, tuNgay, denNgay));
+        ParallelStatisticsExecutor.Part<BigDecimal> tongThanhTienVang = batch.submit("tổng thành tiền vàng",
+            () -> giaoDichDAO.sumThanhTienByLoaiGiaoDichAndDateRange("VANG", tuNgay, denNgay));
+        ParallelStatisticsExecutor.Part<BigDecimal> tongThanhTienTienTe = batch.submit("tổng thành tiền tiền tệ",
+            () -> giaoDichDAO.sumThanhTienByLoaiGiaoDichAndDateRange("TIEN_TE", tuNgay, denNgay));
+        
+        try {
+            batch.await();
+        } catch (BusinessException e) {
+            throw new BusinessException("Không thể tính thống kê theo thời gian: " + e.getMessage(), e.getErrorCode(), e);
+        }
+        return new ThongKeDTO(tongSoLuongVang.get(), tongSoLuongTienTe.get(), trungBinhThanhTienTienTe.get(),
+                             soGiaoDichDonGiaLonHon1Ty.get(), tongThanhTienVang.get(), tongThanhTienTienTe.get());
+    }
+
+    /**
+     * Thống kê theo từng loại vàng và loại tiền trên toàn bộ dữ liệu
+     */
+    public List<ThongKeNhomDTO> getThongKeTheoNhom() throws BusinessException {
+        return statisticsCache.get(StatisticsCache.Kind.THEO_NHOM, () -> {
+            try {
+                return sortThongKeNhom(giaoDichDAO.aggregateByNhom());
+            } catch (DataAccessException e) {
+                throw new BusinessException("Không thể thống kê theo loại vàng/loại tiền: " + e.getMessage(), e);
+            }
+        });
+    }
+    
+    /**
+     * Thống kê theo từng loại vàng và loại tiền trên [tuNgay, denNgay]
+     */
+    public List<ThongKeNhomDTO> getThongKeTheoNhom(LocalDate tuNgay, LocalDate denNgay) throws BusinessException {
+        if (tuNgay.isAfter(denNgay)) {
+            throw new BusinessException("Ngày bắt đầu không được lớn hơn ngày kết thúc", "INVALID_DATE_RANGE");
+        }
+        return statisticsCache.get(StatisticsCache.Kind.THEO_NHOM, tuNgay, denNgay, () -> {
+            try {
+                return sortThongKeNhom(giaoDichDAO.aggregateByNhomAndDateRange(tuNgay, denNgay));
+            } catch (DataAccessException e) {
+                throw new BusinessException("Không thể thống kê theo loại vàng/loại tiền theo thời gian: " + e.getMessage(), e);
+            }
+        });
+    }
+    
+    /**
+     * Vàng trước tiền tệ, trong mỗi loại nhóm có tổng thành tiền lớn hơn đứng trước.
+     * Danh sách không sửa được (được giữ trong bộ nhớ đệm, DTO bất biến)
+     */
+    private static List<ThongKeNhomDTO> sortThongKeNhom(List<ThongKeNhomDTO> nhoms) {
+        List<ThongKeNhomDTO> sorted = new ArrayList<>(nhoms);
+        sorted.sort(Comparator.comparing(ThongKeNhomDTO::getLoaiGiaoDich, Comparator.reverseOrder())
+            .thenComparing(ThongKeNhomDTO::getTongThanhTien, Comparator.reverseOrder()));
+        return Collections.unmodifiableList(sorted);
+    }
+    
+    public BigDecimal getTrungBinhThanhTienTienTe() throws BusinessException {
+        return statisticsCache.get(StatisticsCache.Kind.TRUNG_BINH_TIEN_TE, () -> {
+            try {
+                return giaoDichDAO.getAverageThanhTienByLoaiGiaoDich("TIEN_TE");
+            } catch (DataAccessException e) {
+                throw new BusinessException("Không thể tính trung bình thành tiền tiền tệ: " + e.getMessage(), e);
+            }
+        });
     }
     
     public List<GiaoDich> getDonGiaLonHon1Ty() throws BusinessException {
         try {
-            BigDecimal motTy = new BigDecimal("1000000000");
-            return giaoDichDAO.findByDonGiaGreaterThan(motTy);
+            return giaoDichDAO.findByDonGiaGreaterThan(MOT_TY);
         } catch (DataAccessException e) {
             throw new BusinessException("Không thể lọc giao dịch đơn giá lớn hơn 1 tỷ: " + e.getMessage(), e);
         }
     }
     
+    /**
+     * K giao dịch đơn giá lớn hơn 1 tỷ cao nhất (LIMIT trên DB) kèm số lượng, tổng thành tiền
+     * và đơn giá trung bình của cả nhóm; hai truy vấn chạy song song, không tải cả nhóm
+     */
+    public ThongKeDonGiaLonDTO getTopDonGiaLonHon1Ty(int k) throws BusinessException {
+        ParallelStatisticsExecutor.Batch batch = statisticsExecutor.batch();
+        ParallelStatisticsExecutor.Part<ThongKeDonGiaLonDTO> tongHop = batch.submit("tổng hợp giao dịch đơn giá lớn",
+            () -> giaoDichDAO.summarizeByDonGiaGreaterThan(MOT_TY));
+        ParallelStatisticsExecutor.Part<List<GiaoDich>> top = k > 0
+            ? batch.submit("giao dịch đơn giá cao nhất", () -> giaoDichDAO.findTopByDonGiaGreaterThan(MOT_TY, k))
+            : null;
+        try {
+            batch.await();
+        } catch (BusinessException e) {
+            throw new BusinessException("Không thể lấy giao dịch đơn giá lớn hơn 1 tỷ: " + e.getMessage(), e.getErrorCode(), e);
+        }
+        return top != null ? tongHop.get().withTopGiaoDich(top.get()) : tongHop.get();
+    }
+    
+    /**
+     * Đọc dần giao dịch đơn giá lớn hơn 1 tỷ (đơn giá giảm dần); người gọi phải đóng con trỏ
+     */
+    public GiaoDichCursor openCursorDonGiaLonHon1Ty() throws BusinessException {
+        try {
+            return giaoDichDAO.openCursorByDonGiaGreaterThan(MOT_TY);
+        } catch (DataAccessException e) {
+            throw new BusinessException("Không thể đọc giao dịch đơn giá lớn hơn 1 tỷ: " + e.getMessage(), e);
+        }
+    }
+    
     // Filter methods
     public List<GiaoDich> findByLoaiGiaoDich(String loaiGiaoDich) throws BusinessException {
         try {
@@ -208,6 +948,85 @@ public class QuanLyGiaoDich {
         }
     }
     
+    // Incremental export (theo cột updated_at)
+    public List<GiaoDich> findChangedBetween(LocalDateTime tuThoiDiem, LocalDateTime denThoiDiem) throws BusinessException {
+        try {
+            return giaoDichDAO.findByUpdatedAtRange(tuThoiDiem, denThoiDiem);
+        } catch (DataAccessException e) {
+            throw new BusinessException("Không thể tìm giao dịch thay đổi: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Đọc dần các giao dịch thay đổi (theo updated_at); người gọi phải đóng con trỏ
+     */
+    public GiaoDichCursor openCursorChangedBetween(LocalDateTime tuThoiDiem, LocalDateTime denThoiDiem) throws BusinessException {
+        try {
+            return giaoDichDAO.openCursorByUpdatedAtRange(tuThoiDiem, denThoiDiem);
+        } catch (DataAccessException e) {
+            throw new BusinessException("Không thể đọc giao dịch thay đổi: " + e.getMessage(), e);
+        }
+    }
+    
+    public long countChangedBetween(LocalDateTime tuThoiDiem, LocalDateTime denThoiDiem) throws BusinessException {
+        try {
+            return giaoDichDAO.countByUpdatedAtRange(tuThoiDiem, denThoiDiem);
+        } catch (DataAccessException e) {
+            throw new BusinessException("Không thể đếm giao dịch thay đổi: " + e.getMessage(), e);
+        }
+    }
+    
+    public List<TombstoneDTO> findDeletedBetween(LocalDateTime tuThoiDiem, LocalDateTime denThoiDiem) throws BusinessException {
+        try {
+            return giaoDichDAO.findDeletedInRange(tuThoiDiem, denThoiDiem);
+        } catch (DataAccessException e) {
+            throw new BusinessException("Không thể tìm giao dịch đã xóa: " + e.getMessage(), e);
+        }
+    }
+    
+    public LocalDateTime getDatabaseTime() throws BusinessException {
+        try {
+            return giaoDichDAO.getCurrentDatabaseTime();
+        } catch (DataAccessException e) {
+            throw new BusinessException("Không thể lấy thời gian database: " + e.getMessage(), e);
+        }
+    }
+    
+    public Optional<LocalDateTime> getExportWatermark(String exportTarget) throws BusinessException {
+        try {
+            return exportWatermarkDAO.findHighWaterMark(exportTarget);
+        } catch (DataAccessException e) {
+            throw new BusinessException("Không thể đọc mốc export: " + e.getMessage(), e);
+        }
+    }
+    
+    public void saveExportWatermark(String exportTarget, LocalDateTime highWaterMark) throws BusinessException {
+        try {
+            exportWatermarkDAO.saveHighWaterMark(exportTarget, highWaterMark);
+        } catch (DataAccessException e) {
+            throw new BusinessException("Không thể lưu mốc export: " + e.getMessage(), e);
+        }
+    }
+    
+    // Nhập hàng loạt (JSON Lines): mã đã tồn tại được bỏ qua
+    public int importBatch(List<GiaoDich> giaoDichs) throws BusinessException {
+        Set<LocalDate> ngayBiAnhHuong = new HashSet<>();
+        for (GiaoDich gd : giaoDichs) {
+            ngayBiAnhHuong.add(gd.getNgayGiaoDich());
+        }
+        long batDau = beginWrite();
+        try {
+            return giaoDichDAO.saveAllIgnoreDuplicates(giaoDichs);
+        } catch (DataAccessException e) {
+            throw new BusinessException("Không thể nhập giao dịch: " + e.getMessage(), e);
+        } finally {
+            // Lỗi giữa chừng vẫn có thể đã ghi một phần lô
+            statisticsCache.invalidate(ngayBiAnhHuong);
+            // Mã trùng bị bỏ qua nên không biết dòng nào thực sự được thêm: vá lại các ngày của lô
+            endWrite(batDau, null, null, true, ngayBiAnhHuong);
+        }
+    }
+    
     // Business validation methods
     public void validateGiaoDichData(GiaoDichFormDTO formDTO) throws ValidationException {
         if (formDTO.getMaGiaoDich() == null || formDTO.getMaGiaoDich().trim().isEmpty()) {
@@ -249,6 +1068,161 @@ public class QuanLyGiaoDich {
     }
     
     // Helper methods
+    
+    /**
+     * Bắt đầu một lần ghi, trả về writeSequence lúc bắt đầu (truyền lại cho endWrite)
+     */
+    private long beginWrite() {
+        synchronized (dayCubeLock) {
+            writesInFlight++;
+            return ++writeSequence;
+        }
+    }
+    
+    /**
+     * Kết thúc lần ghi bắt đầu ở batDau: cập nhật khối theo ngày, sketch theo ngày, chuỗi giá
+     * và vị thế bằng phần chênh lệch (truoc bị trừ, sau được cộng; null là không có).
+     * khongRo: lỗi trong lúc ghi DB nên không biết đã ghi hay chưa. Khối, sketch theo ngày và
+     * chuỗi giá đánh dấu lệch ngayKhongRo để vá lại (null: không biết ngày nào, bỏ khối và
+     * sketch, dựng lại chuỗi giá nền); vị thế được đánh dấu để tính lại.
+     */
+    private void endWrite(long batDau, GiaoDich truoc, GiaoDich sau, boolean khongRo, Collection<LocalDate> ngayKhongRo) {
+        synchronized (dayCubeLock) {
+            writesInFlight--;
+            writeSequence++;
+            if (readsInProgress > 0) {
+                writeLog.add(new LanGhi(writeSequence, truoc, sau, khongRo, ngayKhongRo));
+            }
+            if (khongRo) {
+                if (ngayKhongRo == null) {
+                    dayCube = null;
+                    dayQuantiles = null;
+                } else {
+                    dayCubeStale.markStale(ngayKhongRo);
+                    dayQuantilesStale.markStale(ngayKhongRo);
+                }
+                if (priceSeries != null) {
+                    priceSeriesWriteUnknown(ngayKhongRo);
+                }
+                holdingsStale = true;
+                return;
+            }
+            if (dayCube != null) {
+                if (truoc != null) {
+                    dayCube.apply(truoc, -1);
+                }
+                if (sau != null) {
+                    dayCube.apply(sau, 1);
+                }
+                dayCubeStale.writeEnded(batDau, truoc, sau);
+            }
+            if (dayQuantiles != null) {
+                // Ngày không trừ được thì sketch ngày đó đã lệch DB: vá lại ngày đó
+                if (truoc != null && !dayQuantiles.apply(truoc, -1)) {
+                    LOGGER.warning("Sketch thành tiền không khớp dữ liệu, sẽ vá lại ngày " + truoc.getNgayGiaoDich());
+                    dayQuantilesStale.markStale(Arrays.asList(truoc.getNgayGiaoDich()));
+                }
+                if (sau != null) {
+                    dayQuantiles.apply(sau, 1);
+                }
+                dayQuantilesStale.writeEnded(batDau, truoc, sau);
+            }
+            if (priceSeries != null && !priceSeries.apply(truoc, sau)) {
+                // Bản cũ không có trong nến: lần đọc DB chạy chồng lên đã gồm lần ghi này, hoặc
+                // ngày đó đang lệch DB (lần ghi không rõ kết quả trước đó); vá lại ngày đó
+                LOGGER.fine("Chuỗi giá không khớp dữ liệu, sẽ vá lại ngày " + truoc.getNgayGiaoDich());
+                priceSeriesStale.markStale(Arrays.asList(truoc.getNgayGiaoDich()));
+            }
+            if (holdings != null) {
+                holdings.apply(truoc, sau);
+                if (batDau < holdingsReadSequence) {
+                    holdingsStale = true;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Bắt đầu một lần đọc DB để dựng/vá, trả về writeSequence lúc bắt đầu; từ đây các lần ghi
+     * kết thúc được ghi vào writeLog. Gọi khi giữ khóa dayCubeLock, kết thúc bằng endRead.
+     */
+    private long beginRead() {
+        readsInProgress++;
+        return writeSequence;
+    }
+    
+    // Gọi khi giữ khóa dayCubeLock
+    private void endRead() {
+        if (--readsInProgress == 0) {
+            writeLog.clear();
+        }
+    }
+    
+    /**
+     * Các lần ghi kết thúc sau batDau của một lần đọc đang chạy. Gọi khi giữ khóa dayCubeLock.
+     */
+    private List<LanGhi> writesSince(long batDau) {
+        List<LanGhi> result = new ArrayList<>();
+        for (LanGhi lanGhi : writeLog) {
+            if (lanGhi.ketThuc > batDau) {
+                result.add(lanGhi);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Các ngày bị các lần ghi chạm tới, null nếu có lần ghi không rõ ngày
+     */
+    private static List<LocalDate> ngayCuaLanGhi(List<LanGhi> lanGhis) {
+        List<LocalDate> ngays = new ArrayList<>();
+        for (LanGhi lanGhi : lanGhis) {
+            if (lanGhi.khongRo) {
+                if (lanGhi.ngayKhongRo == null) {
+                    return null;
+                }
+                ngays.addAll(lanGhi.ngayKhongRo);
+                continue;
+            }
+            if (lanGhi.truoc != null) {
+                ngays.add(lanGhi.truoc.getNgayGiaoDich());
+            }
+            if (lanGhi.sau != null) {
+                ngays.add(lanGhi.sau.getNgayGiaoDich());
+            }
+        }
+        return ngays;
+    }
+    
+    /**
+     * Một lần ghi đã kết thúc (ketThuc là writeSequence lúc kết thúc), như tham số của endWrite
+     */
+    private static final class LanGhi {
+        final long ketThuc;
+        final GiaoDich truoc;
+        final GiaoDich sau;
+        final boolean khongRo;
+        final Collection<LocalDate> ngayKhongRo;
+        
+        LanGhi(long ketThuc, GiaoDich truoc, GiaoDich sau, boolean khongRo, Collection<LocalDate> ngayKhongRo) {
+            this.ketThuc = ketThuc;
+            this.truoc = truoc;
+            this.sau = sau;
+            this.khongRo = khongRo;
+            this.ngayKhongRo = ngayKhongRo;
+        }
+    }
+    
+    /**
+     * ThongKeDTO có setter (màn hình thống kê cập nhật tại chỗ): trả về bản sao,
+     * không để người gọi sửa giá trị trong bộ nhớ đệm
+     */
+    private static ThongKeDTO copyOf(ThongKeDTO thongKe) {
+        return new ThongKeDTO(thongKe.getTongSoLuongVang(), thongKe.getTongSoLuongTienTe(),
+            thongKe.getTrungBinhThanhTienTienTe(), thongKe.getSoGiaoDichDonGiaLonHon1Ty(),
+            thongKe.getTongThanhTienVang(), thongKe.getTongThanhTienTienTe());
+    }
+    
     private GiaoDich createGiaoDichFromDTO(GiaoDichFormDTO formDTO) throws ValidationException {
         validateGiaoDichData(formDTO);
         
@@ -276,23 +1250,59 @@ public class QuanLyGiaoDich {
     
     // Utility methods for business logic
     public BigDecimal calculateTotalRevenue() throws BusinessException {
-        try {
-            BigDecimal tongVang = giaoDichDAO.sumThanhTienByLoaiGiaoDich("VANG");
-            BigDecimal tongTienTe = giaoDichDAO.sumThanhTienByLoaiGiaoDich("TIEN_TE");
-            
-            return (tongVang != null ? tongVang : BigDecimal.ZERO)
-                    .add(tongTienTe != null ? tongTienTe : BigDecimal.ZERO);
-                    
-        } catch (DataAccessException e) {
-            throw new BusinessException("Không thể tính tổng doanh thu: " + e.getMessage(), e);
-        }
+        return statisticsCache.get(StatisticsCache.Kind.TONG_DOANH_THU, () -> {
+            try {
+                BigDecimal tongVang = giaoDichDAO.sumThanhTienByLoaiGiaoDich("VANG");
+                BigDecimal tongTienTe = giaoDichDAO.sumThanhTienByLoaiGiaoDich("TIEN_TE");
+                
+                return (tongVang != null ? tongVang : BigDecimal.ZERO)
+                        .add(tongTienTe != null ? tongTienTe : BigDecimal.ZERO);
+                        
+            } catch (DataAccessException e) {
+                throw new BusinessException("Không thể tính tổng doanh thu: " + e.getMessage(), e);
+            }
+        });
     }
     
     public long getTotalTransactionCount() throws BusinessException {
+        return statisticsCache.get(StatisticsCache.Kind.TONG_SO_GIAO_DICH, () -> {
+            try {
+                return giaoDichDAO.countAll();
+            } catch (DataAccessException e) {
+                throw new BusinessException("Không thể đếm tổng số giao dịch: " + e.getMessage(), e);
+            }
+        });
+    }
+    
+    /**
+     * Đếm trực tiếp trên DB, bỏ qua bộ nhớ đệm (dùng khi đối chiếu với dữ liệu ghi từ nơi khác)
+     */
+    public long countAllTransactionsUncached() throws BusinessException {
         try {
-            return giaoDichDAO.countByLoaiGiaoDich("VANG") + giaoDichDAO.countByLoaiGiaoDich("TIEN_TE");
+            return giaoDichDAO.countAll();
         } catch (DataAccessException e) {
             throw new BusinessException("Không thể đếm tổng số giao dịch: " + e.getMessage(), e);
         }
     }
+    
+    /**
+     * Tỉ lệ trúng bộ nhớ đệm thống kê, để ghi log
+     */
+    public String getStatisticsCacheReport() {
+        return statisticsCache.report();
+    }
+    
+    /**
+     * Độ rộng trung bình (ký tự) của phần dữ liệu thay đổi trên mỗi dòng export,
+     * ước tính trên một mẫu dòng và giữ trong bộ nhớ đệm như các thống kê toàn bộ dữ liệu
+     */
+    public double getAverageExportRowWidth() throws BusinessException {
+        return statisticsCache.get(StatisticsCache.Kind.DO_RONG_DONG_EXPORT, () -> {
+            try {
+                return giaoDichDAO.getAverageRowWidth();
+            } catch (DataAccessException e) {
+                throw new BusinessException("Không thể ước tính kích thước export: " + e.getMessage(), e);
+            }
+        });
+    }
 }
\ No newline at end of file
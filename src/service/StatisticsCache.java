@@ -0,0 +1,221 @@
+// Bộ nhớ đệm kết quả thống kê theo (loại thống kê, khoảng ngày)
+package service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import exception.BusinessException;
+
+/**
+ * Mỗi mục ứng với một loại thống kê trên một khoảng ngày (null: toàn bộ dữ liệu).
+ * - Ghi qua service (thêm/sửa/xóa/nhập) chỉ xóa các mục có khoảng ngày chứa ngày bị ảnh hưởng
+ * - Khoảng ngày đã khép (kết thúc trước tháng hiện tại) được giữ vô thời hạn; các khoảng còn
+ *   mở (toàn bộ dữ liệu, tháng này, hôm nay) hết hạn sau OPEN_RANGE_TTL_MS để thấy được
+ *   dữ liệu ghi từ nơi khác
+ * - Kết quả truy vấn bắt đầu trước một lần xóa không được lưu lại (so phiên bản), nên không
+ *   bao giờ giữ số liệu cũ sau khi ghi
+ * An toàn khi gọi từ nhiều thread.
+ */
+class StatisticsCache {
+    // Thời gian sống của khoảng ngày còn mở (ms), đổi bằng -Dstatistics.cacheTtlMs=...
+    static final long OPEN_RANGE_TTL_MS = Long.getLong("statistics.cacheTtlMs", 30_000L);
+    private static final int MAX_ENTRIES = 256;
+
+    enum Kind {
+        THONG_KE("Thống kê tổng hợp"),
+        TRUNG_BINH_TIEN_TE("Trung bình thành tiền tiền tệ"),
+        TONG_DOANH_THU("Tổng doanh thu"),
+        TONG_SO_GIAO_DICH("Tổng số giao dịch"),
+        THEO_NHOM("Thống kê theo loại vàng/loại tiền"),
+        DO_RONG_DONG_EXPORT("Độ rộng dòng export");
+
+        private final String moTa;
+
+        Kind(String moTa) {
+            this.moTa = moTa;
+        }
+    }
+
+    /**
+     * Truy vấn DB khi không có trong bộ nhớ đệm
+     */
+    interface Loader<V> {
+        V load() throws BusinessException;
+    }
+
+    private static final class Key {
+        private final Kind kind;
+        private final LocalDate tuNgay; // null: toàn bộ dữ liệu
+        private final LocalDate denNgay;
+
+        Key(Kind kind, LocalDate tuNgay, LocalDate denNgay) {
+            this.kind = kind;
+            this.tuNgay = tuNgay;
+            this.denNgay = denNgay;
+        }
+
+        boolean contains(LocalDate ngay) {
+            return tuNgay == null || (!ngay.isBefore(tuNgay) && !ngay.isAfter(denNgay));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return kind == other.kind && Objects.equals(tuNgay, other.tuNgay) && Objects.equals(denNgay, other.denNgay);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, tuNgay, denNgay);
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long expiresAt; // System.nanoTime(), Long.MAX_VALUE: không hết hạn
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Counter {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+    }
+
+    // LRU theo thứ tự truy cập, chỉ dùng khi giữ khóa this
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final Map<Kind, Counter> counters = new EnumMap<>(Kind.class);
+    private long version; // tăng mỗi lần xóa mục, chỉ dùng khi giữ khóa this
+
+    StatisticsCache() {
+        for (Kind kind : Kind.values()) {
+            counters.put(kind, new Counter());
+        }
+    }
+
+    /**
+     * Thống kê trên toàn bộ dữ liệu
+     */
+    <V> V get(Kind kind, Loader<V> loader) throws BusinessException {
+        return get(kind, null, null, loader);
+    }
+
+    /**
+     * Thống kê trên khoảng ngày [tuNgay, denNgay]
+     */
+    @SuppressWarnings("unchecked")
+    <V> V get(Kind kind, LocalDate tuNgay, LocalDate denNgay, Loader<V> loader) throws BusinessException {
+        Key key = new Key(kind, tuNgay, denNgay);
+        Counter counter = counters.get(kind);
+        long versionTruoc;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && (entry.expiresAt == Long.MAX_VALUE || System.nanoTime() - entry.expiresAt < 0)) {
+                counter.hits.incrementAndGet();
+                return (V) entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+            versionTruoc = version;
+        }
+        counter.misses.incrementAndGet();
+
+        // Truy vấn ngoài khóa: các thống kê khác không phải chờ
+        V value = loader.load();
+        synchronized (this) {
+            if (version == versionTruoc) {
+                entries.put(key, new Entry(value, expiresAt(denNgay)));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Xóa các mục có khoảng ngày chứa một trong các ngày bị ghi
+     * (mục trên toàn bộ dữ liệu luôn bị xóa). Ngày null là ngày không biết: xóa toàn bộ.
+     */
+    synchronized void invalidate(Collection<LocalDate> ngayBiAnhHuong) {
+        if (ngayBiAnhHuong.contains(null)) {
+            invalidateAll();
+            return;
+        }
+        version++;
+        Iterator<Key> it = entries.keySet().iterator();
+        while (it.hasNext()) {
+            Key key = it.next();
+            for (LocalDate ngay : ngayBiAnhHuong) {
+                if (key.contains(ngay)) {
+                    it.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Xóa toàn bộ (không biết ngày bị ảnh hưởng)
+     */
+    synchronized void invalidateAll() {
+        version++;
+        entries.clear();
+    }
+
+    /**
+     * Tỉ lệ trúng theo từng loại thống kê, ví dụ để ghi log
+     */
+    String report() {
+        List<String> parts = new ArrayList<>();
+        for (Kind kind : Kind.values()) {
+            Counter counter = counters.get(kind);
+            long hits = counter.hits.get();
+            long total = hits + counter.misses.get();
+            if (total > 0) {
+                parts.add(String.format("%s %d/%d (%.0f%%)", kind.moTa, hits, total, 100.0 * hits / total));
+            }
+        }
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return "Bộ nhớ đệm thống kê: " + (parts.isEmpty() ? "chưa dùng" : String.join(", ", parts))
+            + ", " + size + " mục";
+    }
+
+    /**
+     * Khoảng ngày kết thúc trước tháng hiện tại không còn nhận giao dịch mới
+     * (ngày giao dịch không được ở tương lai): giữ vô thời hạn
+     */
+    private static long expiresAt(LocalDate denNgay) {
+        if (!isOpenRange(denNgay)) {
+            return Long.MAX_VALUE;
+        }
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(OPEN_RANGE_TTL_MS);
+    }
+
+    /**
+     * Khoảng ngày còn mở: toàn bộ dữ liệu (denNgay null) hoặc kết thúc từ tháng hiện tại trở đi
+     */
+    static boolean isOpenRange(LocalDate denNgay) {
+        return denNgay == null || !denNgay.isBefore(LocalDate.now().withDayOfMonth(1));
+    }
+}
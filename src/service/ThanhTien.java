@@ -0,0 +1,24 @@
+// Thành tiền dùng cho thống kê: cùng công thức với các truy vấn SUM/AVG trên DB
+package service;
+
+import java.math.BigDecimal;
+
+import model.GiaoDich;
+import model.GiaoDichTienTe;
+
+/**
+ * Thành tiền của một giao dịch trong mọi số liệu thống kê, khớp với
+ * don_gia * so_luong (* ti_gia với tiền tệ) của SQL: không làm tròn, và nhân tỉ giá cả với VND.
+ * Khác GiaoDich.tinhThanhTien (làm tròn 2 chữ số, bỏ tỉ giá của VND, dùng để hiển thị một dòng):
+ * cộng/trừ phần của một giao dịch vào tổng lấy từ DB phải dùng đúng công thức này, nếu không
+ * tổng sẽ lệch dần so với lần tải lại.
+ */
+public final class ThanhTien {
+    private ThanhTien() {
+    }
+
+    public static BigDecimal tinh(GiaoDich gd) {
+        BigDecimal thanhTien = gd.getDonGia().multiply(BigDecimal.valueOf(gd.getSoLuong()));
+        return gd instanceof GiaoDichTienTe ? thanhTien.multiply(((GiaoDichTienTe) gd).getTiGia()) : thanhTien;
+    }
+}
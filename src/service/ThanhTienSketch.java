@@ -0,0 +1,178 @@
+// Phân phối thành tiền gần đúng: histogram theo ô logarit, gộp được và trừ được
+package service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Ô k chứa các giá trị trong [GAMMA^k, GAMMA^(k+1)), GAMMA = (1 + SAI_SO) / (1 - SAI_SO);
+ * giá trị đại diện của ô sai khác mọi giá trị trong ô không quá SAI_SO (tương đối), nên
+ * phân vị đọc ra cũng vậy. Giá trị không dương nằm ở ô riêng.
+ * - Thêm/bớt một giá trị là cộng/trừ số đếm của một ô (khác t-digest, bớt được chính xác)
+ * - Gộp hai sketch là cộng số đếm từng ô, kết quả như thể dựng từ toàn bộ dữ liệu
+ * Chỉ giữ các ô khác 0, sắp theo chỉ số ô. Không an toàn luồng: người gọi tự đồng bộ.
+ */
+final class ThanhTienSketch {
+    static final double SAI_SO = 0.01;
+    private static final double GAMMA = (1 + SAI_SO) / (1 - SAI_SO);
+    // Dùng chung với truy vấn SQL dựng sketch: FLOOR(LN(thành tiền) / LOG_GAMMA)
+    static final double LOG_GAMMA = Math.log(GAMMA);
+    // Phân vị đã sai tới SAI_SO: 4 chữ số có nghĩa là đủ, làm tròn gần như không thêm sai số
+    private static final MathContext HIEN_THI = new MathContext(4);
+
+    private int[] keys = new int[4];
+    private long[] counts = new long[4];
+    private int size;
+    private long soKhongDuong;
+    private long tong;
+
+    /**
+     * Ô chứa thành tiền (dương), cùng công thức với truy vấn SQL
+     */
+    static int bucketOf(BigDecimal thanhTien) {
+        return (int) Math.floor(Math.log(thanhTien.doubleValue()) / LOG_GAMMA);
+    }
+
+    /**
+     * Cộng (soLuong > 0) hoặc trừ (soLuong < 0) một giá trị.
+     * Khi trừ mà ô tính ra đang trống thì thử hai ô kề (DB và Java có thể làm tròn khác nhau
+     * đúng ở biên ô); false nếu vẫn không trừ được, khi đó sketch không còn đúng.
+     */
+    boolean add(BigDecimal thanhTien, long soLuong) {
+        if (thanhTien.signum() <= 0) {
+            if (soKhongDuong + soLuong < 0) {
+                return false;
+            }
+            soKhongDuong += soLuong;
+            tong += soLuong;
+            return true;
+        }
+        int bucket = bucketOf(thanhTien);
+        if (soLuong > 0) {
+            addBucket(bucket, soLuong);
+            return true;
+        }
+        for (int k : new int[] {bucket, bucket - 1, bucket + 1}) {
+            int i = Arrays.binarySearch(keys, 0, size, k);
+            if (i >= 0 && counts[i] + soLuong >= 0) {
+                addBucket(k, soLuong);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cộng số đếm của một ô; bucket null là ô giá trị không dương
+     */
+    void addBucket(Integer bucket, long soLuong) {
+        tong += soLuong;
+        if (bucket == null) {
+            soKhongDuong += soLuong;
+            return;
+        }
+        int i = Arrays.binarySearch(keys, 0, size, bucket);
+        if (i >= 0) {
+            counts[i] += soLuong;
+            if (counts[i] == 0) {
+                System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+                System.arraycopy(counts, i + 1, counts, i, size - i - 1);
+                size--;
+            }
+            return;
+        }
+        int at = -i - 1;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        System.arraycopy(keys, at, keys, at + 1, size - at);
+        System.arraycopy(counts, at, counts, at + 1, size - at);
+        keys[at] = bucket;
+        counts[at] = soLuong;
+        size++;
+    }
+
+    long count() {
+        return tong;
+    }
+
+    boolean isEmpty() {
+        return tong == 0;
+    }
+
+    /**
+     * Gộp nhiều sketch (ví dụ các ngày trong một khoảng): cộng vào mảng đặc theo phạm vi ô
+     * chung rồi nén lại, O(tổng số ô + phạm vi ô) thay vì chèn từng ô
+     */
+    static ThanhTienSketch mergeAll(Collection<ThanhTienSketch> sketches) {
+        int minKey = Integer.MAX_VALUE;
+        int maxKey = Integer.MIN_VALUE;
+        ThanhTienSketch result = new ThanhTienSketch();
+        for (ThanhTienSketch sketch : sketches) {
+            if (sketch.size > 0) {
+                minKey = Math.min(minKey, sketch.keys[0]);
+                maxKey = Math.max(maxKey, sketch.keys[sketch.size - 1]);
+            }
+            result.soKhongDuong += sketch.soKhongDuong;
+            result.tong += sketch.tong;
+        }
+        if (minKey > maxKey) {
+            return result;
+        }
+        long[] dense = new long[maxKey - minKey + 1];
+        for (ThanhTienSketch sketch : sketches) {
+            for (int i = 0; i < sketch.size; i++) {
+                dense[sketch.keys[i] - minKey] += sketch.counts[i];
+            }
+        }
+        for (int i = 0; i < dense.length; i++) {
+            if (dense[i] != 0) {
+                result.appendBucket(minKey + i, dense[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Phân vị q (0..1) theo hạng gần nhất; null nếu không có giá trị nào
+     */
+    BigDecimal quantile(double q) {
+        if (tong == 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * tong));
+        long cumulative = soKhongDuong;
+        if (cumulative >= rank) {
+            return BigDecimal.ZERO;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return representative(keys[i]);
+            }
+        }
+        return representative(keys[size - 1]);
+    }
+
+    /**
+     * Giá trị cách đều (tương đối) hai biên ô: 2 * GAMMA^(k+1) / (GAMMA + 1)
+     */
+    private static BigDecimal representative(int bucket) {
+        double value = 2 * Math.exp((bucket + 1) * LOG_GAMMA) / (GAMMA + 1);
+        BigDecimal rounded = new BigDecimal(value).round(HIEN_THI);
+        return rounded.scale() < 0 ? rounded.setScale(0) : rounded;
+    }
+
+    private void appendBucket(int bucket, long soLuong) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        keys[size] = bucket;
+        counts[size] = soLuong;
+        size++;
+    }
+}
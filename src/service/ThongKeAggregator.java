@@ -0,0 +1,137 @@
+// Tính mọi chỉ số thống kê trong một lần duyệt giao dịch
+package service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.stream.Collector;
+
+import dao.GiaoDichCursor;
+import dto.ThongKeDTO;
+import exception.DataAccessException;
+import model.GiaoDich;
+import model.GiaoDichVang;
+
+/**
+ * Trạng thái tổng hợp có thể gộp: các trường của ThongKeDTO và chỉ số của nhóm đơn giá lớn
+ * (số giao dịch, tổng thành tiền, tổng đơn giá) được cộng dồn khi duyệt qua từng giao dịch
+ * đúng một lần, từ danh sách, stream hay con trỏ DB.
+ * Hai trạng thái trên hai phần dữ liệu gộp lại bằng merge, nên dùng được với stream song song
+ * (collector). Không an toàn luồng: mỗi thread một trạng thái.
+ * Thành tiền theo ThanhTien.tinh (cùng công thức với SUM/AVG trên DB, nên khớp với thống kê
+ * tính bằng SQL trên cùng dữ liệu), trung bình làm tròn 2 chữ số.
+ */
+public final class ThongKeAggregator {
+    private static final BigDecimal MOT_TY = new BigDecimal("1000000000");
+
+    private final BigDecimal nguongDonGia;
+
+    private long soGiaoDichVang;
+    private long soGiaoDichTienTe;
+    private BigDecimal tongThanhTienVang = BigDecimal.ZERO;
+    private BigDecimal tongThanhTienTienTe = BigDecimal.ZERO;
+
+    // Nhóm đơn giá lớn hơn nguongDonGia
+    private long soGiaoDichDonGiaLon;
+    private BigDecimal tongThanhTienDonGiaLon = BigDecimal.ZERO;
+    private BigDecimal tongDonGiaDonGiaLon = BigDecimal.ZERO;
+
+    /**
+     * Nhóm đơn giá lớn là đơn giá lớn hơn 1 tỷ
+     */
+    public ThongKeAggregator() {
+        this(MOT_TY);
+    }
+
+    public ThongKeAggregator(BigDecimal nguongDonGia) {
+        if (nguongDonGia == null) throw new IllegalArgumentException("Ngưỡng không được null");
+        this.nguongDonGia = nguongDonGia;
+    }
+
+    /**
+     * Collector cho stream (kể cả parallelStream), ngưỡng 1 tỷ
+     */
+    public static Collector<GiaoDich, ThongKeAggregator, ThongKeAggregator> collector() {
+        return collector(MOT_TY);
+    }
+
+    public static Collector<GiaoDich, ThongKeAggregator, ThongKeAggregator> collector(BigDecimal nguongDonGia) {
+        return Collector.of(() -> new ThongKeAggregator(nguongDonGia),
+            ThongKeAggregator::add, ThongKeAggregator::merge,
+            Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Duyệt con trỏ tới hết (không giữ lại dòng nào); người gọi vẫn phải đóng con trỏ
+     */
+    public ThongKeAggregator addAll(GiaoDichCursor cursor) throws DataAccessException {
+        for (GiaoDich gd = cursor.next(); gd != null; gd = cursor.next()) {
+            add(gd);
+        }
+        return this;
+    }
+
+    public void add(GiaoDich gd) {
+        BigDecimal thanhTien = ThanhTien.tinh(gd);
+        if (gd instanceof GiaoDichVang) {
+            soGiaoDichVang++;
+            tongThanhTienVang = tongThanhTienVang.add(thanhTien);
+        } else {
+            soGiaoDichTienTe++;
+            tongThanhTienTienTe = tongThanhTienTienTe.add(thanhTien);
+        }
+        if (gd.getDonGia().compareTo(nguongDonGia) > 0) {
+            soGiaoDichDonGiaLon++;
+            tongThanhTienDonGiaLon = tongThanhTienDonGiaLon.add(thanhTien);
+            tongDonGiaDonGiaLon = tongDonGiaDonGiaLon.add(gd.getDonGia());
+        }
+    }
+
+    /**
+     * Gộp trạng thái của phần dữ liệu khác (cùng ngưỡng) vào trạng thái này
+     */
+    public ThongKeAggregator merge(ThongKeAggregator other) {
+        if (nguongDonGia.compareTo(other.nguongDonGia) != 0) {
+            throw new IllegalArgumentException("Không gộp được hai trạng thái khác ngưỡng đơn giá");
+        }
+        soGiaoDichVang += other.soGiaoDichVang;
+        soGiaoDichTienTe += other.soGiaoDichTienTe;
+        tongThanhTienVang = tongThanhTienVang.add(other.tongThanhTienVang);
+        tongThanhTienTienTe = tongThanhTienTienTe.add(other.tongThanhTienTienTe);
+        soGiaoDichDonGiaLon += other.soGiaoDichDonGiaLon;
+        tongThanhTienDonGiaLon = tongThanhTienDonGiaLon.add(other.tongThanhTienDonGiaLon);
+        tongDonGiaDonGiaLon = tongDonGiaDonGiaLon.add(other.tongDonGiaDonGiaLon);
+        return this;
+    }
+
+    public ThongKeDTO toThongKeDTO() {
+        return new ThongKeDTO(soGiaoDichVang, soGiaoDichTienTe, getTrungBinhThanhTienTienTe(),
+            soGiaoDichDonGiaLon, tongThanhTienVang, tongThanhTienTienTe);
+    }
+
+    public long getSoGiaoDich() {
+        return soGiaoDichVang + soGiaoDichTienTe;
+    }
+
+    public BigDecimal getTrungBinhThanhTienTienTe() {
+        return average(tongThanhTienTienTe, soGiaoDichTienTe);
+    }
+
+    public long getSoGiaoDichDonGiaLon() {
+        return soGiaoDichDonGiaLon;
+    }
+
+    public BigDecimal getTongThanhTienDonGiaLon() {
+        return tongThanhTienDonGiaLon;
+    }
+
+    public BigDecimal getTrungBinhDonGiaDonGiaLon() {
+        return average(tongDonGiaDonGiaLon, soGiaoDichDonGiaLon);
+    }
+
+    private static BigDecimal average(BigDecimal tong, long soLuong) {
+        if (soLuong == 0) {
+            return BigDecimal.ZERO;
+        }
+        return tong.divide(BigDecimal.valueOf(soLuong), 2, RoundingMode.HALF_UP);
+    }
+}
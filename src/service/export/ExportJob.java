@@ -0,0 +1,110 @@
+// Một job xuất file chạy nền: trạng thái, tiến độ và yêu cầu hủy
+package service.export;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ExportJob implements ExportProgressListener {
+
+    public enum TrangThai {
+        CHO("Đang chờ"),
+        DANG_CHAY("Đang chạy"),
+        HOAN_THANH("Hoàn thành"),
+        DA_HUY("Đã hủy"),
+        LOI("Lỗi");
+
+        private final String hienThi;
+
+        TrangThai(String hienThi) {
+            this.hienThi = hienThi;
+        }
+
+        public String getHienThi() {
+            return hienThi;
+        }
+    }
+
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    private final long id;
+    private final File file;
+    private final String moTa;
+    private final LocalDateTime thoiGianTao;
+
+    private volatile TrangThai trangThai = TrangThai.CHO;
+    private volatile boolean cancelRequested = false;
+    private volatile long soDongDaGhi;
+    private volatile long soByteDaGhi;
+    private volatile String thongBaoLoi;
+    private volatile LocalDateTime thoiGianKetThuc;
+
+    public ExportJob(File file, String moTa) {
+        this.id = NEXT_ID.getAndIncrement();
+        this.file = file;
+        this.moTa = moTa;
+        this.thoiGianTao = LocalDateTime.now();
+    }
+
+    @Override
+    public void onProgress(long soDongDaGhi, long soByteDaGhi) {
+        this.soDongDaGhi = soDongDaGhi;
+        this.soByteDaGhi = soByteDaGhi;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    /**
+     * Yêu cầu hủy job. Job đang chạy sẽ dừng ở dòng ghi kế tiếp.
+     */
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    public boolean isFinished() {
+        return trangThai == TrangThai.HOAN_THANH
+            || trangThai == TrangThai.DA_HUY
+            || trangThai == TrangThai.LOI;
+    }
+
+    // Chuyển trạng thái (chỉ ExportJobQueue gọi)
+    void markRunning() {
+        trangThai = TrangThai.DANG_CHAY;
+    }
+
+    void markCompleted() {
+        trangThai = TrangThai.HOAN_THANH;
+        thoiGianKetThuc = LocalDateTime.now();
+    }
+
+    void markCancelled() {
+        trangThai = TrangThai.DA_HUY;
+        thoiGianKetThuc = LocalDateTime.now();
+    }
+
+    void markFailed(String thongBaoLoi) {
+        this.thongBaoLoi = thongBaoLoi;
+        trangThai = TrangThai.LOI;
+        thoiGianKetThuc = LocalDateTime.now();
+    }
+
+    // Getters
+    public long getId() { return id; }
+    public File getFile() { return file; }
+    public String getMoTa() { return moTa; }
+    public LocalDateTime getThoiGianTao() { return thoiGianTao; }
+    public LocalDateTime getThoiGianKetThuc() { return thoiGianKetThuc; }
+    public TrangThai getTrangThai() { return trangThai; }
+    public long getSoDongDaGhi() { return soDongDaGhi; }
+    public long getSoByteDaGhi() { return soByteDaGhi; }
+    public String getThongBaoLoi() { return thongBaoLoi; }
+
+    @Override
+    public String toString() {
+        return String.format("ExportJob{id=%d, file=%s, trangThai=%s, soDong=%d, soByte=%d}",
+                id, file != null ? file.getName() : null, trangThai, soDongDaGhi, soByteDaGhi);
+    }
+}
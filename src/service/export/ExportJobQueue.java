@@ -0,0 +1,175 @@
+// Hàng đợi job xuất file có giới hạn, chạy trên các worker thread riêng
+package service.export;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import exception.BusinessException;
+
+public class ExportJobQueue {
+    private static final Logger LOGGER = Logger.getLogger(ExportJobQueue.class.getName());
+
+    public static final int DEFAULT_WORKER_COUNT = 2;
+    public static final int DEFAULT_QUEUE_CAPACITY = 10;
+    private static final int MAX_HISTORY_SIZE = 50;
+    // Thời gian tối đa chờ các job đang chạy dừng và xóa file dở dang khi đóng ứng dụng
+    private static final long SHUTDOWN_TIMEOUT_MS = 5000;
+
+    /**
+     * Công việc thực tế của job (chạy trên worker thread)
+     */
+    public interface JobTask {
+        void run(ExportJob job) throws Exception;
+    }
+
+    /**
+     * Nhận thông báo khi trạng thái job thay đổi (gọi từ worker thread)
+     */
+    public interface JobListener {
+        void onJobChanged(ExportJob job);
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final List<ExportJob> history = new CopyOnWriteArrayList<>();
+    private final List<JobListener> listeners = new CopyOnWriteArrayList<>();
+
+    public ExportJobQueue() {
+        this(DEFAULT_WORKER_COUNT, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public ExportJobQueue(int workerCount, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.executor = new ThreadPoolExecutor(
+            workerCount, workerCount,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            r -> {
+                Thread t = new Thread(r, "export-worker-" + threadNumber.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Đưa job vào hàng đợi
+     * @throws BusinessException nếu hàng đợi đã đầy
+     */
+    public ExportJob submit(ExportJob job, JobTask task) throws BusinessException {
+        history.add(job);
+        trimHistory();
+        try {
+            executor.execute(() -> runJob(job, task));
+        } catch (RejectedExecutionException e) {
+            history.remove(job);
+            throw new BusinessException("Hàng đợi xuất file đã đầy, vui lòng thử lại sau", "EXPORT_QUEUE_FULL");
+        }
+        LOGGER.info("Đã đưa vào hàng đợi: " + job);
+        fireJobChanged(job);
+        return job;
+    }
+
+    private void runJob(ExportJob job, JobTask task) {
+        if (job.isCancelled()) {
+            job.markCancelled();
+            fireJobChanged(job);
+            return;
+        }
+
+        job.markRunning();
+        fireJobChanged(job);
+
+        try {
+            task.run(job);
+            // Task trả về bình thường là file đã ghi xong (và mốc export đã lưu):
+            // yêu cầu hủy đến sau lúc đó không còn tác dụng
+            job.markCompleted();
+        } catch (CancellationException e) {
+            job.markCancelled();
+        } catch (BusinessException e) {
+            if ("EXPORT_CANCELLED".equals(e.getErrorCode())) {
+                job.markCancelled();
+            } else {
+                job.markFailed(e.getMessage());
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Job xuất file thất bại: " + job, e);
+            job.markFailed(e.getMessage());
+        }
+
+        LOGGER.info("Kết thúc job: " + job);
+        fireJobChanged(job);
+    }
+
+    /**
+     * Bỏ bớt các job đã kết thúc cũ nhất khi lịch sử quá dài
+     */
+    private void trimHistory() {
+        for (ExportJob old : history) {
+            if (history.size() <= MAX_HISTORY_SIZE) {
+                break;
+            }
+            if (old.isFinished()) {
+                history.remove(old);
+            }
+        }
+    }
+
+    private void fireJobChanged(ExportJob job) {
+        for (JobListener listener : listeners) {
+            listener.onJobChanged(job);
+        }
+    }
+
+    public void addJobListener(JobListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeJobListener(JobListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Lịch sử job (cũ nhất trước)
+     */
+    public List<ExportJob> getHistory() {
+        return new ArrayList<>(history);
+    }
+
+    public boolean hasActiveJobs() {
+        for (ExportJob job : history) {
+            if (!job.isFinished()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Dừng nhận job mới, hủy các job còn lại và chờ (có giới hạn) các worker dừng,
+     * để job đang chạy kịp xóa file ghi dở trước khi JVM thoát
+     */
+    public void shutdown() {
+        for (ExportJob job : history) {
+            job.cancel();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                LOGGER.warning("Job xuất file chưa dừng sau " + SHUTDOWN_TIMEOUT_MS + "ms, có thể còn file dở dang");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
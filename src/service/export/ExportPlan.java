@@ -0,0 +1,54 @@
+// Kế hoạch export: số dòng, kích thước ước tính và khối thống kê tính sẵn
+package service.export;
+
+import java.time.LocalDateTime;
+
+import dto.ThongKeDTO;
+
+public class ExportPlan {
+    private final String dinhDang;
+    private final long soDong;
+    private final double doRongDongTrungBinh;
+    private final long uocTinhSoByte;
+    private final ThongKeDTO thongKe;
+    // Khoảng updated_at (tuThoiDiem, denThoiDiem] của export tăng dần, null với các loại khác
+    private final LocalDateTime tuThoiDiem;
+    private final LocalDateTime denThoiDiem;
+
+    public ExportPlan(String dinhDang, long soDong, double doRongDongTrungBinh,
+                      long uocTinhSoByte, ThongKeDTO thongKe) {
+        this(dinhDang, soDong, doRongDongTrungBinh, uocTinhSoByte, thongKe, null, null);
+    }
+
+    public ExportPlan(String dinhDang, long soDong, double doRongDongTrungBinh, long uocTinhSoByte,
+                      ThongKeDTO thongKe, LocalDateTime tuThoiDiem, LocalDateTime denThoiDiem) {
+        this.dinhDang = dinhDang;
+        this.soDong = soDong;
+        this.doRongDongTrungBinh = doRongDongTrungBinh;
+        this.uocTinhSoByte = uocTinhSoByte;
+        this.thongKe = thongKe;
+        this.tuThoiDiem = tuThoiDiem;
+        this.denThoiDiem = denThoiDiem;
+    }
+
+    public String getDinhDang() { return dinhDang; }
+    public long getSoDong() { return soDong; }
+    public double getDoRongDongTrungBinh() { return doRongDongTrungBinh; }
+    public long getUocTinhSoByte() { return uocTinhSoByte; }
+
+    /**
+     * Thống kê tổng hợp (chỉ có khi export kèm thống kê), null nếu không cần
+     */
+    public ThongKeDTO getThongKe() { return thongKe; }
+
+    public boolean hasThongKe() { return thongKe != null; }
+
+    public LocalDateTime getTuThoiDiem() { return tuThoiDiem; }
+    public LocalDateTime getDenThoiDiem() { return denThoiDiem; }
+
+    @Override
+    public String toString() {
+        return String.format("ExportPlan{dinhDang=%s, soDong=%d, doRongDong=%.1f, uocTinhSoByte=%d, coThongKe=%s}",
+                dinhDang, soDong, doRongDongTrungBinh, uocTinhSoByte, hasThongKe());
+    }
+}
@@ -0,0 +1,103 @@
+// Lập kế hoạch export bằng truy vấn COUNT/AVG, không tải toàn bộ dữ liệu
+package service.export;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import dto.ThongKeDTO;
+import exception.BusinessException;
+import model.GiaoDich;
+import service.QuanLyGiaoDich;
+
+public class ExportPlanner {
+
+    // Phần cố định trên mỗi dòng ngoài các cột có độ dài thay đổi:
+    // ngày (10), loại GD (~7), thành tiền (~16), dấu phân cách, ngoặc kép, "(TG: ...)"
+    private static final int CSV_FIXED_ROW_WIDTH = 45;
+    private static final int TEXT_FIXED_ROW_WIDTH = 40;
+    // JSON Lines: tên các trường, ngoặc kép và thanhTien (~115 ký tự)
+    private static final int JSONL_FIXED_ROW_WIDTH = 115;
+    // XLSX nén zip: XML một dòng (~250 byte) nén còn khoảng 1/5, làm tròn lên cho an toàn
+    private static final int XLSX_COMPRESSED_ROW_WIDTH = 60;
+    // Định dạng text dùng cột cố định: mỗi dòng tối thiểu 96 ký tự + xuống dòng
+    private static final int TEXT_MIN_ROW_WIDTH = 97;
+
+    private static final long HEADER_SIZE = 400;
+    private static final long STATISTICS_SIZE = 800;
+
+    private final QuanLyGiaoDich quanLyGiaoDich;
+
+    public ExportPlanner(QuanLyGiaoDich quanLyGiaoDich) {
+        this.quanLyGiaoDich = quanLyGiaoDich;
+    }
+
+    /**
+     * Lập kế hoạch export
+     * @param dinhDang phần mở rộng file ("csv", "txt", "jsonl", "xlsx")
+     * @param exportType 0: tất cả, 1: danh sách hiển thị, 2: kèm thống kê
+     * @param providedTransactions danh sách có sẵn (loại 1), null nếu lấy từ database
+     */
+    public ExportPlan plan(String dinhDang, int exportType, List<GiaoDich> providedTransactions)
+            throws BusinessException {
+        return plan(dinhDang, exportType, providedTransactions, exportType == 2);
+    }
+
+    /**
+     * Như plan, nhưng chỉ tính khối thống kê khi tinhThongKe (khi sắp ghi file);
+     * kiểm tra trước hay ước tính kích thước chỉ cần chừa chỗ cho khối đó
+     */
+    public ExportPlan plan(String dinhDang, int exportType, List<GiaoDich> providedTransactions,
+                           boolean tinhThongKe) throws BusinessException {
+        long soDong;
+        if (exportType == 1 && providedTransactions != null && !providedTransactions.isEmpty()) {
+            soDong = providedTransactions.size();
+        } else {
+            soDong = quanLyGiaoDich.getTotalTransactionCount();
+        }
+
+        double doRongDuLieu = soDong > 0 ? quanLyGiaoDich.getAverageExportRowWidth() : 0;
+        double doRongDong = estimateRowWidth(dinhDang, doRongDuLieu);
+
+        // Khối thống kê chỉ tính một lần, dùng lại khi ghi file
+        ThongKeDTO thongKe = null;
+        if (exportType == 2 && tinhThongKe) {
+            thongKe = quanLyGiaoDich.getTongSoLuongTheoLoai();
+        }
+
+        long uocTinhSoByte = HEADER_SIZE + (long) Math.ceil(soDong * doRongDong);
+        if (exportType == 2) {
+            uocTinhSoByte += STATISTICS_SIZE;
+        }
+
+        return new ExportPlan(dinhDang, soDong, doRongDong, uocTinhSoByte, thongKe);
+    }
+
+    /**
+     * Kế hoạch export tăng dần: chỉ đếm các dòng có updated_at trong (tuThoiDiem, denThoiDiem],
+     * không phải cả bảng, để kiểm tra dung lượng đúng với phần thay đổi
+     */
+    public ExportPlan planIncremental(String dinhDang, LocalDateTime tuThoiDiem, LocalDateTime denThoiDiem)
+            throws BusinessException {
+        long soDong = quanLyGiaoDich.countChangedBetween(tuThoiDiem, denThoiDiem);
+        double doRongDuLieu = soDong > 0 ? quanLyGiaoDich.getAverageExportRowWidth() : 0;
+        double doRongDong = estimateRowWidth(dinhDang, doRongDuLieu);
+        long uocTinhSoByte = HEADER_SIZE + (long) Math.ceil(soDong * doRongDong);
+        return new ExportPlan(dinhDang, soDong, doRongDong, uocTinhSoByte, null, tuThoiDiem, denThoiDiem);
+    }
+
+    /**
+     * Quy đổi độ rộng dữ liệu thô sang độ rộng một dòng trong file (byte UTF-8)
+     */
+    private double estimateRowWidth(String dinhDang, double doRongDuLieu) {
+        if ("txt".equalsIgnoreCase(dinhDang)) {
+            return Math.max(TEXT_MIN_ROW_WIDTH, doRongDuLieu + TEXT_FIXED_ROW_WIDTH);
+        }
+        if ("xlsx".equalsIgnoreCase(dinhDang)) {
+            return XLSX_COMPRESSED_ROW_WIDTH;
+        }
+        if ("jsonl".equalsIgnoreCase(dinhDang)) {
+            return doRongDuLieu + JSONL_FIXED_ROW_WIDTH;
+        }
+        return doRongDuLieu + CSV_FIXED_ROW_WIDTH;
+    }
+}
@@ -0,0 +1,29 @@
+// Callback nhận tiến độ xuất file và cho phép hủy giữa chừng
+package service.export;
+
+public interface ExportProgressListener {
+
+    /**
+     * Listener rỗng dùng khi export đồng bộ, không cần theo dõi tiến độ
+     */
+    ExportProgressListener NONE = new ExportProgressListener() {
+        @Override
+        public void onProgress(long soDongDaGhi, long soByteDaGhi) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    /**
+     * Cập nhật số dòng và số byte đã ghi xuống file
+     */
+    void onProgress(long soDongDaGhi, long soByteDaGhi);
+
+    /**
+     * Kiểm tra yêu cầu hủy (được gọi sau mỗi dòng ghi)
+     */
+    boolean isCancelled();
+}
@@ -0,0 +1,485 @@
+// Bộ giải mã JSON Lines cho giao dịch: đọc tuần tự từ Reader, không dùng reflection
+package service.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+import exception.ValidationException;
+import model.GiaoDich;
+import model.GiaoDichTienTe;
+import model.GiaoDichVang;
+
+/**
+ * Đọc từng dòng JSON do GiaoDichJsonEncoder ghi ra.
+ * Khóa và giá trị được đọc vào một bộ đệm ký tự dùng lại, chỉ các trường
+ * chuỗi của giao dịch mới tạo String. Trường không biết (ví dụ thanhTien) bị bỏ qua.
+ *
+ * Dòng sai định dạng ném ValidationException kèm số dòng; decoder đã bỏ qua
+ * phần còn lại của dòng đó nên có thể gọi next() tiếp để đọc dòng sau.
+ */
+public class GiaoDichJsonDecoder implements Closeable {
+
+    private static final int TYPE_UNKNOWN = 0;
+    private static final int TYPE_VANG = 1;
+    private static final int TYPE_TIEN_TE = 2;
+
+    private static final int EOF = -1;
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+
+    // Bộ đệm cho khóa/giá trị đang đọc
+    private char[] token = new char[64];
+    private int tokenLength;
+
+    private int lineNumber = 1;
+    private int recordLine;
+
+    // Các trường của bản ghi đang đọc
+    private int loaiGiaoDich;
+    private String maGiaoDich;
+    private LocalDate ngayGiaoDich;
+    private BigDecimal donGia;
+    private int soLuong;
+    private String loaiVang;
+    private String loaiTien;
+    private BigDecimal tiGia;
+
+    public GiaoDichJsonDecoder(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Đọc giao dịch tiếp theo
+     * @return giao dịch, hoặc null nếu đã hết dữ liệu
+     * @throws ValidationException nếu dòng hiện tại không hợp lệ
+     */
+    public GiaoDich next() throws IOException, ValidationException {
+        int c = skipWhitespace(true);
+        if (c == EOF) {
+            return null;
+        }
+
+        recordLine = lineNumber;
+        resetRecord();
+
+        if (c != '{') {
+            throw fail("thiếu '{' ở đầu dòng", true);
+        }
+
+        c = skipWhitespace(false);
+        if (c != '}') {
+            while (true) {
+                if (c != '"') {
+                    throw fail("tên trường phải nằm trong ngoặc kép", true);
+                }
+                readStringToken();
+                int field = fieldOf();
+
+                if (skipWhitespace(false) != ':') {
+                    throw fail("thiếu ':' sau tên trường", true);
+                }
+                readFieldValue(field, skipWhitespace(false));
+
+                c = skipWhitespace(false);
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw fail("thiếu ',' giữa các trường", true);
+                }
+                c = skipWhitespace(false);
+            }
+        }
+
+        // Sau '}' chỉ được có khoảng trắng tới hết dòng
+        c = read();
+        while (c != '\n' && c != EOF) {
+            if (!isBlank(c)) {
+                throw fail("dữ liệu thừa sau '}'", true);
+            }
+            c = read();
+        }
+        if (c == '\n') {
+            lineNumber++;
+        }
+
+        return buildRecord();
+    }
+
+    /**
+     * Số dòng của bản ghi vừa đọc (bắt đầu từ 1)
+     */
+    public int getRecordLine() {
+        return recordLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // ==================== Trường dữ liệu ====================
+
+    private static final int F_SKIP = 0;
+    private static final int F_MA = 1;
+    private static final int F_LOAI = 2;
+    private static final int F_NGAY = 3;
+    private static final int F_DON_GIA = 4;
+    private static final int F_SO_LUONG = 5;
+    private static final int F_LOAI_VANG = 6;
+    private static final int F_LOAI_TIEN = 7;
+    private static final int F_TI_GIA = 8;
+
+    /**
+     * Xác định trường theo khóa đang nằm trong bộ đệm (so sánh trực tiếp, không tạo String)
+     */
+    private int fieldOf() {
+        if (tokenIs("maGiaoDich")) return F_MA;
+        if (tokenIs("loaiGiaoDich")) return F_LOAI;
+        if (tokenIs("ngayGiaoDich")) return F_NGAY;
+        if (tokenIs("donGia")) return F_DON_GIA;
+        if (tokenIs("soLuong")) return F_SO_LUONG;
+        if (tokenIs("loaiVang")) return F_LOAI_VANG;
+        if (tokenIs("loaiTien")) return F_LOAI_TIEN;
+        if (tokenIs("tiGia")) return F_TI_GIA;
+        return F_SKIP;
+    }
+
+    private void readFieldValue(int field, int c) throws IOException, ValidationException {
+        switch (field) {
+            case F_MA:
+                maGiaoDich = readStringValue(c);
+                break;
+            case F_LOAI:
+                expectString(c);
+                if (tokenIs("VANG")) {
+                    loaiGiaoDich = TYPE_VANG;
+                } else if (tokenIs("TIEN_TE")) {
+                    loaiGiaoDich = TYPE_TIEN_TE;
+                } else {
+                    throw fail("loại giao dịch không hợp lệ", true);
+                }
+                break;
+            case F_NGAY:
+                expectString(c);
+                ngayGiaoDich = parseDate();
+                break;
+            case F_DON_GIA:
+                donGia = readDecimal(c);
+                break;
+            case F_SO_LUONG:
+                readNumberToken(c);
+                soLuong = parseInt();
+                break;
+            case F_LOAI_VANG:
+                loaiVang = readStringValue(c);
+                break;
+            case F_LOAI_TIEN:
+                loaiTien = readStringValue(c);
+                break;
+            case F_TI_GIA:
+                tiGia = readDecimal(c);
+                break;
+            default:
+                skipValue(c);
+        }
+    }
+
+    private void resetRecord() {
+        loaiGiaoDich = TYPE_UNKNOWN;
+        maGiaoDich = null;
+        ngayGiaoDich = null;
+        donGia = null;
+        soLuong = 0;
+        loaiVang = null;
+        loaiTien = null;
+        tiGia = null;
+    }
+
+    /**
+     * Tạo giao dịch qua constructor có validation của model
+     */
+    private GiaoDich buildRecord() throws ValidationException {
+        if (loaiGiaoDich == TYPE_UNKNOWN) {
+            throw fail("thiếu trường loaiGiaoDich", false);
+        }
+        try {
+            if (loaiGiaoDich == TYPE_VANG) {
+                return new GiaoDichVang(maGiaoDich, ngayGiaoDich, donGia, soLuong, loaiVang);
+            }
+            return new GiaoDichTienTe(maGiaoDich, ngayGiaoDich, donGia, soLuong, loaiTien, tiGia);
+        } catch (ValidationException e) {
+            throw new ValidationException("Dòng " + recordLine + ": " + e.getMessage(), e.getField());
+        }
+    }
+
+    // ==================== Đọc giá trị ====================
+
+    private String readStringValue(int c) throws IOException, ValidationException {
+        if (c == 'n') {
+            expectLiteral("null");
+            return null;
+        }
+        expectString(c);
+        return new String(token, 0, tokenLength);
+    }
+
+    private BigDecimal readDecimal(int c) throws IOException, ValidationException {
+        readNumberToken(c);
+        try {
+            return new BigDecimal(token, 0, tokenLength);
+        } catch (NumberFormatException e) {
+            throw fail("số không hợp lệ", true);
+        }
+    }
+
+    private void expectString(int c) throws IOException, ValidationException {
+        if (c != '"') {
+            throw fail("giá trị phải là chuỗi", true);
+        }
+        readStringToken();
+    }
+
+    /**
+     * Đọc nội dung chuỗi (sau dấu '"' mở) vào bộ đệm, xử lý escape
+     */
+    private void readStringToken() throws IOException, ValidationException {
+        tokenLength = 0;
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return;
+            }
+            if (c == EOF || c == '\n') {
+                throw fail("chuỗi chưa đóng ngoặc kép", false);
+            }
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        break;
+                    case 'b': c = '\b'; break;
+                    case 'f': c = '\f'; break;
+                    case 'n': c = '\n'; break;
+                    case 'r': c = '\r'; break;
+                    case 't': c = '\t'; break;
+                    case 'u': c = readHex4(); break;
+                    default:
+                        throw fail("escape không hợp lệ trong chuỗi", c != '\n' && c != EOF);
+                }
+            }
+            appendToken((char) c);
+        }
+    }
+
+    private int readHex4() throws IOException, ValidationException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int c = read();
+            int digit = Character.digit(c, 16);
+            if (c == EOF || digit < 0) {
+                throw fail("\\u cần 4 chữ số hex", c != '\n' && c != EOF);
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Đọc một số JSON vào bộ đệm; ký tự kết thúc được trả lại cho lần đọc sau
+     */
+    private void readNumberToken(int c) throws IOException, ValidationException {
+        tokenLength = 0;
+        while ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+            appendToken((char) c);
+            c = read();
+        }
+        unread(c);
+        if (tokenLength == 0) {
+            throw fail("giá trị phải là số", true);
+        }
+    }
+
+    private int parseInt() throws ValidationException {
+        int i = 0;
+        boolean negative = token[0] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == tokenLength) {
+            throw fail("số lượng không hợp lệ", true);
+        }
+        long value = 0;
+        for (; i < tokenLength; i++) {
+            char ch = token[i];
+            if (ch < '0' || ch > '9') {
+                throw fail("số lượng phải là số nguyên", true);
+            }
+            value = value * 10 + (ch - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw fail("số lượng quá lớn", true);
+            }
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Ngày dạng yyyy-MM-dd trong bộ đệm
+     */
+    private LocalDate parseDate() throws ValidationException {
+        if (tokenLength != 10 || token[4] != '-' || token[7] != '-') {
+            throw fail("ngày phải có dạng yyyy-MM-dd", true);
+        }
+        try {
+            return LocalDate.of(digits(0, 4), digits(5, 2), digits(8, 2));
+        } catch (DateTimeException e) {
+            throw fail("ngày không hợp lệ", true);
+        }
+    }
+
+    private int digits(int offset, int count) throws ValidationException {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char ch = token[i];
+            if (ch < '0' || ch > '9') {
+                throw fail("ngày phải có dạng yyyy-MM-dd", true);
+            }
+            value = value * 10 + (ch - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Bỏ qua giá trị của trường không dùng (chuỗi, số, literal, object/array lồng nhau)
+     */
+    private void skipValue(int c) throws IOException, ValidationException {
+        if (c == '"') {
+            readStringToken();
+        } else if (c == '{' || c == '[') {
+            int depth = 1;
+            while (depth > 0) {
+                c = read();
+                if (c == EOF || c == '\n') {
+                    throw fail("object/array chưa đóng", false);
+                }
+                if (c == '"') {
+                    readStringToken();
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            }
+        } else if (c == 't') {
+            expectLiteral("true");
+        } else if (c == 'f') {
+            expectLiteral("false");
+        } else if (c == 'n') {
+            expectLiteral("null");
+        } else {
+            readNumberToken(c);
+        }
+    }
+
+    private void expectLiteral(String literal) throws IOException, ValidationException {
+        // Ký tự đầu tiên đã được đọc
+        for (int i = 1; i < literal.length(); i++) {
+            int c = read();
+            if (c != literal.charAt(i)) {
+                // Đã đọc tới cuối dòng thì không bỏ qua tiếp (sẽ nuốt bản ghi sau)
+                throw fail("giá trị không hợp lệ", c != '\n' && c != EOF);
+            }
+        }
+    }
+
+    // ==================== Bộ đệm ====================
+
+    private boolean tokenIs(String value) {
+        if (value.length() != tokenLength) {
+            return false;
+        }
+        for (int i = 0; i < tokenLength; i++) {
+            if (token[i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void appendToken(char c) {
+        if (tokenLength == token.length) {
+            char[] larger = new char[token.length * 2];
+            System.arraycopy(token, 0, larger, 0, tokenLength);
+            token = larger;
+        }
+        token[tokenLength++] = c;
+    }
+
+    /**
+     * Bỏ qua khoảng trắng; xuống dòng chỉ hợp lệ giữa các bản ghi
+     */
+    private int skipWhitespace(boolean betweenRecords) throws IOException, ValidationException {
+        while (true) {
+            int c = read();
+            if (c == '\n') {
+                if (!betweenRecords) {
+                    throw fail("bản ghi bị ngắt dòng", false);
+                }
+                lineNumber++;
+            } else if (!isBlank(c)) {
+                return c;
+            }
+        }
+    }
+
+    private static boolean isBlank(int c) {
+        // BOM UTF-8 ở đầu file được coi là khoảng trắng
+        return c == ' ' || c == '\t' || c == '\r' || c == '\ufeff';
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return EOF;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void unread(int c) {
+        if (c != EOF) {
+            position--;
+        }
+    }
+
+    /**
+     * Tạo lỗi kèm số dòng; nếu skipRest thì bỏ qua phần còn lại của dòng hiện tại
+     */
+    private ValidationException fail(String message, boolean skipRest) {
+        int line = recordLine > 0 ? recordLine : lineNumber;
+        if (skipRest) {
+            try {
+                int c = read();
+                while (c != '\n' && c != EOF) {
+                    c = read();
+                }
+            } catch (IOException ignored) {
+                // Lỗi đọc sẽ xuất hiện lại ở lần gọi next() sau
+            }
+        }
+        lineNumber = line + 1;
+        return new ValidationException("Dòng " + line + ": " + message, "jsonl");
+    }
+}
@@ -0,0 +1,113 @@
+// Bộ mã hóa JSON Lines cho giao dịch: ghi thẳng ra Writer, không dùng reflection
+package service.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+
+import dto.TombstoneDTO;
+import model.GiaoDich;
+import model.GiaoDichTienTe;
+import model.GiaoDichVang;
+
+/**
+ * Mỗi giao dịch là một dòng JSON, ví dụ:
+ * {"maGiaoDich":"GD001","loaiGiaoDich":"VANG","ngayGiaoDich":"2024-01-15","donGia":2500000.00,"soLuong":5,"loaiVang":"24K","thanhTien":12500000.00}
+ * {"maGiaoDich":"GD004","loaiGiaoDich":"TIEN_TE","ngayGiaoDich":"2024-01-18","donGia":25000.00,"soLuong":100,"loaiTien":"USD","tiGia":24500.0000,"thanhTien":61250000000.00}
+ * thanhTien chỉ để bên nhận tiện dùng, GiaoDichJsonDecoder bỏ qua trường này.
+ */
+public final class GiaoDichJsonEncoder {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private GiaoDichJsonEncoder() {
+    }
+
+    /**
+     * Ghi một giao dịch thành một dòng JSON (kết thúc bằng '\n')
+     */
+    public static void encode(GiaoDich gd, Writer out) throws IOException {
+        out.write("{\"maGiaoDich\":");
+        writeString(gd.getMaGiaoDich(), out);
+        out.write(",\"loaiGiaoDich\":\"");
+        out.write(gd.getLoaiGiaoDich());
+        out.write("\",\"ngayGiaoDich\":\"");
+        writeDate(gd.getNgayGiaoDich(), out);
+        out.write("\",\"donGia\":");
+        out.write(gd.getDonGia().toPlainString());
+        out.write(",\"soLuong\":");
+        out.write(Integer.toString(gd.getSoLuong()));
+
+        if (gd instanceof GiaoDichVang) {
+            out.write(",\"loaiVang\":");
+            writeString(((GiaoDichVang) gd).getLoaiVang(), out);
+        } else if (gd instanceof GiaoDichTienTe) {
+            GiaoDichTienTe gdtt = (GiaoDichTienTe) gd;
+            out.write(",\"loaiTien\":");
+            writeString(gdtt.getLoaiTien(), out);
+            out.write(",\"tiGia\":");
+            out.write(gdtt.getTiGia().toPlainString());
+        }
+
+        out.write(",\"thanhTien\":");
+        out.write(gd.tinhThanhTien().toPlainString());
+        out.write("}\n");
+    }
+
+    /**
+     * Ghi một giao dịch đã xóa (danh sách xóa của export tăng dần)
+     */
+    public static void encodeTombstone(TombstoneDTO tombstone, Writer out) throws IOException {
+        out.write("{\"maGiaoDich\":");
+        writeString(tombstone.getMaGiaoDich(), out);
+        out.write(",\"deletedAt\":\"");
+        out.write(tombstone.getDeletedAt().toString());
+        out.write("\"}\n");
+    }
+
+    /**
+     * Ghi chuỗi JSON có escape, từng ký tự một (không tạo chuỗi trung gian)
+     */
+    static void writeString(String value, Writer out) throws IOException {
+        out.write('"');
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':  out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.write("\\u00");
+                        out.write(HEX[c >> 4]);
+                        out.write(HEX[c & 0xF]);
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * Ghi ngày dạng yyyy-MM-dd
+     */
+    private static void writeDate(LocalDate date, Writer out) throws IOException {
+        int year = date.getYear();
+        out.write((char) ('0' + year / 1000 % 10));
+        out.write((char) ('0' + year / 100 % 10));
+        out.write((char) ('0' + year / 10 % 10));
+        out.write((char) ('0' + year % 10));
+        out.write('-');
+        writeTwoDigits(date.getMonthValue(), out);
+        out.write('-');
+        writeTwoDigits(date.getDayOfMonth(), out);
+    }
+
+    private static void writeTwoDigits(int value, Writer out) throws IOException {
+        out.write((char) ('0' + value / 10));
+        out.write((char) ('0' + value % 10));
+    }
+}
@@ -0,0 +1,344 @@
+// Ghi file .xlsx dạng stream: XML của sheet được ghi thẳng vào zip entry, bộ nhớ không phụ thuộc số dòng
+package service.export;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Chỉ dùng JDK (java.util.zip). Cách dùng:
+ * <pre>
+ * startSheet("Giao dịch");
+ *   startRow(); inlineString(...); sharedString(...); number(...); date(...); endRow();
+ * endSheet();
+ * close(); // ghi sharedStrings, styles, workbook và các file quan hệ
+ * </pre>
+ * Mã giao dịch (không lặp lại) nên ghi bằng inlineString; sharedString chỉ dành cho
+ * cột có ít giá trị khác nhau (loại vàng, loại tiền...) vì bảng chuỗi dùng chung nằm trong bộ nhớ.
+ */
+public class XlsxStreamWriter implements Closeable, Flushable {
+
+    // Giới hạn của Excel cho một sheet
+    public static final int MAX_ROWS_PER_SHEET = 1_048_576;
+
+    // Style (chỉ số trong cellXfs của styles.xml)
+    public static final int STYLE_DEFAULT = 0;
+    public static final int STYLE_DATE = 1;
+    public static final int STYLE_MONEY = 2;
+    public static final int STYLE_HEADER = 3;
+
+    // Số ngày từ 1899-12-30 (mốc ngày của Excel) tới 1970-01-01
+    private static final long EXCEL_EPOCH_OFFSET = 25569;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ZipOutputStream zip;
+    private final Writer xml;
+
+    private final List<String> sheetNames = new ArrayList<>();
+    private final Map<String, Integer> sharedStringIndex = new HashMap<>();
+    private final List<String> sharedStrings = new ArrayList<>();
+    private long sharedStringRefs;
+
+    private boolean inSheet;
+    private int rowNumber;
+    private int columnIndex;
+
+    public XlsxStreamWriter(OutputStream out) {
+        this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        this.xml = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    // ==================== Sheet ====================
+
+    public void startSheet(String name) throws IOException {
+        if (inSheet) {
+            endSheet();
+        }
+        sheetNames.add(name);
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetNames.size() + ".xml"));
+        xml.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        xml.write("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+        inSheet = true;
+        rowNumber = 0;
+    }
+
+    public void endSheet() throws IOException {
+        xml.write("</sheetData></worksheet>");
+        closeEntry();
+        inSheet = false;
+    }
+
+    /**
+     * Số dòng đã ghi trong sheet hiện tại
+     */
+    public int getRowCount() {
+        return rowNumber;
+    }
+
+    public void startRow() throws IOException {
+        rowNumber++;
+        columnIndex = 0;
+        xml.write("<row r=\"");
+        xml.write(Integer.toString(rowNumber));
+        xml.write("\">");
+    }
+
+    public void endRow() throws IOException {
+        xml.write("</row>");
+    }
+
+    // ==================== Cell ====================
+
+    /**
+     * Chuỗi nằm ngay trong ô (dành cho giá trị không lặp lại như mã giao dịch)
+     */
+    public void inlineString(String value) throws IOException {
+        inlineString(value, STYLE_DEFAULT);
+    }
+
+    public void inlineString(String value, int style) throws IOException {
+        startCell(style, "inlineStr");
+        xml.write("<is><t>");
+        writeEscaped(value);
+        xml.write("</t></is></c>");
+    }
+
+    /**
+     * Chuỗi trong bảng dùng chung (mỗi giá trị khác nhau chỉ lưu một lần)
+     */
+    public void sharedString(String value) throws IOException {
+        Integer index = sharedStringIndex.get(value);
+        if (index == null) {
+            index = sharedStrings.size();
+            sharedStrings.add(value);
+            sharedStringIndex.put(value, index);
+        }
+        sharedStringRefs++;
+        startCell(STYLE_DEFAULT, "s");
+        xml.write("<v>");
+        xml.write(Integer.toString(index));
+        xml.write("</v></c>");
+    }
+
+    public void number(BigDecimal value, int style) throws IOException {
+        startCell(style, null);
+        xml.write("<v>");
+        xml.write(value.toPlainString());
+        xml.write("</v></c>");
+    }
+
+    public void number(long value) throws IOException {
+        startCell(STYLE_DEFAULT, null);
+        xml.write("<v>");
+        xml.write(Long.toString(value));
+        xml.write("</v></c>");
+    }
+
+    /**
+     * Ngày lưu dạng số seri của Excel, hiển thị qua style ngày
+     */
+    public void date(LocalDate value) throws IOException {
+        startCell(STYLE_DATE, null);
+        xml.write("<v>");
+        xml.write(Long.toString(value.toEpochDay() + EXCEL_EPOCH_OFFSET));
+        xml.write("</v></c>");
+    }
+
+    /**
+     * Bỏ qua một ô (không ghi gì)
+     */
+    public void blank() {
+        columnIndex++;
+    }
+
+    private void startCell(int style, String type) throws IOException {
+        xml.write("<c r=\"");
+        writeColumnName(columnIndex++);
+        xml.write(Integer.toString(rowNumber));
+        xml.write('"');
+        if (style != STYLE_DEFAULT) {
+            xml.write(" s=\"");
+            xml.write(Integer.toString(style));
+            xml.write('"');
+        }
+        if (type != null) {
+            xml.write(" t=\"");
+            xml.write(type);
+            xml.write('"');
+        }
+        xml.write('>');
+    }
+
+    private void writeColumnName(int index) throws IOException {
+        if (index >= 26) {
+            writeColumnName(index / 26 - 1);
+        }
+        xml.write((char) ('A' + index % 26));
+    }
+
+    /**
+     * Escape XML; bỏ các ký tự điều khiển không hợp lệ trong XML 1.0
+     */
+    private void writeEscaped(String value) throws IOException {
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&': xml.write("&amp;"); break;
+                case '<': xml.write("&lt;"); break;
+                case '>': xml.write("&gt;"); break;
+                case '"': xml.write("&quot;"); break;
+                default:
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        xml.write(c);
+                    }
+            }
+        }
+    }
+
+    // ==================== Kết thúc file ====================
+
+    /**
+     * Đẩy dữ liệu đã ghi xuống stream bên dưới (dùng khi báo tiến độ)
+     */
+    @Override
+    public void flush() throws IOException {
+        xml.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (inSheet) {
+                endSheet();
+            }
+            if (sheetNames.isEmpty()) {
+                startSheet("Sheet1");
+                endSheet();
+            }
+            writeSharedStrings();
+            writeStyles();
+            writeWorkbook();
+            writeContentTypes();
+        } finally {
+            zip.close();
+        }
+    }
+
+    private void writeSharedStrings() throws IOException {
+        zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+        xml.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        xml.write("<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"");
+        xml.write(Long.toString(sharedStringRefs));
+        xml.write("\" uniqueCount=\"");
+        xml.write(Integer.toString(sharedStrings.size()));
+        xml.write("\">");
+        for (String value : sharedStrings) {
+            xml.write("<si><t>");
+            writeEscaped(value);
+            xml.write("</t></si>");
+        }
+        xml.write("</sst>");
+        closeEntry();
+    }
+
+    private void writeStyles() throws IOException {
+        zip.putNextEntry(new ZipEntry("xl/styles.xml"));
+        xml.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        xml.write("<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">");
+        xml.write("<numFmts count=\"1\"><numFmt numFmtId=\"164\" formatCode=\"dd/mm/yyyy\"/></numFmts>");
+        xml.write("<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>");
+        xml.write("<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>");
+        xml.write("<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>");
+        xml.write("<fill><patternFill patternType=\"gray125\"/></fill></fills>");
+        xml.write("<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>");
+        xml.write("<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>");
+        xml.write("<cellXfs count=\"4\">");
+        xml.write("<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>");
+        xml.write("<xf numFmtId=\"164\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>");
+        xml.write("<xf numFmtId=\"4\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>");
+        xml.write("<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>");
+        xml.write("</cellXfs>");
+        xml.write("<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>");
+        xml.write("</styleSheet>");
+        closeEntry();
+    }
+
+    private void writeWorkbook() throws IOException {
+        zip.putNextEntry(new ZipEntry("xl/workbook.xml"));
+        xml.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        xml.write("<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" ");
+        xml.write("xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><sheets>");
+        for (int i = 0; i < sheetNames.size(); i++) {
+            xml.write("<sheet name=\"");
+            writeEscaped(sheetNames.get(i));
+            xml.write("\" sheetId=\"" + (i + 1) + "\" r:id=\"rId" + (i + 1) + "\"/>");
+        }
+        xml.write("</sheets></workbook>");
+        closeEntry();
+
+        zip.putNextEntry(new ZipEntry("xl/_rels/workbook.xml.rels"));
+        xml.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        xml.write("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            xml.write("<Relationship Id=\"rId" + i + "\" ");
+            xml.write("Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" ");
+            xml.write("Target=\"worksheets/sheet" + i + ".xml\"/>");
+        }
+        int next = sheetNames.size() + 1;
+        xml.write("<Relationship Id=\"rId" + next + "\" ");
+        xml.write("Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/sharedStrings\" ");
+        xml.write("Target=\"sharedStrings.xml\"/>");
+        xml.write("<Relationship Id=\"rId" + (next + 1) + "\" ");
+        xml.write("Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" ");
+        xml.write("Target=\"styles.xml\"/>");
+        xml.write("</Relationships>");
+        closeEntry();
+
+        zip.putNextEntry(new ZipEntry("_rels/.rels"));
+        xml.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        xml.write("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        xml.write("<Relationship Id=\"rId1\" ");
+        xml.write("Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" ");
+        xml.write("Target=\"xl/workbook.xml\"/></Relationships>");
+        closeEntry();
+    }
+
+    private void writeContentTypes() throws IOException {
+        zip.putNextEntry(new ZipEntry("[Content_Types].xml"));
+        xml.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        xml.write("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">");
+        xml.write("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>");
+        xml.write("<Default Extension=\"xml\" ContentType=\"application/xml\"/>");
+        xml.write("<Override PartName=\"/xl/workbook.xml\" ");
+        xml.write("ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            xml.write("<Override PartName=\"/xl/worksheets/sheet" + i + ".xml\" ");
+            xml.write("ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        xml.write("<Override PartName=\"/xl/sharedStrings.xml\" ");
+        xml.write("ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>");
+        xml.write("<Override PartName=\"/xl/styles.xml\" ");
+        xml.write("ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        xml.write("</Types>");
+        closeEntry();
+    }
+
+    private void closeEntry() throws IOException {
+        xml.flush();
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,198 @@
+// Chỉ mục tiền tố mã giao dịch: mảng mã đã sắp xếp, tìm bằng nhị phân
+package service.paging;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import model.GiaoDich;
+
+/**
+ * Hai mảng song song (mã viết hoa đã sắp xếp, giao dịch tương ứng):
+ * - tìm theo tiền tố: hai lần tìm nhị phân cho ra khoảng [from, to), O(log n), không cấp phát
+ * - thêm/xóa: tìm nhị phân rồi dịch mảng bằng System.arraycopy; thêm cả loạt thì trộn một lượt
+ * So khớp không phân biệt hoa thường. Không an toàn luồng: tạo trên thread nền rồi
+ * chỉ dùng trên EDT.
+ */
+public final class GiaoDichIdIndex {
+
+    private String[] keys;
+    private GiaoDich[] values;
+    private int size;
+
+    private GiaoDichIdIndex(String[] keys, GiaoDich[] values, int size) {
+        this.keys = keys;
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * Tạo chỉ mục cho toàn bộ nguồn dữ liệu (sắp xếp một lần, O(n log n))
+     */
+    public static GiaoDichIdIndex build(ListPagedDataSource<GiaoDich> source) {
+        int n = source.size();
+        Entry[] entries = new Entry[n];
+        for (int i = 0; i < n; i++) {
+            GiaoDich gd = source.get(i);
+            entries[i] = new Entry(normalize(gd.getMaGiaoDich()), gd);
+        }
+        Arrays.sort(entries, (a, b) -> a.key.compareTo(b.key));
+
+        String[] sortedKeys = new String[Math.max(n, 16)];
+        GiaoDich[] sortedValues = new GiaoDich[sortedKeys.length];
+        for (int i = 0; i < n; i++) {
+            sortedKeys[i] = entries[i].key;
+            sortedValues[i] = entries[i].value;
+        }
+        return new GiaoDichIdIndex(sortedKeys, sortedValues, n);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public GiaoDich get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Giao dịch có đúng mã maGiaoDich, null nếu không có
+     */
+    public GiaoDich find(String maGiaoDich) {
+        String key = normalize(maGiaoDich);
+        int pos = lowerBound(key);
+        return pos < size && keys[pos].equals(key) ? values[pos] : null;
+    }
+
+    /**
+     * Vị trí đầu tiên có mã bắt đầu bằng prefix (hoặc lớn hơn prefix)
+     */
+    public int lowerBound(String prefix) {
+        String key = normalize(prefix);
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Vị trí đầu tiên sau các mã bắt đầu bằng prefix
+     */
+    public int upperBound(String prefix) {
+        String key = normalize(prefix);
+        int low = lowerBound(prefix);
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].startsWith(key)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public void add(GiaoDich gd) {
+        String key = normalize(gd.getMaGiaoDich());
+        int pos = lowerBound(key);
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size + (size >> 1) + 1);
+            values = Arrays.copyOf(values, keys.length);
+        }
+        System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+        System.arraycopy(values, pos, values, pos + 1, size - pos);
+        keys[pos] = key;
+        values[pos] = gd;
+        size++;
+    }
+
+    /**
+     * Thêm một loạt giao dịch (ví dụ một phần dữ liệu đang đọc dần): sắp xếp riêng
+     * phần mới rồi trộn từ cuối mảng lên, mỗi lần gọi O(n + k log k) thay vì k lần dịch mảng
+     */
+    public void addAll(List<GiaoDich> giaoDichs) {
+        int k = giaoDichs.size();
+        if (k == 0) {
+            return;
+        }
+        Entry[] entries = new Entry[k];
+        for (int i = 0; i < k; i++) {
+            GiaoDich gd = giaoDichs.get(i);
+            entries[i] = new Entry(normalize(gd.getMaGiaoDich()), gd);
+        }
+        Arrays.sort(entries, (a, b) -> a.key.compareTo(b.key));
+
+        int total = size + k;
+        if (total > keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(total, size + (size >> 1) + 1));
+            values = Arrays.copyOf(values, keys.length);
+        }
+        int i = size - 1;
+        int j = k - 1;
+        for (int pos = total - 1; j >= 0; pos--) {
+            if (i >= 0 && keys[i].compareTo(entries[j].key) > 0) {
+                keys[pos] = keys[i];
+                values[pos] = values[i];
+                i--;
+            } else {
+                keys[pos] = entries[j].key;
+                values[pos] = entries[j].value;
+                j--;
+            }
+        }
+        size = total;
+    }
+
+    /**
+     * Bỏ giao dịch có đúng mã maGiaoDich, trả về false nếu không có
+     */
+    public boolean remove(String maGiaoDich) {
+        String key = normalize(maGiaoDich);
+        int pos = lowerBound(key);
+        if (pos >= size || !keys[pos].equals(key)) {
+            return false;
+        }
+        System.arraycopy(keys, pos + 1, keys, pos, size - pos - 1);
+        System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        return true;
+    }
+
+    /**
+     * Thay bản ghi có mã maGiaoDich bằng gd (mã có thể đổi)
+     */
+    public void replace(String maGiaoDich, GiaoDich gd) {
+        String key = normalize(maGiaoDich);
+        int pos = lowerBound(key);
+        if (pos < size && keys[pos].equals(key) && key.equals(normalize(gd.getMaGiaoDich()))) {
+            values[pos] = gd;
+            return;
+        }
+        remove(maGiaoDich);
+        add(gd);
+    }
+
+    private static String normalize(String maGiaoDich) {
+        return maGiaoDich.toUpperCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        final String key;
+        final GiaoDich value;
+
+        Entry(String key, GiaoDich value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+// Nguồn dữ liệu theo trang dựa trên danh sách đã có trong bộ nhớ
+package service.paging;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Các thao tác thêm/sửa/xóa ghi thẳng vào danh sách được truyền vào
+ * (danh sách phải cho phép thay đổi, ví dụ ArrayList).
+ */
+public class ListPagedDataSource<T> implements PagedDataSource<T> {
+    private final List<T> items;
+
+    public ListPagedDataSource(List<T> items) {
+        this.items = items != null ? items : Collections.emptyList();
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public List<T> getPage(int offset, int limit) {
+        int from = Math.min(Math.max(offset, 0), items.size());
+        int to = Math.min(from + limit, items.size());
+        return items.subList(from, to);
+    }
+
+    public T get(int index) {
+        return items.get(index);
+    }
+
+    /**
+     * Vị trí phần tử đầu tiên thỏa điều kiện, -1 nếu không có
+     */
+    public int indexOf(Predicate<T> condition) {
+        for (int i = 0; i < items.size(); i++) {
+            if (condition.test(items.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public void add(int index, T item) {
+        items.add(index, item);
+    }
+
+    /**
+     * Nối thêm vào cuối danh sách
+     */
+    public void addAll(List<T> newItems) {
+        items.addAll(newItems);
+    }
+
+    public void set(int index, T item) {
+        items.set(index, item);
+    }
+
+    public T remove(int index) {
+        return items.remove(index);
+    }
+}
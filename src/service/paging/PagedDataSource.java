@@ -0,0 +1,21 @@
+// Nguồn dữ liệu đọc theo trang (cho bảng hiển thị lazy)
+package service.paging;
+
+import java.util.List;
+
+import exception.BusinessException;
+
+public interface PagedDataSource<T> {
+
+    /**
+     * Tổng số phần tử
+     */
+    int size();
+
+    /**
+     * Lấy một trang dữ liệu
+     * @param offset vị trí bắt đầu (tính từ 0)
+     * @param limit số phần tử tối đa
+     */
+    List<T> getPage(int offset, int limit) throws BusinessException;
+}
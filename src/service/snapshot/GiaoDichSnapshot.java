@@ -0,0 +1,101 @@
+// Bản lưu cục bộ của dữ liệu đã tải: giao dịch theo loại, thống kê và mốc updated_at
+package service.snapshot;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import dto.ThongKeDTO;
+import dto.TombstoneDTO;
+import model.GiaoDich;
+import model.GiaoDichVang;
+
+/**
+ * Mỗi loại một danh sách, theo ngày giảm dần như SELECT_ALL, nên dựng lại bảng
+ * không cần phân loại hay sắp xếp. watermark: mọi thay đổi có updated_at không lớn hơn
+ * mốc này đều đã có trong bản lưu. Bất biến sau khi tạo.
+ */
+public final class GiaoDichSnapshot {
+    private final List<GiaoDich> giaoDichVang;
+    private final List<GiaoDich> giaoDichTienTe;
+    private final ThongKeDTO thongKe; // thống kê tổng quan lúc lưu, có thể null
+    private final LocalDateTime watermark;
+
+    public GiaoDichSnapshot(List<GiaoDich> giaoDichVang, List<GiaoDich> giaoDichTienTe,
+                            ThongKeDTO thongKe, LocalDateTime watermark) {
+        this.giaoDichVang = Collections.unmodifiableList(giaoDichVang);
+        this.giaoDichTienTe = Collections.unmodifiableList(giaoDichTienTe);
+        this.thongKe = thongKe;
+        this.watermark = watermark;
+    }
+
+    public List<GiaoDich> getGiaoDichVang() {
+        return giaoDichVang;
+    }
+
+    public List<GiaoDich> getGiaoDichTienTe() {
+        return giaoDichTienTe;
+    }
+
+    public ThongKeDTO getThongKe() {
+        return thongKe;
+    }
+
+    public LocalDateTime getWatermark() {
+        return watermark;
+    }
+
+    public int size() {
+        return giaoDichVang.size() + giaoDichTienTe.size();
+    }
+
+    /**
+     * Bản lưu mới sau khi áp dụng các thay đổi kể từ watermark:
+     * bỏ dòng đã xóa và bản cũ của dòng đã sửa, rồi trộn các dòng thay đổi (đã sắp theo
+     * ngày giảm dần) vào đúng vị trí. O(n + k log k), không sắp xếp lại toàn bộ.
+     * Dòng bị xóa rồi thêm lại trong khoảng này có trong changed nên vẫn được giữ.
+     */
+    public GiaoDichSnapshot applyChanges(List<GiaoDich> changed, List<TombstoneDTO> deleted,
+                                         LocalDateTime newWatermark) {
+        Set<String> removed = new HashSet<>();
+        for (TombstoneDTO tombstone : deleted) {
+            removed.add(tombstone.getMaGiaoDich());
+        }
+        List<GiaoDich> changedVang = new ArrayList<>();
+        List<GiaoDich> changedTienTe = new ArrayList<>();
+        for (GiaoDich gd : changed) {
+            removed.add(gd.getMaGiaoDich());
+            (gd instanceof GiaoDichVang ? changedVang : changedTienTe).add(gd);
+        }
+        return new GiaoDichSnapshot(
+            merge(giaoDichVang, removed, changedVang),
+            merge(giaoDichTienTe, removed, changedTienTe),
+            thongKe, newWatermark);
+    }
+
+    /**
+     * Trộn hai danh sách theo ngày giảm dần; dòng thay đổi đứng đầu nhóm cùng ngày
+     * (giống khi thêm mới trên bảng)
+     */
+    private static List<GiaoDich> merge(List<GiaoDich> current, Set<String> removed, List<GiaoDich> changed) {
+        changed.sort((a, b) -> b.getNgayGiaoDich().compareTo(a.getNgayGiaoDich()));
+        List<GiaoDich> result = new ArrayList<>(current.size() + changed.size());
+        int j = 0;
+        for (GiaoDich gd : current) {
+            if (removed.contains(gd.getMaGiaoDich())) {
+                continue;
+            }
+            while (j < changed.size() && !changed.get(j).getNgayGiaoDich().isBefore(gd.getNgayGiaoDich())) {
+                result.add(changed.get(j++));
+            }
+            result.add(gd);
+        }
+        while (j < changed.size()) {
+            result.add(changed.get(j++));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,219 @@
+// Đọc/ghi bản lưu cục bộ ở dạng nhị phân gọn
+package service.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import dto.ThongKeDTO;
+import exception.ValidationException;
+import model.GiaoDich;
+import model.GiaoDichTienTe;
+import model.GiaoDichVang;
+
+/**
+ * Định dạng (DataOutputStream, big-endian):
+ *   int MAGIC, int VERSION, long watermark (epoch giây UTC), int nano,
+ *   boolean có thống kê [long, long, decimal, long, decimal, decimal],
+ *   int số GD vàng, mỗi dòng: UTF mã, int epoch day, decimal đơn giá, int số lượng, UTF loại vàng
+ *   int số GD tiền tệ, mỗi dòng: UTF mã, int epoch day, decimal đơn giá, int số lượng, UTF loại tiền, decimal tỉ giá
+ * decimal = byte scale, byte độ dài, unscaled value: độ dài -1 là một long, độ dài 0 là null,
+ * còn lại là các byte của BigInteger.
+ * Ghi ra file tạm rồi đổi tên nên file cũ không bao giờ bị ghi dở.
+ * File sai định dạng/phiên bản được coi như không có bản lưu.
+ */
+public class SnapshotStore {
+    private static final int MAGIC = 0x47445331; // "GDS1"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int LONG_VALUE = -1; // độ dài đặc biệt: unscaled value là một long
+
+    private final Path file;
+
+    public SnapshotStore(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Đọc bản lưu, Optional.empty() nếu chưa có file hoặc file không dùng được
+     */
+    public Optional<GiaoDichSnapshot> read() throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return Optional.empty();
+            }
+            LocalDateTime watermark = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+            ThongKeDTO thongKe = in.readBoolean() ? readThongKe(in) : null;
+
+            // Loại vàng/loại tiền lặp lại rất nhiều: dùng chung một String cho mỗi giá trị
+            Map<String, String> categories = new HashMap<>();
+            int soVang = in.readInt();
+            List<GiaoDich> vang = new ArrayList<>(soVang);
+            for (int i = 0; i < soVang; i++) {
+                GiaoDichVang gd = new GiaoDichVang();
+                readCommon(in, gd);
+                gd.setLoaiVang(categories.computeIfAbsent(in.readUTF(), k -> k));
+                vang.add(gd);
+            }
+            int soTienTe = in.readInt();
+            List<GiaoDich> tienTe = new ArrayList<>(soTienTe);
+            for (int i = 0; i < soTienTe; i++) {
+                GiaoDichTienTe gd = new GiaoDichTienTe();
+                readCommon(in, gd);
+                gd.setLoaiTien(categories.computeIfAbsent(in.readUTF(), k -> k));
+                gd.setTiGia(readDecimal(in));
+                tienTe.add(gd);
+            }
+            return Optional.of(new GiaoDichSnapshot(vang, tienTe, thongKe, watermark));
+        } catch (EOFException | ValidationException | RuntimeException e) {
+            throw new IOException("Bản lưu cục bộ bị hỏng: " + file, e);
+        }
+    }
+
+    /**
+     * Ghi bản lưu (thay thế bản cũ)
+     */
+    public void write(GiaoDichSnapshot snapshot) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(snapshot.getWatermark().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(snapshot.getWatermark().getNano());
+                ThongKeDTO thongKe = snapshot.getThongKe();
+                out.writeBoolean(thongKe != null);
+                if (thongKe != null) {
+                    writeThongKe(out, thongKe);
+                }
+
+                out.writeInt(snapshot.getGiaoDichVang().size());
+                for (GiaoDich gd : snapshot.getGiaoDichVang()) {
+                    writeCommon(out, gd);
+                    out.writeUTF(((GiaoDichVang) gd).getLoaiVang());
+                }
+                out.writeInt(snapshot.getGiaoDichTienTe().size());
+                for (GiaoDich gd : snapshot.getGiaoDichTienTe()) {
+                    GiaoDichTienTe gdtt = (GiaoDichTienTe) gd;
+                    writeCommon(out, gd);
+                    out.writeUTF(gdtt.getLoaiTien());
+                    writeDecimal(out, gdtt.getTiGia());
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Xóa bản lưu (ví dụ khi bản lưu hỏng)
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static void writeCommon(DataOutputStream out, GiaoDich gd) throws IOException {
+        out.writeUTF(gd.getMaGiaoDich());
+        out.writeInt((int) gd.getNgayGiaoDich().toEpochDay());
+        writeDecimal(out, gd.getDonGia());
+        out.writeInt(gd.getSoLuong());
+    }
+
+    private static void readCommon(DataInputStream in, GiaoDich gd) throws IOException, ValidationException {
+        gd.setMaGiaoDich(in.readUTF());
+        gd.setNgayGiaoDich(LocalDate.ofEpochDay(in.readInt()));
+        gd.setDonGia(readDecimal(in));
+        gd.setSoLuong(in.readInt());
+    }
+
+    private static void writeThongKe(DataOutputStream out, ThongKeDTO thongKe) throws IOException {
+        out.writeLong(thongKe.getTongSoLuongVang());
+        out.writeLong(thongKe.getTongSoLuongTienTe());
+        writeDecimal(out, thongKe.getTrungBinhThanhTienTienTe());
+        out.writeLong(thongKe.getSoGiaoDichDonGiaLonHon1Ty());
+        writeDecimal(out, thongKe.getTongThanhTienVang());
+        writeDecimal(out, thongKe.getTongThanhTienTienTe());
+    }
+
+    private static ThongKeDTO readThongKe(DataInputStream in) throws IOException {
+        long tongSoLuongVang = in.readLong();
+        long tongSoLuongTienTe = in.readLong();
+        BigDecimal trungBinh = readDecimal(in);
+        long soDonGiaLon = in.readLong();
+        BigDecimal tongVang = readDecimal(in);
+        BigDecimal tongTienTe = readDecimal(in);
+        return new ThongKeDTO(tongSoLuongVang, tongSoLuongTienTe, trungBinh, soDonGiaLon, tongVang, tongTienTe);
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value == null) {
+            out.writeByte(0);
+            out.writeByte(0);
+            return;
+        }
+        if (value.scale() < Byte.MIN_VALUE || value.scale() > Byte.MAX_VALUE) {
+            throw new IOException("Giá trị không lưu được: " + value);
+        }
+        out.writeByte(value.scale());
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < Long.SIZE) {
+            // Trường hợp thường gặp (DECIMAL(15,2), DECIMAL(10,4)): đọc lại không cần BigInteger
+            out.writeByte(LONG_VALUE);
+            out.writeLong(unscaled.longValue());
+            return;
+        }
+        byte[] bytes = unscaled.toByteArray();
+        if (bytes.length > Byte.MAX_VALUE) {
+            throw new IOException("Giá trị không lưu được: " + value);
+        }
+        out.writeByte(bytes.length);
+        out.write(bytes);
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int scale = in.readByte();
+        int length = in.readByte();
+        if (length == 0) {
+            return null;
+        }
+        if (length == LONG_VALUE) {
+            return BigDecimal.valueOf(in.readLong(), scale);
+        }
+        byte[] unscaled = new byte[length];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
@@ -0,0 +1,148 @@
+// Thực thi tác vụ truy cập dữ liệu trên thread nền, trả kết quả về EDT
+package ui.Controller;
+
+import java.awt.Component;
+import java.awt.Cursor;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Dùng chung cho các controller, mọi lời gọi submit/run đều từ EDT:
+ * - tác vụ chạy trên thread nền "ui-worker-N", không bao giờ chặn EDT
+ * - kết quả/lỗi được đưa về EDT bằng invokeLater
+ * - trong lúc chờ, component được chỉ định hiển thị con trỏ chờ
+ * - tác vụ có khóa (key): yêu cầu mới thay thế yêu cầu cũ cùng khóa, yêu cầu cũ
+ *   chưa chạy thì được bỏ qua, đã chạy thì kết quả bị bỏ qua (ví dụ chuyển tab liên tục)
+ */
+public class AsyncTaskExecutor {
+    private static final Logger LOGGER = Logger.getLogger(AsyncTaskExecutor.class.getName());
+
+    private static final int DEFAULT_WORKER_COUNT = 2;
+
+    /**
+     * Công việc chạy trên thread nền
+     */
+    public interface BackgroundTask<T> {
+        T call() throws Exception;
+    }
+
+    private final ExecutorService executor;
+
+    // Thế hệ mới nhất của từng khóa
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    // Số tác vụ đang chạy trên từng component (chỉ truy cập từ EDT)
+    private final Map<Component, Integer> busyCounts = new IdentityHashMap<>();
+
+    public AsyncTaskExecutor() {
+        this(DEFAULT_WORKER_COUNT);
+    }
+
+    public AsyncTaskExecutor(int workerCount) {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.executor = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "ui-worker-" + threadNumber.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Chạy tác vụ có khóa: chỉ kết quả của yêu cầu mới nhất cùng khóa được trả về EDT
+     */
+    public <T> void submit(String key, Component busyTarget, BackgroundTask<T> task,
+                           Consumer<T> onSuccess, Consumer<Exception> onError) {
+        long generation = generations.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+
+        execute(busyTarget, () -> isCurrent(key, generation), task,
+            result -> {
+                if (isCurrent(key, generation)) {
+                    onSuccess.accept(result);
+                }
+            },
+            error -> {
+                if (isCurrent(key, generation)) {
+                    onError.accept(error);
+                }
+            });
+    }
+
+    /**
+     * Chạy tác vụ không khóa (thao tác ghi: không bao giờ bị bỏ qua)
+     */
+    public <T> void run(Component busyTarget, BackgroundTask<T> task,
+                        Consumer<T> onSuccess, Consumer<Exception> onError) {
+        execute(busyTarget, () -> true, task, onSuccess, onError);
+    }
+
+    private <T> void execute(Component busyTarget, BooleanSupplier stillWanted, BackgroundTask<T> task,
+                             Consumer<T> onSuccess, Consumer<Exception> onError) {
+        setBusy(busyTarget, true);
+        try {
+            executor.execute(() -> {
+                // Đã có yêu cầu mới hơn cùng khóa trong lúc chờ: không truy vấn nữa
+                if (!stillWanted.getAsBoolean()) {
+                    SwingUtilities.invokeLater(() -> setBusy(busyTarget, false));
+                    return;
+                }
+                try {
+                    T result = task.call();
+                    SwingUtilities.invokeLater(() -> {
+                        setBusy(busyTarget, false);
+                        onSuccess.accept(result);
+                    });
+                } catch (Exception e) {
+                    LOGGER.log(Level.FINE, "Tác vụ nền thất bại", e);
+                    SwingUtilities.invokeLater(() -> {
+                        setBusy(busyTarget, false);
+                        onError.accept(e);
+                    });
+                }
+            });
+        } catch (RuntimeException e) {
+            // Executor đã dừng (ứng dụng đang đóng)
+            setBusy(busyTarget, false);
+            LOGGER.log(Level.WARNING, "Không thể chạy tác vụ nền", e);
+        }
+    }
+
+    private boolean isCurrent(String key, long generation) {
+        AtomicLong current = generations.get(key);
+        return current != null && current.get() == generation;
+    }
+
+    /**
+     * Hiển thị con trỏ chờ khi component còn tác vụ đang chạy
+     */
+    private void setBusy(Component target, boolean busy) {
+        if (target == null) {
+            return;
+        }
+        int count = busyCounts.getOrDefault(target, 0) + (busy ? 1 : -1);
+        if (count <= 0) {
+            busyCounts.remove(target);
+            target.setCursor(Cursor.getDefaultCursor());
+        } else {
+            busyCounts.put(target, count);
+            target.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        }
+    }
+
+    /**
+     * Dừng executor (gọi khi đóng ứng dụng)
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,141 @@
+// Đọc con trỏ giao dịch trên thread nền, đưa kết quả lên EDT theo từng phần
+package ui.Controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+import dao.GiaoDichCursor;
+import exception.DataAccessException;
+import model.GiaoDich;
+
+/**
+ * Hiển thị dần kết quả truy vấn lớn thay vì chờ đọc xong toàn bộ:
+ * - phần đầu tiên chỉ vài chục dòng nên bảng có dữ liệu gần như ngay lập tức,
+ *   các phần sau lớn dần (gấp đôi, tối đa MAX_CHUNK_SIZE) hoặc bị đẩy lên sau
+ *   MAX_CHUNK_DELAY_MS để EDT không phải xử lý từng dòng
+ * - onChunk, onFinished, onError đều chạy trên EDT, theo đúng thứ tự đọc;
+ *   onFinished/onError luôn đến sau phần cuối cùng
+ * - stop hủy truy vấn trên server, các dòng đã đọc vẫn được đưa lên, onFinished
+ *   được gọi với stopped = true
+ * Không dùng publish/process: SwingWorker gom process bằng timer nên done có thể
+ * chạy trước phần cuối; invokeLater giữ đúng thứ tự.
+ */
+public class CursorStreamWorker extends SwingWorker<Integer, Void> {
+    private static final Logger LOGGER = Logger.getLogger(CursorStreamWorker.class.getName());
+
+    private static final int FIRST_CHUNK_SIZE = 50;
+    private static final int MAX_CHUNK_SIZE = 8192;
+    private static final long MAX_CHUNK_DELAY_MS = 100;
+
+    /**
+     * Mở con trỏ (chạy trên thread nền)
+     */
+    public interface CursorOpener {
+        GiaoDichCursor open() throws Exception;
+    }
+
+    /**
+     * Kết thúc đọc: tổng số dòng đã đưa lên, stopped = true nếu bị dừng giữa chừng
+     */
+    public interface FinishListener {
+        void onFinished(int total, boolean stopped);
+    }
+
+    private final CursorOpener opener;
+    private final Consumer<List<GiaoDich>> onChunk;
+    private final FinishListener onFinished;
+    private final Consumer<Exception> onError;
+
+    private volatile GiaoDichCursor cursor;
+    private volatile boolean stopped;
+
+    public CursorStreamWorker(CursorOpener opener, Consumer<List<GiaoDich>> onChunk,
+                              FinishListener onFinished, Consumer<Exception> onError) {
+        this.opener = opener;
+        this.onChunk = onChunk;
+        this.onFinished = onFinished;
+        this.onError = onError;
+    }
+
+    /**
+     * Dừng đọc: hủy truy vấn đang chạy, gọi được từ EDT bất kỳ lúc nào
+     */
+    public void stop() {
+        stopped = true;
+        GiaoDichCursor current = cursor;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    @Override
+    protected Integer doInBackground() throws Exception {
+        if (stopped) {
+            return 0;
+        }
+        try (GiaoDichCursor opened = opener.open()) {
+            cursor = opened;
+            if (stopped) {
+                // stop đến trước khi con trỏ được gán
+                return 0;
+            }
+
+            int total = 0;
+            int chunkSize = FIRST_CHUNK_SIZE;
+            List<GiaoDich> chunk = new ArrayList<>(chunkSize);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_CHUNK_DELAY_MS);
+            while (true) {
+                GiaoDich gd;
+                try {
+                    gd = opened.next();
+                } catch (DataAccessException e) {
+                    if (stopped) {
+                        break;
+                    }
+                    throw e;
+                }
+                if (gd == null) {
+                    break;
+                }
+                chunk.add(gd);
+                if (chunk.size() >= chunkSize || System.nanoTime() >= deadline) {
+                    total += deliver(chunk);
+                    chunkSize = Math.min(chunkSize << 1, MAX_CHUNK_SIZE);
+                    chunk = new ArrayList<>(chunkSize);
+                    deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_CHUNK_DELAY_MS);
+                }
+            }
+            return total + deliver(chunk);
+        } finally {
+            cursor = null;
+        }
+    }
+
+    private int deliver(List<GiaoDich> chunk) {
+        if (!chunk.isEmpty()) {
+            SwingUtilities.invokeLater(() -> onChunk.accept(chunk));
+        }
+        return chunk.size();
+    }
+
+    @Override
+    protected void done() {
+        try {
+            onFinished.onFinished(get(), stopped);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            LOGGER.log(Level.FINE, "Đọc dữ liệu theo từng phần thất bại", cause);
+            onError.accept(cause instanceof Exception ? (Exception) cause : e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -3,32 +3,57 @@ package ui.Controller;
 
 import java.io.File;
 import java.time.LocalDate;
-import java.util.List;
 
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
-import model.GiaoDich;
+import dto.ImportResultDTO;
+import service.export.ExportJob;
+import service.export.ExportJobQueue;
 import ui.Panels.StatisticsPanel;
 import ui.Utils.UIUtils;
 import usecase.ExportTransactionUseCase;
+import usecase.ImportTransactionUseCase;
 
 public class ExportController {
     
+    // Chu kỳ cập nhật tiến độ job trên bảng lịch sử (ms)
+    private static final int PROGRESS_REFRESH_INTERVAL = 300;
+    
+    private static final String[] EXPORT_OPTIONS = {
+        "Tất cả giao dịch", 
+        "Giao dịch hiển thị trong bảng", 
+        "Giao dịch + Thống kê tổng hợp",
+        "Thay đổi từ lần xuất trước"
+    };
+    
     private StatisticsPanel statisticsPanel;
     private TransactionController transactionController;
+    private StatisticsController statisticsController;
     private ExportTransactionUseCase exportTransactionUseCase;
+    private ImportTransactionUseCase importTransactionUseCase;
+    private ExportJobQueue exportJobQueue;
+    private Timer progressTimer;
     
     public ExportController(StatisticsPanel statisticsPanel, 
                            TransactionController transactionController,
                            StatisticsController statisticsController) {
         this.statisticsPanel = statisticsPanel;
         this.transactionController = transactionController;
+        this.statisticsController = statisticsController;
         
-        // Initialize Use Case
+        // Initialize Use Cases
         this.exportTransactionUseCase = new ExportTransactionUseCase(
             transactionController.getQuanLyGiaoDich());
+        this.importTransactionUseCase = new ImportTransactionUseCase(
+            transactionController.getQuanLyGiaoDich());
+        
+        // Hàng đợi job xuất file chạy nền, không chặn EDT
+        this.exportJobQueue = new ExportJobQueue();
+        this.progressTimer = new Timer(PROGRESS_REFRESH_INTERVAL, e -> refreshJobHistory());
         
         setupEventHandlers();
     }
@@ -38,17 +63,18 @@ public class ExportController {
      */
     private void setupEventHandlers() {
         statisticsPanel.getBtnInDanhSach().addActionListener(e -> showExportDialog());
+        statisticsPanel.getBtnNhapJsonl().addActionListener(e -> selectFileAndImport());
+        statisticsPanel.getBtnHuyXuat().addActionListener(e -> handleCancelExport());
+        
+        // Job đổi trạng thái trên worker thread -> cập nhật bảng trên EDT
+        exportJobQueue.addJobListener(job -> SwingUtilities.invokeLater(() -> onJobChanged(job)));
     }
     
     /**
      * Hiển thị dialog chọn loại export
      */
     private void showExportDialog() {
-        String[] options = {
-            "Tất cả giao dịch", 
-            "Giao dịch hiển thị trong bảng", 
-            "Giao dịch + Thống kê tổng hợp"
-        };
+        String[] options = EXPORT_OPTIONS;
         
         int choice = JOptionPane.showOptionDialog(
             statisticsPanel,
@@ -77,8 +103,12 @@ public class ExportController {
         // Thiết lập filter cho các loại file
         FileNameExtensionFilter csvFilter = new FileNameExtensionFilter("CSV files (*.csv)", "csv");
         FileNameExtensionFilter txtFilter = new FileNameExtensionFilter("Text files (*.txt)", "txt");
+        FileNameExtensionFilter jsonlFilter = new FileNameExtensionFilter("JSON Lines (*.jsonl)", "jsonl");
+        FileNameExtensionFilter xlsxFilter = new FileNameExtensionFilter("Excel (*.xlsx)", "xlsx");
         fileChooser.addChoosableFileFilter(csvFilter);
         fileChooser.addChoosableFileFilter(txtFilter);
+        fileChooser.addChoosableFileFilter(jsonlFilter);
+        fileChooser.addChoosableFileFilter(xlsxFilter);
         fileChooser.setFileFilter(csvFilter); // Default to CSV
         
         // Đặt tên file mặc định
@@ -91,39 +121,141 @@ public class ExportController {
             
             // Ensure file has proper extension
             String fileName = selectedFile.getName();
-            if (!fileName.toLowerCase().endsWith(".csv") && !fileName.toLowerCase().endsWith(".txt")) {
-                selectedFile = new File(selectedFile.getParent(), fileName + ".csv");
+            String lowerName = fileName.toLowerCase();
+            if (!lowerName.endsWith(".csv") && !lowerName.endsWith(".txt") 
+                    && !lowerName.endsWith(".jsonl") && !lowerName.endsWith(".xlsx")) {
+                String extension = fileChooser.getFileFilter() == jsonlFilter ? ".jsonl"
+                    : fileChooser.getFileFilter() == xlsxFilter ? ".xlsx"
+                    : fileChooser.getFileFilter() == txtFilter ? ".txt" : ".csv";
+                selectedFile = new File(selectedFile.getParent(), fileName + extension);
             }
             
-            try {
-                // Get transactions to export based on type
-                List<GiaoDich> transactionsToExport = getDataForExport(exportType);
-                
-                // Delegate to Export Use Case
-                exportTransactionUseCase.execute(selectedFile, exportType, transactionsToExport);
-                
-                UIUtils.showSuccess(statisticsPanel, 
-                    "Xuất file thành công!\nĐường dẫn: " + selectedFile.getAbsolutePath());
-                    
-            } catch (Exception e) {
-                UIUtils.showError(statisticsPanel, "Lỗi: " + e.getMessage());
+            submitExportJob(selectedFile, exportType);
+        }
+    }
+    
+    /**
+     * Đưa job export vào hàng đợi chạy nền
+     * Dữ liệu được use case tải trên worker thread, không tải trên EDT
+     */
+    private void submitExportJob(File file, int exportType) {
+        ExportJob job = new ExportJob(file, EXPORT_OPTIONS[exportType]);
+        try {
+            exportJobQueue.submit(job, 
+                j -> exportTransactionUseCase.execute(file, exportType, null, j));
+            progressTimer.start();
+        } catch (Exception e) {
+            UIUtils.showError(statisticsPanel, "Lỗi: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Chọn file .jsonl và đưa job nhập vào cùng hàng đợi với export
+     */
+    private void selectFileAndImport() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Chọn file JSON Lines cần nhập");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("JSON Lines (*.jsonl)", "jsonl"));
+        
+        if (fileChooser.showOpenDialog(statisticsPanel) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        
+        File file = fileChooser.getSelectedFile();
+        ExportJob job = new ExportJob(file, "Nhập JSONL");
+        try {
+            exportJobQueue.submit(job, j -> {
+                ImportResultDTO result = importTransactionUseCase.execute(file, j);
+                SwingUtilities.invokeLater(() -> onImportFinished(file, result));
+            });
+            progressTimer.start();
+        } catch (Exception e) {
+            UIUtils.showError(statisticsPanel, "Lỗi: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Nạp lại dữ liệu và báo kết quả nhập (chạy trên EDT)
+     */
+    private void onImportFinished(File file, ImportResultDTO result) {
+        if (result.getSoDongDaThem() > 0) {
+            transactionController.loadAllTransactions();
+            statisticsController.refreshStatistics();
+        }
+        
+        StringBuilder message = new StringBuilder();
+        message.append("Nhập file ").append(file.getName()).append(":\n")
+               .append("- Đã thêm: ").append(result.getSoDongDaThem()).append(" giao dịch\n")
+               .append("- Trùng mã (bỏ qua): ").append(result.getSoDongTrung()).append("\n")
+               .append("- Dòng lỗi: ").append(result.getSoDongLoi());
+        for (String loi : result.getLoi()) {
+            message.append("\n  ").append(loi);
+        }
+        
+        if (result.getSoDongLoi() > 0) {
+            UIUtils.showWarning(statisticsPanel, message.toString());
+        } else {
+            UIUtils.showSuccess(statisticsPanel, message.toString());
+        }
+    }
+    
+    /**
+     * Hủy job đang chọn trong bảng lịch sử
+     */
+    private void handleCancelExport() {
+        long jobId = statisticsPanel.getSelectedExportJobId();
+        if (jobId < 0) {
+            UIUtils.showWarning(statisticsPanel, "Vui lòng chọn job cần hủy!");
+            return;
+        }
+        
+        for (ExportJob job : exportJobQueue.getHistory()) {
+            if (job.getId() == jobId) {
+                if (job.isFinished()) {
+                    UIUtils.showWarning(statisticsPanel, "Job đã kết thúc, không thể hủy!");
+                } else {
+                    job.cancel();
+                }
+                return;
             }
         }
     }
     
     /**
-     * Lấy dữ liệu để export theo loại
+     * Xử lý khi job đổi trạng thái (chạy trên EDT)
+     */
+    private void onJobChanged(ExportJob job) {
+        refreshJobHistory();
+        
+        if (job.getTrangThai() == ExportJob.TrangThai.LOI) {
+            UIUtils.showError(statisticsPanel, 
+                job.getMoTa() + " thất bại: " + job.getFile().getName() + "\n" + job.getThongBaoLoi());
+        }
+    }
+    
+    /**
+     * Cập nhật bảng lịch sử, dừng timer khi không còn job đang chạy
      */
-    private List<GiaoDich> getDataForExport(int exportType) {
-        switch (exportType) {
-            case 0: // Tất cả giao dịch
-                return transactionController.getAllTransactions();
-            case 1: // Giao dịch hiển thị trong bảng
-            case 2: // Giao dịch + thống kê
-                // Hiện tại trả về tất cả, có thể mở rộng để lấy từ filter
-                return transactionController.getAllTransactions();
-            default:
-                return transactionController.getAllTransactions();
+    private void refreshJobHistory() {
+        statisticsPanel.displayExportJobs(exportJobQueue.getHistory());
+        if (!exportJobQueue.hasActiveJobs()) {
+            progressTimer.stop();
         }
     }
+    
+    /**
+     * Còn job export/nhập chưa kết thúc (đang chờ hoặc đang chạy)
+     */
+    public boolean hasActiveJobs() {
+        return exportJobQueue.hasActiveJobs();
+    }
+    
+    /**
+     * Dừng hàng đợi export (gọi khi đóng ứng dụng), chờ các job đang chạy
+     * dừng và xóa file dở dang
+     */
+    public void shutdown() {
+        progressTimer.stop();
+        exportJobQueue.shutdown();
+    }
 }
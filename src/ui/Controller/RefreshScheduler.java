@@ -0,0 +1,81 @@
+// Lập lịch làm mới: gom nhiều yêu cầu liên tiếp thành một lần chạy
+package ui.Controller;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import javax.swing.Timer;
+
+/**
+ * Mọi phương thức gọi từ EDT:
+ * - requestRefresh chỉ đánh dấu "cần làm mới" và đặt lại đồng hồ debounce,
+ *   một loạt yêu cầu sát nhau chỉ dẫn đến một lần làm mới
+ * - không bao giờ có hai lần làm mới chạy cùng lúc: yêu cầu đến khi đang chạy
+ *   được dồn lại thành một lần chạy tiếp theo sau khi lần hiện tại xong
+ * - khi canRun trả về false (ví dụ tab đang ẩn) thì hoãn lại, gọi resume khi
+ *   điều kiện thỏa để chạy phần còn nợ
+ * refreshAction nhận một callback và phải gọi nó đúng một lần khi làm mới xong
+ * (kể cả khi lỗi).
+ */
+public class RefreshScheduler {
+
+    private final Timer debounceTimer;
+    private final BooleanSupplier canRun;
+    private final Consumer<Runnable> refreshAction;
+
+    private boolean dirty;
+    private boolean running;
+
+    public RefreshScheduler(int debounceMillis, BooleanSupplier canRun, Consumer<Runnable> refreshAction) {
+        this.canRun = canRun;
+        this.refreshAction = refreshAction;
+        this.debounceTimer = new Timer(Math.max(debounceMillis, 0), e -> runIfNeeded());
+        this.debounceTimer.setRepeats(false);
+    }
+
+    /**
+     * Báo dữ liệu đã thay đổi; làm mới sau khoảng debounce tính từ yêu cầu cuối
+     */
+    public void requestRefresh() {
+        dirty = true;
+        debounceTimer.restart();
+    }
+
+    /**
+     * Chạy phần làm mới bị hoãn (gọi khi canRun có thể đã chuyển sang true)
+     */
+    public void resume() {
+        if (dirty && !debounceTimer.isRunning()) {
+            runIfNeeded();
+        }
+    }
+
+    /**
+     * Đang có lần làm mới chưa xong
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void stop() {
+        debounceTimer.stop();
+        dirty = false;
+    }
+
+    private void runIfNeeded() {
+        if (!dirty || running || !canRun.getAsBoolean()) {
+            // Đang chạy: onFinished sẽ lên lịch lại; bị ẩn: chờ resume
+            return;
+        }
+        dirty = false;
+        running = true;
+        refreshAction.accept(this::onFinished);
+    }
+
+    private void onFinished() {
+        running = false;
+        if (dirty) {
+            debounceTimer.restart();
+        }
+    }
+}
@@ -1,33 +1,80 @@
 // Controller xử lý logic thống kê
 package ui.Controller;
 
+import java.awt.event.HierarchyEvent;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import javax.swing.Timer;
+
+import config.UIConfig;
 import dto.ThongKeDTO;
+import exception.BusinessException;
 import model.GiaoDich;
+import model.GiaoDichVang;
 import service.QuanLyGiaoDich;
+import service.ThanhTien;
 import ui.Panels.StatisticsPanel;
 import ui.Utils.UIUtils;
-import usecase.AverageValueOfCurrencyTransactionsUseCase;
 import usecase.ViewStatisticsUseCase;
 
 public class StatisticsController {
+    private static final Logger LOGGER = Logger.getLogger(StatisticsController.class.getName());
+    
+    // Khóa tác vụ nền: bấm liên tục các nút thống kê thì chỉ kết quả cuối được hiển thị
+    private static final String TASK_VIEW = "statistics.view";
+    private static final String TASK_DISTRIBUTION = "statistics.distribution";
+    private static final String TASK_BREAKDOWN = "statistics.breakdown";
+    private static final String TASK_PRICE_BOARD = "statistics.priceBoard";
     
     private StatisticsPanel statisticsPanel;
+    private AsyncTaskExecutor asyncExecutor;
     private ViewStatisticsUseCase viewStatisticsUseCase;
-    private AverageValueOfCurrencyTransactionsUseCase avgCurrencyUseCase;
     
-    public StatisticsController(QuanLyGiaoDich quanLyGiaoDich, StatisticsPanel statisticsPanel) {
+    // Thống kê đang hiển thị: cập nhật theo chênh lệch khi thêm/sửa/xóa (chỉ dùng trên EDT)
+    private ThongKeDTO currentThongKe;
+    private LocalDate viewTuNgay; // null: không giới hạn
+    private LocalDate viewDenNgay;
+    private Consumer<ThongKeDTO> currentRenderer;
+    private boolean viewPending;
+    private long viewGeneration; // tăng mỗi lần người dùng chọn kiểu thống kê
+    
+    // Danh sách đơn giá lớn đang hiển thị, sắp xếp theo đơn giá giảm dần như truy vấn
+    private List<GiaoDich> highValueTransactions;
+    private boolean highValuePending;
+    private long highValueGeneration;
+    private CursorStreamWorker highValueStream;
+    
+    // Đã tải lần đầu (khi tab thống kê được mở lần đầu)
+    private boolean initialLoadDone;
+    // Thống kê tổng quan từ bản lưu cục bộ: hiển thị tạm trong lúc tải lần đầu
+    private ThongKeDTO cachedThongKe;
+    
+    // Làm mới khi dữ liệu đổi từ bên ngoài: gom yêu cầu, không chạy chồng, bỏ qua khi tab ẩn
+    private final RefreshScheduler refreshScheduler;
+    
+    public StatisticsController(QuanLyGiaoDich quanLyGiaoDich, StatisticsPanel statisticsPanel,
+                                AsyncTaskExecutor asyncExecutor) {
         this.statisticsPanel = statisticsPanel;
+        this.asyncExecutor = asyncExecutor;
         
         // Initialize Use Case theo Clean Architecture (UC9)
         this.viewStatisticsUseCase = new ViewStatisticsUseCase(quanLyGiaoDich);
-        this.avgCurrencyUseCase = new AverageValueOfCurrencyTransactionsUseCase(quanLyGiaoDich);
         
+        this.refreshScheduler = new RefreshScheduler(UIConfig.STATISTICS_REFRESH_DEBOUNCE_MS,
+            statisticsPanel::isShowing, this::runScheduledRefresh);
+        
+        // Tab thống kê không hiện lúc mở ứng dụng: tải lần đầu khi tab được mở
         setupEventHandlers();
-        handleUpdateGeneralStatistics();
-    }    /**
+    }
+    
+    /**
      * Thiết lập các event handler
      */
     private void setupEventHandlers() {
@@ -45,6 +92,27 @@ public class StatisticsController {
         
         // Xử lý sự kiện thống kê theo ngày
         statisticsPanel.getBtnThongKeTheoNgay().addActionListener(e -> handleDateStatistics());
+        
+        // Dừng đọc dần bảng đơn giá lớn
+        statisticsPanel.getBtnDungTaiDonGiaLon().addActionListener(e -> stopHighValueStream());
+        
+        // Tab thống kê hiện ra: lần đầu thì tải thống kê tổng quan (đã gồm mọi thay đổi
+        // trước đó), các lần sau chạy lần làm mới đã bị hoãn khi tab ẩn
+        statisticsPanel.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && statisticsPanel.isShowing()) {
+                if (!initialLoadDone) {
+                    initialLoadDone = true;
+                    refreshScheduler.stop();
+                    if (cachedThongKe != null) {
+                        displayGeneralStatistics(cachedThongKe);
+                        cachedThongKe = null;
+                    }
+                    handleUpdateGeneralStatistics();
+                } else {
+                    refreshScheduler.resume();
+                }
+            }
+        });
     }
     
     /**
@@ -52,18 +120,34 @@ public class StatisticsController {
      * Sử dụng ViewStatisticsUseCase theo Clean Architecture (UC9)
      */
     private void handleUpdateGeneralStatistics() {
-        try {
-            // Delegate to View Statistics Use Case (UC9)
-            ThongKeDTO thongKe = viewStatisticsUseCase.executeGeneralStatistics();
-            // Lấy giá trị trung bình thành tiền tiền tệ (UC10)
-            java.math.BigDecimal avg = avgCurrencyUseCase.execute();
+        startView(null, null);
+        asyncExecutor.submit(TASK_VIEW, statisticsPanel,
+            () -> {
+                // Delegate to View Statistics Use Case (UC9); thống kê đã gồm
+                // trung bình thành tiền tiền tệ (UC10), không cần tính lại
+                return viewStatisticsUseCase.executeGeneralStatistics();
+            },
             // Hiển thị thống kê tổng quan kèm giá trị trung bình
-            statisticsPanel.displayStatistics(thongKe, "TỔNG QUAN\nTrung bình thành tiền tiền tệ: " + ui.Utils.UIUtils.formatCurrency(avg) + " VNĐ");
-            // Load giao dịch đơn giá lớn (tích hợp UC8)
-            loadHighValueTransactions();
-        } catch (Exception ex) {
-            UIUtils.showError(statisticsPanel, "Lỗi khi tải thống kê: " + ex.getMessage());
-        }
+            thongKe -> {
+                showView(thongKe, this::displayGeneralStatistics);
+                displayGeneralStatistics(thongKe);
+            },
+            ex -> {
+                viewPending = false;
+                UIUtils.showError(statisticsPanel, "Lỗi khi tải thống kê: " + ex.getMessage());
+            });
+        
+        // Load giao dịch đơn giá lớn (tích hợp UC8)
+        loadHighValueTransactions();
+    }
+    
+    private void displayGeneralStatistics(ThongKeDTO thongKe) {
+        displayGeneralStatistics(thongKe, thongKe.getTrungBinhThanhTienTienTe());
+    }
+    
+    private void displayGeneralStatistics(ThongKeDTO thongKe, BigDecimal trungBinhTienTe) {
+        statisticsPanel.displayStatistics(thongKe, 
+            "TỔNG QUAN\nTrung bình thành tiền tiền tệ: " + UIUtils.formatCurrency(trungBinhTienTe) + " VNĐ");
     }
     
     /**
@@ -71,17 +155,14 @@ public class StatisticsController {
      * Sử dụng ViewStatisticsUseCase theo Clean Architecture (UC9)
      */
     private void handleTodayStatistics() {
-        try {
-            // Delegate to View Statistics Use Case (UC9)
-            ThongKeDTO thongKe = viewStatisticsUseCase.executeTodayStatistics();
-            statisticsPanel.displayTodayStatistics(thongKe);
-            
-            // Vẫn hiển thị tất cả giao dịch đơn giá lớn
-            loadHighValueTransactions();
-            
-        } catch (Exception ex) {
-            UIUtils.showError(statisticsPanel, "Lỗi khi tải thống kê hôm nay: " + ex.getMessage());
-        }
+        LocalDate homNay = LocalDate.now();
+        submitRangeView(homNay, homNay,
+            viewStatisticsUseCase::executeTodayStatistics,
+            statisticsPanel::displayTodayStatistics,
+            "Lỗi khi tải thống kê hôm nay: ");
+        
+        // Vẫn hiển thị tất cả giao dịch đơn giá lớn
+        loadHighValueTransactions();
     }
     
     /**
@@ -89,17 +170,14 @@ public class StatisticsController {
      * Sử dụng ViewStatisticsUseCase theo Clean Architecture (UC9)
      */
     private void handleMonthStatistics() {
-        try {
-            // Delegate to View Statistics Use Case (UC9)
-            ThongKeDTO thongKe = viewStatisticsUseCase.executeCurrentMonthStatistics();
-            statisticsPanel.displayMonthStatistics(thongKe);
-            
-            // Vẫn hiển thị tất cả giao dịch đơn giá lớn
-            loadHighValueTransactions();
-            
-        } catch (Exception ex) {
-            UIUtils.showError(statisticsPanel, "Lỗi khi tải thống kê tháng này: " + ex.getMessage());
-        }
+        LocalDate dauThang = LocalDate.now().withDayOfMonth(1);
+        submitRangeView(dauThang, dauThang.withDayOfMonth(dauThang.lengthOfMonth()),
+            viewStatisticsUseCase::executeCurrentMonthStatistics,
+            statisticsPanel::displayMonthStatistics,
+            "Lỗi khi tải thống kê tháng này: ");
+        
+        // Vẫn hiển thị tất cả giao dịch đơn giá lớn
+        loadHighValueTransactions();
     }
     
     /**
@@ -114,49 +192,324 @@ public class StatisticsController {
      * Sử dụng ViewStatisticsUseCase theo Clean Architecture (UC9)
      */
     private void handleDateStatistics() {
+        LocalDate ngayChon;
         try {
             String ngayStr = statisticsPanel.getSelectedDate();
-            LocalDate ngayChon = UIUtils.parseDate(ngayStr);
-            
-            // Delegate to View Statistics Use Case (UC9)
-            ThongKeDTO thongKe = viewStatisticsUseCase.executeDateStatistics(ngayChon);
-            statisticsPanel.displayDateStatistics(thongKe, ngayChon);
-            
-            // Vẫn hiển thị tất cả giao dịch đơn giá lớn
-            loadHighValueTransactions();
-            
+            ngayChon = UIUtils.parseDate(ngayStr);
         } catch (Exception ex) {
             UIUtils.showError(statisticsPanel, 
                 "Lỗi khi tải thống kê theo ngày: " + ex.getMessage() + 
                 "\nVui lòng nhập đúng định dạng yyyy-MM-dd");
+            return;
         }
+        
+        submitRangeView(ngayChon, ngayChon,
+            () -> viewStatisticsUseCase.executeDateStatistics(ngayChon),
+            thongKe -> statisticsPanel.displayDateStatistics(thongKe, ngayChon),
+            "Lỗi khi tải thống kê theo ngày: ");
+        
+        // Vẫn hiển thị tất cả giao dịch đơn giá lớn
+        loadHighValueTransactions();
+    }
+    
+    /**
+     * Tải thống kê của một khoảng ngày và ghi nhớ cách hiển thị để cập nhật về sau
+     */
+    private void submitRangeView(LocalDate tuNgay, LocalDate denNgay,
+                                 AsyncTaskExecutor.BackgroundTask<ThongKeDTO> task,
+                                 Consumer<ThongKeDTO> renderer, String errorPrefix) {
+        startView(tuNgay, denNgay);
+        asyncExecutor.submit(TASK_VIEW, statisticsPanel, task,
+            thongKe -> {
+                showView(thongKe, renderer);
+                renderer.accept(thongKe);
+            },
+            ex -> {
+                viewPending = false;
+                UIUtils.showError(statisticsPanel, errorPrefix + ex.getMessage());
+            });
+    }
+    
+    private void startView(LocalDate tuNgay, LocalDate denNgay) {
+        viewTuNgay = tuNgay;
+        viewDenNgay = denNgay;
+        viewPending = true;
+        viewGeneration++;
+    }
+    
+    private void showView(ThongKeDTO thongKe, Consumer<ThongKeDTO> renderer) {
+        viewPending = false;
+        currentThongKe = thongKe;
+        currentRenderer = renderer;
+        loadViewDetails();
+    }
+    
+    /**
+     * Tải phần chi tiết của khoảng ngày đang xem:
+     * - Phân vị thành tiền: gộp sketch theo ngày trong bộ nhớ
+     * - Thống kê theo loại vàng/loại tiền: một câu GROUP BY trên chỉ mục
+     * - Bảng giá và vị thế: chuỗi giá và vị thế trong bộ nhớ (không theo khoảng ngày)
+     * Đủ rẻ để gọi lại sau mỗi thay đổi; gọi liên tiếp thì chỉ kết quả cuối được hiển thị
+     */
+    private void loadViewDetails() {
+        LocalDate tuNgay = viewTuNgay;
+        LocalDate denNgay = viewDenNgay;
+        asyncExecutor.submit(TASK_DISTRIBUTION, statisticsPanel,
+            () -> viewStatisticsUseCase.executeThanhTienDistribution(tuNgay, denNgay),
+            statisticsPanel::displayDistribution,
+            ex -> LOGGER.log(Level.WARNING, "Không thể tải phân phối thành tiền", ex));
+        asyncExecutor.submit(TASK_BREAKDOWN, statisticsPanel,
+            () -> viewStatisticsUseCase.executeBreakdownStatistics(tuNgay, denNgay),
+            statisticsPanel::displayBreakdown,
+            ex -> LOGGER.log(Level.WARNING, "Không thể tải thống kê theo loại vàng/loại tiền", ex));
+        loadPriceBoard();
     }
     
     /**
-     * Load danh sách giao dịch đơn giá lớn
+     * Tải bảng giá và vị thế; chuỗi giá hoặc vị thế còn đang được dựng nền thì báo trạng thái và thử lại sau
+     * UIConfig.STATISTICS_NOT_READY_RETRY_MS (lần tải mới hơn thay thế lần thử lại)
+     */
+    private void loadPriceBoard() {
+        asyncExecutor.submit(TASK_PRICE_BOARD, statisticsPanel,
+            () -> viewStatisticsUseCase.executePriceBoard(UIConfig.STATISTICS_MOVING_AVERAGE_DAYS),
+            statisticsPanel::displayPriceBoard,
+            ex -> {
+                if (isNotReady(ex)) {
+                    statisticsPanel.showPriceBoardLoading();
+                    retryLater(this::loadPriceBoard);
+                } else {
+                    LOGGER.log(Level.WARNING, "Không thể tải bảng giá và vị thế", ex);
+                }
+            });
+    }
+    
+    private static boolean isNotReady(Exception ex) {
+        return ex instanceof BusinessException && "NOT_READY".equals(((BusinessException) ex).getErrorCode());
+    }
+    
+    private static void retryLater(Runnable task) {
+        Timer timer = new Timer(UIConfig.STATISTICS_NOT_READY_RETRY_MS, e -> task.run());
+        timer.setRepeats(false);
+        timer.start();
+    }
+    
+    /**
+     * Load danh sách giao dịch đơn giá lớn: đọc dần theo đơn giá giảm dần,
+     * các dòng đầu hiện ngay, phần còn lại được nối vào bảng khi về
      * Sử dụng ViewStatisticsUseCase để tích hợp UC8 và UC9
      */
     private void loadHighValueTransactions() {
-        try {
-            // Delegate to View Statistics Use Case (UC9) which integrates with UC8
-            List<GiaoDich> donGiaLon = viewStatisticsUseCase.executeHighValueTransactions();
-            statisticsPanel.loadHighValueTransactions(donGiaLon);
-            
-        } catch (Exception ex) {
-            UIUtils.showError(statisticsPanel, "Lỗi: " + ex.getMessage());
+        stopHighValueStream();
+        highValuePending = true;
+        long generation = ++highValueGeneration;
+        List<GiaoDich> loading = new ArrayList<>();
+        highValueTransactions = loading;
+        statisticsPanel.loadHighValueTransactions(loading);
+        statisticsPanel.showHighValueLoadingProgress(0);
+        
+        // Delegate to View Statistics Use Case (UC9) which integrates with UC8
+        highValueStream = new CursorStreamWorker(viewStatisticsUseCase::openHighValueCursor,
+            chunk -> {
+                if (generation == highValueGeneration) {
+                    loading.addAll(chunk);
+                    statisticsPanel.appendHighValueTransactions(chunk);
+                    statisticsPanel.showHighValueLoadingProgress(loading.size());
+                }
+            },
+            (total, stopped) -> {
+                if (generation == highValueGeneration) {
+                    finishHighValueStream();
+                    statisticsPanel.showHighValueLoadingFinished(total, stopped);
+                }
+            },
+            ex -> {
+                if (generation == highValueGeneration) {
+                    finishHighValueStream();
+                    statisticsPanel.showHighValueLoadingFinished(loading.size(), false);
+                    UIUtils.showError(statisticsPanel, "Lỗi: " + ex.getMessage());
+                }
+            });
+        highValueStream.execute();
+    }
+    
+    /**
+     * Dừng đọc dần bảng đơn giá lớn (nút "Dừng tải"): giữ các dòng đã hiển thị
+     */
+    private void stopHighValueStream() {
+        if (highValueStream != null) {
+            highValueStream.stop();
+        }
+    }
+    
+    private void finishHighValueStream() {
+        highValueStream = null;
+        highValuePending = false;
+    }
+    
+    /**
+     * Cập nhật thống kê sau một thao tác ghi đã thành công, không truy vấn lại:
+     * trừ phần của bản cũ, cộng phần của bản mới (nếu thuộc khoảng ngày đang xem),
+     * tính lại trung bình từ tổng và số lượng.
+     * before == null: thêm mới; after == null: xóa. Gọi từ EDT.
+     */
+    public void applyChange(GiaoDich before, GiaoDich after) {
+        boolean loading = viewPending || highValuePending || refreshScheduler.isRunning();
+        if (currentThongKe == null || highValueTransactions == null || loading) {
+            // Chưa có số liệu, hoặc kết quả đang tải có thể chưa gồm thay đổi này
+            refreshScheduler.requestRefresh();
+            return;
+        }
+        
+        addContribution(currentThongKe, before, -1);
+        addContribution(currentThongKe, after, 1);
+        currentThongKe.setTrungBinhThanhTienTienTe(average(
+            currentThongKe.getTongThanhTienTienTe(), currentThongKe.getTongSoLuongTienTe()));
+        currentRenderer.accept(currentThongKe);
+        loadViewDetails();
+        
+        applyHighValueChange(before, after);
+    }
+    
+    private void addContribution(ThongKeDTO thongKe, GiaoDich gd, int sign) {
+        if (gd == null || !isInView(gd.getNgayGiaoDich())) {
+            return;
+        }
+        BigDecimal thanhTien = sign > 0 ? ThanhTien.tinh(gd) : ThanhTien.tinh(gd).negate();
+        if (gd instanceof GiaoDichVang) {
+            thongKe.setTongSoLuongVang(thongKe.getTongSoLuongVang() + sign);
+            thongKe.setTongThanhTienVang(thongKe.getTongThanhTienVang().add(thanhTien));
+        } else {
+            thongKe.setTongSoLuongTienTe(thongKe.getTongSoLuongTienTe() + sign);
+            thongKe.setTongThanhTienTienTe(thongKe.getTongThanhTienTienTe().add(thanhTien));
+        }
+        if (gd.isDonGiaLonHon1Ty()) {
+            thongKe.setSoGiaoDichDonGiaLonHon1Ty(thongKe.getSoGiaoDichDonGiaLonHon1Ty() + sign);
+        }
+    }
+    
+    private boolean isInView(LocalDate ngay) {
+        return viewTuNgay == null
+            || (!ngay.isBefore(viewTuNgay) && !ngay.isAfter(viewDenNgay));
+    }
+    
+    private static BigDecimal average(BigDecimal tong, long soLuong) {
+        if (soLuong <= 0) {
+            return BigDecimal.ZERO;
+        }
+        return tong.divide(BigDecimal.valueOf(soLuong), 2, RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Bảng đơn giá lớn luôn là toàn bộ dữ liệu: bỏ dòng cũ, chèn dòng mới đúng thứ tự
+     */
+    private void applyHighValueChange(GiaoDich before, GiaoDich after) {
+        if (before != null && before.isDonGiaLonHon1Ty()) {
+            for (int i = 0; i < highValueTransactions.size(); i++) {
+                if (highValueTransactions.get(i).getMaGiaoDich().equals(before.getMaGiaoDich())) {
+                    highValueTransactions.remove(i);
+                    statisticsPanel.removeHighValueTransaction(i);
+                    break;
+                }
+            }
         }
+        if (after != null && after.isDonGiaLonHon1Ty()) {
+            int row = 0;
+            while (row < highValueTransactions.size()
+                    && highValueTransactions.get(row).getDonGia().compareTo(after.getDonGia()) >= 0) {
+                row++;
+            }
+            highValueTransactions.add(row, after);
+            statisticsPanel.insertHighValueTransaction(row, after);
+        }
+    }
+    
+    /**
+     * Thống kê tổng quan đọc từ bản lưu cục bộ, hiển thị ngay khi tab được mở lần đầu
+     * (số liệu thật được tải ngay sau đó)
+     */
+    public void setCachedGeneralStatistics(ThongKeDTO thongKe) {
+        if (!initialLoadDone) {
+            cachedThongKe = thongKe;
+        }
+    }
+    
+    /**
+     * Thống kê tổng quan đang hiển thị để lưu vào bản lưu cục bộ, null nếu đang xem
+     * kiểu thống kê khác hoặc chưa tải xong
+     */
+    public ThongKeDTO getGeneralStatisticsForSnapshot() {
+        return currentThongKe != null && viewTuNgay == null && !viewPending ? currentThongKe : null;
     }
     
     /**
-     * Refresh thống kê (gọi từ bên ngoài khi có thay đổi dữ liệu)
+     * Refresh thống kê (gọi từ bên ngoài khi có thay đổi dữ liệu).
+     * Chỉ đặt lịch: nhiều lần gọi liên tiếp được gom thành một lần làm mới.
      */
     public void refreshStatistics() {
-        handleUpdateGeneralStatistics();
+        refreshScheduler.requestRefresh();
+    }
+    
+    /**
+     * Một lần làm mới theo lịch: tải lại kiểu thống kê đang xem và bảng đơn giá lớn
+     * trong cùng một tác vụ nền. Kết quả bị bỏ nếu người dùng đã chọn xem kiểu khác
+     * trong lúc chờ. onDone luôn được gọi đúng một lần.
+     */
+    private void runScheduledRefresh(Runnable onDone) {
+        LocalDate tuNgay = viewTuNgay;
+        LocalDate denNgay = viewDenNgay;
+        boolean tongQuan = currentRenderer == null || tuNgay == null;
+        Consumer<ThongKeDTO> renderer = tongQuan ? this::displayGeneralStatistics : currentRenderer;
+        long viewAt = viewGeneration;
+        long highValueAt = highValueGeneration;
+        
+        asyncExecutor.run(statisticsPanel,
+            () -> {
+                ThongKeDTO thongKe = tongQuan
+                    ? viewStatisticsUseCase.executeGeneralStatistics()
+                    : viewStatisticsUseCase.executeDateRangeStatistics(tuNgay, denNgay);
+                List<GiaoDich> highValue = viewStatisticsUseCase.executeHighValueTransactions();
+                return new LamMoi(thongKe, highValue);
+            },
+            lamMoi -> {
+                if (viewAt == viewGeneration) {
+                    showView(lamMoi.thongKe, renderer);
+                    renderer.accept(lamMoi.thongKe);
+                }
+                if (highValueAt == highValueGeneration) {
+                    // Lần đọc dần còn dở (nếu có) sẽ nối trùng vào danh sách mới: dừng và bỏ qua
+                    stopHighValueStream();
+                    highValueGeneration++;
+                    finishHighValueStream();
+                    statisticsPanel.showHighValueLoadingFinished(lamMoi.highValue.size(), false);
+                    highValueTransactions = new ArrayList<>(lamMoi.highValue);
+                    statisticsPanel.loadHighValueTransactions(highValueTransactions);
+                }
+                onDone.run();
+            },
+            ex -> {
+                // Không hiện hộp thoại cho lần làm mới tự động; lần sau sẽ thử lại
+                LOGGER.log(Level.WARNING, "Không thể làm mới thống kê", ex);
+                onDone.run();
+            });
+    }
+    
+    /**
+     * Kết quả một lần làm mới theo lịch
+     */
+    private static class LamMoi {
+        final ThongKeDTO thongKe;
+        final List<GiaoDich> highValue;
+        
+        LamMoi(ThongKeDTO thongKe, List<GiaoDich> highValue) {
+            this.thongKe = thongKe;
+            this.highValue = highValue;
+        }
     }
     
     /**
      * Lấy thống kê tổng quan
      * Sử dụng ViewStatisticsUseCase theo Clean Architecture (UC9)
+     * Truy vấn đồng bộ: không gọi từ EDT
      */
     public ThongKeDTO getGeneralStatistics() {
         try {
@@ -1,20 +1,29 @@
 // Controller xử lý các thao tác CRUD cho giao dịch với thiết kế module
 package ui.Controller;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.swing.JOptionPane;
 
 import dto.GiaoDichFormDTO;
+import dto.ThongKeDTO;
+import exception.BusinessException;
 import model.GiaoDich;
-import model.GiaoDichTienTe;
 import model.GiaoDichVang;
 import service.QuanLyGiaoDich;
+import service.paging.GiaoDichIdIndex;
+import service.paging.ListPagedDataSource;
+import service.paging.PagedDataSource;
+import service.snapshot.GiaoDichSnapshot;
 import ui.Panels.CurrencyTransactionFormPanel;
 import ui.Panels.GoldTransactionFormPanel;
 import ui.Panels.TransactionTabPanel;
+import ui.Panels.TransactionTableModel;
 import ui.Panels.TransactionTablePanel;
 import ui.Utils.UIUtils;
 import usecase.DeleteTransactionUseCase;
@@ -22,8 +31,14 @@ import usecase.EditTransactionUseCase;
 import usecase.OpenAddTransactionFormUseCase;
 import usecase.SubmitAddTransactionUseCase;
 import usecase.SubmitEditTransactionUseCase;
+import usecase.WarmStartUseCase;
+import utils.StartupTimer;
 
 public class TransactionController {
+    private static final Logger LOGGER = Logger.getLogger(TransactionController.class.getName());
+    
+    // Khóa tác vụ nền: yêu cầu mới thay thế yêu cầu cũ cùng khóa
+    private static final String TASK_OPEN_EDIT = "transactions.openEdit";
     
     private QuanLyGiaoDich quanLyGiaoDich;
     private TransactionTabPanel tabPanel;
@@ -31,6 +46,7 @@ public class TransactionController {
     private CurrencyTransactionFormPanel currencyFormPanel;
     private TransactionTablePanel tablePanel;
     private StatisticsController statisticsController; // Để refresh stats khi cần
+    private AsyncTaskExecutor asyncExecutor; // Truy cập dữ liệu trên thread nền
     
     // Use Cases
     private OpenAddTransactionFormUseCase openAddTransactionFormUseCase;
@@ -38,21 +54,35 @@ public class TransactionController {
     private EditTransactionUseCase editTransactionUseCase;
     private SubmitEditTransactionUseCase submitEditTransactionUseCase;
     private DeleteTransactionUseCase deleteTransactionUseCase;
+    private WarmStartUseCase warmStartUseCase;
     
-    // Danh sách giao dịch hiện tại (để filter theo loại)
-    private List<GiaoDich> allTransactions;
+    // Mỗi loại giao dịch một model riêng (danh sách theo ngày giảm dần, cập nhật tại chỗ);
+    // chuyển tab chỉ đổi model của bảng, không lọc hay định dạng lại
+    private final TransactionTableModel goldTableModel = new TransactionTableModel();
+    private final TransactionTableModel currencyTableModel = new TransactionTableModel();
     private String currentFilterType = "VANG"; // Mặc định hiển thị giao dịch vàng
     
+    // Đang đọc dần dữ liệu: thay đổi tại chỗ có thể bị phần chưa đọc ghi đè
+    private boolean loadPending;
+    private CursorStreamWorker loadStream;
+    private long loadGeneration; // tăng mỗi lần tải, phần đến từ lần tải cũ bị bỏ qua
+    
+    // Mốc updated_at của dữ liệu trong các model; null khi chưa phải bản đầy đủ
+    // (đang tải, bị dừng giữa chừng, lỗi) và khi đó không lưu bản lưu cục bộ
+    private LocalDateTime loadedWatermark;
+    
     public TransactionController(TransactionTabPanel tabPanel, 
                                GoldTransactionFormPanel goldFormPanel,
                                CurrencyTransactionFormPanel currencyFormPanel,
                                TransactionTablePanel tablePanel,
-                               QuanLyGiaoDich quanLyGiaoDich) {
+                               QuanLyGiaoDich quanLyGiaoDich,
+                               AsyncTaskExecutor asyncExecutor) {
         this.tabPanel = tabPanel;
         this.goldFormPanel = goldFormPanel;
         this.currencyFormPanel = currencyFormPanel;
         this.tablePanel = tablePanel;
         this.quanLyGiaoDich = quanLyGiaoDich; // Inject service từ MainFrame
+        this.asyncExecutor = asyncExecutor;
         
         // Initialize Use Cases
         this.openAddTransactionFormUseCase = new OpenAddTransactionFormUseCase(
@@ -62,9 +92,10 @@ public class TransactionController {
             quanLyGiaoDich, goldFormPanel, currencyFormPanel);
         this.submitEditTransactionUseCase = new SubmitEditTransactionUseCase(quanLyGiaoDich);
         this.deleteTransactionUseCase = new DeleteTransactionUseCase(quanLyGiaoDich);
+        this.warmStartUseCase = new WarmStartUseCase(quanLyGiaoDich);
         
         setupEventHandlers();
-        loadAllTransactions();
+        loadInitialTransactions();
     }
     
     /**
@@ -122,6 +153,9 @@ public class TransactionController {
         
         // Xử lý sự kiện nút thêm trong bảng
         tablePanel.setAddActionListener(this::handleAddButtonClick);
+        
+        // Dừng đọc dần dữ liệu
+        tablePanel.setStopLoadingListener(this::stopLoading);
     }
     
     /**
@@ -144,24 +178,73 @@ public class TransactionController {
     }
     
     /**
-     * Filter và hiển thị giao dịch theo loại
+     * Hiển thị giao dịch theo loại: chỉ đổi sang model đã phân loại sẵn
      */
     private void filterAndDisplayTransactions() {
-        if (allTransactions == null) return;
-        
-        List<GiaoDich> filteredTransactions;
-        
-        if ("VANG".equals(currentFilterType)) {
-            filteredTransactions = allTransactions.stream()
-                    .filter(gd -> gd instanceof GiaoDichVang)
-                    .collect(Collectors.toList());
-        } else {
-            filteredTransactions = allTransactions.stream()
-                    .filter(gd -> gd instanceof GiaoDichTienTe)
-                    .collect(Collectors.toList());
+        tablePanel.setTableModel(modelFor(currentFilterType));
+    }
+    
+    private TransactionTableModel modelFor(String type) {
+        return "VANG".equals(type) ? goldTableModel : currencyTableModel;
+    }
+    
+    private TransactionTableModel modelFor(GiaoDich gd) {
+        return gd instanceof GiaoDichVang ? goldTableModel : currencyTableModel;
+    }
+    
+    /**
+     * Nối một phần dữ liệu đang đọc dần (ngày giảm dần) vào model của từng loại,
+     * giữ nguyên thứ tự
+     */
+    private void appendLoaded(List<GiaoDich> chunk) {
+        List<GiaoDich> vang = new ArrayList<>();
+        List<GiaoDich> tienTe = new ArrayList<>();
+        for (GiaoDich gd : chunk) {
+            if (gd instanceof GiaoDichVang) {
+                vang.add(gd);
+            } else {
+                tienTe.add(gd);
+            }
         }
+        goldTableModel.appendTransactions(vang);
+        currencyTableModel.appendTransactions(tienTe);
+    }
+    
+    /**
+     * Model rỗng có thể nhận dữ liệu nối thêm, chỉ mục mã được cập nhật theo từng phần
+     */
+    private static void resetModel(TransactionTableModel model) {
+        ListPagedDataSource<GiaoDich> source = new ListPagedDataSource<>(new ArrayList<>());
+        model.setDataSource(source, GiaoDichIdIndex.build(source));
+    }
+    
+    /**
+     * Hiển thị dữ liệu đã chuẩn bị sẵn (từ bản lưu cục bộ) trong một lần đổi nguồn
+     */
+    private void showTableData(DuLieuBang duLieu) {
+        tablePanel.cancelEditing();
+        goldTableModel.setDataSource(duLieu.vang, duLieu.vangIndex);
+        currencyTableModel.setDataSource(duLieu.tienTe, duLieu.tienTeIndex);
+        filterAndDisplayTransactions();
+    }
+    
+    /**
+     * Dữ liệu của hai model tạo từ bản lưu: danh sách sửa được và chỉ mục mã (tạo trên thread nền)
+     */
+    private static class DuLieuBang {
+        final GiaoDichSnapshot snapshot;
+        final ListPagedDataSource<GiaoDich> vang;
+        final ListPagedDataSource<GiaoDich> tienTe;
+        final GiaoDichIdIndex vangIndex;
+        final GiaoDichIdIndex tienTeIndex;
         
-        tablePanel.loadTransactions(filteredTransactions);
+        DuLieuBang(GiaoDichSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.vang = new ListPagedDataSource<>(new ArrayList<>(snapshot.getGiaoDichVang()));
+            this.tienTe = new ListPagedDataSource<>(new ArrayList<>(snapshot.getGiaoDichTienTe()));
+            this.vangIndex = GiaoDichIdIndex.build(vang);
+            this.tienTeIndex = GiaoDichIdIndex.build(tienTe);
+        }
     }
     
     /**
@@ -172,24 +255,17 @@ public class TransactionController {
      * Sử dụng SubmitAddTransactionUseCase theo Clean Architecture
      */
     private void handleAddTransaction(GiaoDichFormDTO dto) {
-        try {
-            // Delegate to Submit Use Case
-            submitAddTransactionUseCase.execute(dto);
-            
-            // Hiển thị thông báo thành công
-            UIUtils.showSuccess(tablePanel, "Thêm giao dịch thành công!");
-            
-            // Làm mới dữ liệu
-            loadAllTransactions();
-            
-            // Refresh thống kê nếu có
-            if (statisticsController != null) {
-                statisticsController.refreshStatistics();
-            }
-            
-        } catch (Exception ex) {
-            UIUtils.showError(tablePanel, "Lỗi: " + ex.getMessage());
-        }
+        // Delegate to Submit Use Case (thread nền)
+        asyncExecutor.run(tablePanel,
+            () -> submitAddTransactionUseCase.execute(dto),
+            saved -> {
+                // Hiển thị thông báo thành công
+                UIUtils.showSuccess(tablePanel, "Thêm giao dịch thành công!");
+                
+                // Chèn dòng mới và cộng dồn thống kê, không tải lại
+                applyChange(null, saved);
+            },
+            ex -> UIUtils.showError(tablePanel, "Lỗi: " + ex.getMessage()));
     }
     
     /**
@@ -202,24 +278,24 @@ public class TransactionController {
             return;
         }
         
-        try {
-            // Delegate to Submit Edit Use Case
-            submitEditTransactionUseCase.execute(selectedMaGiaoDich, dto);
-            
-            // Hiển thị thông báo thành công
-            UIUtils.showSuccess(tablePanel, "Cập nhật giao dịch thành công!");
-            
-            // Làm mới dữ liệu
-            loadAllTransactions();
-            
-            // Refresh thống kê nếu có
-            if (statisticsController != null) {
-                statisticsController.refreshStatistics();
-            }
-            
-        } catch (Exception ex) {
-            UIUtils.showError(tablePanel, "Lỗi: " + ex.getMessage());
-        }
+        // Bản cũ lấy từ danh sách đang có (để tính chênh lệch thống kê), không đọc lại DB
+        GiaoDich before = findLoaded(selectedMaGiaoDich);
+        
+        // Delegate to Submit Edit Use Case (thread nền)
+        asyncExecutor.run(tablePanel,
+            () -> submitEditTransactionUseCase.execute(selectedMaGiaoDich, dto),
+            updated -> {
+                // Hiển thị thông báo thành công
+                UIUtils.showSuccess(tablePanel, "Cập nhật giao dịch thành công!");
+                
+                // Thay dòng và cập nhật thống kê theo chênh lệch
+                if (before != null) {
+                    applyChange(before, updated);
+                } else {
+                    refreshAfterChange();
+                }
+            },
+            ex -> UIUtils.showError(tablePanel, "Lỗi: " + ex.getMessage()));
     }
     
     /**
@@ -227,13 +303,17 @@ public class TransactionController {
      * Sử dụng EditTransactionUseCase theo Clean Architecture
      */
     private void handleEditButtonClick(String maGiaoDich) {
-        try {
-            // Delegate to Edit Use Case
-            editTransactionUseCase.execute(maGiaoDich);
-            
-        } catch (Exception ex) {
-            UIUtils.showError(tablePanel, "Lỗi: " + ex.getMessage());
-        }
+        // Delegate to Edit Use Case: tìm trên thread nền, mở form trên EDT
+        asyncExecutor.submit(TASK_OPEN_EDIT, tablePanel,
+            () -> editTransactionUseCase.findForEdit(maGiaoDich),
+            giaoDich -> {
+                try {
+                    editTransactionUseCase.openEditForm(giaoDich);
+                } catch (Exception ex) {
+                    UIUtils.showError(tablePanel, "Lỗi: " + ex.getMessage());
+                }
+            },
+            ex -> UIUtils.showError(tablePanel, "Lỗi: " + ex.getMessage()));
     }
     
     /**
@@ -251,41 +331,250 @@ public class TransactionController {
         );
         
         if (result == JOptionPane.YES_OPTION) {
-            try {
-                // Delegate to Delete Use Case
-                deleteTransactionUseCase.execute(maGiaoDich);
-                
-                // Hiển thị thông báo thành công
-                UIUtils.showSuccess(tablePanel, "Xóa giao dịch thành công!");
-                
-                // Làm mới dữ liệu
-                loadAllTransactions();
-                
-                // Refresh thống kê nếu có
-                if (statisticsController != null) {
-                    statisticsController.refreshStatistics();
-                }
-                
-            } catch (Exception ex) {
-                UIUtils.showError(tablePanel, "Lỗi: " + ex.getMessage());
+            GiaoDich before = findLoaded(maGiaoDich);
+            
+            // Delegate to Delete Use Case (thread nền)
+            asyncExecutor.run(tablePanel,
+                () -> {
+                    deleteTransactionUseCase.execute(maGiaoDich);
+                    return null;
+                },
+                ignored -> {
+                    // Hiển thị thông báo thành công
+                    UIUtils.showSuccess(tablePanel, "Xóa giao dịch thành công!");
+                    
+                    // Bỏ dòng và trừ thống kê
+                    if (before != null) {
+                        applyChange(before, null);
+                    } else {
+                        refreshAfterChange();
+                    }
+                },
+                ex -> UIUtils.showError(tablePanel, "Lỗi: " + ex.getMessage()));
+        }
+    }
+    
+    /**
+     * Áp dụng một thay đổi đã ghi thành công vào model của từng loại và thống kê.
+     * before == null: thêm mới; after == null: xóa; cả hai: sửa.
+     * Khi không áp dụng tại chỗ được (đang đọc dần dữ liệu) thì tải lại toàn bộ.
+     */
+    private void applyChange(GiaoDich before, GiaoDich after) {
+        if (loadPending) {
+            refreshAfterChange();
+            return;
+        }
+        
+        // Chỉ dòng bị ảnh hưởng trong model của loại tương ứng
+        boolean applied = true;
+        if (before != null && after != null && modelFor(before) == modelFor(after)) {
+            applied = modelFor(after).replaceTransaction(before.getMaGiaoDich(), after);
+        } else {
+            if (before != null) {
+                applied = modelFor(before).removeTransaction(before.getMaGiaoDich());
             }
+            if (after != null) {
+                applied &= modelFor(after).insertTransaction(after) >= 0;
+            }
+        }
+        if (!applied) {
+            refreshAfterChange();
+            return;
+        }
+        
+        if (statisticsController != null) {
+            statisticsController.applyChange(before, after);
         }
     }
     
     /**
-     * Load tất cả giao dịch
+     * Giao dịch đã tải theo mã, null nếu chưa có trong model nào
+     */
+    private GiaoDich findLoaded(String maGiaoDich) {
+        if (maGiaoDich == null) {
+            return null;
+        }
+        GiaoDich gd = goldTableModel.findTransaction(maGiaoDich);
+        return gd != null ? gd : currencyTableModel.findTransaction(maGiaoDich);
+    }
+    
+    /**
+     * Tải lại bảng và thống kê (khi không cập nhật tại chỗ được)
+     */
+    private void refreshAfterChange() {
+        loadAllTransactions();
+        
+        // Refresh thống kê nếu có
+        if (statisticsController != null) {
+            statisticsController.refreshStatistics();
+        }
+    }
+    
+    /**
+     * Load tất cả giao dịch: đọc dần trên thread nền, các dòng đầu hiện ngay,
+     * phần còn lại được nối vào bảng khi về. Yêu cầu mới dừng lần đọc cũ.
      */
     public void loadAllTransactions() {
+        if (loadStream != null) {
+            loadStream.stop();
+        }
+        long generation = ++loadGeneration;
+        int[] soDong = {0};
+        LocalDateTime[] watermark = {null};
+        
+        loadPending = true;
+        loadedWatermark = null;
+        tablePanel.cancelEditing();
+        resetModel(goldTableModel);
+        resetModel(currencyTableModel);
+        filterAndDisplayTransactions();
+        tablePanel.showLoadingProgress(0);
+        
+        loadStream = new CursorStreamWorker(
+            () -> {
+                // Mốc lấy trước khi đọc: dòng đổi trong lúc đọc sẽ được lấy lại lần đồng bộ sau
+                watermark[0] = warmStartUseCase.currentWatermark();
+                return quanLyGiaoDich.openCursorAll();
+            },
+            chunk -> {
+                if (generation == loadGeneration) {
+                    if (soDong[0] == 0) {
+                        StartupTimer.mark("Dòng giao dịch đầu tiên hiển thị");
+                    }
+                    appendLoaded(chunk);
+                    soDong[0] += chunk.size();
+                    tablePanel.showLoadingProgress(soDong[0]);
+                }
+            },
+            (total, stopped) -> {
+                if (generation == loadGeneration) {
+                    finishLoading();
+                    loadedWatermark = stopped ? null : watermark[0];
+                    tablePanel.showLoadingFinished(total, stopped);
+                }
+            },
+            ex -> {
+                if (generation == loadGeneration) {
+                    finishLoading();
+                    tablePanel.showLoadingFinished(soDong[0], false);
+                    UIUtils.showError(tablePanel, "Lỗi khi tải dữ liệu: " + ex.getMessage());
+                }
+            });
+        loadStream.execute();
+    }
+    
+    /**
+     * Lần tải đầu tiên: hiển thị ngay từ bản lưu cục bộ (nếu có), sau đó chỉ lấy các dòng
+     * thay đổi/bị xóa kể từ lần lưu để đồng bộ. Không có bản lưu, bản lưu lệch với DB
+     * hoặc đồng bộ lỗi thì đọc dần toàn bộ như bình thường.
+     */
+    private void loadInitialTransactions() {
+        long generation = ++loadGeneration;
+        loadPending = true;
+        loadedWatermark = null;
+        
+        asyncExecutor.run(tablePanel,
+            () -> {
+                GiaoDichSnapshot snapshot = warmStartUseCase.loadSnapshot();
+                return snapshot != null ? new DuLieuBang(snapshot) : null;
+            },
+            duLieu -> {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                if (duLieu == null) {
+                    loadAllTransactions();
+                    return;
+                }
+                showTableData(duLieu);
+                StartupTimer.mark("Dòng giao dịch đầu tiên hiển thị");
+                if (statisticsController != null) {
+                    statisticsController.setCachedGeneralStatistics(duLieu.snapshot.getThongKe());
+                }
+                synchronizeSnapshot(generation, duLieu.snapshot);
+            },
+            ex -> {
+                if (generation == loadGeneration) {
+                    loadAllTransactions();
+                }
+            });
+    }
+    
+    /**
+     * Đồng bộ bản lưu đang hiển thị với DB; thay đổi tại chỗ trong lúc chờ sẽ khởi động
+     * lần tải mới nên kết quả đồng bộ của lần cũ bị bỏ qua
+     */
+    private void synchronizeSnapshot(long generation, GiaoDichSnapshot snapshot) {
+        tablePanel.showSyncing();
+        asyncExecutor.run(tablePanel,
+            () -> {
+                GiaoDichSnapshot synced = warmStartUseCase.synchronize(snapshot);
+                return synced != null ? new DuLieuBang(synced) : null;
+            },
+            duLieu -> {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                if (duLieu == null) {
+                    loadAllTransactions();
+                    return;
+                }
+                showTableData(duLieu);
+                loadPending = false;
+                loadedWatermark = duLieu.snapshot.getWatermark();
+                tablePanel.showLoadingFinished(duLieu.snapshot.size(), false);
+            },
+            ex -> {
+                if (generation == loadGeneration) {
+                    LOGGER.log(Level.WARNING, "Không thể đồng bộ bản lưu cục bộ, tải lại toàn bộ", ex);
+                    loadAllTransactions();
+                }
+            });
+    }
+    
+    /**
+     * Lưu dữ liệu đang có làm bản lưu cục bộ cho lần mở sau (gọi khi đóng ứng dụng).
+     * Chỉ lưu bản đầy đủ: không lưu khi đang tải hoặc đã dừng tải giữa chừng.
+     * Thay đổi tại chỗ sau mốc đã nằm trong DB với updated_at mới hơn nên lần đồng bộ
+     * sau sẽ lấy lại, không bị mất.
+     */
+    public void saveSnapshot(ThongKeDTO thongKe) {
+        if (loadPending || loadedWatermark == null) {
+            return;
+        }
         try {
-            allTransactions = quanLyGiaoDich.getAll();
-            filterAndDisplayTransactions();
-        } catch (Exception ex) {
-            UIUtils.showError(tablePanel, "Lỗi khi tải dữ liệu: " + ex.getMessage());
+            GiaoDichSnapshot snapshot = new GiaoDichSnapshot(
+                allRows(goldTableModel), allRows(currencyTableModel), thongKe, loadedWatermark);
+            warmStartUseCase.saveSnapshot(snapshot);
+        } catch (BusinessException ex) {
+            LOGGER.log(Level.WARNING, "Không thể lưu bản lưu cục bộ", ex);
+        }
+    }
+    
+    private static List<GiaoDich> allRows(TransactionTableModel model) throws BusinessException {
+        PagedDataSource<GiaoDich> source = model.getDataSource();
+        return source.getPage(0, source.size());
+    }
+    
+    /**
+     * Dừng đọc dần (nút "Dừng tải"): giữ các dòng đã hiển thị
+     */
+    public void stopLoading() {
+        if (loadStream != null) {
+            loadStream.stop();
         }
     }
     
+    private void finishLoading() {
+        loadStream = null;
+        loadPending = false;
+        goldTableModel.finishAppending();
+        currencyTableModel.finishAppending();
+    }
+    
     /**
      * Lấy tất cả giao dịch (để export)
+     * Truy vấn đồng bộ: không gọi từ EDT
      */
     public List<GiaoDich> getAllTransactions() {
         try {
@@ -298,6 +587,7 @@ public class TransactionController {
     
     /**
      * Tìm giao dịch theo mã
+     * Truy vấn đồng bộ: không gọi từ EDT
      */
     public Optional<GiaoDich> findTransactionById(String maGiaoDich) {
         try {
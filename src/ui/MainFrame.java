@@ -2,6 +2,10 @@
 package ui;
 
 import java.awt.BorderLayout;
+import java.awt.Graphics;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.logging.Logger;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
@@ -9,7 +13,9 @@ import javax.swing.JTabbedPane;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
+import config.UIConfig;
 import service.QuanLyGiaoDich;
+import ui.Controller.AsyncTaskExecutor;
 import ui.Controller.ExportController;
 import ui.Controller.StatisticsController;
 import ui.Controller.TransactionController;
@@ -18,8 +24,11 @@ import ui.Panels.GoldTransactionFormPanel;
 import ui.Panels.StatisticsPanel;
 import ui.Panels.TransactionTabPanel;
 import ui.Panels.TransactionTablePanel;
+import ui.Utils.UIUtils;
+import utils.StartupTimer;
 
 public class MainFrame extends JFrame {
+    private static final Logger LOGGER = Logger.getLogger(MainFrame.class.getName());
     
     // Các panel chính
     private TransactionTabPanel tabPanel;
@@ -36,6 +45,12 @@ public class MainFrame extends JFrame {
     // Service
     private QuanLyGiaoDich quanLyGiaoDich;
     
+    // Thread nền dùng chung cho các controller (không truy vấn trên EDT)
+    private AsyncTaskExecutor asyncExecutor;
+    
+    // Đã ghi mốc khởi động "vẽ lần đầu"
+    private boolean firstPaintReported;
+    
     public MainFrame() {
         // Khởi tạo service
         quanLyGiaoDich = new QuanLyGiaoDich();
@@ -69,11 +84,13 @@ public class MainFrame extends JFrame {
      * Khởi tạo các controller
      */
     private void initializeControllers() {
+        asyncExecutor = new AsyncTaskExecutor();
+        
         // Tạo transaction controller (xử lý CRUD) - inject service
-        transactionController = new TransactionController(tabPanel, goldFormPanel, currencyFormPanel, tablePanel, quanLyGiaoDich);
+        transactionController = new TransactionController(tabPanel, goldFormPanel, currencyFormPanel, tablePanel, quanLyGiaoDich, asyncExecutor);
         
         // Tạo statistics controller (xử lý thống kê) - inject service
-        statisticsController = new StatisticsController(quanLyGiaoDich, statisticsPanel);
+        statisticsController = new StatisticsController(quanLyGiaoDich, statisticsPanel, asyncExecutor);
         
         // Tạo export controller (xử lý export)
         exportController = new ExportController(statisticsPanel, transactionController, statisticsController);
@@ -131,12 +148,45 @@ public class MainFrame extends JFrame {
      */
     private void configureFrame() {
         setTitle("Hệ Thống Quản Lý Giao Dịch");
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        // Tự thoát trong windowClosing: cần hỏi lại khi còn job export và chờ job dừng hẳn
+        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
         setSize(1000, 700);
         setLocationRelativeTo(null); // Căn giữa màn hình
+        
+        // Lưu bản lưu cục bộ, dừng hàng đợi export và thread nền khi đóng cửa sổ
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                if (exportController.hasActiveJobs() && !UIUtils.showConfirm(getRootPane(),
+                        "Đang có job xuất/nhập file chưa xong. Thoát sẽ hủy các job này và xóa file dở dang.\nVẫn thoát?",
+                        "Xác nhận thoát")) {
+                    return;
+                }
+                // Lưu dữ liệu đã tải để lần mở sau hiển thị ngay và chỉ đồng bộ phần thay đổi
+                transactionController.saveSnapshot(statisticsController.getGeneralStatisticsForSnapshot());
+                exportController.shutdown();
+                asyncExecutor.shutdown();
+                LOGGER.info(quanLyGiaoDich.getStatisticsCacheReport());
+                dispose();
+                System.exit(0);
+            }
+        });
+        
         setVisible(true);
     }
     
+    /**
+     * Lần vẽ đầu tiên là lúc người dùng thấy cửa sổ: ghi lại thời gian khởi động
+     */
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (!firstPaintReported) {
+            firstPaintReported = true;
+            StartupTimer.mark("Cửa sổ chính vẽ lần đầu", UIConfig.STARTUP_FIRST_PAINT_TARGET_MS);
+        }
+    }
+    
     /**
      * Refresh tất cả dữ liệu (gọi từ bên ngoài nếu cần)
      */
@@ -6,7 +6,9 @@ import java.awt.FlowLayout;
 import java.awt.Font;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Vector;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -14,30 +16,58 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
+import javax.swing.JTabbedPane;
 import javax.swing.JTable;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.table.DefaultTableModel;
 
+import config.UIConfig;
+import dto.GiaCongCuDTO;
+import dto.NenGiaDTO;
+import dto.PhanPhoiThanhTienDTO;
 import dto.ThongKeDTO;
+import dto.ThongKeNhomDTO;
+import dto.ViTheDTO;
 import model.GiaoDich;
+import service.export.ExportJob;
 import ui.Utils.UIUtils;
 
 public class StatisticsPanel extends JPanel {
     
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    
     // Components cho thống kê
     private JTextArea txtThongKe;
+    private JTextArea txtPhanPhoi;
+    
+    // Bảng thống kê theo loại vàng / loại tiền
+    private JTable tblTheoNhom;
+    private DefaultTableModel theoNhomTableModel;
+    
+    // Bảng giá và vị thế: nến gần nhất và vị thế của từng loại vàng / loại tiền
+    private JTable tblBangGia;
+    private DefaultTableModel bangGiaTableModel;
+    private JLabel lblTrangThaiBangGia;
     private JButton btnCapNhatThongKe;
     private JButton btnThongKeHomNay;
     private JButton btnThongKeThangNay;
     private JButton btnThongKeTatCa;
     private JButton btnThongKeTheoNgay;
     private JButton btnInDanhSach;
+    private JButton btnNhapJsonl;
     private JTextField txtNgayThongKe;
     
     // Bảng giao dịch đơn giá lớn
     private JTable tblDonGiaLon;
     private DefaultTableModel thongKeTableModel;
+    private JLabel lblTrangThaiDonGiaLon;
+    private JButton btnDungTaiDonGiaLon;
+    
+    // Bảng lịch sử job xuất file
+    private JTable tblLichSuXuat;
+    private DefaultTableModel lichSuXuatTableModel;
+    private JButton btnHuyXuat;
     
     public StatisticsPanel() {
         initializeComponents();
@@ -53,6 +83,34 @@ public class StatisticsPanel extends JPanel {
         txtThongKe.setEditable(false);
         txtThongKe.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
         
+        // Text area hiển thị phân phối thành tiền (phân vị) của khoảng đang xem
+        txtPhanPhoi = new JTextArea(10, 30);
+        txtPhanPhoi.setEditable(false);
+        txtPhanPhoi.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        
+        // Bảng thống kê theo loại vàng / loại tiền
+        String[] theoNhomColumns = {"Loại", "Loại vàng/tiền", "Số GD", "Tổng số lượng", "Tổng thành tiền",
+            "TB thành tiền", "TB đơn giá"};
+        theoNhomTableModel = new DefaultTableModel(theoNhomColumns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        tblTheoNhom = new JTable(theoNhomTableModel);
+        
+        // Bảng giá và vị thế theo loại vàng / loại tiền (giá: đơn giá vàng, tỉ giá tiền tệ)
+        String[] bangGiaColumns = {"Công cụ", "Ngày", "Mở cửa", "Cao nhất", "Thấp nhất", "Đóng cửa",
+            "Số GD", "TB " + UIConfig.STATISTICS_MOVING_AVERAGE_DAYS + " nến", "Đang nắm giữ", "Giá vốn TB"};
+        bangGiaTableModel = new DefaultTableModel(bangGiaColumns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        tblBangGia = new JTable(bangGiaTableModel);
+        lblTrangThaiBangGia = new JLabel();
+        
         // Khởi tạo các nút chức năng
         btnCapNhatThongKe = new JButton("Cập nhật thống kê");
         btnThongKeHomNay = new JButton("Hôm nay");
@@ -60,6 +118,7 @@ public class StatisticsPanel extends JPanel {
         btnThongKeTatCa = new JButton("Tất cả");
         btnThongKeTheoNgay = new JButton("Theo ngày");
         btnInDanhSach = new JButton("In danh sách");
+        btnNhapJsonl = new JButton("Nhập JSONL");
         
         // Text field cho ngày thống kê
         txtNgayThongKe = new JTextField("2025-08-05", 10);
@@ -81,6 +140,31 @@ public class StatisticsPanel extends JPanel {
         tblDonGiaLon.getColumnModel().getColumn(3).setPreferredWidth(80);  // Số lượng
         tblDonGiaLon.getColumnModel().getColumn(4).setPreferredWidth(80);  // Loại
         tblDonGiaLon.getColumnModel().getColumn(5).setPreferredWidth(120); // Thành tiền
+        
+        // Trạng thái đọc dần bảng đơn giá lớn
+        lblTrangThaiDonGiaLon = new JLabel();
+        btnDungTaiDonGiaLon = new JButton("Dừng tải");
+        btnDungTaiDonGiaLon.setVisible(false);
+        
+        // Bảng lịch sử xuất file
+        String[] lichSuXuatColumns = {"#", "File", "Nội dung", "Trạng thái", "Số dòng", "Dung lượng", "Ghi chú"};
+        lichSuXuatTableModel = new DefaultTableModel(lichSuXuatColumns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        tblLichSuXuat = new JTable(lichSuXuatTableModel);
+        tblLichSuXuat.setSelectionMode(javax.swing.ListSelectionModel.SINGLE_SELECTION);
+        tblLichSuXuat.getColumnModel().getColumn(0).setPreferredWidth(30);  // #
+        tblLichSuXuat.getColumnModel().getColumn(1).setPreferredWidth(180); // File
+        tblLichSuXuat.getColumnModel().getColumn(2).setPreferredWidth(140); // Nội dung
+        tblLichSuXuat.getColumnModel().getColumn(3).setPreferredWidth(90);  // Trạng thái
+        tblLichSuXuat.getColumnModel().getColumn(4).setPreferredWidth(80);  // Số dòng
+        tblLichSuXuat.getColumnModel().getColumn(5).setPreferredWidth(80);  // Dung lượng
+        tblLichSuXuat.getColumnModel().getColumn(6).setPreferredWidth(200); // Ghi chú
+        
+        btnHuyXuat = new JButton("Hủy xuất file");
     }
     
     /**
@@ -92,8 +176,10 @@ public class StatisticsPanel extends JPanel {
         // Panel trên: Thống kê tổng quan
         JPanel topPanel = createStatisticsPanel();
         
-        // Panel dưới: Bảng giao dịch đơn giá lớn
-        JPanel bottomPanel = createHighValueTransactionsPanel();
+        // Panel dưới: Bảng giao dịch đơn giá lớn + lịch sử xuất file
+        JSplitPane bottomPanel = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                createHighValueTransactionsPanel(), createExportJobsPanel());
+        bottomPanel.setResizeWeight(0.6);
         
         // Sử dụng JSplitPane để chia đôi
         JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, topPanel, bottomPanel);
@@ -110,9 +196,20 @@ public class StatisticsPanel extends JPanel {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createTitledBorder("Thống kê tổng quan"));
         
-        // Text area hiển thị thống kê
-        JScrollPane scrollPane = new JScrollPane(txtThongKe);
-        panel.add(scrollPane, BorderLayout.CENTER);
+        // Text area hiển thị thống kê, bên phải là phân phối thành tiền
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT,
+                new JScrollPane(txtThongKe), new JScrollPane(txtPhanPhoi));
+        splitPane.setResizeWeight(0.6);
+        
+        // Tab thứ hai: cùng khoảng ngày, chia theo loại vàng / loại tiền
+        JTabbedPane tabbedPane = new JTabbedPane();
+        tabbedPane.addTab("Tổng quan", splitPane);
+        tabbedPane.addTab("Theo loại vàng/tiền", new JScrollPane(tblTheoNhom));
+        JPanel bangGiaPanel = new JPanel(new BorderLayout());
+        bangGiaPanel.add(new JScrollPane(tblBangGia), BorderLayout.CENTER);
+        bangGiaPanel.add(lblTrangThaiBangGia, BorderLayout.SOUTH);
+        tabbedPane.addTab("Giá & vị thế", bangGiaPanel);
+        panel.add(tabbedPane, BorderLayout.CENTER);
         
         // Panel chứa các nút
         JPanel buttonPanel = createStatisticsButtonPanel();
@@ -137,6 +234,7 @@ public class StatisticsPanel extends JPanel {
         panel.add(btnCapNhatThongKe);
         panel.add(new JLabel("│"));
         panel.add(btnInDanhSach);
+        panel.add(btnNhapJsonl);
         
         return panel;
     }
@@ -151,6 +249,28 @@ public class StatisticsPanel extends JPanel {
         JScrollPane scrollPane = new JScrollPane(tblDonGiaLon);
         panel.add(scrollPane, BorderLayout.CENTER);
         
+        JPanel statusPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        statusPanel.add(lblTrangThaiDonGiaLon);
+        statusPanel.add(btnDungTaiDonGiaLon);
+        panel.add(statusPanel, BorderLayout.SOUTH);
+        
+        return panel;
+    }
+    
+    /**
+     * Tạo panel lịch sử job xuất file
+     */
+    private JPanel createExportJobsPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(BorderFactory.createTitledBorder("Lịch sử xuất file"));
+        
+        JScrollPane scrollPane = new JScrollPane(tblLichSuXuat);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(btnHuyXuat);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+        
         return panel;
     }
     
@@ -214,6 +334,95 @@ public class StatisticsPanel extends JPanel {
         displayStatistics(thongKe, "NGÀY " + dateStr);
     }
     
+    /**
+     * Hiển thị phân vị thành tiền theo loại giao dịch
+     */
+    public void displayDistribution(PhanPhoiThanhTienDTO phanPhoi) {
+        if (phanPhoi == null) {
+            txtPhanPhoi.setText("");
+            return;
+        }
+        
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== PHÂN PHỐI THÀNH TIỀN ===\n");
+        sb.append(String.format("(sai số tối đa ±%.0f%%)\n\n", phanPhoi.getSaiSoTuongDoi() * 100));
+        appendPhanVi(sb, "🥇 Vàng", phanPhoi.getVang());
+        appendPhanVi(sb, "💵 Tiền tệ", phanPhoi.getTienTe());
+        
+        txtPhanPhoi.setText(sb.toString());
+    }
+    
+    private void appendPhanVi(StringBuilder sb, String tieuDe, PhanPhoiThanhTienDTO.PhanVi phanVi) {
+        sb.append(String.format("%s (%d giao dịch)\n", tieuDe, phanVi.getSoGiaoDich()));
+        if (phanVi.getSoGiaoDich() == 0) {
+            sb.append("   Không có dữ liệu\n\n");
+            return;
+        }
+        sb.append(String.format("   p50: %s VNĐ\n", UIUtils.formatCurrency(phanVi.getP50())));
+        sb.append(String.format("   p95: %s VNĐ\n", UIUtils.formatCurrency(phanVi.getP95())));
+        sb.append(String.format("   p99: %s VNĐ\n\n", UIUtils.formatCurrency(phanVi.getP99())));
+    }
+    
+    /**
+     * Hiển thị thống kê theo loại vàng / loại tiền
+     */
+    public void displayBreakdown(List<ThongKeNhomDTO> nhoms) {
+        theoNhomTableModel.setRowCount(0);
+        
+        if (nhoms == null) {
+            return;
+        }
+        
+        for (ThongKeNhomDTO nhom : nhoms) {
+            theoNhomTableModel.addRow(new Object[] {
+                nhom.getLoaiGiaoDich(),
+                nhom.getNhom(),
+                nhom.getSoGiaoDich(),
+                nhom.getTongSoLuong(),
+                UIUtils.formatCurrency(nhom.getTongThanhTien()),
+                UIUtils.formatCurrency(nhom.getTrungBinhThanhTien()),
+                UIUtils.formatCurrency(nhom.getTrungBinhDonGia())
+            });
+        }
+    }
+    
+    /**
+     * Hiển thị bảng giá: nến gần nhất, trung bình động và vị thế của từng công cụ
+     * (công cụ không có giao dịch trong cửa sổ chuỗi giá chỉ có phần vị thế)
+     */
+    public void displayPriceBoard(List<GiaCongCuDTO> giaCongCus) {
+        bangGiaTableModel.setRowCount(0);
+        lblTrangThaiBangGia.setText("");
+        
+        if (giaCongCus == null) {
+            return;
+        }
+        
+        for (GiaCongCuDTO gia : giaCongCus) {
+            NenGiaDTO nen = gia.getNenCuoi();
+            ViTheDTO viThe = gia.getViThe();
+            bangGiaTableModel.addRow(new Object[] {
+                gia.getMaCongCu(),
+                nen != null ? nen.getNgay().format(DATE_FORMATTER) : "",
+                nen != null ? UIUtils.formatCurrency(nen.getGiaMoCua()) : "",
+                nen != null ? UIUtils.formatCurrency(nen.getGiaCaoNhat()) : "",
+                nen != null ? UIUtils.formatCurrency(nen.getGiaThapNhat()) : "",
+                nen != null ? UIUtils.formatCurrency(nen.getGiaDongCua()) : "",
+                nen != null ? nen.getSoGiaoDich() : "",
+                gia.getTrungBinhDong() != null ? UIUtils.formatCurrency(gia.getTrungBinhDong()) : "",
+                viThe.getSoLuong(),
+                UIUtils.formatCurrency(viThe.getGiaVonTrungBinh())
+            });
+        }
+    }
+    
+    /**
+     * Bảng giá đang được dựng nền: giữ các dòng đang hiển thị, báo trạng thái
+     */
+    public void showPriceBoardLoading() {
+        lblTrangThaiBangGia.setText("Đang dựng chuỗi giá và vị thế...");
+    }
+    
     /**
      * Load danh sách giao dịch đơn giá lớn
      */
@@ -224,19 +433,107 @@ public class StatisticsPanel extends JPanel {
             return;
         }
         
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-        
         for (GiaoDich gd : giaoDichs) {
-            Object[] row = new Object[6];
-            row[0] = gd.getMaGiaoDich();
-            row[1] = gd.getNgayGiaoDich().format(formatter);
-            row[2] = UIUtils.formatCurrency(gd.getDonGia());
-            row[3] = gd.getSoLuong();
-            row[4] = gd.getLoaiGiaoDich();
-            row[5] = UIUtils.formatCurrency(gd.tinhThanhTien());
-            
-            thongKeTableModel.addRow(row);
+            thongKeTableModel.addRow(toHighValueRow(gd));
+        }
+    }
+    
+    /**
+     * Nối thêm một phần giao dịch đơn giá lớn (dữ liệu đang đọc dần), một sự kiện cho cả phần
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void appendHighValueTransactions(List<GiaoDich> giaoDichs) {
+        if (giaoDichs.isEmpty()) {
+            return;
+        }
+        int first = thongKeTableModel.getRowCount();
+        Vector dataVector = thongKeTableModel.getDataVector();
+        for (GiaoDich gd : giaoDichs) {
+            dataVector.add(new Vector<>(Arrays.asList(toHighValueRow(gd))));
+        }
+        thongKeTableModel.fireTableRowsInserted(first, thongKeTableModel.getRowCount() - 1);
+    }
+    
+    /**
+     * Bảng đơn giá lớn đang đọc dần: hiện số dòng đã tải và nút dừng
+     */
+    public void showHighValueLoadingProgress(int soDong) {
+        lblTrangThaiDonGiaLon.setText("Đang tải... " + UIUtils.formatCurrency(soDong) + " giao dịch");
+        btnDungTaiDonGiaLon.setVisible(true);
+    }
+    
+    /**
+     * Đọc dần bảng đơn giá lớn đã kết thúc; stopped = true nếu bị dừng giữa chừng
+     */
+    public void showHighValueLoadingFinished(int soDong, boolean stopped) {
+        lblTrangThaiDonGiaLon.setText(stopped
+            ? "Đã dừng tải (" + UIUtils.formatCurrency(soDong) + " giao dịch)"
+            : "");
+        btnDungTaiDonGiaLon.setVisible(false);
+    }
+    
+    /**
+     * Chèn một giao dịch đơn giá lớn vào vị trí row (chỉ phát sự kiện cho dòng đó)
+     */
+    public void insertHighValueTransaction(int row, GiaoDich gd) {
+        thongKeTableModel.insertRow(row, toHighValueRow(gd));
+    }
+    
+    /**
+     * Bỏ dòng row khỏi bảng giao dịch đơn giá lớn
+     */
+    public void removeHighValueTransaction(int row) {
+        thongKeTableModel.removeRow(row);
+    }
+    
+    private Object[] toHighValueRow(GiaoDich gd) {
+        Object[] row = new Object[6];
+        row[0] = gd.getMaGiaoDich();
+        row[1] = gd.getNgayGiaoDich().format(DATE_FORMATTER);
+        row[2] = UIUtils.formatCurrency(gd.getDonGia());
+        row[3] = gd.getSoLuong();
+        row[4] = gd.getLoaiGiaoDich();
+        row[5] = UIUtils.formatCurrency(gd.tinhThanhTien());
+        return row;
+    }
+    
+    /**
+     * Hiển thị lịch sử job xuất file (mới nhất ở trên).
+     * Cập nhật tại chỗ khi số dòng không đổi để giữ nguyên dòng đang chọn.
+     */
+    public void displayExportJobs(List<ExportJob> jobs) {
+        int rowCount = jobs.size();
+        if (lichSuXuatTableModel.getRowCount() != rowCount) {
+            lichSuXuatTableModel.setRowCount(rowCount);
+        }
+        
+        for (int row = 0; row < rowCount; row++) {
+            ExportJob job = jobs.get(rowCount - 1 - row);
+            setJobCell(row, 0, job.getId());
+            setJobCell(row, 1, job.getFile().getName());
+            setJobCell(row, 2, job.getMoTa());
+            setJobCell(row, 3, job.getTrangThai().getHienThi());
+            setJobCell(row, 4, UIUtils.formatCurrency(job.getSoDongDaGhi()));
+            setJobCell(row, 5, UIUtils.formatFileSize(job.getSoByteDaGhi()));
+            setJobCell(row, 6, job.getThongBaoLoi() != null ? job.getThongBaoLoi() : "");
+        }
+    }
+    
+    private void setJobCell(int row, int column, Object value) {
+        if (!value.equals(lichSuXuatTableModel.getValueAt(row, column))) {
+            lichSuXuatTableModel.setValueAt(value, row, column);
+        }
+    }
+    
+    /**
+     * Lấy id của job đang được chọn trong bảng lịch sử, -1 nếu không chọn
+     */
+    public long getSelectedExportJobId() {
+        int row = tblLichSuXuat.getSelectedRow();
+        if (row < 0) {
+            return -1;
         }
+        return (Long) lichSuXuatTableModel.getValueAt(row, 0);
     }
     
     /**
@@ -258,6 +555,9 @@ public class StatisticsPanel extends JPanel {
      */
     public void clearStatistics() {
         txtThongKe.setText("");
+        txtPhanPhoi.setText("");
+        theoNhomTableModel.setRowCount(0);
+        bangGiaTableModel.setRowCount(0);
         thongKeTableModel.setRowCount(0);
     }
     
@@ -268,9 +568,14 @@ public class StatisticsPanel extends JPanel {
     public JButton getBtnThongKeTatCa() { return btnThongKeTatCa; }
     public JButton getBtnThongKeTheoNgay() { return btnThongKeTheoNgay; }
     public JButton getBtnInDanhSach() { return btnInDanhSach; }
+    public JButton getBtnNhapJsonl() { return btnNhapJsonl; }
+    public JButton getBtnHuyXuat() { return btnHuyXuat; }
+    public JButton getBtnDungTaiDonGiaLon() { return btnDungTaiDonGiaLon; }
     
     // Getters cho text area và bảng (để export)
     public JTextArea getTxtThongKe() { return txtThongKe; }
     public JTable getTblDonGiaLon() { return tblDonGiaLon; }
+    public JTable getTblTheoNhom() { return tblTheoNhom; }
+    public JTable getTblBangGia() { return tblBangGia; }
     public DefaultTableModel getThongKeTableModel() { return thongKeTableModel; }
 }
@@ -0,0 +1,420 @@
+// Khóa sắp xếp và chỉ mục lọc của bảng giao dịch, tính một lần cho mỗi dòng
+package ui.Panels;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.GiaoDich;
+import model.GiaoDichTienTe;
+import model.GiaoDichVang;
+import service.paging.ListPagedDataSource;
+
+/**
+ * Sắp xếp trên giá trị gốc thay vì chuỗi đã định dạng (so sánh "1.000.000" với
+ * "999.000" theo chuỗi là sai, và định dạng cả triệu dòng thì chậm):
+ * - ngày: epoch day
+ * - đơn giá, thành tiền: số nguyên theo đơn vị xu (scale 2), vượt long thì chặn ở biên
+ * - số lượng: int
+ * Mỗi khóa là một mảng long song song với nguồn dữ liệu, tính lần đầu sắp xếp theo cột đó.
+ * Mảng chỉ số int được sắp bằng radix sort (LSD, 8 bit mỗi lượt, bỏ qua lượt mà mọi
+ * khóa cùng một byte); radix sort ổn định nên dòng bằng nhau giữ thứ tự gốc (ngày giảm dần).
+ * Lọc theo loại vàng/loại tiền dùng chỉ mục loại -> các dòng, không quét chuỗi.
+ * Chỉ mục không tự theo dõi nguồn: người sửa nguồn báo lại từng dòng (insert/remove/append),
+ * khi đó chỉ khóa của dòng đó được tính, các dòng khác chỉ dịch chỉ số.
+ */
+final class TransactionSortIndex {
+
+    static final int KEY_NGAY = 0;
+    static final int KEY_DON_GIA = 1;
+    static final int KEY_SO_LUONG = 2;
+    static final int KEY_THANH_TIEN = 3;
+    private static final int KEY_COUNT = 4;
+
+    private final ListPagedDataSource<GiaoDich> source;
+    private int size;
+    private final long[][] keys = new long[KEY_COUNT][];
+    private final Map<String, int[]> rowsByCategory;
+
+    private TransactionSortIndex(ListPagedDataSource<GiaoDich> source, Map<String, int[]> rowsByCategory) {
+        this.source = source;
+        this.size = source.size();
+        this.rowsByCategory = rowsByCategory;
+    }
+
+    /**
+     * Tạo chỉ mục loại trong một lượt; khóa sắp xếp tính khi cần
+     */
+    static TransactionSortIndex build(ListPagedDataSource<GiaoDich> source) {
+        Map<String, IntList> categories = new HashMap<>();
+        for (int i = 0, size = source.size(); i < size; i++) {
+            categories.computeIfAbsent(categoryOf(source.get(i)), k -> new IntList()).add(i);
+        }
+
+        Map<String, int[]> rowsByCategory = new HashMap<>();
+        categories.forEach((category, rows) -> rowsByCategory.put(category, rows.toArray()));
+        return new TransactionSortIndex(source, rowsByCategory);
+    }
+
+    /**
+     * Mảng khóa của một cột, mỗi dòng tính đúng một lần
+     */
+    private long[] keyArray(int key) {
+        long[] values = keys[key];
+        if (values == null) {
+            values = new long[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = keyOf(source.get(i), key);
+            }
+            keys[key] = values;
+        }
+        return values;
+    }
+
+    private static long keyOf(GiaoDich gd, int key) {
+        switch (key) {
+            case KEY_NGAY: return gd.getNgayGiaoDich().toEpochDay();
+            case KEY_DON_GIA: return toCents(gd.getDonGia());
+            case KEY_SO_LUONG: return gd.getSoLuong();
+            default: return toCents(gd.tinhThanhTien());
+        }
+    }
+
+    /**
+     * Nguồn vừa chèn gd tại row (các dòng từ row trở đi dịch xuống một)
+     */
+    void insert(int row, GiaoDich gd) {
+        for (int key = 0; key < KEY_COUNT; key++) {
+            long[] values = keys[key];
+            if (values != null) {
+                long[] grown = new long[size + 1];
+                System.arraycopy(values, 0, grown, 0, row);
+                grown[row] = keyOf(gd, key);
+                System.arraycopy(values, row, grown, row + 1, size - row);
+                keys[key] = grown;
+            }
+        }
+        size++;
+        for (int[] rows : rowsByCategory.values()) {
+            shiftFrom(rows, row, 1);
+        }
+        rowsByCategory.merge(categoryOf(gd), new int[] { row }, TransactionSortIndex::insertSorted);
+    }
+
+    /**
+     * Nguồn vừa bỏ dòng row (giao dịch removed); các dòng sau dịch lên một
+     */
+    void remove(int row, GiaoDich removed) {
+        for (int key = 0; key < KEY_COUNT; key++) {
+            long[] values = keys[key];
+            if (values != null) {
+                long[] shrunk = new long[size - 1];
+                System.arraycopy(values, 0, shrunk, 0, row);
+                System.arraycopy(values, row + 1, shrunk, row, size - row - 1);
+                keys[key] = shrunk;
+            }
+        }
+        size--;
+        String category = categoryOf(removed);
+        int[] categoryRows = removeValue(rowsByCategory.get(category), row);
+        if (categoryRows.length == 0) {
+            rowsByCategory.remove(category);
+        } else {
+            rowsByCategory.put(category, categoryRows);
+        }
+        for (int[] rows : rowsByCategory.values()) {
+            shiftFrom(rows, row + 1, -1);
+        }
+    }
+
+    /**
+     * Nguồn vừa nối thêm các dòng từ first đến hết (chỉ số cũ không đổi)
+     */
+    void append(int first) {
+        int newSize = source.size();
+        for (int key = 0; key < KEY_COUNT; key++) {
+            long[] values = keys[key];
+            if (values != null) {
+                long[] grown = Arrays.copyOf(values, newSize);
+                for (int i = first; i < newSize; i++) {
+                    grown[i] = keyOf(source.get(i), key);
+                }
+                keys[key] = grown;
+            }
+        }
+        Map<String, IntList> categories = new HashMap<>();
+        for (int i = first; i < newSize; i++) {
+            categories.computeIfAbsent(categoryOf(source.get(i)), k -> new IntList()).add(i);
+        }
+        categories.forEach((category, rows) -> rowsByCategory.merge(category, rows.toArray(), (cu, moi) -> {
+            int[] merged = Arrays.copyOf(cu, cu.length + moi.length);
+            System.arraycopy(moi, 0, merged, cu.length, moi.length);
+            return merged;
+        }));
+        size = newSize;
+    }
+
+    /**
+     * Đưa dòng row (vừa insert vào chỉ mục) vào thứ tự hiển thị view của order(key, ascending, category);
+     * các chỉ số từ row trở đi trong view được dịch xuống một trước. Trả về view mới,
+     * hoặc chính view (đã dịch) nếu dòng bị lọc bỏ.
+     */
+    int[] insertIntoView(int[] view, int row, int key, boolean ascending, String category) {
+        shiftFrom(view, row, 1);
+        if (category != null && !category.equals(categoryOf(source.get(row)))) {
+            return view;
+        }
+        int pos = viewPosition(view, row, key, ascending);
+        int[] grown = new int[view.length + 1];
+        System.arraycopy(view, 0, grown, 0, pos);
+        grown[pos] = row;
+        System.arraycopy(view, pos, grown, pos + 1, view.length - pos);
+        return grown;
+    }
+
+    /**
+     * Vị trí dòng row phải đứng trong view: cùng thứ tự với order (khóa, rồi chỉ số dòng
+     * vì radix sort ổn định); tìm nhị phân. Không có trong view thì là vị trí chèn.
+     */
+    private int viewPosition(int[] view, int row, int key, boolean ascending) {
+        long[] values = key >= 0 ? keyArray(key) : null;
+        int low = 0;
+        int high = view.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(values, ascending, view[mid], row) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gộp các dòng nối thêm [first, size) vào view (đã sắp) theo cùng thứ tự với order:
+     * chỉ sắp phần mới rồi trộn, không sắp lại toàn bộ
+     */
+    int[] mergeAppended(int[] view, int first, int key, boolean ascending, String category) {
+        int[] added;
+        if (category != null) {
+            int[] categoryRows = rowsByCategory.get(category);
+            int from = categoryRows != null ? lowerBound(categoryRows, first) : 0;
+            added = categoryRows != null ? Arrays.copyOfRange(categoryRows, from, categoryRows.length) : new int[0];
+        } else {
+            added = new int[size - first];
+            for (int i = 0; i < added.length; i++) {
+                added[i] = first + i;
+            }
+        }
+        long[] values = null;
+        if (key >= 0) {
+            values = keyArray(key);
+            sort(added, values, ascending);
+        }
+        int[] merged = new int[view.length + added.length];
+        int i = 0, j = 0, k = 0;
+        while (i < view.length && j < added.length) {
+            merged[k++] = compare(values, ascending, view[i], added[j]) <= 0 ? view[i++] : added[j++];
+        }
+        while (i < view.length) {
+            merged[k++] = view[i++];
+        }
+        while (j < added.length) {
+            merged[k++] = added[j++];
+        }
+        return merged;
+    }
+
+    private static int compare(long[] values, boolean ascending, int a, int b) {
+        if (values != null && values[a] != values[b]) {
+            int cmp = Long.compare(values[a], values[b]);
+            return ascending ? cmp : -cmp;
+        }
+        return Integer.compare(a, b);
+    }
+
+    /**
+     * Vị trí đầu tiên của value trong rows, -1 nếu không có
+     */
+    static int indexOf(int[] rows, int value) {
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Các chỉ số >= from được cộng delta (tại chỗ)
+     */
+    static void shiftFrom(int[] rows, int from, int delta) {
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] >= from) {
+                rows[i] += delta;
+            }
+        }
+    }
+
+    /**
+     * Bỏ giá trị value khỏi rows (nếu có), trả về mảng mới
+     */
+    static int[] removeValue(int[] rows, int value) {
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] == value) {
+                int[] shrunk = new int[rows.length - 1];
+                System.arraycopy(rows, 0, shrunk, 0, i);
+                System.arraycopy(rows, i + 1, shrunk, i, rows.length - i - 1);
+                return shrunk;
+            }
+        }
+        return rows;
+    }
+
+    private static int[] insertSorted(int[] rows, int[] single) {
+        int pos = lowerBound(rows, single[0]);
+        int[] grown = new int[rows.length + 1];
+        System.arraycopy(rows, 0, grown, 0, pos);
+        grown[pos] = single[0];
+        System.arraycopy(rows, pos, grown, pos + 1, rows.length - pos);
+        return grown;
+    }
+
+    private static int lowerBound(int[] sorted, int value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Loại dùng để lọc: loại vàng hoặc loại tiền
+     */
+    static String categoryOf(GiaoDich gd) {
+        if (gd instanceof GiaoDichVang) {
+            return ((GiaoDichVang) gd).getLoaiVang();
+        } else if (gd instanceof GiaoDichTienTe) {
+            return ((GiaoDichTienTe) gd).getLoaiTien();
+        }
+        return "";
+    }
+
+    /**
+     * Các loại đang có, theo thứ tự chữ cái
+     */
+    List<String> getCategories() {
+        List<String> categories = new ArrayList<>(rowsByCategory.keySet());
+        categories.sort(null);
+        return categories;
+    }
+
+    /**
+     * Thứ tự hiển thị (chỉ số dòng trong nguồn dữ liệu).
+     * key < 0: giữ thứ tự gốc; category == null: không lọc.
+     */
+    int[] order(int key, boolean ascending, String category) {
+        int[] rows;
+        if (category != null) {
+            int[] categoryRows = rowsByCategory.get(category);
+            rows = categoryRows != null ? categoryRows.clone() : new int[0];
+        } else {
+            rows = new int[size];
+            for (int i = 0; i < size; i++) {
+                rows[i] = i;
+            }
+        }
+        if (key >= 0) {
+            sort(rows, keyArray(key), ascending);
+        }
+        return rows;
+    }
+
+    /**
+     * Radix sort LSD ổn định trên mảng chỉ số, khóa là long có dấu.
+     * Lật bit dấu để so sánh không dấu đúng thứ tự; giảm dần thì đảo toàn bộ bit.
+     */
+    private static void sort(int[] rows, long[] key, boolean ascending) {
+        int n = rows.length;
+        if (n < 2) {
+            return;
+        }
+        long flip = ascending ? Long.MIN_VALUE : Long.MAX_VALUE;
+        long[] sortKeys = new long[n];
+        for (int i = 0; i < n; i++) {
+            sortKeys[i] = key[rows[i]] ^ flip;
+        }
+
+        long[] keyBuffer = new long[n];
+        int[] rowBuffer = new int[n];
+        int[] counts = new int[256];
+        for (int shift = 0; shift < Long.SIZE; shift += 8) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) {
+                counts[(int) (sortKeys[i] >>> shift) & 0xFF]++;
+            }
+            // Mọi khóa cùng byte này: lượt này không đổi thứ tự
+            if (counts[(int) (sortKeys[0] >>> shift) & 0xFF] == n) {
+                continue;
+            }
+            int offset = 0;
+            for (int b = 0; b < 256; b++) {
+                int count = counts[b];
+                counts[b] = offset;
+                offset += count;
+            }
+            for (int i = 0; i < n; i++) {
+                int pos = counts[(int) (sortKeys[i] >>> shift) & 0xFF]++;
+                keyBuffer[pos] = sortKeys[i];
+                rowBuffer[pos] = rows[i];
+            }
+            long[] swapKeys = sortKeys;
+            sortKeys = keyBuffer;
+            keyBuffer = swapKeys;
+            System.arraycopy(rowBuffer, 0, rows, 0, n);
+        }
+    }
+
+    private static long toCents(BigDecimal value) {
+        BigInteger cents = value.setScale(2, RoundingMode.HALF_UP).unscaledValue();
+        if (cents.bitLength() < Long.SIZE) {
+            return cents.longValue();
+        }
+        return cents.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+    }
+
+    /**
+     * Danh sách int tự tăng kích thước (tránh Integer boxing)
+     */
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                int[] grown = new int[size << 1];
+                System.arraycopy(values, 0, grown, 0, size);
+                values = grown;
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            int[] result = new int[size];
+            System.arraycopy(values, 0, result, 0, size);
+            return result;
+        }
+    }
+}
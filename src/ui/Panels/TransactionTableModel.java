@@ -0,0 +1,589 @@
+// Table model lazy cho bảng giao dịch: chỉ đọc và định dạng các dòng đang hiển thị
+package ui.Panels;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.table.AbstractTableModel;
+
+import model.GiaoDich;
+import model.GiaoDichTienTe;
+import model.GiaoDichVang;
+import service.paging.GiaoDichIdIndex;
+import service.paging.ListPagedDataSource;
+import service.paging.PagedDataSource;
+import ui.Utils.UIUtils;
+
+/**
+ * JTable chỉ gọi getValueAt cho các ô đang nằm trong vùng nhìn thấy, nên dữ liệu
+ * được lấy theo trang từ PagedDataSource và định dạng khi dòng được vẽ lần đầu.
+ * Trang dữ liệu và dòng đã định dạng đều giữ trong cache LRU có giới hạn,
+ * bộ nhớ không phụ thuộc tổng số dòng. Đổi nguồn dữ liệu chỉ phát một sự kiện.
+ * Sau thêm/sửa/xóa chỉ dòng bị ảnh hưởng được cập nhật (nguồn ListPagedDataSource,
+ * sắp xếp theo ngày giảm dần như SELECT_ALL); dữ liệu đọc dần được nối vào cuối.
+ * Với nguồn trong bộ nhớ còn có thể sắp xếp theo cột và lọc theo loại vàng/loại tiền
+ * (TransactionSortIndex); khi đó bảng hiển thị qua mảng chỉ số viewToModel.
+ * Tìm theo tiền tố mã dùng GiaoDichIdIndex (cập nhật theo thêm/sửa/xóa): kết quả là
+ * một khoảng liên tiếp trong chỉ mục, theo thứ tự mã, ưu tiên hơn sắp xếp/lọc loại.
+ */
+public class TransactionTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOGGER = Logger.getLogger(TransactionTableModel.class.getName());
+
+    public static final int COLUMN_ACTIONS = 6;
+
+    private static final String[] COLUMNS = {
+        "Mã GD", "Ngày", "Đơn giá", "Số lượng", "Chi tiết", "Thành tiền", "Thao tác"
+    };
+
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 16;
+    private static final int MAX_CACHED_ROWS = 1000;
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private PagedDataSource<GiaoDich> dataSource = new ListPagedDataSource<>(null);
+    private int rowCount;
+
+    // Sắp xếp/lọc: sortColumn < 0 là thứ tự gốc, categoryFilter null là không lọc
+    private int sortColumn = -1;
+    private boolean sortAscending = true;
+    private String categoryFilter;
+    private TransactionSortIndex sortIndex; // tạo khi cần, cập nhật theo từng dòng thêm/sửa/xóa
+    private int[] viewToModel; // null: dòng hiển thị trùng dòng nguồn
+
+    // Tìm theo tiền tố mã: idPrefix null là không tìm; kết quả là [searchFrom, searchFrom + rowCount)
+    private GiaoDichIdIndex idIndex;
+    private String idPrefix;
+    private int searchFrom;
+
+    // Có dòng nối thêm (từ appendFrom) chưa đưa vào thứ tự sắp xếp/lọc đang hiển thị
+    private boolean appending;
+    private int appendFrom;
+
+    // Trang dữ liệu thô theo số trang (LRU)
+    private final Map<Integer, List<GiaoDich>> pageCache = new LruCache<>(MAX_CACHED_PAGES);
+    // Dòng đã định dạng theo chỉ số dòng (LRU)
+    private final Map<Integer, Object[]> rowCache = new LruCache<>(MAX_CACHED_ROWS);
+
+    /**
+     * Đổi nguồn dữ liệu; bỏ toàn bộ cache và phát một sự kiện duy nhất
+     */
+    public void setDataSource(PagedDataSource<GiaoDich> dataSource) {
+        setDataSource(dataSource, null);
+    }
+
+    /**
+     * Đổi nguồn dữ liệu kèm chỉ mục mã đã tạo sẵn trên thread nền (null: tạo khi cần)
+     */
+    public void setDataSource(PagedDataSource<GiaoDich> dataSource, GiaoDichIdIndex idIndex) {
+        this.dataSource = dataSource;
+        this.sortIndex = null;
+        this.idIndex = idIndex;
+        if (getEditableSource() == null) {
+            // Nguồn đọc theo trang từ DB: không có khóa trong bộ nhớ để sắp xếp/lọc/tìm
+            sortColumn = -1;
+            categoryFilter = null;
+            idPrefix = null;
+            this.idIndex = null;
+        }
+        refreshView();
+    }
+
+    /**
+     * Chỉ hiển thị giao dịch có mã bắt đầu bằng prefix (không phân biệt hoa thường).
+     * Rỗng hoặc null: bỏ tìm kiếm. Mỗi lần gọi chỉ là hai lần tìm nhị phân.
+     */
+    public void setIdPrefixFilter(String prefix) {
+        String normalized = prefix == null || prefix.trim().isEmpty() ? null : prefix.trim();
+        if (getEditableSource() == null || Objects.equals(normalized, idPrefix)) {
+            return;
+        }
+        idPrefix = normalized;
+        refreshView();
+    }
+
+    public String getIdPrefixFilter() {
+        return idPrefix;
+    }
+
+    /**
+     * Cột có thể sắp xếp (theo giá trị gốc, không theo chuỗi hiển thị)
+     */
+    public boolean isSortable(int column) {
+        return sortKeyOf(column) >= 0 && getEditableSource() != null && idPrefix == null;
+    }
+
+    /**
+     * Bấm vào tiêu đề cột: cột mới thì tăng dần, bấm lại thì đảo chiều,
+     * bấm lần thứ ba thì trở về thứ tự gốc (ngày giảm dần)
+     */
+    public void toggleSort(int column) {
+        if (!isSortable(column)) {
+            return;
+        }
+        if (column != sortColumn) {
+            sortColumn = column;
+            sortAscending = true;
+        } else if (sortAscending) {
+            sortAscending = false;
+        } else {
+            sortColumn = -1;
+        }
+        refreshView();
+    }
+
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    public boolean isSortAscending() {
+        return sortAscending;
+    }
+
+    /**
+     * Chỉ hiển thị giao dịch có loại vàng/loại tiền là category (null: tất cả)
+     */
+    public void setCategoryFilter(String category) {
+        if (getEditableSource() == null) {
+            return;
+        }
+        categoryFilter = category;
+        refreshView();
+    }
+
+    public String getCategoryFilter() {
+        return categoryFilter;
+    }
+
+    /**
+     * Các loại vàng/loại tiền có trong dữ liệu (để chọn bộ lọc)
+     */
+    public List<String> getCategories() {
+        TransactionSortIndex index = getSortIndex();
+        return index != null ? index.getCategories() : List.of();
+    }
+
+    private boolean isViewActive() {
+        return sortColumn >= 0 || categoryFilter != null || idPrefix != null;
+    }
+
+    /**
+     * Tính lại thứ tự hiển thị, bỏ cache và phát một sự kiện duy nhất
+     */
+    private void refreshView() {
+        appending = false;
+        if (idPrefix != null) {
+            GiaoDichIdIndex index = getIdIndex();
+            viewToModel = null;
+            searchFrom = index.lowerBound(idPrefix);
+            rowCount = index.upperBound(idPrefix) - searchFrom;
+        } else if (isViewActive()) {
+            viewToModel = getSortIndex().order(sortKeyOf(sortColumn), sortAscending, categoryFilter);
+            rowCount = viewToModel.length;
+        } else {
+            viewToModel = null;
+            rowCount = dataSource.size();
+        }
+        pageCache.clear();
+        rowCache.clear();
+        fireTableDataChanged();
+    }
+
+    private GiaoDichIdIndex getIdIndex() {
+        if (idIndex == null) {
+            idIndex = GiaoDichIdIndex.build(getEditableSource());
+        }
+        return idIndex;
+    }
+
+    private TransactionSortIndex getSortIndex() {
+        ListPagedDataSource<GiaoDich> source = getEditableSource();
+        if (sortIndex == null && source != null) {
+            sortIndex = TransactionSortIndex.build(source);
+        }
+        return sortIndex;
+    }
+
+    private static int sortKeyOf(int column) {
+        switch (column) {
+            case 1: return TransactionSortIndex.KEY_NGAY;
+            case 2: return TransactionSortIndex.KEY_DON_GIA;
+            case 3: return TransactionSortIndex.KEY_SO_LUONG;
+            case 5: return TransactionSortIndex.KEY_THANH_TIEN;
+            default: return -1;
+        }
+    }
+
+    public PagedDataSource<GiaoDich> getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Giao dịch có mã maGiaoDich trong nguồn dữ liệu, null nếu không có
+     * (hoặc nguồn không nằm sẵn trong bộ nhớ)
+     */
+    public GiaoDich findTransaction(String maGiaoDich) {
+        ListPagedDataSource<GiaoDich> source = getEditableSource();
+        if (source == null) {
+            return null;
+        }
+        if (idIndex != null) {
+            return idIndex.find(maGiaoDich);
+        }
+        int row = source.indexOf(item -> item.getMaGiaoDich().equals(maGiaoDich));
+        return row >= 0 ? source.get(row) : null;
+    }
+    
+    /**
+     * Chèn giao dịch mới vào đúng vị trí theo ngày giảm dần.
+     * Trả về vị trí trong nguồn dữ liệu, -1 nếu nguồn không hỗ trợ cập nhật tại chỗ.
+     * Đang sắp xếp/lọc thì chỉ tính khóa của dòng mới và tìm nhị phân vị trí của nó
+     * trong thứ tự hiển thị, vẫn chỉ phát sự kiện một dòng.
+     */
+    public int insertTransaction(GiaoDich gd) {
+        ListPagedDataSource<GiaoDich> source = getEditableSource();
+        if (source == null) {
+            return -1;
+        }
+        int row = findInsertPosition(source, gd.getNgayGiaoDich());
+        source.add(row, gd);
+        if (idIndex != null) {
+            idIndex.add(gd);
+        }
+        if (sortIndex != null) {
+            sortIndex.insert(row, gd);
+        }
+        if (needsFullRefresh()) {
+            refreshView();
+            return row;
+        }
+        if (viewToModel == null) {
+            rowCount = source.size();
+            invalidateFrom(row);
+            fireTableRowsInserted(row, row);
+            return row;
+        }
+        int truoc = viewToModel.length;
+        viewToModel = sortIndex.insertIntoView(viewToModel, row, sortKeyOf(sortColumn), sortAscending, categoryFilter);
+        if (viewToModel.length == truoc) {
+            // Bị lọc bỏ: các dòng đang hiển thị giữ nguyên, chỉ chỉ số nguồn dịch đi
+            pageCache.clear();
+            return row;
+        }
+        int viewRow = TransactionSortIndex.indexOf(viewToModel, row);
+        rowCount = viewToModel.length;
+        invalidateFrom(viewRow);
+        fireTableRowsInserted(viewRow, viewRow);
+        return row;
+    }
+
+    /**
+     * Tìm theo mã (chỉ hai lần tìm nhị phân), hoặc đang sắp xếp/lọc mà chưa có chỉ mục khớp
+     * với thứ tự hiển thị (đang đọc dần): tính lại cả thứ tự thay vì cập nhật một dòng
+     */
+    private boolean needsFullRefresh() {
+        return idPrefix != null || appending || (viewToModel != null && sortIndex == null);
+    }
+
+    /**
+     * Nối thêm một phần dữ liệu đang đọc dần vào cuối (cùng thứ tự ngày giảm dần).
+     * Không sắp xếp/lọc thì chỉ phát một sự kiện cho các dòng mới; đang tìm theo mã thì
+     * tìm lại (chỉ hai lần tìm nhị phân); đang sắp xếp/lọc thì thứ tự hiển thị được
+     * tính lại một lần ở finishAppending thay vì sau mỗi phần.
+     * Trả về false nếu nguồn không hỗ trợ cập nhật tại chỗ.
+     */
+    public boolean appendTransactions(List<GiaoDich> giaoDichs) {
+        ListPagedDataSource<GiaoDich> source = getEditableSource();
+        if (source == null) {
+            return false;
+        }
+        if (giaoDichs.isEmpty()) {
+            return true;
+        }
+        int first = source.size();
+        source.addAll(giaoDichs);
+        if (idIndex != null) {
+            idIndex.addAll(giaoDichs);
+        }
+        if (sortIndex != null) {
+            sortIndex.append(first);
+        }
+        if (idPrefix != null) {
+            refreshView();
+        } else if (isViewActive()) {
+            // Các dòng đang hiển thị vẫn đúng (chỉ số cũ không đổi), dòng mới chờ đọc xong;
+            // trang cũ là subList của danh sách vừa đổi nên không dùng lại được
+            if (!appending) {
+                appending = true;
+                appendFrom = first;
+            }
+            pageCache.clear();
+        } else {
+            rowCount = source.size();
+            invalidateFrom(first);
+            fireTableRowsInserted(first, rowCount - 1);
+        }
+        return true;
+    }
+
+    /**
+     * Đã đọc xong (hoặc dừng): đưa các dòng nối thêm vào thứ tự hiển thị đã hoãn trong lúc
+     * đọc dần; chỉ sắp phần mới rồi trộn với thứ tự đang có
+     */
+    public void finishAppending() {
+        if (!appending) {
+            return;
+        }
+        appending = false;
+        if (sortIndex == null || viewToModel == null) {
+            refreshView();
+            return;
+        }
+        viewToModel = sortIndex.mergeAppended(viewToModel, appendFrom, sortKeyOf(sortColumn), sortAscending, categoryFilter);
+        rowCount = viewToModel.length;
+        pageCache.clear();
+        rowCache.clear();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Thay giao dịch có mã maGiaoDich bằng bản mới.
+     * Cùng ngày thì cập nhật tại chỗ, khác ngày (hoặc đang sắp xếp/lọc) thì bỏ dòng cũ
+     * và chèn lại như một dòng mới.
+     * Trả về false nếu không tìm thấy dòng hoặc nguồn không hỗ trợ cập nhật tại chỗ.
+     */
+    public boolean replaceTransaction(String maGiaoDich, GiaoDich gd) {
+        ListPagedDataSource<GiaoDich> source = getEditableSource();
+        if (source == null) {
+            return false;
+        }
+        int row = source.indexOf(item -> item.getMaGiaoDich().equals(maGiaoDich));
+        if (row < 0) {
+            return false;
+        }
+        if (!isViewActive() && source.get(row).getNgayGiaoDich().equals(gd.getNgayGiaoDich())) {
+            if (idIndex != null) {
+                idIndex.replace(maGiaoDich, gd);
+            }
+            if (sortIndex != null) {
+                sortIndex.remove(row, source.get(row));
+                source.set(row, gd);
+                sortIndex.insert(row, gd);
+            } else {
+                source.set(row, gd);
+            }
+            rowCache.remove(row);
+            pageCache.clear();
+            fireTableRowsUpdated(row, row);
+            return true;
+        }
+        removeRow(source, row);
+        insertTransaction(gd);
+        return true;
+    }
+
+    /**
+     * Bỏ dòng của giao dịch có mã maGiaoDich, trả về false nếu không có dòng đó
+     */
+    public boolean removeTransaction(String maGiaoDich) {
+        ListPagedDataSource<GiaoDich> source = getEditableSource();
+        if (source == null) {
+            return false;
+        }
+        int row = source.indexOf(item -> item.getMaGiaoDich().equals(maGiaoDich));
+        if (row < 0) {
+            return false;
+        }
+        removeRow(source, row);
+        return true;
+    }
+
+    private void removeRow(ListPagedDataSource<GiaoDich> source, int row) {
+        GiaoDich removed = source.remove(row);
+        if (idIndex != null) {
+            idIndex.remove(removed.getMaGiaoDich());
+        }
+        if (sortIndex != null) {
+            sortIndex.remove(row, removed);
+        }
+        if (needsFullRefresh()) {
+            refreshView();
+            return;
+        }
+        if (viewToModel == null) {
+            rowCount = source.size();
+            invalidateFrom(row);
+            fireTableRowsDeleted(row, row);
+            return;
+        }
+        int viewRow = TransactionSortIndex.indexOf(viewToModel, row);
+        viewToModel = TransactionSortIndex.removeValue(viewToModel, row);
+        TransactionSortIndex.shiftFrom(viewToModel, row + 1, -1);
+        if (viewRow < 0) {
+            // Dòng đang bị lọc bỏ: các dòng đang hiển thị giữ nguyên, chỉ chỉ số nguồn dịch đi
+            pageCache.clear();
+            return;
+        }
+        rowCount = viewToModel.length;
+        invalidateFrom(viewRow);
+        fireTableRowsDeleted(viewRow, viewRow);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ListPagedDataSource<GiaoDich> getEditableSource() {
+        return dataSource instanceof ListPagedDataSource
+            ? (ListPagedDataSource<GiaoDich>) dataSource
+            : null;
+    }
+
+    /**
+     * Vị trí đầu tiên có ngày không lớn hơn ngày cần chèn (tìm nhị phân).
+     * Giao dịch mới đứng đầu nhóm cùng ngày cho dễ thấy.
+     */
+    private int findInsertPosition(ListPagedDataSource<GiaoDich> source, LocalDate date) {
+        int low = 0;
+        int high = source.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (source.get(mid).getNgayGiaoDich().isAfter(date)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Các dòng từ vị trí row trở đi bị dịch chỉ số; subList của trang cũ không còn dùng được
+     */
+    private void invalidateFrom(int row) {
+        pageCache.clear();
+        rowCache.keySet().removeIf(index -> index >= row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        if (column == sortColumn && idPrefix == null) {
+            return COLUMNS[column] + (sortAscending ? " ▲" : " ▼");
+        }
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == COLUMN_ACTIONS; // Chỉ cho phép click vào cột thao tác
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Object[] formatted = getFormattedRow(row);
+        return formatted != null ? formatted[column] : null;
+    }
+
+    /**
+     * Giao dịch tại dòng đang hiển thị (đã qua sắp xếp/lọc), null nếu không đọc được
+     */
+    public GiaoDich getTransactionAt(int row) {
+        if (row < 0 || row >= rowCount) {
+            return null;
+        }
+        if (idPrefix != null) {
+            return idIndex.get(searchFrom + row);
+        }
+        int modelRow = viewToModel != null ? viewToModel[row] : row;
+        List<GiaoDich> page = getPage(modelRow / PAGE_SIZE);
+        int index = modelRow % PAGE_SIZE;
+        return page != null && index < page.size() ? page.get(index) : null;
+    }
+
+    private Object[] getFormattedRow(int row) {
+        Object[] formatted = rowCache.get(row);
+        if (formatted == null) {
+            GiaoDich gd = getTransactionAt(row);
+            if (gd == null) {
+                return null;
+            }
+            formatted = formatRow(gd);
+            rowCache.put(row, formatted);
+        }
+        return formatted;
+    }
+
+    private List<GiaoDich> getPage(int pageIndex) {
+        List<GiaoDich> page = pageCache.get(pageIndex);
+        if (page == null) {
+            try {
+                page = dataSource.getPage(pageIndex * PAGE_SIZE, PAGE_SIZE);
+                pageCache.put(pageIndex, page);
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Không thể tải trang " + pageIndex + " của bảng giao dịch", e);
+            }
+        }
+        return page;
+    }
+
+    private Object[] formatRow(GiaoDich gd) {
+        return new Object[] {
+            gd.getMaGiaoDich(),
+            gd.getNgayGiaoDich().format(DATE_FORMATTER),
+            UIUtils.formatCurrency(gd.getDonGia()),
+            gd.getSoLuong(),
+            getTransactionDetail(gd),
+            UIUtils.formatCurrency(gd.tinhThanhTien()),
+            gd.getMaGiaoDich() // Lưu mã giao dịch để sử dụng trong button actions
+        };
+    }
+
+    /**
+     * Lấy chi tiết giao dịch để hiển thị
+     */
+    private String getTransactionDetail(GiaoDich gd) {
+        if (gd instanceof GiaoDichVang) {
+            return "Vàng: " + ((GiaoDichVang) gd).getLoaiVang();
+        } else if (gd instanceof GiaoDichTienTe) {
+            GiaoDichTienTe gdtt = (GiaoDichTienTe) gd;
+            if ("VND".equals(gdtt.getLoaiTien())) {
+                return "Tiền tệ: " + gdtt.getLoaiTien();
+            } else {
+                return "Tiền tệ: " + gdtt.getLoaiTien() + " (Tỉ giá: " + UIUtils.formatCurrency(gdtt.getTiGia()) + ")";
+            }
+        }
+        return "";
+    }
+
+    /**
+     * LinkedHashMap theo thứ tự truy cập, tự bỏ phần tử ít dùng nhất khi đầy
+     */
+    private static class LruCache<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+        private final int maxEntries;
+
+        LruCache(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
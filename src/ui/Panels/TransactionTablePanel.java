@@ -5,34 +5,60 @@ import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
-import java.time.format.DateTimeFormatter;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.List;
 
 import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
+import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.PopupMenuEvent;
+import javax.swing.event.PopupMenuListener;
 import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableColumn;
 
 import model.GiaoDich;
-import model.GiaoDichTienTe;
-import model.GiaoDichVang;
+import service.paging.ListPagedDataSource;
+import service.paging.PagedDataSource;
 import ui.Utils.UIUtils;
 
 public class TransactionTablePanel extends JPanel {
     
     private JTable tblGiaoDich;
-    private DefaultTableModel tableModel;
+    private TransactionTableModel tableModel;
     private CrudActionListener crudActionListener;
     
+    // Lọc theo loại vàng/loại tiền (danh sách loại lấy từ model khi mở)
+    private static final String TAT_CA = "Tất cả";
+    private JComboBox<String> cboLoai;
+    private boolean updatingFilter;
+    
+    // Tìm theo tiền tố mã giao dịch (chỉ mục trong model, không truy vấn DB)
+    private JTextField txtTimMa;
+    
+    // Trạng thái đọc dần dữ liệu và nút dừng
+    private JLabel lblTrangThaiTai;
+    private JButton btnDungTai;
+    private StopLoadingListener stopLoadingListener;
+    
     // Interface để xử lý sự kiện CRUD
     public interface CrudActionListener {
         void onEditTransaction(String maGiaoDich);
         void onDeleteTransaction(String maGiaoDich);
     }
     
+    // Interface để xử lý sự kiện dừng tải dữ liệu
+    public interface StopLoadingListener {
+        void onStopLoading();
+    }
+    
     public TransactionTablePanel() {
         initializeComponents();
         setupLayout();
@@ -43,14 +69,8 @@ public class TransactionTablePanel extends JPanel {
      * Khởi tạo các component
      */
     private void initializeComponents() {
-        // Tạo model cho bảng với các cột 
-        String[] columns = {"Mã GD", "Ngày", "Đơn giá", "Số lượng", "Chi tiết", "Thành tiền", "Thao tác"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column == 6; // Chỉ cho phép click vào cột thao tác
-            }
-        };
+        // Model lazy: chỉ đọc và định dạng các dòng đang hiển thị
+        tableModel = new TransactionTableModel();
         
         // Tạo bảng
         tblGiaoDich = new JTable(tableModel);
@@ -71,6 +91,16 @@ public class TransactionTablePanel extends JPanel {
         // Thiết lập custom renderer cho cột thao tác
         tblGiaoDich.getColumnModel().getColumn(6).setCellRenderer(new ActionButtonRenderer());
         tblGiaoDich.getColumnModel().getColumn(6).setCellEditor(new ActionButtonEditor());
+        
+        // Các model đều cùng cột: đổi model giữ nguyên độ rộng, renderer và editor
+        tblGiaoDich.setAutoCreateColumnsFromModel(false);
+        
+        cboLoai = new JComboBox<>(new String[] { TAT_CA });
+        txtTimMa = new JTextField(10);
+        
+        lblTrangThaiTai = new JLabel();
+        btnDungTai = new JButton("Dừng tải");
+        btnDungTai.setVisible(false);
     }
     
     /**
@@ -94,6 +124,12 @@ public class TransactionTablePanel extends JPanel {
             }
         });
         topPanel.add(btnThemMoi);
+        topPanel.add(new JLabel("Tìm mã:"));
+        topPanel.add(txtTimMa);
+        topPanel.add(new JLabel("Lọc loại:"));
+        topPanel.add(cboLoai);
+        topPanel.add(lblTrangThaiTai);
+        topPanel.add(btnDungTai);
         add(topPanel, BorderLayout.NORTH);
     }
     
@@ -102,52 +138,181 @@ public class TransactionTablePanel extends JPanel {
      */
     private void setupEventHandlers() {
         // Không cần listener cho selection vì đã có nút CRUD
+        
+        // Bấm tiêu đề cột để sắp xếp theo giá trị gốc của cột
+        tblGiaoDich.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int viewColumn = tblGiaoDich.columnAtPoint(e.getPoint());
+                if (viewColumn < 0) {
+                    return;
+                }
+                int column = tblGiaoDich.convertColumnIndexToModel(viewColumn);
+                if (tableModel.isSortable(column)) {
+                    cancelEditing();
+                    tableModel.toggleSort(column);
+                    updateColumnHeaders();
+                }
+            }
+        });
+        
+        // Kết quả tìm cập nhật theo từng phím gõ
+        txtTimMa.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                applyIdSearch();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                applyIdSearch();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                applyIdSearch();
+            }
+        });
+        
+        // Dừng đọc dần: các dòng đã hiển thị được giữ lại
+        btnDungTai.addActionListener(e -> {
+            if (stopLoadingListener != null) {
+                stopLoadingListener.onStopLoading();
+            }
+        });
+        
+        // Danh sách loại lấy từ chỉ mục của model mỗi lần mở
+        cboLoai.addPopupMenuListener(new PopupMenuListener() {
+            @Override
+            public void popupMenuWillBecomeVisible(PopupMenuEvent e) {
+                reloadCategories(true);
+            }
+            
+            @Override
+            public void popupMenuWillBecomeInvisible(PopupMenuEvent e) {
+            }
+            
+            @Override
+            public void popupMenuCanceled(PopupMenuEvent e) {
+            }
+        });
+        cboLoai.addActionListener(e -> {
+            if (updatingFilter) {
+                return;
+            }
+            Object selected = cboLoai.getSelectedItem();
+            cancelEditing();
+            tableModel.setCategoryFilter(selected == null || TAT_CA.equals(selected) ? null : selected.toString());
+        });
+    }
+    
+    private void applyIdSearch() {
+        cancelEditing();
+        tableModel.setIdPrefixFilter(txtTimMa.getText());
+        updateColumnHeaders();
+    }
+    
+    /**
+     * Nạp lại danh sách loại, giữ lựa chọn hiện tại của model.
+     * withCategories = false: chỉ hiện lựa chọn hiện tại (không tạo chỉ mục khi đổi tab)
+     */
+    private void reloadCategories(boolean withCategories) {
+        updatingFilter = true;
+        try {
+            cboLoai.removeAllItems();
+            cboLoai.addItem(TAT_CA);
+            List<String> categories = withCategories ? tableModel.getCategories() : List.of();
+            for (String category : categories) {
+                cboLoai.addItem(category);
+            }
+            // Loại đang lọc có thể không còn dòng nào: vẫn giữ trong danh sách
+            String current = tableModel.getCategoryFilter();
+            if (current != null && !categories.contains(current)) {
+                cboLoai.addItem(current);
+            }
+            cboLoai.setSelectedItem(current != null ? current : TAT_CA);
+        } finally {
+            updatingFilter = false;
+        }
+    }
+    
+    /**
+     * Tiêu đề cột hiển thị chiều sắp xếp (cột không tự tạo lại khi model đổi)
+     */
+    private void updateColumnHeaders() {
+        for (int i = 0; i < tblGiaoDich.getColumnModel().getColumnCount(); i++) {
+            TableColumn column = tblGiaoDich.getColumnModel().getColumn(i);
+            column.setHeaderValue(tableModel.getColumnName(column.getModelIndex()));
+        }
+        tblGiaoDich.getTableHeader().repaint();
+    }
+    
+    /**
+     * Dữ liệu đang được đọc dần: hiện số dòng đã tải và nút dừng
+     */
+    public void showLoadingProgress(int soDong) {
+        lblTrangThaiTai.setText("Đang tải... " + UIUtils.formatCurrency(soDong) + " giao dịch");
+        btnDungTai.setVisible(true);
+    }
+    
+    /**
+     * Đang hiển thị bản lưu cục bộ và đồng bộ phần thay đổi với DB
+     */
+    public void showSyncing() {
+        lblTrangThaiTai.setText("Đang đồng bộ với cơ sở dữ liệu...");
+        btnDungTai.setVisible(false);
+    }
+    
+    /**
+     * Đọc dần đã kết thúc; stopped = true nếu người dùng dừng giữa chừng
+     */
+    public void showLoadingFinished(int soDong, boolean stopped) {
+        lblTrangThaiTai.setText(stopped
+            ? "Đã dừng tải (" + UIUtils.formatCurrency(soDong) + " giao dịch)"
+            : "");
+        btnDungTai.setVisible(false);
     }
     
     /**
      * Load danh sách giao dịch vào bảng
      */
     public void loadTransactions(List<GiaoDich> giaoDichs) {
-        // Xóa dữ liệu cũ
-        tableModel.setRowCount(0);
-        
-        if (giaoDichs == null || giaoDichs.isEmpty()) {
-            return;
-        }
-        
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-        
-        // Thêm từng giao dịch vào bảng
-        for (GiaoDich gd : giaoDichs) {
-            Object[] row = new Object[7];
-            
-            row[0] = gd.getMaGiaoDich();
-            row[1] = gd.getNgayGiaoDich().format(formatter);
-            row[2] = UIUtils.formatCurrency(gd.getDonGia());
-            row[3] = gd.getSoLuong();
-            row[4] = getTransactionDetail(gd);
-            row[5] = UIUtils.formatCurrency(gd.tinhThanhTien());
-            row[6] = gd.getMaGiaoDich(); // Lưu mã giao dịch để sử dụng trong button actions
-            
-            tableModel.addRow(row);
+        setDataSource(new ListPagedDataSource<>(giaoDichs));
+    }
+    
+    /**
+     * Hiển thị dữ liệu từ nguồn đọc theo trang (không tải trước toàn bộ)
+     */
+    public void setDataSource(PagedDataSource<GiaoDich> dataSource) {
+        cancelEditing();
+        tableModel.setDataSource(dataSource);
+    }
+    
+    /**
+     * Dừng chỉnh sửa ô thao tác của dòng cũ trước khi đổi dữ liệu
+     */
+    public void cancelEditing() {
+        if (tblGiaoDich.isEditing()) {
+            tblGiaoDich.getCellEditor().cancelCellEditing();
         }
     }
     
     /**
-     * Lấy chi tiết giao dịch để hiển thị
+     * Đổi sang model khác (ví dụ model riêng của từng loại giao dịch).
+     * Model giữ nguyên cache dòng đã định dạng nên không phải lọc hay định dạng lại.
      */
-    private String getTransactionDetail(GiaoDich gd) {
-        if (gd instanceof GiaoDichVang) {
-            return "Vàng: " + ((GiaoDichVang) gd).getLoaiVang();
-        } else if (gd instanceof GiaoDichTienTe) {
-            GiaoDichTienTe gdtt = (GiaoDichTienTe) gd;
-            if ("VND".equals(gdtt.getLoaiTien())) {
-                return "Tiền tệ: " + gdtt.getLoaiTien();
-            } else {
-                return "Tiền tệ: " + gdtt.getLoaiTien() + " (Tỉ giá: " + UIUtils.formatCurrency(gdtt.getTiGia()) + ")";
-            }
+    public void setTableModel(TransactionTableModel model) {
+        if (model == tableModel) {
+            return;
         }
-        return "";
+        cancelEditing();
+        tableModel = model;
+        tblGiaoDich.setModel(model);
+        
+        // Mỗi model giữ cách sắp xếp/lọc riêng; chuỗi tìm mã áp dụng cho cả hai
+        model.setIdPrefixFilter(txtTimMa.getText());
+        updateColumnHeaders();
+        reloadCategories(false);
     }
     
     /**
@@ -258,6 +423,13 @@ public class TransactionTablePanel extends JPanel {
         this.crudActionListener = listener;
     }
     
+    /**
+     * Đặt listener cho nút dừng tải
+     */
+    public void setStopLoadingListener(StopLoadingListener listener) {
+        this.stopLoadingListener = listener;
+    }
+    
     /**
      * Đặt listener cho sự kiện thêm
      */
@@ -289,7 +461,7 @@ public class TransactionTablePanel extends JPanel {
     /**
      * Lấy tham chiếu đến table model (để export)
      */
-    public DefaultTableModel getTableModel() {
+    public TransactionTableModel getTableModel() {
         return tableModel;
     }
 }
@@ -57,6 +57,21 @@ public class UIUtils {
         return CURRENCY_FORMAT.format(amount);
     }
     
+    /**
+     * Định dạng dung lượng file (B, KB, MB, GB)
+     */
+    public static String formatFileSize(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        String[] units = {"KB", "MB", "GB", "TB"};
+        double value = bytes;
+        int unit = -1;
+        while (value >= 1024 && unit < units.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return String.format("%.1f %s", value, units[unit]);
+    }
+    
     /**
      * Định dạng ngày để hiển thị
      */
@@ -1,11 +1,9 @@
 package usecase;
 
 import java.math.BigDecimal;
-import java.util.List;
+import java.math.RoundingMode;
 
 import exception.BusinessException;
-import model.GiaoDich;
-import model.GiaoDichTienTe;
 import service.QuanLyGiaoDich;
 
 /**
@@ -21,25 +19,16 @@ public class AverageValueOfCurrencyTransactionsUseCase {
     }
 
     /**
-     * Tính trung bình thành tiền các giao dịch tiền tệ
-     * @return BigDecimal trung bình, nếu không có giao dịch trả về BigDecimal.ZERO
+     * Tính trung bình thành tiền các giao dịch tiền tệ: AVG trên DB qua bộ nhớ đệm thống kê
+     * của service, không đọc lại giao dịch
+     * @return BigDecimal trung bình (2 chữ số), nếu không có giao dịch trả về BigDecimal.ZERO
      * @throws BusinessException nếu có lỗi nghiệp vụ
      */
     public BigDecimal execute() throws BusinessException {
         try {
-            List<GiaoDich> all = quanLyGiaoDich.getAll();
-            BigDecimal sum = BigDecimal.ZERO;
-            int count = 0;
-            for (GiaoDich gd : all) {
-                if (gd instanceof GiaoDichTienTe) {
-                    sum = sum.add(gd.tinhThanhTien());
-                    count++;
-                }
-            }
-            if (count == 0) return BigDecimal.ZERO;
-            return sum.divide(BigDecimal.valueOf(count), 2, java.math.RoundingMode.HALF_UP);
-        } catch (Exception ex) {
-            throw new BusinessException("Lỗi khi tính trung bình thành tiền tiền tệ: " + ex.getMessage());
+            return quanLyGiaoDich.getTrungBinhThanhTienTienTe().setScale(2, RoundingMode.HALF_UP);
+        } catch (BusinessException ex) {
+            throw new BusinessException("Lỗi khi tính trung bình thành tiền tiền tệ: " + ex.getMessage(), ex);
         }
     }
 }
@@ -29,10 +29,8 @@ public class DeleteTransactionUseCase {
         // Step 1: Validate input parameters
         validateInputParameters(maGiaoDich);
         
-        // Step 2: Validate business rules
-        validateDeleteBusinessRules(maGiaoDich);
-        
-        // Step 3: Execute delete operation
+        // Step 2: Execute delete operation
+        // Không đọc trước để kiểm tra tồn tại: DELETE không khớp dòng nào sẽ báo không tìm thấy
         executeDelete(maGiaoDich);
     }
     
@@ -35,16 +35,23 @@ public class EditTransactionUseCase {
      * @throws BusinessException khi không tìm thấy giao dịch
      */
     public void execute(String maGiaoDich) throws BusinessException {
-        // 1. Validate input
-        validateInput(maGiaoDich);
-        
-        // 2. Find transaction by ID
-        GiaoDich giaoDich = findTransactionById(maGiaoDich);
+        // 1-2. Validate input, find transaction by ID
+        GiaoDich giaoDich = findForEdit(maGiaoDich);
         
         // 3. Open appropriate edit form based on transaction type
         openEditForm(giaoDich);
     }
     
+    /**
+     * Bước truy vấn của use case (chạy được trên thread nền)
+     * @param maGiaoDich mã giao dịch cần edit
+     * @throws BusinessException khi không tìm thấy giao dịch
+     */
+    public GiaoDich findForEdit(String maGiaoDich) throws BusinessException {
+        validateInput(maGiaoDich);
+        return findTransactionById(maGiaoDich);
+    }
+    
     /**
      * Validate input parameters
      */
@@ -74,8 +81,9 @@ public class EditTransactionUseCase {
     
     /**
      * Open appropriate edit form based on transaction type
+     * Bước giao diện của use case (gọi trên EDT)
      */
-    private void openEditForm(GiaoDich giaoDich) throws BusinessException {
+    public void openEditForm(GiaoDich giaoDich) throws BusinessException {
         try {
             if (giaoDich instanceof GiaoDichVang) {
                 openGoldEditForm((GiaoDichVang) giaoDich);
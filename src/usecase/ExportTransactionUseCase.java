@@ -1,21 +1,36 @@
 package usecase;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
+import dao.GiaoDichCursor;
 import dto.ThongKeDTO;
+import dto.TombstoneDTO;
 import exception.BusinessException;
+import exception.DataAccessException;
 import exception.ValidationException;
 import model.GiaoDich;
 import model.GiaoDichTienTe;
 import model.GiaoDichVang;
 import service.QuanLyGiaoDich;
+import service.export.ExportPlan;
+import service.export.ExportPlanner;
+import service.export.ExportProgressListener;
+import service.export.GiaoDichJsonEncoder;
+import service.export.XlsxStreamWriter;
 import ui.Utils.UIUtils;
+import utils.CountingOutputStream;
 
 /**
  * Use Case: Export Transaction List
@@ -23,34 +38,67 @@ import ui.Utils.UIUtils;
  */
 public class ExportTransactionUseCase {
     
+    // Loại export tăng dần: chỉ giao dịch thay đổi từ lần xuất trước + danh sách đã xóa
+    public static final int EXPORT_INCREMENTAL = 3;
+    
+    // Mốc khởi đầu khi đích export chưa từng được xuất (lần đầu = toàn bộ)
+    private static final LocalDateTime INITIAL_WATERMARK = LocalDateTime.of(2000, 1, 1, 0, 0);
+    
+    // Số dòng giữa hai lần báo tiến độ
+    private static final int PROGRESS_INTERVAL = 256;
+    
+    // Dự phòng dung lượng trống so với kích thước ước tính
+    private static final double DISK_SPACE_SAFETY_FACTOR = 1.2;
+    private static final long MIN_FREE_DISK_SPACE = 1024 * 1024; // 1MB
+    
     private final QuanLyGiaoDich quanLyGiaoDich;
+    private final ExportPlanner exportPlanner;
     
     public ExportTransactionUseCase(QuanLyGiaoDich quanLyGiaoDich) {
         this.quanLyGiaoDich = quanLyGiaoDich;
+        this.exportPlanner = new ExportPlanner(quanLyGiaoDich);
     }
     
     /**
      * Execute export transaction use case
      * @param file File to export to
-     * @param exportType Type of export (0: All, 1: Display, 2: With Statistics)
+     * @param exportType Type of export (0: All, 1: Display, 2: With Statistics, 3: Incremental)
      * @param transactionsToExport List of transactions to export (can be null for all)
      * @throws ValidationException Nếu validation fails
      * @throws BusinessException Nếu business rules violation
      */
     public void execute(File file, int exportType, List<GiaoDich> transactionsToExport) 
             throws ValidationException, BusinessException {
+        execute(file, exportType, transactionsToExport, ExportProgressListener.NONE);
+    }
+    
+    /**
+     * Execute export có báo tiến độ và hỗ trợ hủy (dùng cho job chạy nền)
+     * @param progress Listener nhận số dòng/số byte đã ghi, kiểm tra yêu cầu hủy
+     * @throws BusinessException với mã EXPORT_CANCELLED nếu bị hủy (file dở dang đã bị xóa)
+     */
+    public void execute(File file, int exportType, List<GiaoDich> transactionsToExport,
+                        ExportProgressListener progress) throws ValidationException, BusinessException {
         
         // Step 1: Validate input parameters
         validateInputParameters(file, exportType);
         
-        // Step 2: Validate business rules
-        validateExportBusinessRules(file, exportType);
+        // Step 2: Plan export (COUNT/AVG queries, statistics computed once)
+        ExportPlan plan = createPlan(file, exportType, transactionsToExport, true);
+        
+        // Step 3: Validate business rules
+        validateExportBusinessRules(file, exportType, plan, true);
         
-        // Step 3: Get data for export
-        List<GiaoDich> dataToExport = getDataForExport(exportType, transactionsToExport);
+        if (exportType == EXPORT_INCREMENTAL) {
+            executeIncrementalExport(file, plan, progress);
+            return;
+        }
         
-        // Step 4: Execute export operation
-        executeExport(file, exportType, dataToExport);
+        // Step 4: Get data for export (đọc dần, bộ nhớ không phụ thuộc số dòng)
+        // Step 5: Execute export operation
+        try (GiaoDichCursor dataToExport = openDataForExport(exportType, transactionsToExport)) {
+            executeExport(file, plan, dataToExport, progress);
+        }
     }
     
     /**
@@ -65,14 +113,20 @@ public class ExportTransactionUseCase {
             throw new ValidationException("Thư mục đích không tồn tại", "DIRECTORY_NOT_EXISTS");
         }
         
-        if (exportType < 0 || exportType > 2) {
-            throw new ValidationException("Loại export không hợp lệ (0-2)", "INVALID_EXPORT_TYPE");
+        if (exportType < 0 || exportType > EXPORT_INCREMENTAL) {
+            throw new ValidationException("Loại export không hợp lệ (0-3)", "INVALID_EXPORT_TYPE");
         }
         
         // Validate file extension
         String fileName = file.getName().toLowerCase();
-        if (!fileName.endsWith(".csv") && !fileName.endsWith(".txt")) {
-            throw new ValidationException("Chỉ hỗ trợ file .csv và .txt", "UNSUPPORTED_FILE_FORMAT");
+        if (!fileName.endsWith(".csv") && !fileName.endsWith(".txt") 
+                && !fileName.endsWith(".jsonl") && !fileName.endsWith(".xlsx")) {
+            throw new ValidationException("Chỉ hỗ trợ file .csv, .txt, .jsonl và .xlsx", "UNSUPPORTED_FILE_FORMAT");
+        }
+        
+        // JSON Lines chỉ chứa bản ghi, không có chỗ cho khối thống kê
+        if (fileName.endsWith(".jsonl") && exportType == 2) {
+            throw new ValidationException("File .jsonl không hỗ trợ xuất kèm thống kê", "UNSUPPORTED_EXPORT_TYPE");
         }
         
         // Validate file name
@@ -81,32 +135,55 @@ public class ExportTransactionUseCase {
         }
     }
     
+    /**
+     * Lập kế hoạch export (không tải dữ liệu); tinhThongKe: tính luôn khối thống kê (loại 2)
+     */
+    private ExportPlan createPlan(File file, int exportType, List<GiaoDich> transactionsToExport,
+                                 boolean tinhThongKe) throws BusinessException {
+        String fileName = file.getName().toLowerCase();
+        String dinhDang = fileName.substring(fileName.lastIndexOf('.') + 1);
+        try {
+            if (exportType == EXPORT_INCREMENTAL) {
+                LocalDateTime tuThoiDiem = quanLyGiaoDich.getExportWatermark(getExportTarget(file))
+                    .orElse(INITIAL_WATERMARK);
+                // updated_at chỉ chính xác tới giây: lùi 1 giây để không bỏ sót dòng ghi cùng giây với lúc đọc
+                LocalDateTime denThoiDiem = quanLyGiaoDich.getDatabaseTime().minusSeconds(1);
+                if (denThoiDiem.isBefore(tuThoiDiem)) {
+                    denThoiDiem = tuThoiDiem;
+                }
+                return exportPlanner.planIncremental(dinhDang, tuThoiDiem, denThoiDiem);
+            }
+            return exportPlanner.plan(dinhDang, exportType, transactionsToExport, tinhThongKe);
+        } catch (BusinessException ex) {
+            throw new BusinessException("Lỗi khi lập kế hoạch export: " + ex.getMessage(), ex);
+        }
+    }
+    
     /**
      * Validate business rules for export operation
      */
-    private void validateExportBusinessRules(File file, int exportType) throws BusinessException {
+    private void validateExportBusinessRules(File file, int exportType, ExportPlan plan, boolean kiemTraThongKe)
+            throws BusinessException {
         try {
             // Business rule: Check if file already exists and can be overwritten
             if (file.exists() && !file.canWrite()) {
                 throw new BusinessException("File đã tồn tại và không thể ghi đè", "FILE_NOT_WRITABLE");
             }
             
-            // Business rule: Check available disk space (basic check)
-            long freeSpace = file.getParentFile().getFreeSpace();
-            if (freeSpace < 1024 * 1024) { // Less than 1MB
-                throw new BusinessException("Không đủ dung lượng ổ đĩa", "INSUFFICIENT_DISK_SPACE");
+            // Business rule: Check available disk space against the estimated file size
+            long requiredSpace = Math.max(MIN_FREE_DISK_SPACE,
+                (long) (plan.getUocTinhSoByte() * DISK_SPACE_SAFETY_FACTOR));
+            long freeSpace = file.getAbsoluteFile().getParentFile().getUsableSpace();
+            if (freeSpace < requiredSpace) {
+                throw new BusinessException(
+                    "Không đủ dung lượng ổ đĩa (cần khoảng " + UIUtils.formatFileSize(requiredSpace) + 
+                    ", còn trống " + UIUtils.formatFileSize(freeSpace) + ")", "INSUFFICIENT_DISK_SPACE");
             }
             
             // Business rule: Validate data availability for export type
-            if (exportType == 2) { // Export with statistics
-                try {
-                    ThongKeDTO stats = quanLyGiaoDich.getTongSoLuongTheoLoai();
-                    if (stats == null) {
-                        throw new BusinessException("Không có dữ liệu thống kê để export", "NO_STATISTICS_DATA");
-                    }
-                } catch (Exception ex) {
-                    throw new BusinessException("Lỗi khi lấy dữ liệu thống kê: " + ex.getMessage(), ex);
-                }
+            // (kiểm tra trước khi export không tính thống kê, bỏ qua bước này)
+            if (exportType == 2 && kiemTraThongKe && !plan.hasThongKe()) { // Export with statistics
+                throw new BusinessException("Không có dữ liệu thống kê để export", "NO_STATISTICS_DATA");
             }
             
         } catch (Exception ex) {
@@ -118,26 +195,28 @@ public class ExportTransactionUseCase {
     }
     
     /**
-     * Get data for export based on export type
+     * Get data for export based on export type.
+     * Toàn bộ giao dịch được đọc dần từ con trỏ DB thay vì tải cả bảng vào một List;
+     * người gọi phải đóng con trỏ.
      */
-    private List<GiaoDich> getDataForExport(int exportType, List<GiaoDich> providedTransactions) 
+    private GiaoDichCursor openDataForExport(int exportType, List<GiaoDich> providedTransactions) 
             throws BusinessException {
         try {
             switch (exportType) {
                 case 0: // All transactions
                 case 2: // All transactions with statistics
-                    return quanLyGiaoDich.getAll();
+                    return quanLyGiaoDich.openCursorAll();
                     
                 case 1: // Provided transactions (displayed in table)
                     if (providedTransactions != null && !providedTransactions.isEmpty()) {
-                        return providedTransactions;
+                        return GiaoDichCursor.of(providedTransactions);
                     } else {
                         // Fallback to all transactions if no specific list provided
-                        return quanLyGiaoDich.getAll();
+                        return quanLyGiaoDich.openCursorAll();
                     }
                     
                 default:
-                    return quanLyGiaoDich.getAll();
+                    return quanLyGiaoDich.openCursorAll();
             }
         } catch (Exception ex) {
             throw new BusinessException("Lỗi khi lấy dữ liệu export: " + ex.getMessage(), ex);
@@ -145,15 +224,181 @@ public class ExportTransactionUseCase {
     }
     
     /**
-     * Execute the actual export operation
+     * Export tăng dần: ghi các giao dịch có updated_at trong (mốc cũ, mốc mới] của kế hoạch
+     * vào file chính (đọc dần từ con trỏ DB), các giao dịch đã xóa vào file đi kèm,
+     * sau đó lưu mốc mới. Mốc chỉ được lưu khi cả hai file đã ghi xong.
      */
-    private void executeExport(File file, int exportType, List<GiaoDich> dataToExport) 
+    private void executeIncrementalExport(File file, ExportPlan plan, ExportProgressListener progress) 
             throws BusinessException {
+        String exportTarget = getExportTarget(file);
+        File tombstoneFile = getTombstoneFile(file);
+        LocalDateTime tuThoiDiem = plan.getTuThoiDiem();
+        LocalDateTime denThoiDiem = plan.getDenThoiDiem();
+        
+        try (GiaoDichCursor cursor = quanLyGiaoDich.openCursorChangedBetween(tuThoiDiem, denThoiDiem)) {
+            executeExport(file, plan, cursor, progress);
+        }
+        List<TombstoneDTO> deleted;
+        try {
+            deleted = quanLyGiaoDich.findDeletedBetween(tuThoiDiem, denThoiDiem);
+        } catch (BusinessException ex) {
+            deletePartialFile(file);
+            throw ex;
+        }
+        try {
+            checkCancelled(file, tombstoneFile, progress);
+            if (isJsonLines(tombstoneFile)) {
+                writeTombstoneJsonLines(tombstoneFile, deleted);
+            } else if (isXlsx(tombstoneFile)) {
+                writeTombstoneXlsx(tombstoneFile, deleted);
+            } else {
+                writeTombstoneFile(tombstoneFile, deleted, tuThoiDiem, denThoiDiem);
+            }
+            // Lần kiểm tra hủy cuối: sau khi lưu mốc, job được coi là hoàn thành
+            checkCancelled(file, tombstoneFile, progress);
+            quanLyGiaoDich.saveExportWatermark(exportTarget, denThoiDiem);
+        } catch (IOException ex) {
+            deletePartialFile(file);
+            deletePartialFile(tombstoneFile);
+            throw new BusinessException("Lỗi khi ghi file danh sách xóa: " + ex.getMessage(), ex);
+        } catch (BusinessException ex) {
+            deletePartialFile(file);
+            deletePartialFile(tombstoneFile);
+            throw ex;
+        }
+    }
+    
+    /**
+     * Hủy export tăng dần trước khi lưu mốc: xóa cả hai file để không còn bản nào trông như đã xong
+     */
+    private void checkCancelled(File file, File tombstoneFile, ExportProgressListener progress)
+            throws BusinessException {
+        if (progress.isCancelled()) {
+            deletePartialFile(file);
+            deletePartialFile(tombstoneFile);
+            throw new BusinessException("Đã hủy xuất file: " + file.getName(), "EXPORT_CANCELLED");
+        }
+    }
+    
+    /**
+     * Đích export = thư mục + định dạng, để feed hằng ngày ghi ra file mới vẫn dùng chung mốc
+     */
+    private String getExportTarget(File file) {
+        String fileName = file.getName().toLowerCase();
+        String dinhDang = fileName.substring(fileName.lastIndexOf('.') + 1);
+        return file.getAbsoluteFile().getParent() + "|" + dinhDang;
+    }
+    
+    /**
+     * File đi kèm chứa danh sách giao dịch đã xóa: ten_file.deleted.csv
+     */
+    private File getTombstoneFile(File file) {
+        String fileName = file.getName();
+        int dot = fileName.lastIndexOf('.');
+        return new File(file.getAbsoluteFile().getParentFile(),
+            fileName.substring(0, dot) + ".deleted" + fileName.substring(dot));
+    }
+    
+    /**
+     * Ghi danh sách giao dịch đã xóa (tombstone) trong khoảng export
+     */
+    private void writeTombstoneFile(File tombstoneFile, List<TombstoneDTO> deleted,
+                                    LocalDateTime tuThoiDiem, LocalDateTime denThoiDiem) throws IOException {
+        boolean isCSV = tombstoneFile.getName().toLowerCase().endsWith(".csv");
+        
+        try (OutputStreamWriter writer = new OutputStreamWriter(
+                new FileOutputStream(tombstoneFile), StandardCharsets.UTF_8)) {
+            if (isCSV) {
+                writer.write('\ufeff'); // UTF-8 BOM
+            }
+            writer.write("=".repeat(80) + "\n");
+            writer.write("           GIAO DỊCH ĐÃ XÓA: " + tuThoiDiem + " -> " + denThoiDiem + "\n");
+            writer.write("           Áp dụng danh sách xóa trước, sau đó cập nhật các dòng trong file chính\n");
+            writer.write("=".repeat(80) + "\n\n");
+            
+            writer.write(isCSV ? "Mã GD,Thời điểm xóa\n" : String.format("%-12s %-20s\n", "Mã GD", "Thời điểm xóa"));
+            for (TombstoneDTO tombstone : deleted) {
+                if (isCSV) {
+                    writer.write(tombstone.getMaGiaoDich() + "," + tombstone.getDeletedAt() + "\n");
+                } else {
+                    writer.write(String.format("%-12s %-20s\n", tombstone.getMaGiaoDich(), tombstone.getDeletedAt()));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Danh sách xóa dạng JSON Lines: {"maGiaoDich":"GD001","deletedAt":"2024-01-15T10:30"}
+     */
+    private void writeTombstoneJsonLines(File tombstoneFile, List<TombstoneDTO> deleted) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(tombstoneFile), StandardCharsets.UTF_8))) {
+            for (TombstoneDTO tombstone : deleted) {
+                GiaoDichJsonEncoder.encodeTombstone(tombstone, writer);
+            }
+        }
+    }
+    
+    /**
+     * Danh sách xóa dạng bảng tính: một sheet gồm mã GD và thời điểm xóa
+     */
+    private void writeTombstoneXlsx(File tombstoneFile, List<TombstoneDTO> deleted) throws IOException {
+        try (XlsxStreamWriter xlsx = new XlsxStreamWriter(new FileOutputStream(tombstoneFile))) {
+            xlsx.startSheet("Đã xóa");
+            xlsx.startRow();
+            xlsx.inlineString("Mã GD", XlsxStreamWriter.STYLE_HEADER);
+            xlsx.inlineString("Thời điểm xóa", XlsxStreamWriter.STYLE_HEADER);
+            xlsx.endRow();
+            for (TombstoneDTO tombstone : deleted) {
+                xlsx.startRow();
+                xlsx.inlineString(tombstone.getMaGiaoDich());
+                xlsx.inlineString(tombstone.getDeletedAt().toString());
+                xlsx.endRow();
+            }
+        }
+    }
+    
+    private boolean isJsonLines(File file) {
+        return file.getName().toLowerCase().endsWith(".jsonl");
+    }
+    
+    private boolean isXlsx(File file) {
+        return file.getName().toLowerCase().endsWith(".xlsx");
+    }
+    
+    /**
+     * Execute the actual export operation
+     */
+    private void executeExport(File file, ExportPlan plan, GiaoDichCursor dataToExport,
+                               ExportProgressListener progress) throws BusinessException {
         try {
             String fileName = file.getName().toLowerCase();
             
-            try (OutputStreamWriter writer = new OutputStreamWriter(
-                    new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            // Bảng tính Excel: zip stream, không đi qua OutputStreamWriter
+            if (fileName.endsWith(".xlsx")) {
+                try (CountingOutputStream counter = new CountingOutputStream(new FileOutputStream(file))) {
+                    int soDong;
+                    try (XlsxStreamWriter xlsx = new XlsxStreamWriter(counter)) {
+                        soDong = exportToXlsx(xlsx, dataToExport, counter, progress);
+                        if (plan.hasThongKe()) {
+                            writeStatisticsSheet(xlsx, plan.getThongKe());
+                        }
+                    }
+                    progress.onProgress(soDong, counter.getByteCount());
+                }
+                return;
+            }
+            
+            try (CountingOutputStream counter = new CountingOutputStream(new FileOutputStream(file));
+                 OutputStreamWriter writer = new OutputStreamWriter(counter, StandardCharsets.UTF_8)) {
+                
+                // JSON Lines: mỗi dòng một bản ghi, không BOM, không header/thống kê
+                if (fileName.endsWith(".jsonl")) {
+                    int soDong = exportToJsonLines(writer, dataToExport, counter, progress);
+                    writer.flush();
+                    progress.onProgress(soDong, counter.getByteCount());
+                    return;
+                }
                 
                 // Add BOM for UTF-8 to help Excel read Vietnamese correctly
                 if (fileName.endsWith(".csv")) {
@@ -164,25 +409,57 @@ public class ExportTransactionUseCase {
                 writeHeader(writer);
                 
                 // Export data based on file format
+                int soDong;
                 if (fileName.endsWith(".csv")) {
-                    exportToCSV(writer, dataToExport);
+                    soDong = exportToCSV(writer, dataToExport, counter, progress);
                 } else {
-                    exportToText(writer, dataToExport);
+                    soDong = exportToText(writer, dataToExport, counter, progress);
                 }
                 
-                // Add statistics if requested
-                if (exportType == 2) {
-                    writeStatisticsSection(writer, fileName.endsWith(".csv"));
+                // Add statistics if requested (computed once by the planner)
+                if (plan.hasThongKe()) {
+                    writeStatisticsSection(writer, plan.getThongKe(), fileName.endsWith(".csv"));
                 }
+                
+                writer.flush();
+                progress.onProgress(soDong, counter.getByteCount());
             }
             
+        } catch (CancellationException ex) {
+            deletePartialFile(file);
+            throw new BusinessException("Đã hủy xuất file: " + file.getName(), "EXPORT_CANCELLED");
         } catch (IOException ex) {
+            deletePartialFile(file);
             throw new BusinessException("Lỗi khi ghi file: " + ex.getMessage(), ex);
         } catch (Exception ex) {
+            deletePartialFile(file);
             throw new BusinessException("Lỗi hệ thống khi export: " + ex.getMessage(), ex);
         }
     }
     
+    /**
+     * Báo tiến độ định kỳ và dừng nếu có yêu cầu hủy
+     */
+    private void checkProgress(Flushable writer, int soDong, CountingOutputStream counter,
+                               ExportProgressListener progress) throws IOException {
+        if (progress.isCancelled()) {
+            throw new CancellationException();
+        }
+        if (soDong % PROGRESS_INTERVAL == 0) {
+            writer.flush();
+            progress.onProgress(soDong, counter.getByteCount());
+        }
+    }
+    
+    /**
+     * Xóa file ghi dở khi export bị hủy hoặc lỗi
+     */
+    private void deletePartialFile(File file) {
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+    
     /**
      * Write file header
      */
@@ -196,11 +473,14 @@ public class ExportTransactionUseCase {
     /**
      * Export data to CSV format
      */
-    private void exportToCSV(OutputStreamWriter writer, List<GiaoDich> transactions) throws IOException {
+    private int exportToCSV(OutputStreamWriter writer, GiaoDichCursor transactions,
+                            CountingOutputStream counter, ExportProgressListener progress)
+            throws IOException, DataAccessException {
         // CSV Header
         writer.write("Mã GD,Ngày GD,Đơn giá,Số lượng,Loại GD,Chi tiết,Thành tiền\n");
         
-        for (GiaoDich gd : transactions) {
+        int soDong = 0;
+        for (GiaoDich gd = transactions.next(); gd != null; gd = transactions.next()) {
             writer.write(String.format("%s,%s,%s,%d,%s,\"%s\",%s\n",
                 gd.getMaGiaoDich(),
                 UIUtils.formatDate(gd.getNgayGiaoDich()),
@@ -210,13 +490,117 @@ public class ExportTransactionUseCase {
                 getTransactionDetail(gd),
                 gd.tinhThanhTien()
             ));
+            checkProgress(writer, ++soDong, counter, progress);
         }
+        return soDong;
+    }
+    
+    /**
+     * Export data to JSON Lines format (bộ mã hóa ghi thẳng ra writer, không qua String.format)
+     */
+    private int exportToJsonLines(OutputStreamWriter writer, GiaoDichCursor transactions,
+                                  CountingOutputStream counter, ExportProgressListener progress)
+            throws IOException, DataAccessException {
+        int soDong = 0;
+        for (GiaoDich gd = transactions.next(); gd != null; gd = transactions.next()) {
+            GiaoDichJsonEncoder.encode(gd, writer);
+            checkProgress(writer, ++soDong, counter, progress);
+        }
+        return soDong;
+    }
+    
+    /**
+     * Export data to XLSX: mã GD là chuỗi inline, loại vàng/loại tiền dùng bảng chuỗi chung,
+     * giá và thành tiền là ô số. Vượt giới hạn dòng của Excel thì sang sheet mới.
+     */
+    private int exportToXlsx(XlsxStreamWriter xlsx, GiaoDichCursor transactions,
+                             CountingOutputStream counter, ExportProgressListener progress)
+            throws IOException, DataAccessException {
+        int soSheet = 1;
+        startTransactionSheet(xlsx, "Giao dịch");
+        
+        int soDong = 0;
+        for (GiaoDich gd = transactions.next(); gd != null; gd = transactions.next()) {
+            if (xlsx.getRowCount() == XlsxStreamWriter.MAX_ROWS_PER_SHEET) {
+                startTransactionSheet(xlsx, "Giao dịch (" + (++soSheet) + ")");
+            }
+            
+            xlsx.startRow();
+            xlsx.inlineString(gd.getMaGiaoDich());
+            xlsx.date(gd.getNgayGiaoDich());
+            xlsx.sharedString(gd.getLoaiGiaoDich());
+            if (gd instanceof GiaoDichVang) {
+                xlsx.sharedString(((GiaoDichVang) gd).getLoaiVang());
+            } else if (gd instanceof GiaoDichTienTe) {
+                xlsx.sharedString(((GiaoDichTienTe) gd).getLoaiTien());
+            } else {
+                xlsx.blank();
+            }
+            xlsx.number(gd.getDonGia(), XlsxStreamWriter.STYLE_MONEY);
+            xlsx.number(gd.getSoLuong());
+            if (gd instanceof GiaoDichTienTe) {
+                xlsx.number(((GiaoDichTienTe) gd).getTiGia(), XlsxStreamWriter.STYLE_MONEY);
+            } else {
+                xlsx.blank();
+            }
+            xlsx.number(gd.tinhThanhTien(), XlsxStreamWriter.STYLE_MONEY);
+            xlsx.endRow();
+            
+            checkProgress(xlsx, ++soDong, counter, progress);
+        }
+        return soDong;
+    }
+    
+    private void startTransactionSheet(XlsxStreamWriter xlsx, String tenSheet) throws IOException {
+        xlsx.startSheet(tenSheet);
+        xlsx.startRow();
+        for (String tieuDe : new String[] {
+                "Mã GD", "Ngày GD", "Loại GD", "Chi tiết", "Đơn giá", "Số lượng", "Tỉ giá", "Thành tiền"}) {
+            xlsx.inlineString(tieuDe, XlsxStreamWriter.STYLE_HEADER);
+        }
+        xlsx.endRow();
+    }
+    
+    /**
+     * Thống kê tổng hợp trên sheet riêng
+     */
+    private void writeStatisticsSheet(XlsxStreamWriter xlsx, ThongKeDTO thongKe) throws IOException {
+        xlsx.startSheet("Thống kê");
+        xlsx.startRow();
+        xlsx.inlineString("Loại thống kê", XlsxStreamWriter.STYLE_HEADER);
+        xlsx.inlineString("Giá trị", XlsxStreamWriter.STYLE_HEADER);
+        xlsx.endRow();
+        
+        writeStatisticsRow(xlsx, "Tổng giao dịch vàng", thongKe.getTongSoLuongVang());
+        writeStatisticsRow(xlsx, "Tổng giao dịch tiền tệ", thongKe.getTongSoLuongTienTe());
+        writeStatisticsRow(xlsx, "Tổng doanh thu vàng", thongKe.getTongThanhTienVang());
+        writeStatisticsRow(xlsx, "Tổng doanh thu tiền tệ", thongKe.getTongThanhTienTienTe());
+        writeStatisticsRow(xlsx, "Tổng doanh thu", thongKe.getTongThanhTienTatCa());
+        writeStatisticsRow(xlsx, "Giao dịch đơn giá > 1 tỷ", thongKe.getSoGiaoDichDonGiaLonHon1Ty());
+    }
+    
+    private void writeStatisticsRow(XlsxStreamWriter xlsx, String nhan, long giaTri) throws IOException {
+        xlsx.startRow();
+        xlsx.inlineString(nhan);
+        xlsx.number(giaTri);
+        xlsx.endRow();
+    }
+    
+    private void writeStatisticsRow(XlsxStreamWriter xlsx, String nhan, BigDecimal giaTri) throws IOException {
+        xlsx.startRow();
+        xlsx.inlineString(nhan);
+        if (giaTri != null) {
+            xlsx.number(giaTri, XlsxStreamWriter.STYLE_MONEY);
+        }
+        xlsx.endRow();
     }
     
     /**
      * Export data to text format
      */
-    private void exportToText(OutputStreamWriter writer, List<GiaoDich> transactions) throws IOException {
+    private int exportToText(OutputStreamWriter writer, GiaoDichCursor transactions,
+                             CountingOutputStream counter, ExportProgressListener progress)
+            throws IOException, DataAccessException {
         String format = "%-12s %-12s %-15s %-8s %-8s %-20s %-15s\n";
         
         // Header
@@ -224,7 +608,8 @@ public class ExportTransactionUseCase {
             "Mã GD", "Ngày GD", "Đơn giá", "SL", "Loại", "Chi tiết", "Thành tiền"));
         writer.write("-".repeat(100) + "\n");
         
-        for (GiaoDich gd : transactions) {
+        int soDong = 0;
+        for (GiaoDich gd = transactions.next(); gd != null; gd = transactions.next()) {
             writer.write(String.format(format,
                 gd.getMaGiaoDich(),
                 UIUtils.formatDate(gd.getNgayGiaoDich()),
@@ -234,10 +619,12 @@ public class ExportTransactionUseCase {
                 getTransactionDetail(gd),
                 UIUtils.formatCurrency(gd.tinhThanhTien())
             ));
+            checkProgress(writer, ++soDong, counter, progress);
         }
         
         writer.write("-".repeat(100) + "\n");
-        writer.write(String.format("Tổng số giao dịch: %d\n", transactions.size()));
+        writer.write(String.format("Tổng số giao dịch: %d\n", soDong));
+        return soDong;
     }
     
     /**
@@ -260,24 +647,16 @@ public class ExportTransactionUseCase {
     /**
      * Write statistics section
      */
-    private void writeStatisticsSection(OutputStreamWriter writer, boolean isCSV) throws IOException {
+    private void writeStatisticsSection(OutputStreamWriter writer, ThongKeDTO thongKe, boolean isCSV) 
+            throws IOException {
         writer.write("\n" + "=".repeat(80) + "\n");
         writer.write("                    THỐNG KÊ TỔNG HỢP\n");
         writer.write("=".repeat(80) + "\n");
         
-        try {
-            ThongKeDTO thongKe = quanLyGiaoDich.getTongSoLuongTheoLoai();
-            if (thongKe != null) {
-                if (isCSV) {
-                    writeStatisticsCSV(writer, thongKe);
-                } else {
-                    writeStatisticsText(writer, thongKe);
-                }
-            } else {
-                writer.write("Không có dữ liệu thống kê\n");
-            }
-        } catch (Exception e) {
-            writer.write("Lỗi khi lấy thống kê: " + e.getMessage() + "\n");
+        if (isCSV) {
+            writeStatisticsCSV(writer, thongKe);
+        } else {
+            writeStatisticsText(writer, thongKe);
         }
     }
     
@@ -316,7 +695,7 @@ public class ExportTransactionUseCase {
     public boolean canExport(File file, int exportType) {
         try {
             validateInputParameters(file, exportType);
-            validateExportBusinessRules(file, exportType);
+            validateExportBusinessRules(file, exportType, createPlan(file, exportType, null, false), false);
             return true;
         } catch (ValidationException | BusinessException e) {
             return false;
@@ -329,7 +708,7 @@ public class ExportTransactionUseCase {
     public String getValidationError(File file, int exportType) {
         try {
             validateInputParameters(file, exportType);
-            validateExportBusinessRules(file, exportType);
+            validateExportBusinessRules(file, exportType, createPlan(file, exportType, null, false), false);
             return null;
         } catch (ValidationException | BusinessException e) {
             return e.getMessage();
@@ -338,16 +717,11 @@ public class ExportTransactionUseCase {
     
     /**
      * Estimate file size (for preview)
+     * Dùng truy vấn COUNT/AVG, không tải dữ liệu
      */
     public long estimateFileSize(int exportType, List<GiaoDich> transactions) {
         try {
-            List<GiaoDich> dataToExport = getDataForExport(exportType, transactions);
-            // Rough estimate: 100 bytes per transaction + headers + statistics
-            long baseSize = dataToExport.size() * 100 + 1000;
-            if (exportType == 2) {
-                baseSize += 2000; // Additional for statistics
-            }
-            return baseSize;
+            return exportPlanner.plan("csv", exportType, transactions, false).getUocTinhSoByte();
         } catch (Exception ex) {
             return 10000; // Default estimate
         }
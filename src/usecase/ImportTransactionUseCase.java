@@ -0,0 +1,127 @@
+package usecase;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import dto.ImportResultDTO;
+import exception.BusinessException;
+import exception.ValidationException;
+import model.GiaoDich;
+import service.QuanLyGiaoDich;
+import service.export.ExportProgressListener;
+import service.export.GiaoDichJsonDecoder;
+import utils.CountingInputStream;
+
+/**
+ * Use Case: Import Transaction List (JSON Lines)
+ * Theo Clean Architecture pattern
+ */
+public class ImportTransactionUseCase {
+    
+    // Số giao dịch mỗi lần ghi batch xuống database
+    private static final int BATCH_SIZE = 500;
+    
+    private final QuanLyGiaoDich quanLyGiaoDich;
+    
+    public ImportTransactionUseCase(QuanLyGiaoDich quanLyGiaoDich) {
+        this.quanLyGiaoDich = quanLyGiaoDich;
+    }
+    
+    /**
+     * Execute import transaction use case
+     * Dòng không hợp lệ được bỏ qua và ghi nhận vào kết quả, mã đã tồn tại không bị ghi đè.
+     * Khi bị hủy, các batch đã ghi vẫn giữ nguyên; nhập lại cùng file là an toàn.
+     * @param file File .jsonl cần nhập
+     * @param progress Listener nhận số dòng/số byte đã đọc, kiểm tra yêu cầu hủy
+     * @throws ValidationException Nếu validation fails
+     * @throws BusinessException Nếu lỗi đọc file/database, hoặc mã EXPORT_CANCELLED nếu bị hủy
+     */
+    public ImportResultDTO execute(File file, ExportProgressListener progress) 
+            throws ValidationException, BusinessException {
+        
+        // Step 1: Validate input parameters
+        validateInputParameters(file);
+        
+        // Step 2: Execute import operation
+        return executeImport(file, progress);
+    }
+    
+    /**
+     * Validate input parameters
+     */
+    private void validateInputParameters(File file) throws ValidationException {
+        if (file == null) {
+            throw new ValidationException("File không được null", "NULL_FILE");
+        }
+        
+        if (!file.isFile()) {
+            throw new ValidationException("File không tồn tại: " + file.getName(), "FILE_NOT_EXISTS");
+        }
+        
+        if (!file.canRead()) {
+            throw new ValidationException("Không có quyền đọc file: " + file.getName(), "FILE_NOT_READABLE");
+        }
+        
+        if (!file.getName().toLowerCase().endsWith(".jsonl")) {
+            throw new ValidationException("Chỉ hỗ trợ nhập file .jsonl", "UNSUPPORTED_FILE_FORMAT");
+        }
+    }
+    
+    /**
+     * Đọc tuần tự và ghi theo batch, không giữ toàn bộ file trong bộ nhớ
+     */
+    private ImportResultDTO executeImport(File file, ExportProgressListener progress) throws BusinessException {
+        ImportResultDTO result = new ImportResultDTO();
+        List<GiaoDich> batch = new ArrayList<>(BATCH_SIZE);
+        
+        try (CountingInputStream counter = new CountingInputStream(new FileInputStream(file));
+             GiaoDichJsonDecoder decoder = new GiaoDichJsonDecoder(
+                 new InputStreamReader(counter, StandardCharsets.UTF_8))) {
+            
+            while (true) {
+                if (progress.isCancelled()) {
+                    throw new BusinessException("Đã hủy nhập file: " + file.getName(), "EXPORT_CANCELLED");
+                }
+                
+                GiaoDich giaoDich;
+                try {
+                    giaoDich = decoder.next();
+                } catch (ValidationException e) {
+                    result.addError(e.getMessage());
+                    continue;
+                }
+                if (giaoDich == null) {
+                    break;
+                }
+                
+                batch.add(giaoDich);
+                if (batch.size() == BATCH_SIZE) {
+                    flushBatch(batch, result);
+                    progress.onProgress(result.getSoDongDaDoc(), counter.getByteCount());
+                }
+            }
+            
+            flushBatch(batch, result);
+            progress.onProgress(result.getSoDongDaDoc(), counter.getByteCount());
+            return result;
+            
+        } catch (IOException ex) {
+            throw new BusinessException("Lỗi khi đọc file: " + ex.getMessage(), ex);
+        }
+    }
+    
+    private void flushBatch(List<GiaoDich> batch, ImportResultDTO result) throws BusinessException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int inserted = quanLyGiaoDich.importBatch(batch);
+        result.addRead(batch.size());
+        result.addInserted(inserted, batch.size());
+        batch.clear();
+    }
+}
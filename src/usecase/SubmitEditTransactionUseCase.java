@@ -111,14 +111,7 @@ public class SubmitEditTransactionUseCase {
     private void validateEditBusinessRules(String originalMaGiaoDich, GiaoDichFormDTO formDTO) 
             throws BusinessException {
         
-        // Business rule: Kiểm tra giao dịch gốc có tồn tại không
-        try {
-            if (!quanLyGiaoDich.findById(originalMaGiaoDich).isPresent()) {
-                throw new BusinessException("Không tìm thấy giao dịch cần sửa: " + originalMaGiaoDich, "NOT_FOUND");
-            }
-        } catch (Exception ex) {
-            throw new BusinessException("Lỗi khi kiểm tra giao dịch gốc: " + ex.getMessage(), ex);
-        }
+        // Giao dịch gốc không cần đọc trước: UPDATE không khớp dòng nào sẽ báo không tìm thấy
         
         // Business rule: Nếu thay đổi mã giao dịch, kiểm tra mã mới có trùng không
         if (!originalMaGiaoDich.equals(formDTO.getMaGiaoDich())) {
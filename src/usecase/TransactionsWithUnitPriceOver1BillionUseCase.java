@@ -1,14 +1,18 @@
 package usecase;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import dto.ThongKeDonGiaLonDTO;
 import exception.BusinessException;
 import exception.ValidationException;
 import model.GiaoDich;
 import service.QuanLyGiaoDich;
+import service.ThongKeAggregator;
+import utils.TopKSelector;
 
 /**
  * Use Case: Transactions With Unit Price Over 1 Billion
@@ -16,6 +20,9 @@ import service.QuanLyGiaoDich;
  */
 public class TransactionsWithUnitPriceOver1BillionUseCase {
     
+    private static final Comparator<GiaoDich> DON_GIA_GIAM_DAN =
+        Comparator.comparing(GiaoDich::getDonGia).reversed();
+    
     private final QuanLyGiaoDich quanLyGiaoDich;
     
     public TransactionsWithUnitPriceOver1BillionUseCase(QuanLyGiaoDich quanLyGiaoDich) {
@@ -148,14 +155,10 @@ public class TransactionsWithUnitPriceOver1BillionUseCase {
         }
         
         // Additional business logic: Filter out invalid transactions
-        List<GiaoDich> validTransactions = transactions.stream()
+        // (truy vấn đã sắp theo đơn giá giảm dần, lọc giữ nguyên thứ tự nên không sắp xếp lại)
+        return transactions.stream()
                 .filter(this::isValidTransaction)
                 .collect(Collectors.toList());
-        
-        // Sort by unit price descending for better user experience
-        validTransactions.sort((gd1, gd2) -> gd2.getDonGia().compareTo(gd1.getDonGia()));
-        
-        return validTransactions;
     }
     
     /**
@@ -186,14 +189,60 @@ public class TransactionsWithUnitPriceOver1BillionUseCase {
         return true;
     }
     
+    /**
+     * K giao dịch đơn giá > 1 tỷ cao nhất cùng số lượng, tổng giá trị và đơn giá trung bình
+     * của cả nhóm trong một kết quả: LIMIT và phép gộp chạy trên DB, không tải cả nhóm.
+     * Các widget cần nhiều chỉ số dùng chung một kết quả thay vì truy vấn lại.
+     * @param k số giao dịch đầu bảng (0: chỉ lấy số liệu tổng hợp)
+     * @throws ValidationException nếu k âm
+     */
+    public ThongKeDonGiaLonDTO executeTopK(int k) throws ValidationException, BusinessException {
+        validateK(k);
+        ThongKeDonGiaLonDTO result = quanLyGiaoDich.getTopDonGiaLonHon1Ty(k);
+        return result.withTopGiaoDich(processHighValueTransactions(result.getTopGiaoDich()));
+    }
+    
+    /**
+     * Như executeTopK nhưng trên dữ liệu đã có trong bộ nhớ (ví dụ bảng đã tải):
+     * một lần duyệt, heap giới hạn K phần tử, không sắp xếp toàn bộ.
+     * Tổng thành tiền theo cùng công thức với SUM của executeTopK(int) (ThanhTien.tinh),
+     * nên hai cách cho cùng kết quả trên cùng dữ liệu.
+     */
+    public ThongKeDonGiaLonDTO executeTopK(Collection<GiaoDich> source, int k) throws ValidationException {
+        validateK(k);
+        ThongKeAggregator tongHop = new ThongKeAggregator();
+        TopKSelector<GiaoDich> top = new TopKSelector<>(k, DON_GIA_GIAM_DAN);
+        for (GiaoDich gd : source) {
+            if (gd != null && gd.isDonGiaLonHon1Ty() && isValidTransaction(gd)) {
+                tongHop.add(gd);
+                top.offer(gd);
+            }
+        }
+        return new ThongKeDonGiaLonDTO(top.toList(), tongHop.getSoGiaoDichDonGiaLon(),
+            tongHop.getTongThanhTienDonGiaLon(), tongHop.getTrungBinhDonGiaDonGiaLon());
+    }
+    
+    private void validateK(int k) throws ValidationException {
+        if (k < 0) {
+            throw new ValidationException("Số giao dịch cần lấy không được âm", "INVALID_TOP_K");
+        }
+    }
+    
+    /**
+     * Số liệu tổng hợp của nhóm đơn giá > 1 tỷ (không lấy danh sách)
+     */
+    private ThongKeDonGiaLonDTO getHighValueSummary() throws BusinessException {
+        validateBusinessRules();
+        return quanLyGiaoDich.getTopDonGiaLonHon1Ty(0);
+    }
+    
     /**
      * Get count of high value transactions
      */
     public long getHighValueTransactionCount() throws BusinessException {
         try {
-            List<GiaoDich> highValueTransactions = execute();
-            return highValueTransactions.size();
-        } catch (ValidationException | BusinessException ex) {
+            return getHighValueSummary().getSoGiaoDich();
+        } catch (BusinessException ex) {
             throw new BusinessException("Lỗi khi đếm giao dịch đơn giá cao: " + ex.getMessage(), ex);
         }
     }
@@ -212,14 +261,13 @@ public class TransactionsWithUnitPriceOver1BillionUseCase {
     
     /**
      * Get total value of high value transactions
+     * (thành tiền theo công thức thống kê ThanhTien.tinh, như SUM trên DB: không làm tròn
+     * từng giao dịch, tiền tệ luôn nhân tỉ giá)
      */
     public BigDecimal getTotalValueOfHighValueTransactions() throws BusinessException {
         try {
-            List<GiaoDich> highValueTransactions = execute();
-            return highValueTransactions.stream()
-                    .map(GiaoDich::tinhThanhTien)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-        } catch (ValidationException | BusinessException ex) {
+            return getHighValueSummary().getTongThanhTien();
+        } catch (BusinessException ex) {
             throw new BusinessException("Lỗi khi tính tổng giá trị giao dịch đơn giá cao: " + ex.getMessage(), ex);
         }
     }
@@ -229,17 +277,8 @@ public class TransactionsWithUnitPriceOver1BillionUseCase {
      */
     public BigDecimal getAverageUnitPriceOfHighValueTransactions() throws BusinessException {
         try {
-            List<GiaoDich> highValueTransactions = execute();
-            if (highValueTransactions.isEmpty()) {
-                return BigDecimal.ZERO;
-            }
-            
-            BigDecimal totalPrice = highValueTransactions.stream()
-                    .map(GiaoDich::getDonGia)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            return totalPrice.divide(BigDecimal.valueOf(highValueTransactions.size()), 2, RoundingMode.HALF_UP);
-        } catch (ValidationException | BusinessException ex) {
+            return getHighValueSummary().getTrungBinhDonGia();
+        } catch (BusinessException ex) {
             throw new BusinessException("Lỗi khi tính đơn giá trung bình: " + ex.getMessage(), ex);
         }
     }
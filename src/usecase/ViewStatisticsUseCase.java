@@ -2,9 +2,19 @@ package usecase;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 
+import dao.GiaoDichCursor;
+import dto.GiaCongCuDTO;
+import dto.NenGiaDTO;
+import dto.PhanPhoiThanhTienDTO;
 import dto.ThongKeDTO;
+import dto.ThongKeNhomDTO;
+import dto.ViTheDTO;
 import exception.BusinessException;
 import exception.ValidationException;
 import model.GiaoDich;
@@ -107,6 +117,57 @@ public class ViewStatisticsUseCase {
         }
     }
     
+    /**
+     * Execute thống kê của nhiều tháng trong một lần gọi (so sánh tháng trước/năm trước)
+     * @param months các tháng cần thống kê
+     * @return Map tháng -> ThongKeDTO, cùng thứ tự với months
+     * @throws ValidationException nếu có tháng không hợp lệ
+     * @throws BusinessException nếu có lỗi nghiệp vụ
+     */
+    public Map<YearMonth, ThongKeDTO> executeMultiMonthStatistics(List<YearMonth> months) 
+            throws ValidationException, BusinessException {
+        
+        // Validate input
+        if (months == null) {
+            throw new ValidationException("Danh sách tháng không được null", "months");
+        }
+        for (YearMonth month : months) {
+            validateMonthYearInput(month.getYear(), month.getMonthValue());
+        }
+        
+        try {
+            Map<YearMonth, ThongKeDTO> theoThang = quanLyGiaoDich.getTongSoLuongTheoLoaiTheoCacThang(months);
+            for (ThongKeDTO thongKe : theoThang.values()) {
+                validateStatisticsResult(thongKe);
+            }
+            return theoThang;
+            
+        } catch (Exception ex) {
+            throw new BusinessException("Lỗi khi tải thống kê theo tháng: " + ex.getMessage());
+        }
+    }
+    
+    /**
+     * Execute xu hướng theo tháng: soThang tháng gần nhất, tính đến tháng hiện tại
+     * @param soThang số tháng (1-120)
+     * @return Map tháng -> ThongKeDTO, tháng cũ trước
+     * @throws ValidationException nếu số tháng không hợp lệ
+     * @throws BusinessException nếu có lỗi nghiệp vụ
+     */
+    public Map<YearMonth, ThongKeDTO> executeMonthlyTrend(int soThang) 
+            throws ValidationException, BusinessException {
+        if (soThang < 1 || soThang > 120) {
+            throw new ValidationException("Số tháng phải trong khoảng 1-120", "soThang");
+        }
+        
+        YearMonth thangNay = YearMonth.now();
+        List<YearMonth> months = new ArrayList<>(soThang);
+        for (int i = soThang - 1; i >= 0; i--) {
+            months.add(thangNay.minusMonths(i));
+        }
+        return executeMultiMonthStatistics(months);
+    }
+    
     /**
      * Execute thống kê theo ngày cụ thể
      * @param date ngày cần thống kê
@@ -154,6 +215,78 @@ public class ViewStatisticsUseCase {
         }
     }
     
+    /**
+     * Execute phân phối thành tiền (p50/p95/p99 theo loại) cho khoảng ngày đang xem,
+     * đọc từ sketch theo ngày trong bộ nhớ (không đọc lại giao dịch)
+     * @param fromDate ngày bắt đầu, null: toàn bộ dữ liệu
+     * @param toDate ngày kết thúc, null: toàn bộ dữ liệu
+     * @return PhanPhoiThanhTienDTO chứa phân vị thành tiền vàng và tiền tệ
+     * @throws BusinessException nếu có lỗi nghiệp vụ
+     */
+    public PhanPhoiThanhTienDTO executeThanhTienDistribution(LocalDate fromDate, LocalDate toDate) 
+            throws BusinessException {
+        try {
+            if (fromDate == null || toDate == null) {
+                return quanLyGiaoDich.getPhanPhoiThanhTien();
+            }
+            return quanLyGiaoDich.getPhanPhoiThanhTien(fromDate, toDate);
+            
+        } catch (Exception ex) {
+            throw new BusinessException("Lỗi khi tải phân phối thành tiền: " + ex.getMessage());
+        }
+    }
+    
+    /**
+     * Execute thống kê theo từng loại vàng (24K, 999.9, ...) và loại tiền (USD, EUR, ...)
+     * cho khoảng ngày đang xem
+     * @param fromDate ngày bắt đầu, null: toàn bộ dữ liệu
+     * @param toDate ngày kết thúc, null: toàn bộ dữ liệu
+     * @return List<ThongKeNhomDTO> vàng trước tiền tệ, tổng thành tiền giảm dần
+     * @throws BusinessException nếu có lỗi nghiệp vụ
+     */
+    public List<ThongKeNhomDTO> executeBreakdownStatistics(LocalDate fromDate, LocalDate toDate) 
+            throws BusinessException {
+        try {
+            if (fromDate == null || toDate == null) {
+                return quanLyGiaoDich.getThongKeTheoNhom();
+            }
+            return quanLyGiaoDich.getThongKeTheoNhom(fromDate, toDate);
+            
+        } catch (Exception ex) {
+            throw new BusinessException("Lỗi khi tải thống kê theo loại vàng/loại tiền: " + ex.getMessage());
+        }
+    }
+    
+    /**
+     * Execute bảng giá và vị thế: nến gần nhất, trung bình động giá đóng cửa và vị thế đang
+     * nắm giữ của từng loại vàng và loại tiền, đọc từ chuỗi giá và vị thế trong bộ nhớ
+     * @param soNgayTrungBinh số nến của đường trung bình
+     * @return List<GiaCongCuDTO> theo tên công cụ
+     * @throws BusinessException nếu có lỗi nghiệp vụ; mã NOT_READY khi chuỗi giá hoặc vị thế
+     *         đang được dựng
+     */
+    public List<GiaCongCuDTO> executePriceBoard(int soNgayTrungBinh) throws BusinessException {
+        try {
+            List<ViTheDTO> viThes = quanLyGiaoDich.getTatCaViThe();
+            TreeSet<String> maCongCus = new TreeSet<>(quanLyGiaoDich.getDanhSachCongCuGia());
+            for (ViTheDTO viThe : viThes) {
+                maCongCus.add(viThe.getMaCongCu());
+            }
+            
+            List<GiaCongCuDTO> result = new ArrayList<>();
+            for (String maCongCu : maCongCus) {
+                List<NenGiaDTO> nens = quanLyGiaoDich.getNenGiaTheoNgay(maCongCu, 1);
+                List<BigDecimal> trungBinhs = quanLyGiaoDich.getDuongTrungBinhGia(maCongCu, soNgayTrungBinh, 1);
+                result.add(new GiaCongCuDTO(maCongCu, nens.isEmpty() ? null : nens.get(0),
+                    trungBinhs.isEmpty() ? null : trungBinhs.get(0), quanLyGiaoDich.getViThe(maCongCu)));
+            }
+            return result;
+            
+        } catch (BusinessException ex) {
+            throw new BusinessException("Lỗi khi tải bảng giá: " + ex.getMessage(), ex.getErrorCode(), ex);
+        }
+    }
+    
     /**
      * Lấy danh sách giao dịch đơn giá lớn (integration với UC8)
      * @return List<GiaoDich> danh sách giao dịch có đơn giá > 1 tỷ
@@ -172,6 +305,20 @@ public class ViewStatisticsUseCase {
         }
     }
     
+    /**
+     * Mở con trỏ đọc dần giao dịch đơn giá lớn (đơn giá giảm dần, cùng thứ tự với
+     * executeHighValueTransactions) để hiển thị từng phần khi dữ liệu còn đang về
+     * @return GiaoDichCursor, người gọi phải đóng
+     * @throws BusinessException nếu không mở được truy vấn
+     */
+    public GiaoDichCursor openHighValueCursor() throws BusinessException {
+        try {
+            return quanLyGiaoDich.openCursorDonGiaLonHon1Ty();
+        } catch (Exception ex) {
+            throw new BusinessException("Lỗi khi tải giao dịch đơn giá lớn: " + ex.getMessage());
+        }
+    }
+    
     // ===== PRIVATE VALIDATION METHODS =====
     
     /**
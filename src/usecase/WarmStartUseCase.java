@@ -0,0 +1,116 @@
+package usecase;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import config.UIConfig;
+import dto.TombstoneDTO;
+import exception.BusinessException;
+import model.GiaoDich;
+import service.QuanLyGiaoDich;
+import service.snapshot.GiaoDichSnapshot;
+import service.snapshot.SnapshotStore;
+
+/**
+ * Khởi động nhanh từ bản lưu cục bộ:
+ * - lúc đóng ứng dụng lưu toàn bộ dữ liệu đã tải kèm mốc updated_at
+ * - lúc mở hiển thị ngay từ bản lưu, rồi chỉ truy vấn các dòng thay đổi/bị xóa
+ *   sau mốc đó (chỉ mục updated_at) để đồng bộ, thay vì quét toàn bộ bảng
+ * Clean Architecture UseCase
+ */
+public class WarmStartUseCase {
+    private static final Logger LOGGER = Logger.getLogger(WarmStartUseCase.class.getName());
+
+    private final QuanLyGiaoDich quanLyGiaoDich;
+    private final SnapshotStore snapshotStore; // null: không dùng bản lưu
+
+    public WarmStartUseCase(QuanLyGiaoDich quanLyGiaoDich) {
+        this(quanLyGiaoDich, UIConfig.SNAPSHOT_FILE.isEmpty()
+            ? null
+            : new SnapshotStore(Paths.get(UIConfig.SNAPSHOT_FILE)));
+    }
+
+    public WarmStartUseCase(QuanLyGiaoDich quanLyGiaoDich, SnapshotStore snapshotStore) {
+        if (quanLyGiaoDich == null) throw new IllegalArgumentException("Service không được null");
+        this.quanLyGiaoDich = quanLyGiaoDich;
+        this.snapshotStore = snapshotStore;
+    }
+
+    /**
+     * Đọc bản lưu cục bộ (không truy cập DB)
+     * @return bản lưu, null nếu chưa có hoặc không dùng được (file hỏng thì bị xóa)
+     */
+    public GiaoDichSnapshot loadSnapshot() {
+        if (snapshotStore == null) {
+            return null;
+        }
+        try {
+            return snapshotStore.read().orElse(null);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Bỏ qua bản lưu cục bộ không đọc được", ex);
+            try {
+                snapshotStore.delete();
+            } catch (IOException deleteEx) {
+                LOGGER.log(Level.FINE, "Không thể xóa bản lưu cục bộ", deleteEx);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Đồng bộ bản lưu với DB: lấy các dòng thay đổi và bị xóa sau watermark.
+     * Tổng số dòng sau đồng bộ được đối chiếu với COUNT(*); lệch (ví dụ dữ liệu bị
+     * xóa ngoài ứng dụng, không có tombstone) thì trả về null để tải lại toàn bộ.
+     * @return bản lưu đã đồng bộ với watermark mới, hoặc null
+     * @throws BusinessException nếu truy vấn thất bại
+     */
+    public GiaoDichSnapshot synchronize(GiaoDichSnapshot snapshot) throws BusinessException {
+        LocalDateTime tuThoiDiem = snapshot.getWatermark();
+        LocalDateTime denThoiDiem = quanLyGiaoDich.getDatabaseTime();
+        List<GiaoDich> changed = quanLyGiaoDich.findChangedBetween(tuThoiDiem, denThoiDiem);
+        List<TombstoneDTO> deleted = quanLyGiaoDich.findDeletedBetween(tuThoiDiem, denThoiDiem);
+
+        GiaoDichSnapshot synced = snapshot.applyChanges(changed, deleted, toWatermark(denThoiDiem));
+        long soDongDb = quanLyGiaoDich.countAllTransactionsUncached();
+        if (synced.size() != soDongDb) {
+            LOGGER.info("Bản lưu cục bộ lệch với DB (" + synced.size() + " / " + soDongDb + " dòng), tải lại toàn bộ");
+            return null;
+        }
+        LOGGER.info("Đồng bộ bản lưu cục bộ: " + changed.size() + " dòng thay đổi, " + deleted.size() + " dòng bị xóa");
+        return synced;
+    }
+
+    /**
+     * Mốc cho lần tải đầy đủ bắt đầu bây giờ (lấy trước khi đọc dữ liệu)
+     */
+    public LocalDateTime currentWatermark() throws BusinessException {
+        return toWatermark(quanLyGiaoDich.getDatabaseTime());
+    }
+
+    /**
+     * Lưu bản lưu cục bộ (gọi khi đóng ứng dụng)
+     * @throws BusinessException nếu ghi file thất bại
+     */
+    public void saveSnapshot(GiaoDichSnapshot snapshot) throws BusinessException {
+        if (snapshotStore == null) {
+            return;
+        }
+        try {
+            snapshotStore.write(snapshot);
+        } catch (IOException ex) {
+            throw new BusinessException("Không thể lưu bản lưu cục bộ: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * updated_at chỉ chính xác tới giây: lùi 1 giây để lần đồng bộ sau không bỏ sót
+     * dòng ghi cùng giây (dòng bị lấy trùng chỉ được ghi đè)
+     */
+    private static LocalDateTime toWatermark(LocalDateTime dbTime) {
+        return dbTime.minusSeconds(1);
+    }
+}
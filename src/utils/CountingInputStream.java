@@ -0,0 +1,43 @@
+// InputStream đếm số byte đã đọc (dùng cho tiến độ nhập file)
+package utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class CountingInputStream extends FilterInputStream {
+    private volatile long byteCount;
+
+    public CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            byteCount++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) {
+            byteCount += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        byteCount += skipped;
+        return skipped;
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+}
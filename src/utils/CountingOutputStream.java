@@ -0,0 +1,30 @@
+// OutputStream đếm số byte đã ghi (dùng cho tiến độ xuất file)
+package utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class CountingOutputStream extends FilterOutputStream {
+    private volatile long byteCount;
+
+    public CountingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        byteCount++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        byteCount += len;
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+}
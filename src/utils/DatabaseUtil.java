@@ -4,22 +4,47 @@ package utils;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import config.DatabaseConfig;
 import exception.DataAccessException;
 
+/**
+ * Pool được khởi tạo trên thread nền ngay khi getInstance được gọi lần đầu,
+ * getInstance không chờ: giao diện dựng song song với việc kết nối DB.
+ * Các kết nối ban đầu được mở song song (mỗi kết nối là một lượt bắt tay TCP/TLS
+ * và xác thực), kết nối đầu tiên đồng thời là kết nối thử.
+ * getConnection chờ pool sẵn sàng (tối đa CONNECTION_TIMEOUT).
+ */
 public class DatabaseUtil {
     private static final Logger LOGGER = Logger.getLogger(DatabaseUtil.class.getName());
     private static DatabaseUtil instance;
+    // Thời hạn (System.nanoTime) cho các truy vấn chạy trên thread hiện tại, null là không giới hạn
+    private static final ThreadLocal<Long> QUERY_DEADLINE = new ThreadLocal<>();
     private BlockingQueue<Connection> connectionPool;
-    private boolean isInitialized = false;
+    private final CompletableFuture<Void> ready;
     
     private DatabaseUtil() {
-        initializeConnectionPool();
+        connectionPool = new LinkedBlockingQueue<>(DatabaseConfig.MAX_POOL_SIZE);
+        ready = CompletableFuture.runAsync(this::initializeConnectionPool, runnable -> {
+            Thread t = new Thread(runnable, "db-pool-init");
+            t.setDaemon(true);
+            t.start();
+        });
     }
     
     public static synchronized DatabaseUtil getInstance() {
@@ -29,34 +54,61 @@ public class DatabaseUtil {
         return instance;
     }
     
+    /**
+     * Hoàn thành khi pool sẵn sàng, hoàn thành với lỗi nếu không kết nối được
+     */
+    public CompletableFuture<Void> whenReady() {
+        return ready;
+    }
+    
     private void initializeConnectionPool() {
         try {
             // Load MySQL driver
             Class.forName(DatabaseConfig.DB_DRIVER);
             LOGGER.info("MySQL driver loaded successfully");
-            
-            connectionPool = new LinkedBlockingQueue<>(DatabaseConfig.MAX_POOL_SIZE);
-            
-            // Test initial connection
-            Connection testConn = createNewConnection();
-            testConn.close();
-            LOGGER.info("Database connection test successful");
-            
-            // Create initial connections
-            for (int i = 0; i < DatabaseConfig.MIN_POOL_SIZE; i++) {
-                Connection conn = createNewConnection();
-                connectionPool.offer(conn);
-            }
-            
-            isInitialized = true;
-            LOGGER.info("Database connection pool initialized successfully with " + DatabaseConfig.MIN_POOL_SIZE + " connections");
-            
         } catch (ClassNotFoundException e) {
             LOGGER.log(Level.SEVERE, "MySQL driver not found! Please add mysql-connector-j.jar to classpath", e);
             throw new RuntimeException("MySQL driver not found! Please add mysql-connector-j.jar to classpath", e);
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Failed to connect to database. Check connection parameters: " + DatabaseConfig.DB_URL, e);
-            throw new RuntimeException("Failed to connect to database: " + e.getMessage(), e);
+        }
+        
+        // Create initial connections in parallel
+        int count = DatabaseConfig.MIN_POOL_SIZE;
+        ExecutorService opener = Executors.newFixedThreadPool(count, runnable -> {
+            Thread t = new Thread(runnable, "db-pool-connect");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Connection>> pending = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                pending.add(opener.submit(this::createNewConnection));
+            }
+            
+            SQLException failure = null;
+            for (Future<Connection> future : pending) {
+                try {
+                    connectionPool.offer(future.get());
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof SQLException
+                            ? (SQLException) e.getCause()
+                            : new SQLException(e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                closeAllConnections();
+                LOGGER.log(Level.SEVERE, "Failed to connect to database. Check connection parameters: " + DatabaseConfig.DB_URL, failure);
+                throw new RuntimeException("Failed to connect to database: " + failure.getMessage(), failure);
+            }
+            LOGGER.info("Database connection pool initialized successfully with " + count + " connections");
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closeAllConnections();
+            throw new RuntimeException("Interrupted while initializing database connection pool", e);
+        } finally {
+            opener.shutdown();
         }
     }
     
@@ -69,9 +121,7 @@ public class DatabaseUtil {
     }
     
     public Connection getConnection() throws DataAccessException {
-        if (!isInitialized) {
-            throw new DataAccessException("Database connection pool not initialized");
-        }
+        awaitReady();
         
         try {
             Connection conn = connectionPool.poll();
@@ -84,11 +134,28 @@ public class DatabaseUtil {
         }
     }
     
+    /**
+     * Chờ pool khởi tạo xong (lời gọi đầu tiên khi ứng dụng vừa mở)
+     */
+    private void awaitReady() throws DataAccessException {
+        try {
+            ready.get(DatabaseConfig.CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new DataAccessException("Database connection pool not initialized: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new DataAccessException("Timed out waiting for database connection pool", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while waiting for database connection pool", e);
+        }
+    }
+    
     public void releaseConnection(Connection connection) {
         if (connection != null) {
             try {
-                if (!connection.isClosed()) {
-                    connectionPool.offer(connection);
+                // Pool đầy (nhiều truy vấn song song đã mở thêm kết nối): đóng kết nối thừa
+                if (!connection.isClosed() && !connectionPool.offer(connection)) {
+                    connection.close();
                 }
             } catch (SQLException e) {
                 LOGGER.log(Level.WARNING, "Error releasing connection", e);
@@ -96,6 +163,34 @@ public class DatabaseUtil {
         }
     }
     
+    /**
+     * Đặt thời hạn cho mọi truy vấn của thread hiện tại (tới khi clearQueryDeadline).
+     * Quá hạn thì server tự hủy truy vấn và trả kết nối, không cần ngắt thread.
+     */
+    public static void setQueryDeadline(long deadlineNanos) {
+        QUERY_DEADLINE.set(deadlineNanos);
+    }
+    
+    public static void clearQueryDeadline() {
+        QUERY_DEADLINE.remove();
+    }
+    
+    /**
+     * Áp thời hạn của thread hiện tại (nếu có) vào statement sắp chạy:
+     * setQueryTimeout theo số giây còn lại, đã hết hạn thì không chạy
+     */
+    public static void applyQueryDeadline(Statement stmt) throws SQLException {
+        Long deadline = QUERY_DEADLINE.get();
+        if (deadline == null) {
+            return;
+        }
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw new SQLTimeoutException("Đã quá thời hạn truy vấn");
+        }
+        stmt.setQueryTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + 999_999_999L)));
+    }
+    
     public void closeAllConnections() {
         while (!connectionPool.isEmpty()) {
             try {
@@ -0,0 +1,47 @@
+// Đo thời gian khởi động: các mốc tính từ lúc JVM bắt đầu chạy
+package utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Mỗi mốc chỉ được ghi log một lần (lần đầu tiên), gọi từ thread nào cũng được.
+ * Thời gian tính từ lúc tiến trình JVM khởi động, đúng với thời gian người dùng chờ.
+ */
+public final class StartupTimer {
+    private static final Logger LOGGER = Logger.getLogger(StartupTimer.class.getName());
+    
+    private static final long JVM_START_MILLIS = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final Set<String> reported = ConcurrentHashMap.newKeySet();
+    
+    private StartupTimer() {
+    }
+    
+    public static long elapsedMillis() {
+        return System.currentTimeMillis() - JVM_START_MILLIS;
+    }
+    
+    /**
+     * Ghi lại mốc khởi động, trả về số ms kể từ lúc JVM bắt đầu (-1 nếu mốc đã được ghi)
+     */
+    public static long mark(String moc) {
+        if (!reported.add(moc)) {
+            return -1;
+        }
+        long elapsed = elapsedMillis();
+        LOGGER.info(String.format("Khởi động - %s: %d ms", moc, elapsed));
+        return elapsed;
+    }
+    
+    /**
+     * Ghi lại mốc và cảnh báo nếu vượt mục tiêu (ms)
+     */
+    public static void mark(String moc, long targetMillis) {
+        long elapsed = mark(moc);
+        if (elapsed > targetMillis) {
+            LOGGER.warning(String.format("Khởi động - %s sau %d ms, vượt mục tiêu %d ms", moc, elapsed, targetMillis));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+// Chọn K phần tử lớn nhất trong một lần duyệt, bộ nhớ O(K)
+package utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Heap nhỏ nhất giới hạn K phần tử: phần tử mới chỉ vào heap nếu tốt hơn phần tử kém nhất
+ * đang giữ. O(n log K) thay vì sắp xếp toàn bộ O(n log n), không cần giữ cả nguồn dữ liệu.
+ * Dùng cho nguồn dữ liệu trong bộ nhớ; với DB thì đẩy ORDER BY ... LIMIT xuống truy vấn.
+ */
+public final class TopKSelector<T> {
+    private final int k;
+    private final Comparator<? super T> order;
+    private final PriorityQueue<T> heap; // đầu heap là phần tử kém nhất trong K phần tử
+
+    /**
+     * @param order thứ tự giảm dần mong muốn: order.compare(a, b) < 0 nghĩa là a đứng trước b
+     */
+    public TopKSelector(int k, Comparator<? super T> order) {
+        if (k < 0) throw new IllegalArgumentException("K không được âm: " + k);
+        this.k = k;
+        this.order = order;
+        this.heap = new PriorityQueue<>(Math.max(1, k), (a, b) -> order.compare(b, a));
+    }
+
+    public void offer(T item) {
+        if (k == 0) {
+            return;
+        }
+        if (heap.size() < k) {
+            heap.add(item);
+        } else if (order.compare(item, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(item);
+        }
+    }
+
+    /**
+     * K phần tử tốt nhất theo đúng thứ tự order
+     */
+    public List<T> toList() {
+        List<T> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
+}